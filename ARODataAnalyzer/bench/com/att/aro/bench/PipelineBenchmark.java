@@ -0,0 +1,53 @@
+/*
+ *  Copyright 2012 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.bench;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.att.aro.model.Profile3G;
+import com.att.aro.model.ProfileLTE;
+import com.att.aro.model.TraceData;
+
+/**
+ * Benchmarks the complete analysis pipeline, from session extraction through
+ * the application score, as run when a trace is opened.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PipelineBenchmark {
+
+	@Benchmark
+	public TraceData.Analysis runAnalysis3G(TraceState state) throws IOException {
+		return state.trace.runAnalysis(new Profile3G(), null);
+	}
+
+	@Benchmark
+	public TraceData.Analysis runAnalysisLTE(TraceState state) throws IOException {
+		return state.trace.runAnalysis(new ProfileLTE(), null);
+	}
+}
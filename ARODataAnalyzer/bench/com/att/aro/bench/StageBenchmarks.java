@@ -0,0 +1,91 @@
+/*
+ *  Copyright 2012 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.bench;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.att.aro.model.BurstCollectionAnalysis;
+import com.att.aro.model.CacheAnalysis;
+import com.att.aro.model.HttpRequestResponseInfo;
+import com.att.aro.model.RrcStateRange;
+import com.att.aro.model.TCPSession;
+import com.att.aro.model.Throughput;
+
+/**
+ * Benchmarks for the individual stages of the trace analysis. Each stage runs
+ * on the output of the baseline analysis held by {@link TraceState}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class StageBenchmarks {
+
+	@Benchmark
+	public List<TCPSession> extractTcpSessions(TraceState state) throws IOException {
+		return TCPSession.extractTCPSessions(state.packets);
+	}
+
+	@Benchmark
+	public void parseHttp(TraceState state, Blackhole blackhole) throws IOException {
+		for (TCPSession session : state.sessions) {
+			blackhole.consume(HttpRequestResponseInfo.extractHttpRequestResponseInfo(session));
+		}
+	}
+
+	@Benchmark
+	public List<RrcStateRange> rrc3G(TraceState state) {
+		return RrcStateRange.runTrace(state.analysis3G);
+	}
+
+	@Benchmark
+	public List<RrcStateRange> rrcLTE(TraceState state) {
+		return RrcStateRange.runTrace(state.analysisLTE);
+	}
+
+	@Benchmark
+	public List<RrcStateRange> rrcWiFi(TraceState state) {
+		return RrcStateRange.runTrace(state.analysisWiFi);
+	}
+
+	@Benchmark
+	public BurstCollectionAnalysis burstAnalysis(TraceState state) {
+		return new BurstCollectionAnalysis(state.analysis3G);
+	}
+
+	@Benchmark
+	public CacheAnalysis cacheAnalysis(TraceState state) throws IOException {
+		return new CacheAnalysis(state.sessions);
+	}
+
+	@Benchmark
+	public List<Throughput> throughput(TraceState state) {
+		return Throughput.calculateThroughput(0.0, state.trace.getTraceDuration(), state.analysis3G
+				.getProfile().getThroughputWindow(), state.packets);
+	}
+}
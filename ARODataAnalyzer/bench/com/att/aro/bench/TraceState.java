@@ -0,0 +1,77 @@
+/*
+ *  Copyright 2012 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.bench;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.att.aro.model.PacketInfo;
+import com.att.aro.model.Profile3G;
+import com.att.aro.model.ProfileLTE;
+import com.att.aro.model.ProfileWiFi;
+import com.att.aro.model.SyntheticTrace;
+import com.att.aro.model.TCPSession;
+import com.att.aro.model.TraceData;
+
+/**
+ * Shared benchmark state. Generates one synthetic trace per parameter
+ * combination and runs a baseline analysis for each radio profile type, so
+ * that the stage benchmarks can run in isolation on realistic inputs.
+ */
+@State(Scope.Benchmark)
+public class TraceState {
+
+	/**
+	 * Approximate number of packets in the trace
+	 */
+	@Param({ "10000", "100000" })
+	public int packetCount;
+
+	/**
+	 * Number of TCP sessions in the trace
+	 */
+	@Param({ "50", "500" })
+	public int sessionCount;
+
+	/**
+	 * Share of the sessions carrying plain HTTP
+	 */
+	@Param({ "0.2", "0.8" })
+	public double httpMix;
+
+	TraceData trace;
+	List<PacketInfo> packets;
+	List<TCPSession> sessions;
+	TraceData.Analysis analysis3G;
+	TraceData.Analysis analysisLTE;
+	TraceData.Analysis analysisWiFi;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		trace = SyntheticTrace.generate(packetCount, sessionCount, httpMix, 42L);
+		analysis3G = trace.runAnalysis(new Profile3G(), null);
+		analysisLTE = trace.runAnalysis(new ProfileLTE(), null);
+		analysisWiFi = trace.runAnalysis(new ProfileWiFi(), null);
+		packets = analysis3G.getPackets();
+		sessions = analysis3G.getTcpSessions();
+	}
+}
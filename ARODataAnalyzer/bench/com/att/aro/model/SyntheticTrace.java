@@ -0,0 +1,193 @@
+/*
+ *  Copyright 2012 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.model;
+
+import java.util.Random;
+
+/**
+ * Generates synthetic traces for the benchmark suite. A trace is made of a
+ * number of TCP sessions spread over the trace duration. Each session performs
+ * a TCP handshake, a series of request/response exchanges separated by think
+ * time, and a TCP close. A configurable share of the sessions carries plain
+ * HTTP (so that HTTP parsing, cache analysis and the best practices have work
+ * to do), and the remaining sessions carry TLS application records. The
+ * packets are built with the same {@link TestPackets} builder as the unit
+ * tests.
+ */
+public final class SyntheticTrace {
+
+	private static final String[] APP_NAMES = { "com.example.news", "com.example.mail",
+			"com.example.social" };
+	private static final String[] CONTENT_TYPES = { "text/html", "text/css",
+			"application/javascript", "image/jpeg", "application/json" };
+
+	private final Random random;
+	private final TestPackets builder = new TestPackets();
+
+	/**
+	 * Generates a synthetic trace.
+	 *
+	 * @param packetCount
+	 *            The approximate number of packets in the trace.
+	 * @param sessionCount
+	 *            The number of TCP sessions in the trace.
+	 * @param httpMix
+	 *            The share (0.0 to 1.0) of the sessions that carry plain HTTP.
+	 * @param seed
+	 *            The seed of the random generator, so that runs are repeatable.
+	 * @return The trace data.
+	 */
+	public static TraceData generate(int packetCount, int sessionCount, double httpMix, long seed) {
+		if (packetCount <= 0 || sessionCount <= 0) {
+			throw new IllegalArgumentException("Packet and session counts must be positive");
+		}
+		SyntheticTrace generator = new SyntheticTrace(seed);
+		double traceDuration = Math.max(60.0, packetCount / 20.0);
+		int packetsPerSession = Math.max(10, packetCount / sessionCount);
+		for (int i = 0; i < sessionCount; ++i) {
+			boolean http = generator.random.nextDouble() < httpMix;
+			double start = generator.random.nextDouble() * traceDuration * 0.9;
+			generator.addSession(i, start, packetsPerSession, http);
+		}
+		return generator.builder.createTraceData(traceDuration);
+	}
+
+	private SyntheticTrace(long seed) {
+		this.random = new Random(seed);
+	}
+
+	/**
+	 * Adds the packets of one session, starting at the specified time.
+	 */
+	private void addSession(int index, double start, int packetBudget, boolean http) {
+		String appName = APP_NAMES[index % APP_NAMES.length];
+		String host = "host" + (index % 40) + ".example.com";
+		byte[] remoteIp = { 93, (byte) 184, (byte) (index % 40), (byte) (1 + index % 200) };
+		int remotePort = http ? 80 : 443;
+		TestPackets.Flow flow = builder.flow(appName, remoteIp, remotePort,
+				random.nextInt() & 0x7fffffff, random.nextInt() & 0x7fffffff);
+
+		// Handshake
+		double ts = start;
+		int budget = packetBudget;
+		flow.send(ts, true, TestPackets.SYN, null, 0, 0);
+		ts += rtt();
+		flow.send(ts, false, TestPackets.SYN | TestPackets.ACK, null, 0, 0);
+		flow.send(ts, true, TestPackets.ACK, null, 0, 0);
+		budget -= 3;
+
+		int exchange = 0;
+		while (budget > 4) {
+			byte[] request;
+			byte[] response;
+			if (http) {
+				String contentType = CONTENT_TYPES[(index + exchange) % CONTENT_TYPES.length];
+				int bodyLen = contentType.startsWith("image") ? 2000 + random.nextInt(30000)
+						: 300 + random.nextInt(8000);
+				request = httpRequest(host, "/res/" + index + "/" + exchange, appName);
+				response = httpResponse(contentType, bodyLen, exchange);
+			} else {
+				request = tlsRecord(200 + random.nextInt(400));
+				response = tlsRecord(500 + random.nextInt(20000));
+			}
+
+			// Sends the data with an acknowledgment every other segment
+			int count = builder.getPackets().size();
+			ts += thinkTime();
+			flow.transfer(ts, true, request, 2);
+			ts += rtt();
+			flow.transfer(ts, false, response, 2);
+			budget -= builder.getPackets().size() - count;
+			++exchange;
+		}
+
+		// Close
+		ts += 0.5 + random.nextDouble();
+		flow.send(ts, true, TestPackets.FIN | TestPackets.ACK, null, 0, 0);
+		ts += rtt();
+		flow.send(ts, false, TestPackets.FIN | TestPackets.ACK, null, 0, 0);
+		flow.send(ts, true, TestPackets.ACK, null, 0, 0);
+	}
+
+	private double rtt() {
+		return 0.05 + random.nextDouble() * 0.1;
+	}
+
+	/**
+	 * Think time between exchanges. Mostly short gaps with occasional long
+	 * ones, so that the radio simulation walks through the tail and idle
+	 * states.
+	 */
+	private double thinkTime() {
+		double r = random.nextDouble();
+		if (r < 0.7) {
+			return random.nextDouble() * 0.5;
+		} else if (r < 0.9) {
+			return 2.0 + random.nextDouble() * 5.0;
+		} else {
+			return 10.0 + random.nextDouble() * 20.0;
+		}
+	}
+
+	private static byte[] httpRequest(String host, String path, String appName) {
+		return TestPackets.ascii("GET " + path + " HTTP/1.1\r\n" + "Host: " + host + "\r\n"
+				+ "User-Agent: " + appName + "\r\n" + "Accept-Encoding: gzip\r\n"
+				+ "Connection: keep-alive\r\n\r\n");
+	}
+
+	private byte[] httpResponse(String contentType, int bodyLen, int exchange) {
+		StringBuilder body = new StringBuilder(bodyLen + 200);
+		if ("text/html".equals(contentType)) {
+			body.append("<html><head><script src=\"/app.js\"></script>")
+					.append("<link rel=\"stylesheet\" href=\"/site.css\"></head><body>")
+					.append("<img src=\"/logo.png\" width=\"100\" height=\"50\">");
+		}
+		String filler;
+		if ("application/javascript".equals(contentType)) {
+			filler = "var counter = counter + 1;\n";
+		} else if ("text/css".equals(contentType)) {
+			filler = ".item { margin: 0px; padding: 2px; }\n";
+		} else if ("application/json".equals(contentType)) {
+			filler = "{\"id\": 1, \"name\": \"item\"}\n";
+		} else {
+			filler = "lorem ipsum dolor sit amet ";
+		}
+		while (body.length() < bodyLen) {
+			body.append(filler);
+		}
+		if ("text/html".equals(contentType)) {
+			body.append("</body></html>");
+		}
+		String headers = "HTTP/1.1 200 OK\r\n" + "Date: Mon, 15 Oct 2012 10:00:00 GMT\r\n"
+				+ "Content-Type: " + contentType + "\r\n" + "Content-Length: " + body.length()
+				+ "\r\n" + (exchange % 3 == 0 ? "Cache-Control: max-age=3600\r\n" : "Cache-Control: no-cache\r\n")
+				+ "Last-Modified: Sun, 14 Oct 2012 08:00:00 GMT\r\n" + "ETag: \"" + exchange + "\"\r\n\r\n";
+		return TestPackets.ascii(headers + body);
+	}
+
+	private byte[] tlsRecord(int len) {
+		byte[] record = new byte[len + 5];
+		record[0] = 23; // Application data
+		record[1] = 3;
+		record[2] = 1;
+		record[3] = (byte) (len >> 8);
+		record[4] = (byte) len;
+		for (int i = 5; i < record.length; ++i) {
+			record[i] = (byte) random.nextInt();
+		}
+		return record;
+	}
+}
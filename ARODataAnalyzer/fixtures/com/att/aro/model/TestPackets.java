@@ -0,0 +1,223 @@
+/*
+ *  Copyright 2012 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.model;
+
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.att.aro.pcap.Packet;
+
+/**
+ * Builds the packets of TCP sessions for the unit tests and the benchmarks.
+ * The packets are raw IPv4 packets between the device and the remote addresses
+ * of the sessions, with their direction set and their timestamps relative to
+ * the start of the trace, as the TraceData class expects them after a trace is
+ * read.
+ */
+final class TestPackets {
+
+	static final int FIN = 0x01;
+	static final int SYN = 0x02;
+	static final int PSH = 0x08;
+	static final int ACK = 0x10;
+
+	/**
+	 * The largest TCP payload of a packet.
+	 */
+	static final int MSS = 1400;
+
+	/**
+	 * pcap data link type for raw IP packets
+	 */
+	private static final int DLT_RAW = 12;
+
+	private static final int IP_HEADER_LEN = 20;
+	private static final int TCP_HEADER_LEN = 20;
+	private static final long EPOCH_SECONDS = 1350000000L;
+	private static final byte[] LOCAL_IP = { 10, 0, 0, 2 };
+
+	private final List<PacketInfo> packets = new ArrayList<PacketInfo>();
+	private int nextLocalPort = 40000;
+
+	/**
+	 * Returns the packets that have been sent, in the order they were sent.
+	 */
+	List<PacketInfo> getPackets() {
+		return packets;
+	}
+
+	/**
+	 * Returns new packet information for the packets that have been sent, as
+	 * each snapshot of a live trace has its own.
+	 */
+	List<PacketInfo> snapshot() {
+		List<PacketInfo> result = new ArrayList<PacketInfo>(packets.size());
+		for (PacketInfo p : packets) {
+			PacketInfo packetInfo = new PacketInfo(p.getAppName(), p.getPacket());
+			packetInfo.setTimestamp(p.getTimeStamp());
+			packetInfo.setDir(p.getDir());
+			result.add(packetInfo);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns a trace of the packets that have been sent.
+	 */
+	TraceData createTraceData(double traceDuration) {
+		return new TraceData(packets, traceDuration);
+	}
+
+	/**
+	 * Starts a TCP session of the specified application with a remote
+	 * address.
+	 */
+	Flow flow(String appName, byte[] remoteIp, int remotePort) {
+		return flow(appName, remoteIp, remotePort, 1000, 5000);
+	}
+
+	/**
+	 * Starts a TCP session of the specified application with a remote
+	 * address, with the specified initial sequence numbers.
+	 */
+	Flow flow(String appName, byte[] remoteIp, int remotePort, long localIsn, long remoteIsn) {
+		return new Flow(appName, remoteIp, nextLocalPort++, remotePort, localIsn, remoteIsn);
+	}
+
+	/**
+	 * Returns the US-ASCII bytes of the specified text.
+	 */
+	static byte[] ascii(String s) {
+		try {
+			return s.getBytes("US-ASCII");
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Tracks the sequence numbers of one TCP session and adds its packets.
+	 */
+	final class Flow {
+		private final String appName;
+		private final byte[] remoteIp;
+		private final int localPort;
+		private final int remotePort;
+		private long localSeq;
+		private long remoteSeq;
+
+		private Flow(String appName, byte[] remoteIp, int localPort, int remotePort,
+				long localIsn, long remoteIsn) {
+			this.appName = appName;
+			this.remoteIp = remoteIp;
+			this.localPort = localPort;
+			this.remotePort = remotePort;
+			this.localSeq = localIsn;
+			this.remoteSeq = remoteIsn;
+		}
+
+		/**
+		 * Sends the TCP handshake.
+		 */
+		Flow connect(double ts) {
+			send(ts, true, SYN, null, 0, 0);
+			send(ts + 0.05, false, SYN | ACK, null, 0, 0);
+			send(ts + 0.05, true, ACK, null, 0, 0);
+			return this;
+		}
+
+		/**
+		 * Sends the data in MSS sized segments, each acknowledged by the
+		 * receiver.
+		 */
+		Flow transfer(double ts, boolean uplink, byte[] data) {
+			return transfer(ts, uplink, data, 1);
+		}
+
+		/**
+		 * Sends the data in MSS sized segments, with an acknowledgment from
+		 * the receiver after the specified number of segments and after the
+		 * last segment.
+		 */
+		Flow transfer(double ts, boolean uplink, byte[] data, int segmentsPerAck) {
+			int segments = 0;
+			for (int offset = 0; offset < data.length; offset += MSS) {
+				int len = Math.min(MSS, data.length - offset);
+				send(ts, uplink, ACK | PSH, data, offset, len);
+				if (++segments % segmentsPerAck == 0 || offset + len >= data.length) {
+					send(ts + 0.002, !uplink, ACK, null, 0, 0);
+				}
+				ts += 0.001;
+			}
+			return this;
+		}
+
+		/**
+		 * Sends the TCP close.
+		 */
+		Flow close(double ts) {
+			send(ts, true, FIN | ACK, null, 0, 0);
+			send(ts + 0.05, false, FIN | ACK, null, 0, 0);
+			send(ts + 0.05, true, ACK, null, 0, 0);
+			return this;
+		}
+
+		/**
+		 * Sends one packet.
+		 */
+		PacketInfo send(double ts, boolean uplink, int flags, byte[] data, int offset, int len) {
+			long seq = uplink ? localSeq : remoteSeq;
+			long ack = (flags & ACK) != 0 ? (uplink ? remoteSeq : localSeq) : 0;
+			int totalLen = IP_HEADER_LEN + TCP_HEADER_LEN + len;
+
+			ByteBuffer bytes = ByteBuffer.allocate(totalLen);
+
+			// IPv4 header
+			bytes.put((byte) 0x45).put((byte) 0).putShort((short) totalLen);
+			bytes.putShort((short) 0).putShort((short) 0x4000);
+			bytes.put((byte) 64).put((byte) 6).putShort((short) 0);
+			bytes.put(uplink ? LOCAL_IP : remoteIp).put(uplink ? remoteIp : LOCAL_IP);
+
+			// TCP header
+			bytes.putShort((short) (uplink ? localPort : remotePort));
+			bytes.putShort((short) (uplink ? remotePort : localPort));
+			bytes.putInt((int) seq).putInt((int) ack);
+			bytes.putShort((short) ((5 << 12) | flags));
+			bytes.putShort((short) 65535).putShort((short) 0).putShort((short) 0);
+			if (len > 0) {
+				bytes.put(data, offset, len);
+			}
+
+			long micros = Math.round(ts * 1000000.0);
+			Packet packet = Packet.createPacketFromPcap(DLT_RAW, EPOCH_SECONDS + micros / 1000000,
+					micros % 1000000, totalLen, bytes.array());
+			PacketInfo packetInfo = new PacketInfo(appName, packet);
+			packetInfo.setTimestamp(packet.getTimeStamp() - EPOCH_SECONDS);
+			packetInfo.setDir(uplink ? PacketInfo.Direction.UPLINK : PacketInfo.Direction.DOWNLINK);
+			packets.add(packetInfo);
+
+			long advance = len + ((flags & (SYN | FIN)) != 0 ? 1 : 0);
+			if (uplink) {
+				localSeq = (localSeq + advance) & 0xFFFFFFFFL;
+			} else {
+				remoteSeq = (remoteSeq + advance) & 0xFFFFFFFFL;
+			}
+			return packetInfo;
+		}
+	}
+}
@@ -15,25 +15,25 @@
  */
 package com.att.aro.bp.asynccheck;
 
-import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
 
-import com.att.aro.model.ContentException;
+import com.att.aro.model.ContentCache;
 import com.att.aro.model.HttpRequestResponseInfo;
-import com.att.aro.model.HttpRequestResponseInfo.Direction;
+import com.att.aro.model.SessionTraversal;
+import com.att.aro.model.SessionVisitorAdapter;
 import com.att.aro.model.TCPSession;
 
 /**
  * Represents Asynchronous script load Analysis
  * 
  */
-public class AsyncCheckAnalysis {
+public class AsyncCheckAnalysis extends SessionVisitorAdapter {
 
 	private static final Logger LOGGER = Logger
 			.getLogger(AsyncCheckAnalysis.class.getName());
@@ -43,6 +43,7 @@ public class AsyncCheckAnalysis {
 	private int syncLoadedScripts = 0;
 	private int syncPacketCount = 0;
 	private int asyncPacketCount = 0;
+	private ContentCache contentCache;
 
 	/**
 	 * Performs Async Check Analysis
@@ -51,15 +52,39 @@ public class AsyncCheckAnalysis {
 	 *            - TCP sessions to be analyzed.
 	 */
 	public AsyncCheckAnalysis(List<TCPSession> tcpSessions) {
-		for (TCPSession tcpSession : tcpSessions) {
-			for (HttpRequestResponseInfo rr : tcpSession
-					.getRequestResponseInfo()) {
-				if (rr.getDirection() == Direction.RESPONSE) {
-					if (!rr.checkAsyncAttributeInHead(this)) {
-						results.add(new AsyncCheckEntry(rr));
-					}
-				}
-			}
+		this(tcpSessions, new ContentCache());
+	}
+
+	/**
+	 * Performs Async Check Analysis, using the parsed documents of the
+	 * specified cache.
+	 * 
+	 * @param tcpSessions
+	 *            - TCP sessions to be analyzed.
+	 * @param contentCache
+	 *            - The content cache of the analysis.
+	 */
+	public AsyncCheckAnalysis(List<TCPSession> tcpSessions, ContentCache contentCache) {
+		this(contentCache);
+		SessionTraversal.traverse(tcpSessions, contentCache, this);
+	}
+
+	/**
+	 * Creates an Async Check Analysis that is performed by a session
+	 * traversal.
+	 * 
+	 * @param contentCache
+	 *            - The content cache of the analysis.
+	 */
+	public AsyncCheckAnalysis(ContentCache contentCache) {
+		this.contentCache = contentCache;
+	}
+
+	@Override
+	public void onHtmlDocument(HttpRequestResponseInfo rr, Document doc) {
+		// Checking the content length (only text/html is parsed).
+		if (rr.getContentLength() != 0 && !findSyncLoadingScripts(doc)) {
+			results.add(new AsyncCheckEntry(rr));
 		}
 	}
 
@@ -72,21 +97,15 @@ public class AsyncCheckAnalysis {
 	 */
 	public boolean parseHtmlToFindSyncLoadingScripts(
 			HttpRequestResponseInfo info) {
+		return findSyncLoadingScripts(contentCache.getDocument(info));
+	}
 
-		org.jsoup.nodes.Document doc;
-		String packetContent = null;
-		try {
-			packetContent = info.getContentString();
-		} catch (ContentException e1) {
-			LOGGER.log(Level.FINE,
-					"Content Exception while getting the content from the packet");
-		} catch (IOException e1) {
-			LOGGER.log(Level.FINE,
-					"IOException while getting the content from the packet");
-		}
-
-		if (packetContent != null) {
-			doc = Jsoup.parse(packetContent);
+	/**
+	 * Checks whether the scripts in the head of the document are loaded
+	 * asynchronously or not
+	 */
+	private boolean findSyncLoadingScripts(Document doc) {
+		if (doc != null) {
 			Elements headLink = null;
 			Elements scriptLink = null;
 
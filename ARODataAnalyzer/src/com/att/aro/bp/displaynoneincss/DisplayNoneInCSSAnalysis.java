@@ -1,6 +1,5 @@
 package com.att.aro.bp.displaynoneincss;
 
-import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
@@ -11,9 +10,11 @@ import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import com.att.aro.model.ContentCache;
 import com.att.aro.model.ContentException;
 import com.att.aro.model.HttpRequestResponseInfo;
-import com.att.aro.model.HttpRequestResponseInfo.Direction;
+import com.att.aro.model.SessionTraversal;
+import com.att.aro.model.SessionVisitorAdapter;
 import com.att.aro.model.TCPSession;
 
 /**
@@ -22,63 +23,59 @@ import com.att.aro.model.TCPSession;
  *
  */
 
-public class DisplayNoneInCSSAnalysis {
+public class DisplayNoneInCSSAnalysis extends SessionVisitorAdapter {
 	
 	private static final Logger logger = Logger.getLogger(DisplayNoneInCSSAnalysis.class.getName());
 
 	private List<DisplayNoneInCSSEntry> results = new ArrayList<DisplayNoneInCSSEntry>();
+	private ContentCache contentCache;
 		
 	public DisplayNoneInCSSAnalysis(List<TCPSession> tcpSessions) {
-		for (TCPSession tcpSession : tcpSessions) {
-			for (HttpRequestResponseInfo rr : tcpSession
-					.getRequestResponseInfo()) {
-				Document doc = null;
-				String css;
-				if ((rr.getDirection() == Direction.RESPONSE) && (rr.getContentType() != null)
-						&& (rr.getContentType().equalsIgnoreCase("text/html"))) {
-				
-					doc = getParsedHtml(rr);
-					if (doc != null) {
-						if (checkIfDisplayNoneIsPresentInCSSembeddedInHTML(doc)) {
-							results.add(new DisplayNoneInCSSEntry(rr));
-						}
-					}
-				}
-				else if(rr.getDirection() == Direction.RESPONSE && rr.getContentType() != null
-						&& rr.getContentType().equalsIgnoreCase("text/css")){
-					css = getCSS(rr);
-					if (css != null) {
-						if (checkIfDisplayNoneIsPresentInCSS(css)) {
-							results.add(new DisplayNoneInCSSEntry(rr));
-						}
-					}
-				}
-			}
-		}
+		this(tcpSessions, new ContentCache());
 	}
-	
+
 	/**
-	 * Parse the HTML file using JSOUP
-	 * @return Document, the parsed HTML file
+	 * Performs Display:none in CSS analysis, using the decoded contents and
+	 * parsed documents of the specified cache.
+	 * 
+	 * @param tcpSessions
+	 *            - TCP sessions to be analyzed.
+	 * @param contentCache
+	 *            - The content cache of the analysis.
 	 */
-	private Document getParsedHtml(HttpRequestResponseInfo rr){
-		Document doc = null;
-		String htmlContent = null;
-		try {
-			htmlContent = rr.getContentString();
-		}catch (ContentException e) {
-			logger.log(Level.SEVERE, "HTML content is not available.");
-		} catch (IOException e) {
-			logger.log(Level.SEVERE, "HTML content is not available.");
+	public DisplayNoneInCSSAnalysis(List<TCPSession> tcpSessions, ContentCache contentCache) {
+		this(contentCache);
+		SessionTraversal.traverse(tcpSessions, contentCache, this);
+	}
+
+	/**
+	 * Creates a Display:none in CSS analysis that is performed by a session
+	 * traversal.
+	 * 
+	 * @param contentCache
+	 *            - The content cache of the analysis.
+	 */
+	public DisplayNoneInCSSAnalysis(ContentCache contentCache) {
+		this.contentCache = contentCache;
+	}
+
+	@Override
+	public void onResponse(HttpRequestResponseInfo rr) {
+		if (rr.getContentType() != null && rr.getContentType().equalsIgnoreCase("text/css")) {
+			String css = getCSS(rr);
+			if (css != null) {
+				if (checkIfDisplayNoneIsPresentInCSS(css)) {
+					results.add(new DisplayNoneInCSSEntry(rr));
+				}
+			}
 		}
-		
-		if (htmlContent != null){
-			doc = Jsoup.parse(htmlContent);
+	}
+
+	@Override
+	public void onHtmlDocument(HttpRequestResponseInfo rr, Document doc) {
+		if (checkIfDisplayNoneIsPresentInCSSembeddedInHTML(doc)) {
+			results.add(new DisplayNoneInCSSEntry(rr));
 		}
-		if (doc != null)
-			return doc;
-		else 
-			return null;
 	}
 	/**
 	 * This method return the CSS file from the RR objects
@@ -88,7 +85,7 @@ public class DisplayNoneInCSSAnalysis {
 		
 		String cssContent = null;
 		try {
-			cssContent = rr.getContentString();
+			cssContent = contentCache.getContentString(rr);
 		}catch (ContentException e) {
 			logger.log(Level.SEVERE, "CSS content is not available.");
 		} catch (IOException e) {
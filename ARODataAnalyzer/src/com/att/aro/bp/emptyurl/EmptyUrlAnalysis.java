@@ -15,26 +15,25 @@
  */
 package com.att.aro.bp.emptyurl;
 
-import java.io.IOException;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
 
-import com.att.aro.model.ContentException;
+import com.att.aro.model.ContentCache;
 import com.att.aro.model.HttpRequestResponseInfo;
-import com.att.aro.model.HttpRequestResponseInfo.Direction;
+import com.att.aro.model.SessionTraversal;
+import com.att.aro.model.SessionVisitorAdapter;
 import com.att.aro.model.TCPSession;
 
 /**
  * Represents empty URL analysis.
  * 
  */
-public class EmptyUrlAnalysis {
+public class EmptyUrlAnalysis extends SessionVisitorAdapter {
 
 	private static final Logger LOGGER = Logger.getLogger(EmptyUrlAnalysis.class.getName());
 
@@ -49,59 +48,56 @@ public class EmptyUrlAnalysis {
 	 * 
 	 */
 	public EmptyUrlAnalysis(List<TCPSession> tcpSessions) {
+		this(tcpSessions, new ContentCache());
+	}
+
+	/**
+	 * Performs empty URL analysis, using the parsed documents of the
+	 * specified cache.
+	 * 
+	 * @param tcpSessions
+	 *            TCP session
+	 * @param contentCache
+	 *            The content cache of the analysis
+	 * 
+	 */
+	public EmptyUrlAnalysis(List<TCPSession> tcpSessions, ContentCache contentCache) {
 		if (null != tcpSessions) {
-			analyzeTcpSessions(tcpSessions);
+			SessionTraversal.traverse(tcpSessions, contentCache, this);
 		}
 	}
 
-	private void analyzeTcpSessions(List<TCPSession> tcpSessions) {
-		String contentType;
-		// loop through TCP session
-		for (TCPSession tcpSession : tcpSessions) {
-			// loop through HTTP requests and responses
-			for (HttpRequestResponseInfo rr : tcpSession.getRequestResponseInfo()) {
-
-				contentType = rr.getContentType();
-				if ((rr.getDirection() == Direction.RESPONSE) && (rr.getContentLength() != 0) && (contentType != null)) {
-					analyzeContent(rr, contentType);
-				}
-			}
-		}
+	/**
+	 * Creates an empty URL analysis that is performed by a session traversal.
+	 * 
+	 */
+	public EmptyUrlAnalysis() {
 	}
 
-	private void analyzeContent(HttpRequestResponseInfo rr, String contentType) {
-		if (HttpRequestResponseInfo.isHtml(contentType)) {
-			analyzeHtml(rr);
+	@Override
+	public void onHtmlDocument(HttpRequestResponseInfo rr, Document htmlDoc) {
+		if ((rr.getContentLength() != 0) && HttpRequestResponseInfo.isHtml(rr.getContentType())) {
+			analyzeHtml(rr, htmlDoc);
 		}
 	}
 
-	private void analyzeHtml(HttpRequestResponseInfo rr) {
+	private void analyzeHtml(HttpRequestResponseInfo rr, Document htmlDoc) {
 
-		Document htmlDoc;
-		try {
-			htmlDoc = Jsoup.parse(rr.getContentString());
+		Elements allHrefElements = new Elements();
+		allHrefElements.addAll(htmlDoc.select("a"));
+		allHrefElements.addAll(htmlDoc.select("link"));
 
-			Elements allHrefElements = new Elements();
-			allHrefElements.addAll(htmlDoc.select("a"));
-			allHrefElements.addAll(htmlDoc.select("link"));
+		Elements allSrcElements = new Elements();
+		allSrcElements.addAll(htmlDoc.select("iframe"));
+		allSrcElements.addAll(htmlDoc.select("img"));
+		allSrcElements.addAll(htmlDoc.select("script"));
 
-			Elements allSrcElements = new Elements();
-			allSrcElements.addAll(htmlDoc.select("iframe"));
-			allSrcElements.addAll(htmlDoc.select("img"));
-			allSrcElements.addAll(htmlDoc.select("script"));
-
-			if (isAttributeEmpty(rr, allHrefElements, "href")) {
-				return;
-			}
-
-			if (isAttributeEmpty(rr, allSrcElements, "src")) {
-				return;
-			}
+		if (isAttributeEmpty(rr, allHrefElements, "href")) {
+			return;
+		}
 
-		} catch (ContentException e) {
-			LOGGER.log(Level.WARNING, "Empty URL Analysis - Unexpected Exception {0}", e.getMessage());
-		} catch (IOException e) {
-			LOGGER.log(Level.WARNING, "Empty URL Analysis - Unexpected Exception {0}", e.getMessage());
+		if (isAttributeEmpty(rr, allSrcElements, "src")) {
+			return;
 		}
 	}
 
@@ -7,15 +7,17 @@ import java.util.logging.Logger;
 import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
 
+import com.att.aro.model.ContentCache;
 import com.att.aro.model.HttpRequestResponseInfo;
-import com.att.aro.model.HttpRequestResponseInfo.Direction;
+import com.att.aro.model.SessionTraversal;
+import com.att.aro.model.SessionVisitorAdapter;
 import com.att.aro.model.TCPSession;
 
 /**
  * Represents File Order Analysis
  * 
  */
-public class FileOrderAnalysis {
+public class FileOrderAnalysis extends SessionVisitorAdapter {
 
 	private static final Logger LOGGER = Logger
 			.getLogger(FileOrderAnalysis.class.getName());
@@ -26,19 +28,32 @@ public class FileOrderAnalysis {
 	private Elements js; // To store all the js elements present in HEAD
 
 	public FileOrderAnalysis(List<TCPSession> tcpSessions) {
-		for (TCPSession tcpSession : tcpSessions) {
-			for (HttpRequestResponseInfo rr : tcpSession
-					.getRequestResponseInfo()) {
-				org.jsoup.nodes.Document doc = null;
-				if (rr.getDirection() == Direction.RESPONSE) {
-					doc = rr.parseHtml(this);
-					if (doc != null) {
-						if (checkFileOrderAnalysisResults(doc)) {
-							results.add(new FileOrderEntry(rr));
-						}
-					}
-				}
-			}
+		this(tcpSessions, new ContentCache());
+	}
+
+	/**
+	 * Performs File Order Analysis, using the parsed documents of the
+	 * specified cache.
+	 * 
+	 * @param tcpSessions
+	 *            - TCP sessions to be analyzed.
+	 * @param contentCache
+	 *            - The content cache of the analysis.
+	 */
+	public FileOrderAnalysis(List<TCPSession> tcpSessions, ContentCache contentCache) {
+		SessionTraversal.traverse(tcpSessions, contentCache, this);
+	}
+
+	/**
+	 * Creates a File Order Analysis that is performed by a session traversal.
+	 */
+	public FileOrderAnalysis() {
+	}
+
+	@Override
+	public void onHtmlDocument(HttpRequestResponseInfo rr, org.jsoup.nodes.Document doc) {
+		if (rr.getContentLength() != 0 && checkFileOrderAnalysisResults(doc)) {
+			results.add(new FileOrderEntry(rr));
 		}
 	}
 
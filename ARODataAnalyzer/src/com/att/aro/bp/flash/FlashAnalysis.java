@@ -1,22 +1,22 @@
 package com.att.aro.bp.flash;
 
-import java.io.IOException;
 import java.util.List;
 
-import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
 
-import com.att.aro.model.ContentException;
+import com.att.aro.model.ContentCache;
 import com.att.aro.model.HttpRequestResponseInfo;
-import com.att.aro.model.HttpRequestResponseInfo.Direction;
+import com.att.aro.model.SessionTraversal;
+import com.att.aro.model.SessionVisitorAdapter;
 import com.att.aro.model.TCPSession;
 
-public class FlashAnalysis {
+public class FlashAnalysis extends SessionVisitorAdapter {
 	
 	private HttpRequestResponseInfo firstFlash = null;
 	private int numberOfFlash = 0;
+	private ContentCache contentCache;
 
 	/**
 	 * Performs Flash Analysis.
@@ -26,51 +26,66 @@ public class FlashAnalysis {
 	 * 
 	 */
 	public FlashAnalysis(List<TCPSession> tcpSessions) {
+		this(tcpSessions, new ContentCache());
+	}
+
+	/**
+	 * Performs Flash Analysis, using the parsed documents of the specified
+	 * cache.
+	 * 
+	 * @param tcpSessions
+	 *            TCP session
+	 * @param contentCache
+	 *            The content cache of the analysis
+	 * 
+	 */
+	public FlashAnalysis(List<TCPSession> tcpSessions, ContentCache contentCache) {
+		this(contentCache);
 		if (null != tcpSessions) {
-			analyzeTcpSessions(tcpSessions);
+			SessionTraversal.traverse(tcpSessions, contentCache, this);
 		}
 	}
 
-	private void analyzeTcpSessions(List<TCPSession> tcpSessions) {
-		// loop through TCP session
-		for (TCPSession tcpSession : tcpSessions) {
-			// loop through HTTP requests and responses
-			for (HttpRequestResponseInfo reqRessInfo : tcpSession.getRequestResponseInfo()) {
-				if (reqRessInfo.getDirection() == Direction.RESPONSE 
-					&& reqRessInfo.getContentType() != null 
-					&& reqRessInfo.getContentLength() > 0) {
-						if (reqRessInfo.getContentType().equalsIgnoreCase("application/x-shockwave-flash")
-							|| reqRessInfo.getContentType().equalsIgnoreCase("video/x-flv")) {
-						numberOfFlash++;
-						if (this.firstFlash == null) {
-							this.firstFlash = reqRessInfo;
-						}
-					} else {
-						String contentType = reqRessInfo.getContentType();
-						if (contentType.equalsIgnoreCase("text/css") || contentType.equalsIgnoreCase("text/html")) {
-							checkEmbeddedFlashInHTMLOrCSS(reqRessInfo);
-						}
-					}
+	/**
+	 * Creates a Flash Analysis that is performed by a session traversal.
+	 * 
+	 * @param contentCache
+	 *            The content cache of the analysis
+	 * 
+	 */
+	public FlashAnalysis(ContentCache contentCache) {
+		this.contentCache = contentCache;
+	}
+
+	@Override
+	public void onResponse(HttpRequestResponseInfo reqRessInfo) {
+		if (reqRessInfo.getContentType() != null 
+			&& reqRessInfo.getContentLength() > 0) {
+				if (reqRessInfo.getContentType().equalsIgnoreCase("application/x-shockwave-flash")
+					|| reqRessInfo.getContentType().equalsIgnoreCase("video/x-flv")) {
+				numberOfFlash++;
+				if (this.firstFlash == null) {
+					this.firstFlash = reqRessInfo;
 				}
+			} else if (reqRessInfo.getContentType().equalsIgnoreCase("text/css")) {
+				// CSS content is parsed as HTML to find the embedded Flash
+				checkEmbeddedFlashInHTMLOrCSS(reqRessInfo, contentCache.getDocument(reqRessInfo));
 			}
 		}
 	}
 
+	@Override
+	public void onHtmlDocument(HttpRequestResponseInfo reqRessInfo, Document doc) {
+		if (reqRessInfo.getContentLength() > 0) {
+			checkEmbeddedFlashInHTMLOrCSS(reqRessInfo, doc);
+		}
+	}
+
 	/**
 	 * Checks embedded Flash in HTML Or CSS content.
 	*/
-	private void checkEmbeddedFlashInHTMLOrCSS(HttpRequestResponseInfo reqRessInfo) {
-		String flashDownloaded = null;
-		try {
-			flashDownloaded = reqRessInfo.getContentString();
-		} catch (ContentException e) {
-			e.printStackTrace();
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
-		
-		if (flashDownloaded != null) {
-			Document doc = Jsoup.parse(flashDownloaded);
+	private void checkEmbeddedFlashInHTMLOrCSS(HttpRequestResponseInfo reqRessInfo, Document doc) {
+		if (doc != null) {
 			
 			//Parsing "embed" in HTML or CSS
 			Elements srcsEmbed = doc.select("embed");
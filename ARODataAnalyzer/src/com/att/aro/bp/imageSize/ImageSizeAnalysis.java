@@ -16,7 +16,6 @@
 package com.att.aro.bp.imageSize;
 
 import java.io.IOException;
-import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
@@ -28,6 +27,7 @@ import java.util.logging.Logger;
 
 import javax.swing.ImageIcon;
 
+import com.att.aro.model.ContentCache;
 import com.att.aro.model.ContentException;
 import com.att.aro.model.HttpRequestResponseInfo;
 import com.att.aro.model.TCPSession;
@@ -47,6 +47,7 @@ public class ImageSizeAnalysis {
 	boolean m_ImageFoundInHtmlOrCss = false;
 	private int deviceScreenSizeRangeX = 0;
 	private int deviceScreenSizeRangeY = 0;
+	private ContentCache contentCache;
 	
 	/**
 	 * Performs image size analysis.
@@ -55,6 +56,21 @@ public class ImageSizeAnalysis {
 	 *            - TCP sessions to be analyzed.
 	 */
 	public ImageSizeAnalysis(List<TCPSession> tcpSessions, int deviceScreenSizeX, int deviceScreenSizeY) {
+		this(tcpSessions, deviceScreenSizeX, deviceScreenSizeY, new ContentCache());
+	}
+
+	/**
+	 * Performs image size analysis, using the decoded contents and parsed
+	 * documents of the specified cache.
+	 * 
+	 * @param tcpSessions
+	 *            - TCP sessions to be analyzed.
+	 * @param contentCache
+	 *            - The content cache of the analysis.
+	 */
+	public ImageSizeAnalysis(List<TCPSession> tcpSessions, int deviceScreenSizeX,
+			int deviceScreenSizeY, ContentCache contentCache) {
+		this.contentCache = contentCache;
 		deviceScreenSizeRangeX = (deviceScreenSizeX * 150) / 100;
 		deviceScreenSizeRangeY = (deviceScreenSizeY * 150) / 100;
 
@@ -111,7 +127,7 @@ public class ImageSizeAnalysis {
 						String imageToSearchFor = assocReqResp.getObjName();
 						String imageDownloaded = null;
 						try {
-							imageDownloaded = rr.getContentString();
+							imageDownloaded = contentCache.getContentString(rr);
 						} catch (ContentException e) {
 						e.printStackTrace();
 						} catch (IOException e) {
@@ -119,8 +135,8 @@ public class ImageSizeAnalysis {
 						}
 						if (imageToSearchFor != null && imageDownloaded != null) {
 							if (imageDownloaded.toLowerCase().contains(imageToSearchFor.toLowerCase())) {
-								Document doc = Jsoup.parse(imageDownloaded);
-								Elements images = doc.select("[src]");
+								Document doc = contentCache.getDocument(rr);
+								Elements images = doc != null ? doc.select("[src]") : new Elements();
 								for (Element src : images) {
 									 if (src.tagName().equals("img")) {
 										 if ((src.attr("abs:src")).contains(imageToSearchFor)) {
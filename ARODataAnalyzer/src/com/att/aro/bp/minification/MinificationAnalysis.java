@@ -31,6 +31,7 @@ import java.util.logging.Logger;
 import org.mozilla.javascript.ErrorReporter;
 import org.mozilla.javascript.EvaluatorException;
 
+import com.att.aro.model.ContentCache;
 import com.att.aro.model.ContentException;
 import com.att.aro.model.HttpRequestResponseInfo;
 import com.att.aro.model.HttpRequestResponseInfo.Direction;
@@ -63,6 +64,7 @@ public class MinificationAnalysis {
 	private HtmlCompressor htmlCompressor;
 	private List<MinificationEntry> analysisResults = new ArrayList<MinificationEntry>();
 	private long totalSavingsInKb = 0L;
+	private ContentCache contentCache;
 
 	/**
 	 * Performs minification analysis.
@@ -72,6 +74,21 @@ public class MinificationAnalysis {
 	 * 
 	 */
 	public MinificationAnalysis(List<TCPSession> tcpSessions) {
+		this(tcpSessions, new ContentCache());
+	}
+
+	/**
+	 * Performs minification analysis, using the decoded contents of the
+	 * specified cache.
+	 * 
+	 * @param TCP
+	 *            session
+	 * @param contentCache
+	 *            The content cache of the analysis
+	 * 
+	 */
+	public MinificationAnalysis(List<TCPSession> tcpSessions, ContentCache contentCache) {
+		this.contentCache = contentCache;
 		if (null != tcpSessions) {
 			createTmpFileObjects();
 			initHtmlCompressor();
@@ -261,7 +278,7 @@ public class MinificationAnalysis {
 		htmlMinificationResult result = new htmlMinificationResult(0, 0);
 		String htmlIn;
 		try {
-			htmlIn = rr.getContentString();
+			htmlIn = contentCache.getContentString(rr);
 			if (htmlIn != null) {
 				String compressedHtml = htmlCompressor.compress(htmlIn);
 				result.originalSize = htmlIn.length();
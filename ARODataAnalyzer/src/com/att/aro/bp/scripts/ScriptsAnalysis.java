@@ -15,7 +15,6 @@
  */
 package com.att.aro.bp.scripts;
 
-import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.ArrayList;
@@ -23,21 +22,21 @@ import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
 
-import com.att.aro.model.ContentException;
+import com.att.aro.model.ContentCache;
 import com.att.aro.model.HttpRequestResponseInfo;
-import com.att.aro.model.HttpRequestResponseInfo.Direction;
+import com.att.aro.model.SessionTraversal;
+import com.att.aro.model.SessionVisitorAdapter;
 import com.att.aro.model.TCPSession;
 
 /**
  * Represents 3rd party scripts analysis.
  * 
  */
-public class ScriptsAnalysis {
+public class ScriptsAnalysis extends SessionVisitorAdapter {
 
 	private static final Logger LOGGER = Logger.getLogger(ScriptsAnalysis.class.getName());
 
@@ -54,44 +53,46 @@ public class ScriptsAnalysis {
 	 * 
 	 */
 	public ScriptsAnalysis(List<TCPSession> tcpSessions) {
+		this(tcpSessions, new ContentCache());
+	}
+
+	/**
+	 * Performs 3rd party scripts analysis, using the parsed documents of the
+	 * specified cache.
+	 * 
+	 * @param tcpSessions
+	 *            TCP session
+	 * @param contentCache
+	 *            The content cache of the analysis
+	 * 
+	 */
+	public ScriptsAnalysis(List<TCPSession> tcpSessions, ContentCache contentCache) {
 		if (null != tcpSessions) {
-			analyzeTcpSessions(tcpSessions);
+			SessionTraversal.traverse(tcpSessions, contentCache, this);
 		}
 	}
 
-	private void analyzeTcpSessions(List<TCPSession> tcpSessions) {
-		String contentType;
-		// loop through TCP session
-		for (TCPSession tcpSession : tcpSessions) {
-			// loop through HTTP requests and responses
-			for (HttpRequestResponseInfo rr : tcpSession.getRequestResponseInfo()) {
-
-				contentType = rr.getContentType();
-				if ((rr.getDirection() == Direction.RESPONSE) && (rr.getContentLength() != 0) && (contentType != null)
-						&& (HttpRequestResponseInfo.isHtml(contentType))) {
+	/**
+	 * Creates a 3rd party scripts analysis that is performed by a session
+	 * traversal.
+	 * 
+	 */
+	public ScriptsAnalysis() {
+	}
 
-					analyzeHtml(rr);
-				}
-			}
+	@Override
+	public void onHtmlDocument(HttpRequestResponseInfo rr, Document htmlDoc) {
+		if ((rr.getContentLength() != 0) && (HttpRequestResponseInfo.isHtml(rr.getContentType()))) {
+			analyzeHtml(rr, htmlDoc);
 		}
 	}
 
-	private void analyzeHtml(HttpRequestResponseInfo rr) {
-
-		Document htmlDoc;
-		try {
-			htmlDoc = Jsoup.parse(rr.getContentString());
+	private void analyzeHtml(HttpRequestResponseInfo rr, Document htmlDoc) {
 
-			Elements allSrcElements = new Elements(htmlDoc.select("script"));
-
-			if (allSrcElements.size() >= ScriptsAnalysis.MIN_NUM_OF_SCRIPTS_IN_HTML_DOC) {
-				is3rdPartyScript(rr, allSrcElements);
-			}
+		Elements allSrcElements = new Elements(htmlDoc.select("script"));
 
-		} catch (ContentException e) {
-			ScriptsAnalysis.LOGGER.log(Level.WARNING, "Empty URL Analysis - Unexpected Exception {0}", e.getMessage());
-		} catch (IOException e) {
-			ScriptsAnalysis.LOGGER.log(Level.WARNING, "Empty URL Analysis - Unexpected Exception {0}", e.getMessage());
+		if (allSrcElements.size() >= ScriptsAnalysis.MIN_NUM_OF_SCRIPTS_IN_HTML_DOC) {
+			is3rdPartyScript(rr, allSrcElements);
 		}
 	}
 
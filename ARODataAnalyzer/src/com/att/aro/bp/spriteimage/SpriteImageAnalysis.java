@@ -7,15 +7,22 @@ import java.util.logging.Logger;
 
 import com.att.aro.model.HttpRequestResponseInfo;
 import com.att.aro.model.PacketInfo;
+import com.att.aro.model.SessionTraversal;
+import com.att.aro.model.SessionVisitorAdapter;
 import com.att.aro.model.TCPSession;
-import com.att.aro.model.HttpRequestResponseInfo.Direction;
 
-public class SpriteImageAnalysis {
+public class SpriteImageAnalysis extends SessionVisitorAdapter {
 	private static Logger LOGGER = Logger.getLogger(SpriteImageAnalysis.class.getName());
 
 	private static final int IMAGE_SIZE_LIMIT = 6144;
 	private List<SpriteImageEntry> analysisResults = new ArrayList<SpriteImageEntry>();
 
+	// The state of the current TCP session
+	private double lastTimeStamp;
+	private HttpRequestResponseInfo lastReqRessInfo;
+	private boolean thirdOccurrenceTriggered;
+	private boolean sessionDone;
+
 	/**
 	 * Represents SpriteImage analysis.
 	 * 
@@ -23,43 +30,51 @@ public class SpriteImageAnalysis {
 	public SpriteImageAnalysis(List<TCPSession> tcpSessions) {
 
 		if (null != tcpSessions) {
-			// loop through TCP session
-			for (TCPSession tcpSession : tcpSessions) {
-				
-				double lastTimeStamp = 0.0;
-				HttpRequestResponseInfo lastReqRessInfo = null;
-				boolean thirdOccurrenceTriggered = false;
-				
-				// loop through HTTP requests and responses
-				for (HttpRequestResponseInfo reqRessInfo : tcpSession.getRequestResponseInfo()) {
-					if (reqRessInfo.getDirection() == Direction.RESPONSE) {
-						if (reqRessInfo.getContentType() != null) {
-							PacketInfo pktInfo = reqRessInfo.getFirstDataPacket();
-							if (pktInfo != null) {
-								if (reqRessInfo.getContentType().contains("image/") && reqRessInfo.getContentLength() < IMAGE_SIZE_LIMIT) {
-									if (lastTimeStamp == 0.0) {
-										lastTimeStamp = pktInfo.getTimeStamp();
-										lastReqRessInfo = reqRessInfo;
-										continue;
-									} else {
-										if ((pktInfo.getTimeStamp() - lastTimeStamp) <= 5.0) {
-											if (!thirdOccurrenceTriggered) {
-												thirdOccurrenceTriggered = true;
-												continue;
-											} else {
-												analyzeContent(lastReqRessInfo);
-												break;
-											}
-										}
-										lastTimeStamp = pktInfo.getTimeStamp();
-										lastReqRessInfo = reqRessInfo;
-										thirdOccurrenceTriggered = false;
-									}
-								} 
+			SessionTraversal.traverse(tcpSessions, null, this);
+		}
+	}
+
+	/**
+	 * Creates a SpriteImage analysis that is performed by a session traversal.
+	 * 
+	 */
+	public SpriteImageAnalysis() {
+	}
+
+	@Override
+	public void onSession(TCPSession tcpSession) {
+		lastTimeStamp = 0.0;
+		lastReqRessInfo = null;
+		thirdOccurrenceTriggered = false;
+		sessionDone = false;
+	}
+
+	@Override
+	public void onResponse(HttpRequestResponseInfo reqRessInfo) {
+		if (!sessionDone && reqRessInfo.getContentType() != null) {
+			PacketInfo pktInfo = reqRessInfo.getFirstDataPacket();
+			if (pktInfo != null) {
+				if (reqRessInfo.getContentType().contains("image/") && reqRessInfo.getContentLength() < IMAGE_SIZE_LIMIT) {
+					if (lastTimeStamp == 0.0) {
+						lastTimeStamp = pktInfo.getTimeStamp();
+						lastReqRessInfo = reqRessInfo;
+						return;
+					} else {
+						if ((pktInfo.getTimeStamp() - lastTimeStamp) <= 5.0) {
+							if (!thirdOccurrenceTriggered) {
+								thirdOccurrenceTriggered = true;
+								return;
+							} else {
+								analyzeContent(lastReqRessInfo);
+								sessionDone = true;
+								return;
 							}
 						}
-					}			
-				}
+						lastTimeStamp = pktInfo.getTimeStamp();
+						lastReqRessInfo = reqRessInfo;
+						thirdOccurrenceTriggered = false;
+					}
+				} 
 			}
 		}
 	}
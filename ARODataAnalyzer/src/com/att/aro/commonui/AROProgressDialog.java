@@ -20,10 +20,13 @@ package com.att.aro.commonui;
 import java.awt.BorderLayout;
 import java.awt.Dimension;
 import java.awt.Window;
+import java.awt.event.ActionListener;
 import java.util.ResourceBundle;
 
+import javax.swing.JButton;
 import javax.swing.JDialog;
 import javax.swing.JLabel;
+import javax.swing.JPanel;
 import javax.swing.JProgressBar;
 import javax.swing.SwingConstants;
 
@@ -51,6 +54,23 @@ public class AROProgressDialog extends JDialog {
 	 *            The status message to be displayed in the progress dialog.
 	 */
 	public AROProgressDialog(Window parent, String message) {
+		this(parent, message, null);
+	}
+
+	/**
+	 * Initializes a new instance of the AROProgressDialog class using the
+	 * specified parent window, status message, and a listener for the cancel
+	 * button of the dialog.
+	 * 
+	 * @param parent
+	 *            The parent window.
+	 * @param message
+	 *            The status message to be displayed in the progress dialog.
+	 * @param cancelListener
+	 *            The listener that is notified when the cancel button is
+	 *            pressed, or null if the dialog has no cancel button.
+	 */
+	public AROProgressDialog(Window parent, String message, ActionListener cancelListener) {
 		super(parent, rb.getString("aro.title.short"));
 		setResizable(false);
 		setLayout(new BorderLayout());
@@ -65,7 +85,25 @@ public class AROProgressDialog extends JDialog {
 		progressBar.setIndeterminate(true);
 		add(progressBar, BorderLayout.CENTER);
 
+		if (cancelListener != null) {
+			JButton cancelButton = new JButton(rb.getString("progress.cancel"));
+			cancelButton.addActionListener(cancelListener);
+			JPanel buttonPanel = new JPanel();
+			buttonPanel.add(cancelButton);
+			add(buttonPanel, BorderLayout.SOUTH);
+		}
+
 		pack();
 		setLocationRelativeTo(parent);
 	}
+
+	/**
+	 * Sets the status message displayed in the progress dialog.
+	 * 
+	 * @param message
+	 *            The status message.
+	 */
+	public void setMessage(String message) {
+		label.setText(message);
+	}
 }
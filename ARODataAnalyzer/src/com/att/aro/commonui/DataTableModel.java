@@ -270,4 +270,37 @@ public abstract class DataTableModel<T> extends AbstractTableModel {
 	 */
 	protected abstract Object getColumnValue(T item, int columnIndex);
 
+	/**
+	 * Returns the value that the specified item is sorted by in the specified
+	 * column when the table uses a {@link DataTableRowSorter}. The sorter calls
+	 * this method once for each row when it sorts, on the AWT thread unless
+	 * {@link #isSortKeyThreadSafe()} returns true. Numbers are compared as
+	 * numbers, and other values by their natural order or their string value.
+	 * 
+	 * The default implementation returns the column value. Subclasses may
+	 * override it to return a value that is cheaper to compute.
+	 * 
+	 * @param item The item to retrieve the sort key for.
+	 * @param columnIndex The index of the column.
+	 * @return The sort key of the item in the column.
+	 */
+	protected Object getSortKey(T item, int columnIndex) {
+		return getColumnValue(item, columnIndex);
+	}
+
+	/**
+	 * Returns whether {@link #getSortKey(Object, int)} may be called on a
+	 * background thread. Subclasses that return true must compute their sort
+	 * keys without accessing Swing components or state that changes while the
+	 * table is displayed.
+	 * 
+	 * The default implementation returns false, so the sort keys are read on
+	 * the AWT thread.
+	 * 
+	 * @return true if the sort keys may be read on a background thread.
+	 */
+	protected boolean isSortKeyThreadSafe() {
+		return false;
+	}
+
 }
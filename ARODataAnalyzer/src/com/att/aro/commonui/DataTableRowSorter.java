@@ -0,0 +1,441 @@
+/*
+ *  Copyright 2012 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.commonui;
+
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.swing.RowSorter;
+import javax.swing.SortOrder;
+import javax.swing.SwingWorker;
+
+/**
+ * A row sorter for data tables with many rows. The sort key of each row is
+ * read from the model once per sort, using
+ * {@link DataTableModel#getSortKey(Object, int)}, and numeric keys are kept
+ * as primitives. The keys are read on the AWT thread, unless the model
+ * declares with {@link DataTableModel#isSortKeyThreadSafe()} that they may be
+ * read on a background thread. The rows are sorted on a background thread,
+ * and the table keeps showing the previous order until the new order is
+ * ready. Sorting is stable, so rows with equal keys stay in model order.
+ *
+ * @param <T>
+ *            The type of the items in the table model.
+ */
+public class DataTableRowSorter<T> extends RowSorter<DataTableModel<T>> {
+
+	private static final Logger logger = Logger.getLogger(DataTableRowSorter.class.getName());
+
+	/**
+	 * The number of rows between checks for cancellation of a sort.
+	 */
+	private static final int CANCEL_CHECK_INTERVAL = 4096;
+
+	private DataTableModel<T> model;
+	private List<SortKey> sortKeys = Collections.emptyList();
+	private int[] viewToModel;
+	private int[] modelToView;
+	private SortWorker worker;
+
+	/**
+	 * Initializes an instance of the DataTableRowSorter class for the
+	 * specified model.
+	 *
+	 * @param model
+	 *            The table model.
+	 */
+	public DataTableRowSorter(DataTableModel<T> model) {
+		this.model = model;
+	}
+
+	/**
+	 * Returns the table model of this sorter.
+	 *
+	 * @return The table model.
+	 */
+	@Override
+	public DataTableModel<T> getModel() {
+		return model;
+	}
+
+	/**
+	 * Sorts by the specified column, in ascending order the first time, and
+	 * reverses the order when the column is already the primary sort key.
+	 *
+	 * @param column
+	 *            The model index of the column.
+	 */
+	@Override
+	public void toggleSortOrder(int column) {
+		SortOrder order = SortOrder.ASCENDING;
+		if (!sortKeys.isEmpty() && sortKeys.get(0).getColumn() == column
+				&& sortKeys.get(0).getSortOrder() == SortOrder.ASCENDING) {
+			order = SortOrder.DESCENDING;
+		}
+		setSortKeys(Collections.singletonList(new SortKey(column, order)));
+	}
+
+	@Override
+	public int convertRowIndexToModel(int index) {
+		if (viewToModel == null) {
+			if (index < 0 || index >= model.getRowCount()) {
+				throw new IndexOutOfBoundsException("Invalid index");
+			}
+			return index;
+		}
+		return viewToModel[index];
+	}
+
+	@Override
+	public int convertRowIndexToView(int index) {
+		if (modelToView == null) {
+			if (index < 0 || index >= model.getRowCount()) {
+				throw new IndexOutOfBoundsException("Invalid index");
+			}
+			return index;
+		}
+		return modelToView[index];
+	}
+
+	/**
+	 * Sets the sort keys and starts sorting the rows in the background.
+	 *
+	 * @param keys
+	 *            The new sort keys, or null to show the rows in model order.
+	 */
+	@Override
+	public void setSortKeys(List<? extends SortKey> keys) {
+		List<SortKey> newKeys = new ArrayList<SortKey>();
+		if (keys != null) {
+			for (SortKey key : keys) {
+				if (key.getSortOrder() != SortOrder.UNSORTED) {
+					newKeys.add(key);
+				}
+			}
+		}
+		if (!newKeys.equals(sortKeys)) {
+			this.sortKeys = Collections.unmodifiableList(newKeys);
+			fireSortOrderChanged();
+			sort();
+		}
+	}
+
+	@Override
+	public List<? extends SortKey> getSortKeys() {
+		return sortKeys;
+	}
+
+	@Override
+	public int getViewRowCount() {
+		return viewToModel != null ? viewToModel.length : model.getRowCount();
+	}
+
+	@Override
+	public int getModelRowCount() {
+		return model.getRowCount();
+	}
+
+	@Override
+	public void modelStructureChanged() {
+		this.sortKeys = Collections.emptyList();
+		fireSortOrderChanged();
+		allRowsChanged();
+	}
+
+	@Override
+	public void allRowsChanged() {
+
+		// The previous order no longer matches the model, so show the rows in
+		// model order until the new order is ready.
+		int[] lastViewToModel = viewToModel;
+		viewToModel = null;
+		modelToView = null;
+		fireRowSorterChanged(lastViewToModel);
+		sort();
+	}
+
+	@Override
+	public void rowsInserted(int firstRow, int endRow) {
+		allRowsChanged();
+	}
+
+	@Override
+	public void rowsDeleted(int firstRow, int endRow) {
+		allRowsChanged();
+	}
+
+	@Override
+	public void rowsUpdated(int firstRow, int endRow) {
+		sort();
+	}
+
+	@Override
+	public void rowsUpdated(int firstRow, int endRow, int column) {
+		for (SortKey key : sortKeys) {
+			if (key.getColumn() == column) {
+				sort();
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Returns whether rows are being sorted in the background.
+	 *
+	 * @return true if a sort is in progress.
+	 */
+	public boolean isSorting() {
+		return worker != null;
+	}
+
+	/**
+	 * Starts sorting the rows in the background, cancelling any sort in
+	 * progress. Runs on the AWT thread.
+	 */
+	private void sort() {
+		if (worker != null) {
+			worker.cancel(false);
+			worker = null;
+		}
+		if (sortKeys.isEmpty()) {
+			if (viewToModel != null) {
+				int[] lastViewToModel = viewToModel;
+				viewToModel = null;
+				modelToView = null;
+				fireRowSorterChanged(lastViewToModel);
+			}
+			return;
+		}
+
+		// Snapshot the rows, so that the model may change while sorting
+		List<T> rows = new ArrayList<T>(model.getData());
+		RowComparator comparator = model.isSortKeyThreadSafe() ? null : extractKeys(rows,
+				sortKeys, null);
+		worker = new SortWorker(rows, sortKeys, comparator);
+		worker.execute();
+	}
+
+	/**
+	 * Reads the sort keys of the rows.
+	 *
+	 * @param rows
+	 *            The rows.
+	 * @param keys
+	 *            The sort keys.
+	 * @param sortWorker
+	 *            The sort that is checked for cancellation while the keys are
+	 *            read, or null.
+	 * @return A comparator of the rows by their keys, or null if the sort was
+	 *         cancelled.
+	 */
+	private RowComparator extractKeys(List<T> rows, List<SortKey> keys, SortWorker sortWorker) {
+		int count = rows.size();
+		int keyCount = keys.size();
+		double[][] numbers = new double[keyCount][];
+		Object[][] objects = new Object[keyCount][];
+		int[] direction = new int[keyCount];
+		for (int k = 0; k < keyCount; ++k) {
+			int column = keys.get(k).getColumn();
+			direction[k] = keys.get(k).getSortOrder() == SortOrder.DESCENDING ? -1 : 1;
+			Object[] values = new Object[count];
+			boolean numeric = true;
+			for (int i = 0; i < count; ++i) {
+				if (sortWorker != null && i % CANCEL_CHECK_INTERVAL == 0
+						&& sortWorker.isCancelled()) {
+					return null;
+				}
+				Object value = model.getSortKey(rows.get(i), column);
+				values[i] = value;
+				numeric &= value == null || value instanceof Number;
+			}
+			if (numeric) {
+
+				// Keep numbers as primitives. Nulls sort first.
+				double[] keyValues = new double[count];
+				for (int i = 0; i < count; ++i) {
+					keyValues[i] = values[i] != null ? ((Number) values[i]).doubleValue()
+							: Double.NEGATIVE_INFINITY;
+				}
+				numbers[k] = keyValues;
+			} else {
+				objects[k] = values;
+			}
+		}
+		return new RowComparator(numbers, objects, direction);
+	}
+
+	/**
+	 * Installs the result of a sort. Runs on the AWT thread.
+	 */
+	private void sorted(SortWorker sortWorker, int[] newViewToModel) {
+		if (sortWorker != worker) {
+			return;
+		}
+		worker = null;
+		if (newViewToModel.length != model.getRowCount()) {
+
+			// The model changed without notifying the sorter
+			sort();
+			return;
+		}
+		int[] newModelToView = new int[newViewToModel.length];
+		for (int i = 0; i < newViewToModel.length; ++i) {
+			newModelToView[newViewToModel[i]] = i;
+		}
+		int[] lastViewToModel = viewToModel;
+		if (lastViewToModel == null) {
+			lastViewToModel = new int[newViewToModel.length];
+			for (int i = 0; i < lastViewToModel.length; ++i) {
+				lastViewToModel[i] = i;
+			}
+		}
+		viewToModel = newViewToModel;
+		modelToView = newModelToView;
+		fireRowSorterChanged(lastViewToModel);
+	}
+
+	/**
+	 * Extracts the sort keys of the rows, when they have not been read on the
+	 * AWT thread, and sorts the row indexes.
+	 */
+	private class SortWorker extends SwingWorker<int[], Object> {
+		private List<T> rows;
+		private List<SortKey> keys;
+		private RowComparator comparator;
+
+		SortWorker(List<T> rows, List<SortKey> keys, RowComparator comparator) {
+			this.rows = rows;
+			this.keys = keys;
+			this.comparator = comparator;
+		}
+
+		@Override
+		protected int[] doInBackground() {
+			RowComparator comparator = this.comparator != null ? this.comparator : extractKeys(
+					rows, keys, this);
+			if (comparator == null) {
+				return null;
+			}
+
+			int count = rows.size();
+			int[] order = new int[count];
+			for (int i = 0; i < count; ++i) {
+				order[i] = i;
+			}
+			mergeSort(order, new int[count], 0, count, comparator);
+			return isCancelled() ? null : order;
+		}
+
+		@Override
+		protected void done() {
+			if (isCancelled()) {
+				return;
+			}
+			try {
+				int[] order = get();
+				if (order != null) {
+					sorted(this, order);
+				}
+			} catch (CancellationException e) {
+				// Superseded by a newer sort
+			} catch (InterruptedException e) {
+				logger.log(Level.WARNING, "Table sort interrupted", e);
+			} catch (ExecutionException e) {
+				logger.log(Level.SEVERE, "Table sort failed", e.getCause());
+				if (worker == this) {
+					worker = null;
+				}
+			}
+		}
+
+		/**
+		 * Stable merge sort of row indexes.
+		 */
+		private void mergeSort(int[] a, int[] tmp, int from, int to, RowComparator comparator) {
+			if (to - from < 2 || isCancelled()) {
+				return;
+			}
+			int mid = (from + to) >>> 1;
+			mergeSort(a, tmp, from, mid, comparator);
+			mergeSort(a, tmp, mid, to, comparator);
+			if (comparator.compare(a[mid - 1], a[mid]) <= 0) {
+				return;
+			}
+			System.arraycopy(a, from, tmp, from, to - from);
+			int i = from;
+			int j = mid;
+			for (int k = from; k < to; ++k) {
+				if (j >= to || (i < mid && comparator.compare(tmp[i], tmp[j]) <= 0)) {
+					a[k] = tmp[i++];
+				} else {
+					a[k] = tmp[j++];
+				}
+			}
+		}
+	}
+
+	/**
+	 * Compares rows by their extracted sort keys.
+	 */
+	private static class RowComparator {
+		private double[][] numbers;
+		private Object[][] objects;
+		private int[] direction;
+		private Collator collator = Collator.getInstance();
+
+		RowComparator(double[][] numbers, Object[][] objects, int[] direction) {
+			this.numbers = numbers;
+			this.objects = objects;
+			this.direction = direction;
+		}
+
+		int compare(int row1, int row2) {
+			for (int k = 0; k < direction.length; ++k) {
+				int result;
+				if (numbers[k] != null) {
+					result = Double.compare(numbers[k][row1], numbers[k][row2]);
+				} else {
+					result = compareObjects(objects[k][row1], objects[k][row2]);
+				}
+				if (result != 0) {
+					return result * direction[k];
+				}
+			}
+			return 0;
+		}
+
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		private int compareObjects(Object o1, Object o2) {
+			if (o1 == null) {
+				return o2 == null ? 0 : -1;
+			} else if (o2 == null) {
+				return 1;
+			} else if (o1 instanceof String && o2 instanceof String) {
+				return collator.compare(o1, o2);
+			} else if (o1 instanceof Comparable && o1.getClass() == o2.getClass()) {
+				return ((Comparable) o1).compareTo(o2);
+			} else {
+				return collator.compare(o1.toString(), o2.toString());
+			}
+		}
+	}
+}
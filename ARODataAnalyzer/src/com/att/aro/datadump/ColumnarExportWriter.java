@@ -0,0 +1,330 @@
+/*
+ * Copyright 2013 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.datadump;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes the detail export in a compact binary format of columns. The rows of
+ * each table are held until a group of {@link #ROW_GROUP_SIZE} rows is
+ * complete, and the group is then written one column after the other.
+ * <p>
+ * The file starts with the bytes "AROC" and a version byte, followed by
+ * records that each start with a record type byte. The last record is the end
+ * record, type 0. A table record, type 1, defines a table before its first
+ * rows with its id, name, column count, and the name and type (0 whole
+ * numbers, 1 decimal numbers, 2 text) of each column. A rows record, type 2,
+ * holds the table id, the row count, and then each column of the group:
+ * <ul>
+ * <li>Numbers start with the number of null values, followed by a bitmap of
+ * the null rows when there are any. Whole numbers are the zigzag encoded
+ * difference from the previous value of the column in the group, and decimal
+ * numbers are 8 byte IEEE values.</li>
+ * <li>Text is encoded with a dictionary for each column, which is kept from
+ * one group to the next. The column starts with a byte that is 1 when the
+ * dictionary is cleared before the group, and the number and text of the
+ * entries added to the dictionary by the group. Each row is then the number
+ * of its entry, starting from 1, or 0 for null.</li>
+ * </ul>
+ * Counts, ids, differences and entry numbers are unsigned variable length
+ * integers of 7 bits per byte, least significant first. Text is written as
+ * its length followed by its UTF-8 bytes, and bitmaps with the first row in
+ * the least significant bit.
+ */
+class ColumnarExportWriter implements ExportWriter {
+
+	/**
+	 * The number of rows of each group.
+	 */
+	static final int ROW_GROUP_SIZE = 16384;
+
+	/**
+	 * The number of entries above which the dictionary of a column is
+	 * cleared.
+	 */
+	static final int MAX_DICTIONARY_SIZE = 65536;
+
+	private static final int VERSION = 1;
+	private static final int END_RECORD = 0;
+	private static final int TABLE_RECORD = 1;
+	private static final int ROWS_RECORD = 2;
+
+	private final DataOutputStream output;
+
+	/**
+	 * The tables in the order they were defined, so the last groups of the
+	 * tables are written in the same order every time.
+	 */
+	private final Map<ExportTable, Table> tables = new LinkedHashMap<ExportTable, Table>();
+
+	/**
+	 * The rows of a table that have not been written yet.
+	 */
+	private static class Table {
+		private final int id;
+		private final Column[] columns;
+		private int rowCount;
+
+		private Table(int id, ExportTable table) {
+			this.id = id;
+			this.columns = new Column[table.getColumnCount()];
+			for (int i = 0; i < columns.length; ++i) {
+				switch (table.getColumnType(i)) {
+				case LONG:
+					columns[i] = new LongColumn();
+					break;
+				case DOUBLE:
+					columns[i] = new DoubleColumn();
+					break;
+				default:
+					columns[i] = new StringColumn();
+					break;
+				}
+			}
+		}
+	}
+
+	/**
+	 * The values of a column of a group of rows.
+	 */
+	private abstract static class Column {
+
+		/**
+		 * Adds the value of the next row.
+		 */
+		abstract void add(int row, Object value);
+
+		/**
+		 * Writes the values of the group, and clears them.
+		 */
+		abstract void write(DataOutputStream output, int rowCount) throws IOException;
+	}
+
+	/**
+	 * A column of numbers, which may be null.
+	 */
+	private abstract static class NumberColumn extends Column {
+		private final byte[] nulls = new byte[(ROW_GROUP_SIZE + 7) / 8];
+		private int nullCount;
+
+		@Override
+		final void add(int row, Object value) {
+			if (value == null) {
+				nulls[row >> 3] |= 1 << (row & 7);
+				++nullCount;
+			}
+			add(row, (Number) value);
+		}
+
+		abstract void add(int row, Number value);
+
+		@Override
+		final void write(DataOutputStream output, int rowCount) throws IOException {
+			start();
+			writeVarint(output, nullCount);
+			if (nullCount > 0) {
+				output.write(nulls, 0, (rowCount + 7) / 8);
+			}
+			for (int row = 0; row < rowCount; ++row) {
+				if ((nulls[row >> 3] & (1 << (row & 7))) == 0) {
+					writeValue(output, row);
+				}
+			}
+			if (nullCount > 0) {
+				Arrays.fill(nulls, (byte) 0);
+				nullCount = 0;
+			}
+		}
+
+		/**
+		 * Prepares to write the values of the group.
+		 */
+		void start() {
+		}
+
+		abstract void writeValue(DataOutputStream output, int row) throws IOException;
+	}
+
+	private static class LongColumn extends NumberColumn {
+		private final long[] values = new long[ROW_GROUP_SIZE];
+		private long previous;
+
+		@Override
+		void add(int row, Number value) {
+			values[row] = value != null ? value.longValue() : 0;
+		}
+
+		@Override
+		void start() {
+			previous = 0;
+		}
+
+		@Override
+		void writeValue(DataOutputStream output, int row) throws IOException {
+			long delta = values[row] - previous;
+			previous = values[row];
+			writeVarint(output, (delta << 1) ^ (delta >> 63));
+		}
+	}
+
+	private static class DoubleColumn extends NumberColumn {
+		private final double[] values = new double[ROW_GROUP_SIZE];
+
+		@Override
+		void add(int row, Number value) {
+			values[row] = value != null ? value.doubleValue() : 0;
+		}
+
+		@Override
+		void writeValue(DataOutputStream output, int row) throws IOException {
+			output.writeDouble(values[row]);
+		}
+	}
+
+	private static class StringColumn extends Column {
+		private final int[] entries = new int[ROW_GROUP_SIZE];
+		private final Map<String, Integer> dictionary = new HashMap<String, Integer>();
+		private final List<String> added = new ArrayList<String>();
+		private boolean cleared;
+
+		@Override
+		void add(int row, Object value) {
+			if (value == null) {
+				entries[row] = 0;
+				return;
+			}
+			String s = value.toString();
+			Integer entry = dictionary.get(s);
+			if (entry == null) {
+				entry = Integer.valueOf(dictionary.size() + 1);
+				dictionary.put(s, entry);
+				added.add(s);
+			}
+			entries[row] = entry.intValue();
+		}
+
+		@Override
+		void write(DataOutputStream output, int rowCount) throws IOException {
+			output.writeByte(cleared ? 1 : 0);
+			writeVarint(output, added.size());
+			for (String s : added) {
+				byte[] bytes = s.getBytes("UTF-8");
+				writeVarint(output, bytes.length);
+				output.write(bytes);
+			}
+			for (int row = 0; row < rowCount; ++row) {
+				writeVarint(output, entries[row]);
+			}
+			added.clear();
+
+			// The dictionary is cleared between groups only, because the
+			// rows of a group may refer to any entry
+			cleared = dictionary.size() >= MAX_DICTIONARY_SIZE;
+			if (cleared) {
+				dictionary.clear();
+			}
+		}
+	}
+
+	/**
+	 * Initializes a new instance of the ColumnarExportWriter class that
+	 * writes to the specified file.
+	 * 
+	 * @param file
+	 *            The file.
+	 * @throws IOException
+	 */
+	ColumnarExportWriter(File file) throws IOException {
+		this.output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+		output.writeBytes("AROC");
+		output.writeByte(VERSION);
+	}
+
+	@Override
+	public void writeRow(ExportTable exportTable, Object[] values) throws IOException {
+		Table table = tables.get(exportTable);
+		if (table == null) {
+			table = new Table(tables.size(), exportTable);
+			tables.put(exportTable, table);
+			output.writeByte(TABLE_RECORD);
+			writeVarint(output, table.id);
+			writeString(output, exportTable.getName());
+			writeVarint(output, exportTable.getColumnCount());
+			for (int i = 0; i < exportTable.getColumnCount(); ++i) {
+				writeString(output, exportTable.getColumnName(i));
+				output.writeByte(exportTable.getColumnType(i).ordinal());
+			}
+		}
+
+		for (int i = 0; i < table.columns.length; ++i) {
+			table.columns[i].add(table.rowCount, values[i]);
+		}
+		if (++table.rowCount == ROW_GROUP_SIZE) {
+			writeRows(table);
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			for (Table table : tables.values()) {
+				if (table.rowCount > 0) {
+					writeRows(table);
+				}
+			}
+			output.writeByte(END_RECORD);
+		} finally {
+			output.close();
+		}
+	}
+
+	/**
+	 * Writes the group of rows of the specified table.
+	 */
+	private void writeRows(Table table) throws IOException {
+		output.writeByte(ROWS_RECORD);
+		writeVarint(output, table.id);
+		writeVarint(output, table.rowCount);
+		for (Column column : table.columns) {
+			column.write(output, table.rowCount);
+		}
+		table.rowCount = 0;
+	}
+
+	private static void writeString(DataOutputStream output, String s) throws IOException {
+		byte[] bytes = s.getBytes("UTF-8");
+		writeVarint(output, bytes.length);
+		output.write(bytes);
+	}
+
+	private static void writeVarint(DataOutputStream output, long value) throws IOException {
+		while ((value & ~0x7fL) != 0) {
+			output.writeByte((int) (value & 0x7f) | 0x80);
+			value >>>= 7;
+		}
+		output.writeByte((int) value);
+	}
+}
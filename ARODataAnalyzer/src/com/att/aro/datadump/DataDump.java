@@ -19,9 +19,12 @@ package com.att.aro.datadump;
 import java.awt.Desktop;
 import java.awt.Frame;
 import java.awt.Window;
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.text.DateFormat;
 import java.text.DecimalFormat;
 import java.text.MessageFormat;
@@ -34,6 +37,7 @@ import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -49,6 +53,7 @@ import com.att.aro.bp.BestPracticeExport;
 import com.att.aro.commonui.AROUIManager;
 import com.att.aro.commonui.MessageDialogFactory;
 import com.att.aro.main.ProfileManager;
+import com.att.aro.model.AnalysisService;
 import com.att.aro.model.ApplicationPacketSummary;
 import com.att.aro.model.BurstAnalysisInfo;
 import com.att.aro.model.BurstCategory;
@@ -76,6 +81,7 @@ public class DataDump {
 
 	private File traceDir;
 	private File fileToSave;
+	private ExportFormat exportFormat;
 	private Profile profile;
 	private boolean singleTrace;
 	private boolean subfolderAccess = true;
@@ -180,8 +186,13 @@ public class DataDump {
 	private void startBackgroundWorker(final List<File> traceFolders) {
 		SwingWorker<File, Object> datadumpWorker = new SwingWorker<File, Object>() {
 			@Override
-			protected File doInBackground() throws IOException, ProfileException {
-				startDataDump(traceFolders);
+			protected File doInBackground() throws IOException, ProfileException,
+					InterruptedException {
+				if (exportFormat != null) {
+					startDetailExport(traceFolders);
+				} else {
+					startDataDump(traceFolders);
+				}
 				return fileToSave;
 			}
 
@@ -198,6 +209,8 @@ public class DataDump {
 								desktop.open(get());
 							}
 						}
+					} else {
+						LOGGER.log(Level.INFO, Util.RB.getString("table.export.success"));
 					}
 					this.cancel(true);
 				} catch (IOException e) {
@@ -236,6 +249,10 @@ public class DataDump {
 		FileNameExtensionFilter ff;
 		ff = new FileNameExtensionFilter(Util.RB.getString("fileChooser.desc.csv"), fileExtention);
 		chooser.addChoosableFileFilter(ff);
+		for (ExportFormat format : ExportFormat.values()) {
+			chooser.addChoosableFileFilter(new FileNameExtensionFilter(format.getDescription(),
+					format.getExtension()));
+		}
 		chooser.setFileFilter(ff);
 		chooser.setDialogTitle(Util.RB.getString("fileChooser.Title"));
 		chooser.setApproveButtonText(Util.RB.getString("fileChooser.Save"));
@@ -252,8 +269,13 @@ public class DataDump {
 			return false;
 		}
 		if (!chooser.getFileFilter().accept(fileToSave)) {
-			fileToSave = new File(fileToSave.getAbsolutePath() + "." + fileExtention);
+			String extension = fileExtention;
+			if (chooser.getFileFilter() instanceof FileNameExtensionFilter) {
+				extension = ((FileNameExtensionFilter) chooser.getFileFilter()).getExtensions()[0];
+			}
+			fileToSave = new File(fileToSave.getAbsolutePath() + "." + extension);
 		}
+		exportFormat = ExportFormat.forFile(fileToSave);
 		
 		String message = MessageFormat.format(Util.RB.getString("fileChooser.fileExists"),
 				                              fileToSave.getAbsolutePath());
@@ -267,16 +289,20 @@ public class DataDump {
 	}
 
 	/**
-	 * Starts dumping data in CSV file for the provided trace files.
+	 * Starts dumping data in CSV file for the provided trace files. The
+	 * traces are analyzed on the worker threads of an analysis service, and
+	 * the rows are written in the order of the trace folders.
 	 * 
 	 * @param traceFolders
 	 *            - List of trace folder names.
-	 * @return A FileWriter object.
+	 * @return A Writer object.
 	 * @throws IOException
+	 * @throws InterruptedException
 	 */
-	private FileWriter startDataDump(List<File> traceFolders) throws IOException, ProfileException {
+	private Writer startDataDump(List<File> traceFolders) throws IOException, ProfileException,
+			InterruptedException {
 
-		FileWriter writer = new FileWriter(fileToSave);
+		Writer writer = new BufferedWriter(new FileWriter(fileToSave));
 		try {
 			Profile currentProfile = profile != null ? profile : ProfileManager
 					.getInstance().getLastUserProfile(ProfileType.T3G);
@@ -301,15 +327,37 @@ public class DataDump {
 
 			List<File> validFolderList = new ArrayList<File>();
 			getValidFolderList(traceFolders, validFolderList);
-			for (File traceDirectory : validFolderList) {
-				TraceData.Analysis analysis;
-				try {
-					TraceData traceData = new TraceData(traceDirectory);
-					analysis = traceData.runAnalysis(currentProfile, null);
-					addAnalysisContent(writer, analysis);
-				} catch (Exception e) {
-					LOGGER.log(Level.WARNING, "Unable to run analysis on folder: " + traceDirectory, e);
+			AnalysisService service = new AnalysisService();
+			try {
+				List<Future<String>> rows = new ArrayList<Future<String>>(validFolderList.size());
+				for (File traceDirectory : validFolderList) {
+					rows.add(service.submit(traceDirectory, currentProfile,
+							new AnalysisService.Task<String>() {
+								@Override
+								public String run(TraceData.Analysis analysis) throws IOException {
+									Writer row = new StringWriter();
+
+									// The formatters of the data dump are shared
+									synchronized (DataDump.this) {
+										addAnalysisContent(row, analysis);
+									}
+									return row.toString();
+								}
+							}));
+				}
+				for (int i = 0; i < rows.size(); ++i) {
+					try {
+						writer.append(rows.get(i).get());
+					} catch (ExecutionException e) {
+						if (e.getCause() instanceof Error) {
+							throw (Error) e.getCause();
+						}
+						LOGGER.log(Level.WARNING, "Unable to run analysis on folder: "
+								+ validFolderList.get(i), e.getCause());
+					}
 				}
+			} finally {
+				service.shutdownNow();
 			}
 		} finally {
 			writer.close();
@@ -317,6 +365,72 @@ public class DataDump {
 		return writer;
 	}
 
+	/**
+	 * Exports the request and packet detail of the provided trace files in
+	 * the selected export format. The traces are analyzed on the worker
+	 * threads of an analysis service and written one at a time as their
+	 * analyses complete.
+	 * 
+	 * @param traceFolders
+	 *            - List of trace folder names.
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	private void startDetailExport(List<File> traceFolders) throws IOException, ProfileException,
+			InterruptedException {
+
+		final ExportWriter writer = exportFormat.createWriter(fileToSave);
+		try {
+			Profile currentProfile = profile != null ? profile : ProfileManager
+					.getInstance().getLastUserProfile(ProfileType.T3G);
+
+			List<File> validFolderList = new ArrayList<File>();
+			getValidFolderList(traceFolders, validFolderList);
+			AnalysisService service = new AnalysisService();
+			try {
+				// The tasks return the exception that fails the export, so that
+				// it is not mistaken for a failure to analyze the trace
+				List<Future<IOException>> traces = new ArrayList<Future<IOException>>(
+						validFolderList.size());
+				for (final File traceDirectory : validFolderList) {
+					traces.add(service.submit(traceDirectory, currentProfile,
+							new AnalysisService.Task<IOException>() {
+								@Override
+								public IOException run(TraceData.Analysis analysis) {
+									try {
+										synchronized (writer) {
+											DetailExport.write(writer, traceDirectory.getName(),
+													analysis);
+										}
+										return null;
+									} catch (IOException e) {
+										return e;
+									}
+								}
+							}));
+				}
+				for (int i = 0; i < traces.size(); ++i) {
+					try {
+						IOException e = traces.get(i).get();
+						if (e != null) {
+							throw e;
+						}
+					} catch (ExecutionException e) {
+						if (e.getCause() instanceof Error) {
+							throw (Error) e.getCause();
+						}
+						LOGGER.log(Level.WARNING, "Unable to run analysis on folder: "
+								+ validFolderList.get(i), e.getCause());
+					}
+				}
+			} finally {
+				service.shutdownNow();
+			}
+		} finally {
+			writer.close();
+		}
+	}
+
 	/**
 	 * Collects valid trace folders.
 	 * 
@@ -358,13 +472,13 @@ public class DataDump {
 	 * Adds trace content into CSV file.
 	 * 
 	 * @param writer
-	 *            - A FileWriter object.
+	 *            - A Writer object.
 	 * @param analysis
 	 *            - A TraceData.Analysis object.
-	 * @return A FileWriter object.
+	 * @return A Writer object.
 	 * @throws IOException
 	 */
-	private FileWriter addAnalysisContent(FileWriter writer, TraceData.Analysis analysis)
+	private Writer addAnalysisContent(Writer writer, TraceData.Analysis analysis)
 			throws IOException {
 
 		addCommonContents(writer, analysis);
@@ -423,7 +537,7 @@ public class DataDump {
 		return writer;
 	}
 
-	private FileWriter addPeripheralEnergy(FileWriter writer, Analysis analysis) throws IOException {
+	private Writer addPeripheralEnergy(Writer writer, Analysis analysis) throws IOException {
 		NumberFormat nf = NumberFormat.getNumberInstance();
 		nf.setMaximumFractionDigits(2);
 		nf.setMinimumFractionDigits(2);
@@ -456,7 +570,7 @@ public class DataDump {
 	 * @return
 	 * @throws IOException
 	 */
-	private FileWriter addCacheContent(FileWriter writer, Analysis analysis) throws IOException {
+	private Writer addCacheContent(Writer writer, Analysis analysis) throws IOException {
 		CacheInfoParser cIPaser = analysis.getCacheInfoParser();
 		NumberFormat format = NumberFormat.getNumberInstance();
 		format.setMaximumFractionDigits(1);
@@ -603,7 +717,7 @@ public class DataDump {
 	 * @return
 	 * @throws IOException
 	 */
-	private FileWriter addApplicationEndPointSummary(FileWriter writer, Analysis analysis)
+	private Writer addApplicationEndPointSummary(Writer writer, Analysis analysis)
 			throws IOException {
 		ArrayList<ApplicationPacketSummary> appList = new ArrayList<ApplicationPacketSummary>(
 				analysis.getApplicationPacketSummary());
@@ -654,7 +768,7 @@ public class DataDump {
 	 * @return
 	 * @throws IOException
 	 */
-	private FileWriter addApplicationScore(FileWriter writer, Analysis analysis) throws IOException {
+	private Writer addApplicationScore(Writer writer, Analysis analysis) throws IOException {
 		writer.append(QUOTE_SEP + analysis.getApplicationScore().getCausesScore() + QUOTE_SEP);
 		writer.append(COMMA_SEP);
 		writer.append(QUOTE_SEP + analysis.getApplicationScore().getEffectScore() + QUOTE_SEP);
@@ -673,7 +787,7 @@ public class DataDump {
 	 * @return
 	 * @throws IOException
 	 */
-	private FileWriter addConnectionStatics(FileWriter writer, Analysis analysis)
+	private Writer addConnectionStatics(Writer writer, Analysis analysis)
 			throws IOException {
 		writer.append(QUOTE_SEP
 				+ (analysis != null ? analysis.calculateSessionTermPercentage(analysis) : 0)
@@ -706,7 +820,7 @@ public class DataDump {
 	 * @return
 	 * @throws IOException
 	 */
-	private FileWriter addCommonContents(FileWriter writer, Analysis analysis)
+	private Writer addCommonContents(Writer writer, Analysis analysis)
 			throws IOException {
 
 		String traceDirPath = analysis.getTraceData().getTraceDir().toString();
@@ -759,7 +873,7 @@ public class DataDump {
 	 * @return
 	 * @throws IOException
 	 */
-	private FileWriter addTraceBenchmarking(FileWriter writer, Analysis analysis)
+	private Writer addTraceBenchmarking(Writer writer, Analysis analysis)
 			throws IOException {
 
 		writer.append("" + (analysis != null ? analysis.getAvgKbps() : 0));
@@ -792,7 +906,7 @@ public class DataDump {
 	 * @return
 	 * @throws IOException
 	 */
-	private FileWriter addFileTypes(FileWriter writer, Analysis analysis) throws IOException {
+	private Writer addFileTypes(Writer writer, Analysis analysis) throws IOException {
 		final List<FileTypeSummary> content = analysis.constructContent(analysis);
 		for (int i = 0; i < 5; i++) {
 			if (i < content.size()) {
@@ -832,7 +946,7 @@ public class DataDump {
 	 * @return
 	 * @throws IOException
 	 */
-	private FileWriter addBestPractices(FileWriter writer, Analysis analysis) throws IOException {
+	private Writer addBestPractices(Writer writer, Analysis analysis) throws IOException {
 		final String bpPass = Util.RB.getString("bestPractices.pass");
 		final String bpFail = Util.RB.getString("bestPractices.fail");
 		String bpWarning = Util.RB.getString("bestPractice.tooltip.warning");
@@ -873,13 +987,13 @@ public class DataDump {
 	 * Adds burst analysis data for provided burst category.
 	 * 
 	 * @param writer
-	 *            - A FileWriter object.
+	 *            - A Writer object.
 	 * @param analysis
 	 *            - A TraceData.Analysis object.
 	 * @param category
 	 * @throws IOException
 	 */
-	private void addBurstAnalysis(FileWriter writer, Analysis analysis, BurstCategory category) throws IOException {
+	private void addBurstAnalysis(Writer writer, Analysis analysis, BurstCategory category) throws IOException {
 		
 		BurstAnalysisInfo burst = null;
 		List<BurstAnalysisInfo> burstInfo = analysis.getBcAnalysis().getBurstAnalysisInfo();
@@ -916,13 +1030,13 @@ public class DataDump {
 	 * Adds 3G RRC state and energy simulation.
 	 * 
 	 * @param writer
-	 *            - A FileWriter object.
+	 *            - A Writer object.
 	 * @param analysis
 	 *            - A TraceData.Analysis object.
-	 * @return A FileWriter object.
+	 * @return A Writer object.
 	 * @throws IOException
 	 */
-	private FileWriter add3GRRCStateAndEnergySimulation(FileWriter writer, Analysis analysis)
+	private Writer add3GRRCStateAndEnergySimulation(Writer writer, Analysis analysis)
 			throws IOException {
 		RRCStateMachine rrc = analysis.getRrcStateMachine();
 		// RRC simulation
@@ -1005,13 +1119,13 @@ public class DataDump {
 	 * Adds LTE RRC state and energy simulation.
 	 * 
 	 * @param writer
-	 *            - A FileWriter object.
+	 *            - A Writer object.
 	 * @param analysis
 	 *            - A TraceData.Analysis object.
-	 * @return A FileWriter object.
+	 * @return A Writer object.
 	 * @throws IOException
 	 */
-	private FileWriter addLTERRCStateAndEnergySimulation(FileWriter writer, Analysis analysis)
+	private Writer addLTERRCStateAndEnergySimulation(Writer writer, Analysis analysis)
 			throws IOException {
 		RRCStateMachine rrc = analysis.getRrcStateMachine();
 		// RRC simulation
@@ -1094,13 +1208,13 @@ public class DataDump {
 	 * Adds WiFi RRC state and energy simulation.
 	 * 
 	 * @param writer
-	 *            - A FileWriter object.
+	 *            - A Writer object.
 	 * @param analysis
 	 *            - A TraceData.Analysis object.
-	 * @return A FileWriter object.
+	 * @return A Writer object.
 	 * @throws IOException
 	 */
-	private FileWriter addWiFiRRCStateAndEnergySimulation(FileWriter writer, Analysis analysis)
+	private Writer addWiFiRRCStateAndEnergySimulation(Writer writer, Analysis analysis)
 			throws IOException {
 		RRCStateMachine rrc = analysis.getRrcStateMachine();
 		// RRC simulation
@@ -1145,13 +1259,13 @@ public class DataDump {
 	 * Adds Basic Statistics data in writer.
 	 * 
 	 * @param writer
-	 *            - A FileWriter object.
+	 *            - A Writer object.
 	 * @param analysis
 	 *            - A TraceData.Analysis object.
-	 * @return A FileWriter object.
+	 * @return A Writer object.
 	 * @throws IOException
 	 */
-	private FileWriter addBasicStatistics(FileWriter writer, TraceData.Analysis analysis)
+	private Writer addBasicStatistics(Writer writer, TraceData.Analysis analysis)
 			throws IOException {
 		// Size
 		writer.append(QUOTE_SEP + analysis.getTotalBytes() + QUOTE_SEP);
@@ -15,8 +15,8 @@
  */
 package com.att.aro.datadump;
 
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Writer;
 import java.util.Collection;
 
 import com.att.aro.bp.BestPracticeDisplay;
@@ -40,7 +40,7 @@ public class DataDump3G extends DataDumpHelper {
 	 * @param bpc
 	 *            best practice display collection
 	 */
-	public void addHeader(FileWriter writer, Collection<BestPracticeDisplay> bpc) throws IOException {
+	public void addHeader(Writer writer, Collection<BestPracticeDisplay> bpc) throws IOException {
 
 		// LINE 1:
 		addContinuousHeader(writer, bestPractices, (bpc.size() * 2) - 1);
@@ -88,7 +88,7 @@ public class DataDump3G extends DataDumpHelper {
 	 * @param writer
 	 * @throws IOException
 	 */
-	private void addBurstHeadersLine3(FileWriter writer) throws IOException {
+	private void addBurstHeadersLine3(Writer writer) throws IOException {
 		StringBuilder strBuff = new StringBuilder();
 		strBuff.append(COMMA_SEP);
 		strBuff.append(burstbytes);
@@ -113,7 +113,7 @@ public class DataDump3G extends DataDumpHelper {
 	 * @param writer
 	 * @throws IOException
 	 */
-	private void addRrcEnergyHeadersLine3(FileWriter writer) throws IOException {
+	private void addRrcEnergyHeadersLine3(Writer writer) throws IOException {
 		for (int i = 1; i <= RRC_ENERGY_HEADERS_7; i++) {
 			writer.append(COMMA_SEP);
 			writer.append(energyJ);
@@ -128,7 +128,7 @@ public class DataDump3G extends DataDumpHelper {
 	 * @param writer
 	 * @throws IOException
 	 */
-	private void addRrcHeadersLine2a(FileWriter writer) throws IOException {
+	private void addRrcHeadersLine2a(Writer writer) throws IOException {
 		writer.append(COMMA_SEP);
 		writer.append(rrcIdle);
 		writer.append(COMMA_SEP);
@@ -161,7 +161,7 @@ public class DataDump3G extends DataDumpHelper {
 	 * @param writer
 	 * @throws IOException
 	 */
-	private void addRrcHeadersLine2b(FileWriter writer) throws IOException {
+	private void addRrcHeadersLine2b(Writer writer) throws IOException {
 		writer.append(rrcIdle);
 		writer.append(COMMA_SEP);
 		writer.append(rrcIdle);
@@ -198,7 +198,7 @@ public class DataDump3G extends DataDumpHelper {
 	 * @param writer
 	 * @throws IOException
 	 */
-	private void addRrcHeadersLine3a(FileWriter writer) throws IOException {
+	private void addRrcHeadersLine3a(Writer writer) throws IOException {
 		for (int i = 1; i <= RRC_HEADERS_4; i++) {
 			writer.append(COMMA_SEP);
 			writer.append(rrcSec);
@@ -213,7 +213,7 @@ public class DataDump3G extends DataDumpHelper {
 	 * @param writer
 	 * @throws IOException
 	 */
-	private void addRrcHeadersLine3b(FileWriter writer) throws IOException {
+	private void addRrcHeadersLine3b(Writer writer) throws IOException {
 		writer.append(COMMA_SEP);
 		writer.append(Util.RB.getString("datadump.hash"));
 		writer.append(COMMA_SEP);
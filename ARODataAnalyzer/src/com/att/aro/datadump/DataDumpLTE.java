@@ -15,8 +15,8 @@
  */
 package com.att.aro.datadump;
 
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Writer;
 import java.util.Collection;
 
 import com.att.aro.bp.BestPracticeDisplay;
@@ -40,7 +40,7 @@ public class DataDumpLTE extends DataDumpHelper {
 	 *            best practice display collection
 	 */
 	@Override
-	public void addHeader(FileWriter writer, Collection<BestPracticeDisplay> bpc) throws IOException {
+	public void addHeader(Writer writer, Collection<BestPracticeDisplay> bpc) throws IOException {
 
 		// LINE 1:
 		addContinuousHeader(writer, bestPractices, (bpc.size() * 2) - 1);
@@ -88,7 +88,7 @@ public class DataDumpLTE extends DataDumpHelper {
 	 * @param writer
 	 * @throws IOException
 	 */
-	private void addBurstHeadersLine3(FileWriter writer) throws IOException {
+	private void addBurstHeadersLine3(Writer writer) throws IOException {
 		StringBuilder strBuff = new StringBuilder();
 		strBuff.append(COMMA_SEP);
 		strBuff.append(burstbytes);
@@ -112,7 +112,7 @@ public class DataDumpLTE extends DataDumpHelper {
 	 * @param writer
 	 * @throws IOException
 	 */
-	private void addRrcEnergyHeadersLine3(FileWriter writer) throws IOException {
+	private void addRrcEnergyHeadersLine3(Writer writer) throws IOException {
 		for (int i = 0; i <= RRC_ENERGY_HEADERS_LINE_2; i++) {
 			writer.append(COMMA_SEP);
 			writer.append(energyJ);
@@ -127,7 +127,7 @@ public class DataDumpLTE extends DataDumpHelper {
 	 * @param writer
 	 * @throws IOException
 	 */
-	private void addRrcHeadersLine2a(FileWriter writer) throws IOException {
+	private void addRrcHeadersLine2a(Writer writer) throws IOException {
 		writer.append(COMMA_SEP);
 		writer.append(rrcIdle);
 		writer.append(COMMA_SEP);
@@ -159,7 +159,7 @@ public class DataDumpLTE extends DataDumpHelper {
 	 * @param writer
 	 * @throws IOException
 	 */
-	private void addRrcHeadersLine2b(FileWriter writer) throws IOException {
+	private void addRrcHeadersLine2b(Writer writer) throws IOException {
 		writer.append(rrcIdle);
 		writer.append(COMMA_SEP);
 		writer.append(rrcIdle);
@@ -192,7 +192,7 @@ public class DataDumpLTE extends DataDumpHelper {
 	 * @param writer
 	 * @throws IOException
 	 */
-	private void addRrcHeadersLine3a(FileWriter writer) throws IOException {
+	private void addRrcHeadersLine3a(Writer writer) throws IOException {
 		for (int i = 0; i <= RRC_HEADERS_LINE_2; i++) {
 			writer.append(COMMA_SEP);
 			writer.append(rrcSec);
@@ -207,7 +207,7 @@ public class DataDumpLTE extends DataDumpHelper {
 	 * @param writer
 	 * @throws IOException
 	 */
-	private void addRrcHeadersLine3b(FileWriter writer) throws IOException {
+	private void addRrcHeadersLine3b(Writer writer) throws IOException {
 		writer.append(COMMA_SEP);
 		writer.append(Util.RB.getString("rrc.crTailRatio"));
 		writer.append(COMMA_SEP);
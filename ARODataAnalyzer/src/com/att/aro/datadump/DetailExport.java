@@ -0,0 +1,121 @@
+/*
+ * Copyright 2013 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.datadump;
+
+import java.io.IOException;
+import java.util.List;
+
+import com.att.aro.datadump.ExportTable.Type;
+import com.att.aro.model.HttpRequestResponseInfo;
+import com.att.aro.model.PacketInfo;
+import com.att.aro.model.TCPSession;
+import com.att.aro.model.TraceData;
+
+/**
+ * Exports the summary, the HTTP requests/responses and the packets of traces
+ * as tables, one trace at a time, with an {@link ExportWriter}. Each row
+ * starts with the name of its trace, so that the rows of many traces may be
+ * written to the same export.
+ */
+public class DetailExport {
+
+	/**
+	 * A row for each trace.
+	 */
+	public static final ExportTable TRACES = new ExportTable("traces", new String[] {
+			"trace", "duration", "packets", "bytes", "sessions", "energy" }, new Type[] {
+			Type.STRING, Type.DOUBLE, Type.LONG, Type.LONG, Type.LONG, Type.DOUBLE });
+
+	/**
+	 * A row for each HTTP request/response.
+	 */
+	public static final ExportTable REQUESTS = new ExportTable("requests", new String[] {
+			"trace", "session", "time", "direction", "remoteIp", "host", "method", "object",
+			"status", "contentType", "contentEncoding", "contentLength", "actualBytes" },
+			new Type[] { Type.STRING, Type.LONG, Type.DOUBLE, Type.STRING, Type.STRING,
+					Type.STRING, Type.STRING, Type.STRING, Type.LONG, Type.STRING, Type.STRING,
+					Type.LONG, Type.LONG });
+
+	/**
+	 * A row for each packet.
+	 */
+	public static final ExportTable PACKETS = new ExportTable("packets", new String[] {
+			"trace", "id", "time", "direction", "app", "remoteIp", "length", "payload",
+			"tcpInfo", "rrcState" }, new Type[] { Type.STRING, Type.LONG, Type.DOUBLE,
+			Type.STRING, Type.STRING, Type.STRING, Type.LONG, Type.LONG, Type.STRING,
+			Type.STRING });
+
+	private DetailExport() {
+	}
+
+	/**
+	 * Writes the rows of the specified trace analysis.
+	 * 
+	 * @param writer
+	 *            The export writer.
+	 * @param trace
+	 *            The name of the trace.
+	 * @param analysis
+	 *            The trace analysis.
+	 * @throws IOException
+	 */
+	public static void write(ExportWriter writer, String trace, TraceData.Analysis analysis)
+			throws IOException {
+		List<TCPSession> sessions = analysis.getTcpSessions();
+		writer.writeRow(TRACES, new Object[] { trace,
+				analysis.getTraceData().getTraceDuration(), analysis.getPackets().size(),
+				analysis.getTotalBytes(), sessions.size(),
+				analysis.getEnergyModel().getTotalEnergyConsumed() });
+
+		Object[] row = new Object[REQUESTS.getColumnCount()];
+		row[0] = trace;
+		for (int i = 0; i < sessions.size(); ++i) {
+			TCPSession session = sessions.get(i);
+			for (HttpRequestResponseInfo rr : session.getRequestResponseInfo()) {
+				row[1] = i;
+				row[2] = rr.getTimeStamp();
+				row[3] = rr.getDirection();
+				row[4] = session.getRemoteIP() != null ? session.getRemoteIP().getHostAddress()
+						: null;
+				row[5] = rr.getHostName() != null ? rr.getHostName() : session.getDomainName();
+				row[6] = rr.getRequestType();
+				row[7] = rr.getObjName();
+				row[8] = rr.getStatusCode() != 0 ? Integer.valueOf(rr.getStatusCode()) : null;
+				row[9] = rr.getContentType();
+				row[10] = rr.getContentEncoding();
+				row[11] = rr.getContentLength();
+				row[12] = rr.getActualByteCount();
+				writer.writeRow(REQUESTS, row);
+			}
+		}
+
+		row = new Object[PACKETS.getColumnCount()];
+		row[0] = trace;
+		for (PacketInfo packet : analysis.getPackets()) {
+			row[1] = packet.getId();
+			row[2] = packet.getTimeStamp();
+			row[3] = packet.getDir();
+			row[4] = packet.getAppName();
+			row[5] = packet.getRemoteIPAddress() != null ? packet.getRemoteIPAddress()
+					.getHostAddress() : null;
+			row[6] = packet.getLen();
+			row[7] = packet.getPayloadLen();
+			row[8] = packet.getTcpInfo();
+			row[9] = packet.getStateMachine();
+			writer.writeRow(PACKETS, row);
+		}
+	}
+}
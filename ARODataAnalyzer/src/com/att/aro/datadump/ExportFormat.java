@@ -0,0 +1,106 @@
+/*
+ * Copyright 2013 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.datadump;
+
+import java.io.File;
+import java.io.IOException;
+
+import com.att.aro.util.Util;
+
+/**
+ * The formats in which the request and packet detail of traces may be
+ * exported. The format of an export is chosen by the extension of the file
+ * that it is saved to.
+ */
+public enum ExportFormat {
+
+	/**
+	 * A JSON object on each line for each row, with the name of its table.
+	 */
+	JSON_LINES("jsonl", "fileChooser.desc.jsonl") {
+		@Override
+		public ExportWriter createWriter(File file) throws IOException {
+			return new JsonLinesExportWriter(file);
+		}
+	},
+
+	/**
+	 * Binary columns in groups of rows, with the text of each column encoded
+	 * with a dictionary.
+	 * 
+	 * @see ColumnarExportWriter
+	 */
+	COLUMNAR("aroc", "fileChooser.desc.aroc") {
+		@Override
+		public ExportWriter createWriter(File file) throws IOException {
+			return new ColumnarExportWriter(file);
+		}
+	};
+
+	private final String extension;
+	private final String descriptionKey;
+
+	private ExportFormat(String extension, String descriptionKey) {
+		this.extension = extension;
+		this.descriptionKey = descriptionKey;
+	}
+
+	/**
+	 * Returns the file name extension of the format.
+	 * 
+	 * @return The extension, without the period.
+	 */
+	public String getExtension() {
+		return extension;
+	}
+
+	/**
+	 * Returns the description of the format for the file chooser.
+	 * 
+	 * @return The description.
+	 */
+	public String getDescription() {
+		return Util.RB.getString(descriptionKey);
+	}
+
+	/**
+	 * Creates a writer that writes the export to the specified file.
+	 * 
+	 * @param file
+	 *            The file.
+	 * @return The writer.
+	 * @throws IOException
+	 */
+	public abstract ExportWriter createWriter(File file) throws IOException;
+
+	/**
+	 * Returns the format of the export that is saved to the specified file.
+	 * 
+	 * @param file
+	 *            The file.
+	 * @return The format of the extension of the file, or null if the
+	 *         extension is not the extension of a detail export format.
+	 */
+	public static ExportFormat forFile(File file) {
+		String name = file.getName().toLowerCase();
+		for (ExportFormat format : values()) {
+			if (name.endsWith("." + format.extension)) {
+				return format;
+			}
+		}
+		return null;
+	}
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2013 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.datadump;
+
+/**
+ * A table of the detail export, with the name and the type of each column.
+ */
+public final class ExportTable {
+
+	/**
+	 * The type of the values of a column.
+	 */
+	public enum Type {
+		/**
+		 * Whole numbers, given as any Number.
+		 */
+		LONG,
+		/**
+		 * Decimal numbers, given as any Number.
+		 */
+		DOUBLE,
+		/**
+		 * Text, given as any Object.
+		 */
+		STRING
+	}
+
+	private final String name;
+	private final String[] columns;
+	private final Type[] types;
+
+	/**
+	 * Initializes a new instance of the ExportTable class.
+	 * 
+	 * @param name
+	 *            The name of the table.
+	 * @param columns
+	 *            The names of the columns.
+	 * @param types
+	 *            The type of each column.
+	 */
+	public ExportTable(String name, String[] columns, Type[] types) {
+		if (columns.length != types.length) {
+			throw new IllegalArgumentException("Each column must have a type");
+		}
+		this.name = name;
+		this.columns = columns.clone();
+		this.types = types.clone();
+	}
+
+	/**
+	 * Returns the name of the table.
+	 * 
+	 * @return The table name.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Returns the number of columns of the table.
+	 * 
+	 * @return The column count.
+	 */
+	public int getColumnCount() {
+		return columns.length;
+	}
+
+	/**
+	 * Returns the name of the specified column.
+	 * 
+	 * @param column
+	 *            The index of the column.
+	 * @return The column name.
+	 */
+	public String getColumnName(int column) {
+		return columns[column];
+	}
+
+	/**
+	 * Returns the type of the specified column.
+	 * 
+	 * @param column
+	 *            The index of the column.
+	 * @return The column type.
+	 */
+	public Type getColumnType(int column) {
+		return types[column];
+	}
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2013 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.datadump;
+
+import java.io.IOException;
+
+/**
+ * Writes the rows of the tables of the detail export in one of the
+ * {@link ExportFormat}s. Rows are written as they are given, so a writer
+ * holds at most a bounded number of rows at a time, however many traces are
+ * exported.
+ */
+public interface ExportWriter {
+
+	/**
+	 * Writes a row of the specified table.
+	 * 
+	 * @param table
+	 *            The table.
+	 * @param values
+	 *            The value of each column of the table, any of which may be
+	 *            null.
+	 * @throws IOException
+	 */
+	void writeRow(ExportTable table, Object[] values) throws IOException;
+
+	/**
+	 * Writes the rows that are still held, and closes the output.
+	 * 
+	 * @throws IOException
+	 */
+	void close() throws IOException;
+}
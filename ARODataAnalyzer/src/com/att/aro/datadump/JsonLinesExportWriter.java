@@ -0,0 +1,125 @@
+/*
+ * Copyright 2013 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.datadump;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+/**
+ * Writes each row of the detail export as a JSON object on its own line. The
+ * object has a "table" member with the name of the table of the row, followed
+ * by a member for each column. Text is written as UTF-8, and numbers that are
+ * not finite are written as null.
+ */
+class JsonLinesExportWriter implements ExportWriter {
+
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	private final Writer writer;
+
+	/**
+	 * Initializes a new instance of the JsonLinesExportWriter class that
+	 * writes to the specified file.
+	 * 
+	 * @param file
+	 *            The file.
+	 * @throws IOException
+	 */
+	JsonLinesExportWriter(File file) throws IOException {
+		this.writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file),
+				"UTF-8"));
+	}
+
+	@Override
+	public void writeRow(ExportTable table, Object[] values) throws IOException {
+		writer.write("{\"table\":");
+		writeString(table.getName());
+		for (int i = 0; i < table.getColumnCount(); ++i) {
+			writer.write(',');
+			writeString(table.getColumnName(i));
+			writer.write(':');
+			Object value = values[i];
+			if (value == null) {
+				writer.write("null");
+			} else {
+				switch (table.getColumnType(i)) {
+				case LONG:
+					writer.write(Long.toString(((Number) value).longValue()));
+					break;
+				case DOUBLE:
+					double d = ((Number) value).doubleValue();
+					writer.write(Double.isNaN(d) || Double.isInfinite(d) ? "null" : Double
+							.toString(d));
+					break;
+				default:
+					writeString(value.toString());
+					break;
+				}
+			}
+		}
+		writer.write("}\n");
+	}
+
+	@Override
+	public void close() throws IOException {
+		writer.close();
+	}
+
+	/**
+	 * Writes the specified text as a JSON string.
+	 */
+	private void writeString(String s) throws IOException {
+		writer.write('"');
+		int start = 0;
+		for (int i = 0; i < s.length(); ++i) {
+			char c = s.charAt(i);
+			if (c == '"' || c == '\\' || c < 0x20 || c == 0x2028 || c == 0x2029) {
+				writer.write(s, start, i - start);
+				start = i + 1;
+				switch (c) {
+				case '"':
+					writer.write("\\\"");
+					break;
+				case '\\':
+					writer.write("\\\\");
+					break;
+				case '\n':
+					writer.write("\\n");
+					break;
+				case '\r':
+					writer.write("\\r");
+					break;
+				case '\t':
+					writer.write("\\t");
+					break;
+				default:
+					writer.write("\\u");
+					writer.write(HEX[(c >> 12) & 0xf]);
+					writer.write(HEX[(c >> 8) & 0xf]);
+					writer.write(HEX[(c >> 4) & 0xf]);
+					writer.write(HEX[c & 0xf]);
+					break;
+				}
+			}
+		}
+		writer.write(s, start, s.length() - start);
+		writer.write('"');
+	}
+}
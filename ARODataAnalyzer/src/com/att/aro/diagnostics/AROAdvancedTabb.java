@@ -39,6 +39,7 @@ import javax.swing.event.ListSelectionEvent;
 import javax.swing.event.ListSelectionListener;
 
 import com.att.aro.commonui.DataTable;
+import com.att.aro.commonui.DataTableRowSorter;
 import com.att.aro.main.ApplicationResourceOptimizer;
 import com.att.aro.main.ChartPlotOptions;
 import com.att.aro.main.DeviceNetworkProfilePanel;
@@ -46,6 +47,7 @@ import com.att.aro.main.GraphPanelListener;
 import com.att.aro.main.ResourceBundleManager;
 import com.att.aro.model.HttpRequestResponseInfo;
 import com.att.aro.model.PacketInfo;
+import com.att.aro.model.PacketTimeIndex;
 import com.att.aro.model.TCPSession;
 import com.att.aro.model.TraceData;
 import com.att.aro.video.AROVideoPlayer;
@@ -143,6 +145,15 @@ public class AROAdvancedTabb extends SearchablePanel {
 		deviceNetworkProfilePanel.refresh(analysisData);
 	}
 
+	/**
+	 * Returns the trace data displayed on the Diagnostic tab screen.
+	 * 
+	 * @return The trace analysis data, or null if no trace is displayed.
+	 */
+	public synchronized TraceData.Analysis getAnalysisData() {
+		return analysisData;
+	}
+
 	/**
 	 * Sets the video player to be used with this AROAdvancedTabb. The video
 	 * player displays a video of screen captures that were recorded while trace
@@ -319,7 +330,8 @@ public class AROAdvancedTabb extends SearchablePanel {
 	private JTable getJPacketViewTable() {
 		if (jPacketViewTable == null) {
 			jPacketViewTable = new DataTable<PacketInfo>(jPacketViewTableModel);
-			jPacketViewTable.setAutoCreateRowSorter(true);
+			jPacketViewTable.setRowSorter(new DataTableRowSorter<PacketInfo>(
+					jPacketViewTableModel));
 			jPacketViewTable.setGridColor(Color.LIGHT_GRAY);
 			jPacketViewTable.getSelectionModel().addListSelectionListener(
 					new ListSelectionListener() {
@@ -424,7 +436,7 @@ public class AROAdvancedTabb extends SearchablePanel {
 	private DataTable<TCPSession> getJTCPFlowsTable() {
 		if (jTCPFlowsTable == null) {
 			jTCPFlowsTable = new DataTable<TCPSession>(jTCPFlowsTableModel);
-			jTCPFlowsTable.setAutoCreateRowSorter(true);
+			jTCPFlowsTable.setRowSorter(new DataTableRowSorter<TCPSession>(jTCPFlowsTableModel));
 			jTCPFlowsTable.setGridColor(Color.LIGHT_GRAY);
 			jTCPFlowsTable.getSelectionModel().addListSelectionListener(
 					new ListSelectionListener() {
@@ -530,39 +542,24 @@ public class AROAdvancedTabb extends SearchablePanel {
 
 		if (analysisData != null) {
 			boolean bTCPTimeStampFound = false;
-			boolean bExactMatch = false;
 
-			// Do exact match of dTimeInterval == 0.0;
+			// A dTimeInterval of 0.0 matches only the exact timestamp;
 			// If dTimeInterval < 0.0, don't try to match up with the TCP_Flow
 			// or packets when click comes from graph or video
-			if (dTimeRangeInterval == 0.0) {
-				bExactMatch = true;
-			} else if (dTimeRangeInterval < 0.0) {
+			if (dTimeRangeInterval < 0.0) {
 				repaint();
 				return;
 			}
 
-			// Attempt to find corresponding packet for time.
-			double packetTimeStamp = 0.0;
-			double packetTimeStampDiff = 0.0;
-			double previousPacketTimeStampDiff = 9999.0;
+			// Attempt to find the nearest packet to the time.
 			TCPSession bestMatchingTcpSession = null;
 			PacketInfo bestMatchingPacketInfo = null;
-			for (TCPSession tcpSess : analysisData.getTcpSessions()) {
-				PacketInfo packetInfo = getBestMatchingPacketInTcpSession(
-						tcpSess, bExactMatch, timeStamp, dTimeRangeInterval);
-				if (packetInfo != null) {
-					packetTimeStamp = packetInfo.getTimeStamp();
-					packetTimeStampDiff = timeStamp - packetTimeStamp;
-					if (packetTimeStampDiff < 0.0) {
-						packetTimeStampDiff *= -1.0;
-					}
-					if (packetTimeStampDiff < previousPacketTimeStampDiff) {
-						bestMatchingTcpSession = tcpSess;
-						bestMatchingPacketInfo = packetInfo;
-						bTCPTimeStampFound = true;
-					}
-				}
+			PacketTimeIndex packetTimeIndex = analysisData.getPacketTimeIndex();
+			int index = packetTimeIndex.indexOfNearest(timeStamp, dTimeRangeInterval);
+			if (index >= 0) {
+				bestMatchingTcpSession = packetTimeIndex.getSession(index);
+				bestMatchingPacketInfo = packetTimeIndex.getPacket(index);
+				bTCPTimeStampFound = true;
 			}
 
 			if (bTCPTimeStampFound) {
@@ -595,47 +592,6 @@ public class AROAdvancedTabb extends SearchablePanel {
 	public void reSetTCPPacketFoundStatus(boolean val){
 		bTCPPacketFound = val;
 	}
-	/**
-	 * Provides the Best matching packet info from the provided tcp session.
-	 */
-	private PacketInfo getBestMatchingPacketInTcpSession(TCPSession tcpSession,
-			boolean bExactMatch, double timeStamp, double dTimeRangeInterval) {
-
-		// Try to eliminate session before iterating through packets
-		if(!tcpSession.isUDP()){
-			if (tcpSession.getSessionStartTime() > timeStamp
-					|| tcpSession.getSessionEndTime() < timeStamp) {
-				return null;
-			}
-		}else{
-			if (tcpSession.getUDPSessionStartTime() > timeStamp
-					|| tcpSession.getUDPSessionEndTime() < timeStamp) {
-				return null;
-			}
-		}
-
-		double packetTimeStamp = 0.0;
-		PacketInfo matchedPacket = null;
-		if(!tcpSession.isUDP()){
-			for (PacketInfo p : tcpSession.getPackets()) {
-				packetTimeStamp = p.getTimeStamp();
-				if ((bExactMatch && (packetTimeStamp == timeStamp))
-						|| ((packetTimeStamp >= (timeStamp - dTimeRangeInterval)) && (packetTimeStamp <= (timeStamp + dTimeRangeInterval)))) {
-					matchedPacket = p;
-				}
-			}
-		}else{
-			for (PacketInfo p : tcpSession.getUDPPackets()) {
-				packetTimeStamp = p.getTimeStamp();
-				if ((bExactMatch && (packetTimeStamp == timeStamp))
-						|| ((packetTimeStamp >= (timeStamp - dTimeRangeInterval)) && (packetTimeStamp <= (timeStamp + dTimeRangeInterval)))) {
-					matchedPacket = p;
-				}
-			}
-		}
-		return matchedPacket;
-	}
-
 	/**
 	 * Highlights the specified TCP session in the TCP flows table.
 	 * 
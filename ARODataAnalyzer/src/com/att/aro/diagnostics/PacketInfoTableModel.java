@@ -17,6 +17,7 @@
 package com.att.aro.diagnostics;
 
 import java.text.DecimalFormat;
+import java.util.Map;
 import java.util.ResourceBundle;
 
 import javax.swing.table.TableColumn;
@@ -26,6 +27,8 @@ import com.att.aro.commonui.DataTableModel;
 import com.att.aro.commonui.NumberFormatRenderer;
 import com.att.aro.main.ResourceBundleManager;
 import com.att.aro.model.PacketInfo;
+import com.att.aro.model.PacketInfo.Direction;
+import com.att.aro.model.PacketInfo.TcpInfo;
 
 /**
  * Represents the table model for the packet information details.
@@ -46,6 +49,11 @@ public class PacketInfoTableModel extends DataTableModel<PacketInfo> {
 	private static final int PAYLOAD_COL = 4;
 	private static final int FLAGS_COL = 5;
 
+	private static final Map<Direction, String> directionStrings = ResourceBundleManager
+			.getEnumStrings(Direction.class);
+	private static final Map<TcpInfo, String> tcpInfoStrings = ResourceBundleManager
+			.getEnumStrings(TcpInfo.class);
+
 	/**
 	 * Initializes a new instance of the PacketInfoTableModel class.
 	 */
@@ -113,7 +121,7 @@ public class PacketInfoTableModel extends DataTableModel<PacketInfo> {
 		case TIME_COL:
 			return item.getTimeStamp();
 		case DIR_COL:
-			return item.getDir();
+			return ResourceBundleManager.getEnumString(item.getDir());
 		case TYPE_COL:
 			return ResourceBundleManager.getEnumString(item.getTcpInfo());
 		case PAYLOAD_COL:
@@ -124,4 +132,34 @@ public class PacketInfoTableModel extends DataTableModel<PacketInfo> {
 		return null;
 	}
 
+	/**
+	 * Returns the value that the specified packet is sorted by in the specified
+	 * column. The direction and packet type are looked up in a table of
+	 * display strings rather than in the resource bundle, so that they sort
+	 * by the text that is displayed.
+	 * 
+	 * @see com.att.aro.commonui.DataTableModel#getSortKey(java.lang.Object, int)
+	 */
+	@Override
+	protected Object getSortKey(PacketInfo item, int columnIndex) {
+		switch (columnIndex) {
+		case DIR_COL:
+			return item.getDir() != null ? directionStrings.get(item.getDir()) : null;
+		case TYPE_COL:
+			return item.getTcpInfo() != null ? tcpInfoStrings.get(item.getTcpInfo()) : null;
+		default:
+			return getColumnValue(item, columnIndex);
+		}
+	}
+
+	/**
+	 * Returns true, because the sort keys are read from the packets only.
+	 * 
+	 * @see com.att.aro.commonui.DataTableModel#isSortKeyThreadSafe()
+	 */
+	@Override
+	protected boolean isSortKeyThreadSafe() {
+		return true;
+	}
+
 }
@@ -241,4 +241,48 @@ public class TCPFlowsTableModel extends DataTableModel<TCPSession> {
 			return null;
 		}
 	}
+
+	/**
+	 * Returns the value that the specified session is sorted by in the
+	 * specified column. The application column is sorted by the full list of
+	 * application names rather than the text that fits the column, and the
+	 * local port column by port number.
+	 * 
+	 * @see com.att.aro.commonui.DataTableModel#getSortKey(java.lang.Object, int)
+	 */
+	@Override
+	protected Object getSortKey(TCPSession item, int columnIndex) {
+		switch (columnIndex) {
+		case APP_COL:
+			if (item.isUDP()) {
+				return item.getUDPPackets().get(0).getAppName();
+			}
+			Iterator<String> it = item.getAppNames().iterator();
+			if (!it.hasNext()) {
+				return rb.getString("aro.unknownApp");
+			}
+			StringBuilder sb = new StringBuilder(it.next());
+			while (it.hasNext()) {
+				sb.append(stringListSeparator);
+				sb.append(it.next());
+			}
+			return sb.toString();
+		case LOCALPORT_COL:
+			return item.getLocalPort();
+		default:
+			return getColumnValue(item, columnIndex);
+		}
+	}
+
+	/**
+	 * Returns true, because the sort keys of the application column do not
+	 * depend on the column width, and the other sort keys are read from the
+	 * sessions only.
+	 * 
+	 * @see com.att.aro.commonui.DataTableModel#isSortKeyThreadSafe()
+	 */
+	@Override
+	protected boolean isSortKeyThreadSafe() {
+		return true;
+	}
 }
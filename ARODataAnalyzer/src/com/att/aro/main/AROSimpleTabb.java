@@ -22,6 +22,7 @@ import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.ResourceBundle;
@@ -263,6 +264,20 @@ public class AROSimpleTabb extends JPanel {
 		return traceOverviewPanel;
 	}
 
+	/**
+	 * Refreshes the domain table and the device and network profile of the
+	 * Overview tab with the sessions of an analysis in progress. The other
+	 * content is refreshed when the analysis is complete.
+	 * 
+	 * @param analysisData
+	 *            - The Analysis object, with its sessions extracted.
+	 */
+	public void refreshSessions(TraceData.Analysis analysisData) {
+		jSimpleDomainTableModel.setData(DomainTCPSessions.extractDomainTCPSessions(analysisData
+				.getTrafficCube()));
+		deviceNetworkProfilePanel.refresh(analysisData);
+	}
+
 	/**
 	 * Refreshes the content of the Overview tab with the specified trace
 	 * data.
@@ -271,17 +286,17 @@ public class AROSimpleTabb extends JPanel {
 	 *            - The Analysis object containing the trace data.
 	 */
 	public void refresh(TraceData.Analysis analysisData) {
-		List<TCPSession> tcpSession;
+		Collection<DomainTCPSessions> domains;
 		List<CacheEntry> dupContent;
 		if (analysisData != null) {
-			tcpSession = analysisData.getTcpSessions();
+			domains = DomainTCPSessions.extractDomainTCPSessions(analysisData.getTrafficCube());
 			dupContent = analysisData.getCacheAnalysis().getDuplicateContentWithOriginals();
 		} else {
-			tcpSession = Collections.emptyList();
+			domains = Collections.emptyList();
 			dupContent = Collections.emptyList();
 		}
 
-		jSimpleDomainTableModel.setData(DomainTCPSessions.extractDomainTCPSessions(tcpSession));
+		jSimpleDomainTableModel.setData(domains);
 		getJDuplicatesPanel().setData(dupContent);
 		deviceNetworkProfilePanel.refresh(analysisData);
 		getFileTypesChartPanel().setAnalysisData(analysisData);
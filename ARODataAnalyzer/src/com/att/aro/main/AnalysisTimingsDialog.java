@@ -0,0 +1,217 @@
+/*
+ *  Copyright 2012 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.main;
+
+import java.awt.BorderLayout;
+import java.awt.Dimension;
+import java.awt.GridLayout;
+import java.awt.Window;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.io.File;
+import java.io.IOException;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ResourceBundle;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.swing.BorderFactory;
+import javax.swing.JButton;
+import javax.swing.JDialog;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+
+import com.att.aro.commonui.DataTable;
+import com.att.aro.commonui.MessageDialogFactory;
+import com.att.aro.model.StageTimings;
+import com.att.aro.model.StageTimings.StageTiming;
+import com.att.aro.model.TraceData;
+
+/**
+ * Represents the Analysis Timings dialog that displays the wall time, CPU time
+ * and allocated memory of each stage of reading and analyzing the current
+ * trace, and exports them as JSON to the trace directory.
+ */
+public class AnalysisTimingsDialog extends JDialog {
+	private static final long serialVersionUID = 1L;
+
+	private static final Logger logger = Logger.getLogger(AnalysisTimingsDialog.class.getName());
+	private static final ResourceBundle rb = ResourceBundleManager.getDefaultBundle();
+
+	private TraceData.Analysis analysis;
+
+	private JPanel mainPanel;
+	private StageTimingsTableModel tableModel;
+	private DataTable<StageTiming> table;
+	private JLabel totalLabel;
+	private JPanel buttonPanel;
+	private JButton exportButton;
+	private JButton okButton;
+
+	/**
+	 * Initializes a new instance of the AnalysisTimingsDialog class.
+	 * 
+	 * @param parent
+	 *            The parent window.
+	 * @param analysis
+	 *            The analysis of the current trace.
+	 */
+	public AnalysisTimingsDialog(Window parent, TraceData.Analysis analysis) {
+		super(parent);
+		this.analysis = analysis;
+
+		List<StageTiming> timings = new ArrayList<StageTiming>();
+		timings.addAll(analysis.getTraceData().getReadTimings().getTimings());
+		timings.addAll(analysis.getTimings().getTimings());
+		timings.addAll(analysis.getChartTimings().getTimings());
+		getTableModel().setData(timings);
+
+		long totalNanos = analysis.getTraceData().getReadTimings().getTotalWallNanos()
+				+ analysis.getTimings().getTotalWallNanos()
+				+ analysis.getChartTimings().getTotalWallNanos();
+		getTotalLabel().setText(
+				MessageFormat.format(rb.getString("stageTimings.total"), totalNanos / 1000000));
+
+		this.setModal(true);
+		this.setContentPane(getMainPanel());
+		this.setDefaultCloseOperation(DISPOSE_ON_CLOSE);
+		this.setTitle(rb.getString("stageTimings.title"));
+		this.pack();
+		this.setLocationRelativeTo(parent);
+	}
+
+	/**
+	 * Returns the main Panel for the dialog.
+	 */
+	private JPanel getMainPanel() {
+		if (mainPanel == null) {
+			mainPanel = new JPanel(new BorderLayout());
+			JScrollPane scroll = new JScrollPane(getTable());
+			scroll.setPreferredSize(new Dimension(560, 420));
+			mainPanel.add(scroll, BorderLayout.CENTER);
+			mainPanel.add(getButtonPanel(), BorderLayout.SOUTH);
+		}
+		return mainPanel;
+	}
+
+	/**
+	 * Returns the table model of the timings table.
+	 */
+	private StageTimingsTableModel getTableModel() {
+		if (tableModel == null) {
+			tableModel = new StageTimingsTableModel();
+		}
+		return tableModel;
+	}
+
+	/**
+	 * Returns the timings table.
+	 */
+	private DataTable<StageTiming> getTable() {
+		if (table == null) {
+			table = new DataTable<StageTiming>(getTableModel());
+			table.setAutoCreateRowSorter(true);
+		}
+		return table;
+	}
+
+	/**
+	 * Returns the label showing the total wall time.
+	 */
+	private JLabel getTotalLabel() {
+		if (totalLabel == null) {
+			totalLabel = new JLabel();
+		}
+		return totalLabel;
+	}
+
+	/**
+	 * Initializes and returns the panel that contains the total and the
+	 * buttons of the dialog.
+	 */
+	private JPanel getButtonPanel() {
+		if (buttonPanel == null) {
+			buttonPanel = new JPanel(new BorderLayout());
+			buttonPanel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+			GridLayout gridLayout = new GridLayout();
+			gridLayout.setRows(1);
+			gridLayout.setHgap(10);
+			JPanel panel = new JPanel(gridLayout);
+			panel.add(getExportButton());
+			panel.add(getOkButton());
+			buttonPanel.add(getTotalLabel(), BorderLayout.WEST);
+			buttonPanel.add(panel, BorderLayout.EAST);
+		}
+		return buttonPanel;
+	}
+
+	/**
+	 * Initializes and returns the Export button, which writes the timings to
+	 * the trace directory.
+	 */
+	private JButton getExportButton() {
+		if (exportButton == null) {
+			exportButton = new JButton(rb.getString("stageTimings.export"));
+			exportButton.addActionListener(new ActionListener() {
+
+				@Override
+				public void actionPerformed(ActionEvent arg0) {
+					TraceData traceData = analysis.getTraceData();
+					File traceDir = traceData.getTraceDir();
+					if (traceDir != null && !traceDir.isDirectory()) {
+
+						// Trace was opened from a pcap file
+						traceDir = traceDir.getParentFile();
+					}
+					try {
+						File file = StageTimings.export(traceDir, traceData.getReadTimings(),
+								analysis.getTimings(), analysis.getChartTimings());
+						MessageDialogFactory.showMessageDialog(AnalysisTimingsDialog.this,
+								MessageFormat.format(rb.getString("stageTimings.exported"),
+										file.getPath()));
+					} catch (IOException e) {
+						logger.log(Level.WARNING, "Unable to export analysis timings", e);
+						MessageDialogFactory.showUnexpectedExceptionDialog(
+								AnalysisTimingsDialog.this, e);
+					}
+				}
+			});
+		}
+		return exportButton;
+	}
+
+	/**
+	 * Initializes and returns the Ok button in the dialog.
+	 */
+	private JButton getOkButton() {
+		if (okButton == null) {
+			okButton = new JButton();
+			okButton.setText(rb.getString("Button.ok"));
+			okButton.addActionListener(new ActionListener() {
+
+				@Override
+				public void actionPerformed(ActionEvent arg0) {
+					AnalysisTimingsDialog.this.dispose();
+				}
+
+			});
+		}
+		return okButton;
+	}
+}
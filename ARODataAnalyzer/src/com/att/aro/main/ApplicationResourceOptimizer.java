@@ -39,9 +39,11 @@ import java.awt.print.PrinterException;
 import java.awt.print.PrinterJob;
 import java.io.File;
 import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
 import java.net.URL;
 import java.text.MessageFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.ResourceBundle;
 import java.util.StringTokenizer;
@@ -64,6 +66,7 @@ import javax.swing.JProgressBar;
 import javax.swing.JTabbedPane;
 import javax.swing.JToolTip;
 import javax.swing.SwingConstants;
+import javax.swing.SwingUtilities;
 import javax.swing.SwingWorker;
 import javax.swing.Timer;
 import javax.swing.ToolTipManager;
@@ -95,19 +98,25 @@ import com.att.aro.main.menu.view.ExcludeTimeRangeAnalysisDialog;
 import com.att.aro.main.menu.view.FilterApplicationsAndIpDialog;
 import com.att.aro.main.menu.view.FilterProcessesDialog;
 import com.att.aro.model.AnalysisFilter;
+import com.att.aro.model.AnalysisListener;
+import com.att.aro.model.AnalysisStage;
 import com.att.aro.model.BestPractices;
+import com.att.aro.model.CancellationToken;
+import com.att.aro.model.LiveTrace;
 import com.att.aro.model.NetworkType;
 import com.att.aro.model.Profile;
 import com.att.aro.model.Profile3G;
 import com.att.aro.model.ProfileException;
 import com.att.aro.model.ProfileLTE;
 import com.att.aro.model.ProfileType;
+import com.att.aro.model.StageTimings;
 import com.att.aro.model.TimeRange;
 import com.att.aro.model.TraceData;
 import com.att.aro.model.UserPreferences;
 import com.att.aro.pcap.PCapAdapter;
 import com.att.aro.plugin.AnalyzerPlugin;
 import com.att.aro.plugin.MenuPlugin;
+import com.att.aro.plugin.SessionAnalyzerPlugin;
 import com.att.aro.util.Util;
 import com.att.aro.video.AROVideoPlayer;
 
@@ -146,6 +155,7 @@ public class ApplicationResourceOptimizer extends JFrame {
 	private JMenu jToolMenu;
 	private JMenuItem wiresharkMenuItem;
 	private JMenuItem timeRangeAnalysisMenuItem;
+	private JMenuItem analysisTimingsMenuItem;
 	private JMenuItem dataDumpMenuItem;
 
 	// View menu
@@ -186,6 +196,14 @@ public class ApplicationResourceOptimizer extends JFrame {
 	private TraceData.Analysis analysisData;
 	private File traceDirectory;
 
+	// The last analysis that completed, which is displayed again when a later
+	// analysis of the trace is cancelled
+	private TraceData.Analysis completedAnalysis;
+
+	// The cancellation token of the analysis that a refresh is running, which
+	// is cancelled when the next snapshot of a live trace is displayed
+	private volatile CancellationToken refreshToken;
+
 	// Data Collector Menu
 	private JMenu jDataCollector = null;
 	private JMenuItem startDataCollectorMenuItem = null;
@@ -537,15 +555,51 @@ public class ApplicationResourceOptimizer extends JFrame {
 
 		if (this.traceData != null) {
 
+			TraceData closed = this.traceData;
 			this.traceData = null;
+			this.completedAnalysis = null;
 			this.setTitle(MessageFormat.format(RB.getString("aro.title"), ""));
 
 			clearAnalysis();
+
+			// Delete the session storage of the trace
+			releaseInBackground(closed);
 		}
 	}
 
 	/**
-	 * Clears the analysis data trace before loading a new trace.
+	 * Deletes the session storage of a closed trace on a background thread.
+	 * The storage is deleted once an analysis of the trace that is still
+	 * running has stopped.
+	 */
+	private static void releaseInBackground(final TraceData trace) {
+		new SwingWorker<Void, Void>() {
+			@Override
+			protected Void doInBackground() {
+				trace.release();
+				return null;
+			}
+		}.execute();
+	}
+
+	/**
+	 * Releases the session storage of an analysis that has been replaced on
+	 * a background thread.
+	 */
+	private static void releaseInBackground(final TraceData.Analysis analysis) {
+		new SwingWorker<Void, Void>() {
+			@Override
+			protected Void doInBackground() {
+				analysis.release();
+				return null;
+			}
+		}.execute();
+	}
+
+	/**
+	 * Clears the analysis data trace before loading a new trace. The analysis
+	 * is only removed from the display, so that it can be displayed again
+	 * when the next analysis of the trace is cancelled.
 	 * 
 	 * @throws IOException
 	 */
@@ -555,7 +609,6 @@ public class ApplicationResourceOptimizer extends JFrame {
 			if (getAroVideoPlayer() != null) {
 				getAroVideoPlayer().clear();
 			}
-			this.analysisData.clear();
 			displayAnalysis(null, this.profile, null, null);
 
 			// Free memory from previous trace
@@ -565,17 +618,20 @@ public class ApplicationResourceOptimizer extends JFrame {
 	}
 
 	private File pcapFileName;
+	private List<File> pcapFiles;
 	private AROProgressDialog progress;
 
 	/**
-	 * Implements opening of selected trace directory.
+	 * Implements opening of selected pcap files. Several files, such as the
+	 * rotated files of a long capture, are opened as one trace.
 	 * 
-	 * @param pcap
+	 * @param pcaps
 	 * @throws IOException
 	 */
-	private synchronized void openPcap(File pcap) throws IOException, UnsatisfiedLinkError {
+	private synchronized void openPcap(File[] pcaps) throws IOException, UnsatisfiedLinkError {
 
-		pcapFileName = pcap;
+		pcapFileName = pcaps[0];
+		pcapFiles = Arrays.asList(pcaps);
 
 		this.progress = new AROProgressDialog(ApplicationResourceOptimizer.this, RB.getString("progress.loadingTrace"));
 		progress.setVisible(true);
@@ -591,7 +647,8 @@ public class ApplicationResourceOptimizer extends JFrame {
 
 				traceDirectory = pcapFileName.getParentFile();
 				try {
-					traceData = new TraceData(pcapFileName);
+					traceData = pcapFiles.size() > 1 ? new TraceData(pcapFiles)
+							: new TraceData(pcapFileName);
 				} catch (UnsatisfiedLinkError e) {
 					LOGGER.log(Level.SEVERE, "Unsatisfied Link Error Exception while loading the traces");
 				} catch (IOException e) {
@@ -685,6 +742,66 @@ public class ApplicationResourceOptimizer extends JFrame {
 		setDataCollectorMenuItems(bStartItem, bStopItem);
 	}
 
+	/**
+	 * Analyzes a trace that is still being collected, and displays the
+	 * analysis in place of the previous one. Only the packets captured since
+	 * the last refresh are read, and only the TCP sessions that have new
+	 * packets are reassembled and parsed again. An analysis of the previous
+	 * snapshot that the user started is cancelled when the new snapshot is
+	 * displayed.
+	 * The analysis runs on the calling thread, which must not be the UI
+	 * thread, and nothing is done when no packets have been captured since
+	 * the last refresh.
+	 * 
+	 * @param liveTrace
+	 *            The trace being collected.
+	 */
+	public void refreshLive(final LiveTrace liveTrace) {
+		try {
+			if (liveTrace.poll() == 0) {
+				return;
+			}
+			final Profile liveProfile = this.profile != null ? this.profile
+					: ProfileManager.getInstance().getLastUserProfileOrDefault();
+			final TraceData.Analysis analysis = liveTrace.analyze(liveProfile);
+			final TraceData liveTraceData = analysis.getTraceData();
+			final int packetCount = liveTrace.getPacketCount();
+			SwingUtilities.invokeAndWait(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						// An analysis of the snapshot replaced that is still
+						// running is no longer displayed
+						CancellationToken running = refreshToken;
+						if (running != null) {
+							running.cancel();
+						}
+						TraceData previous = traceData;
+						traceData = liveTraceData;
+						displayAnalysis(analysis, liveProfile, null, null);
+						completed(analysis);
+
+						// Delete the session storage of the snapshot replaced,
+						// once that analysis has stopped
+						if (previous != null && previous != liveTraceData) {
+							releaseInBackground(previous);
+						}
+						setTitle(MessageFormat.format(RB.getString("aro.title.live"), liveTrace
+								.getTraceDir().toString(), packetCount));
+					} catch (IOException e) {
+						LOGGER.log(Level.WARNING, "Unable to display analysis of trace being collected", e);
+					}
+				}
+			});
+		} catch (IOException e) {
+			LOGGER.log(Level.WARNING, "Unable to analyze trace being collected", e);
+		} catch (InterruptedException e) {
+			LOGGER.log(Level.FINE, "Analysis of trace being collected interrupted", e);
+		} catch (InvocationTargetException e) {
+			LOGGER.log(Level.WARNING, "Unable to display analysis of trace being collected", e);
+		}
+	}
+
 	/**
 	 * Initializes and returns the ARO window menu bar.
 	 */
@@ -1135,6 +1252,7 @@ public class ApplicationResourceOptimizer extends JFrame {
 			}
 			jToolMenu.add(getTimeRangeAnalysisMenuItem());
 			jToolMenu.add(getDataDump());
+			jToolMenu.add(getAnalysisTimingsMenuItem());
 
 			// plugin menus
 			loadPluginMenuItems(jToolMenu);
@@ -1146,7 +1264,9 @@ public class ApplicationResourceOptimizer extends JFrame {
 	 * Load the configured plugin Tabs to Analyzer.
 	 * 
 	 * Adds tabs defined in the 'plugin.tabs' resource bundle property. The
-	 * class/tab implements the AnalyzerPlugin interface.
+	 * class/tab implements the AnalyzerPlugin interface. A tab whose class is
+	 * also a configured analyzer plugin uses the same instance, so it can
+	 * display the results of the analyzer.
 	 * 
 	 * @param tabPane
 	 */
@@ -1160,7 +1280,16 @@ public class ApplicationResourceOptimizer extends JFrame {
 				pluginPrefix = pluginToken.nextToken();
 				// create class for config'd plugin
 				className = RB.getString(pluginPrefix);
-				AnalyzerPlugin plugin = (AnalyzerPlugin) Class.forName(className).newInstance();
+				AnalyzerPlugin plugin = null;
+				for (SessionAnalyzerPlugin analyzer : TraceData.getSessionAnalyzerPlugins()) {
+					if (analyzer instanceof AnalyzerPlugin
+							&& analyzer.getClass().getName().equals(className)) {
+						plugin = (AnalyzerPlugin) analyzer;
+					}
+				}
+				if (plugin == null) {
+					plugin = (AnalyzerPlugin) Class.forName(className).newInstance();
+				}
 
 				// add plugin menu item
 				tabPane.addTab(RB.getString(pluginPrefix + ".title"), null, plugin.getPanel(ApplicationResourceOptimizer.this), null);
@@ -1292,6 +1421,29 @@ public class ApplicationResourceOptimizer extends JFrame {
 		return dataDumpMenuItem;
 	}
 
+	/**
+	 * Initializes and returns the Analysis Timings menu item under the Tools
+	 * menu.
+	 */
+	private JMenuItem getAnalysisTimingsMenuItem() {
+		if (analysisTimingsMenuItem == null) {
+			analysisTimingsMenuItem = new JMenuItem(RB.getString("menu.tools.analysisTimings"));
+			analysisTimingsMenuItem.addActionListener(new ActionListener() {
+				@Override
+				public void actionPerformed(ActionEvent arg0) {
+					// Make sure trace is loaded
+					if (analysisData == null) {
+						MessageDialogFactory.showMessageDialog(ApplicationResourceOptimizer.this, RB.getString("Error.notrace"), RB.getString("Error.title"),
+								JOptionPane.ERROR_MESSAGE);
+						return;
+					}
+					new AnalysisTimingsDialog(ApplicationResourceOptimizer.this, analysisData).setVisible(true);
+				}
+			});
+		}
+		return analysisTimingsMenuItem;
+	}
+
 	/**
 	 * Initializes and returns the Exclude Time Range Analysis menu item under
 	 * the Tools menu.
@@ -1440,10 +1592,12 @@ public class ApplicationResourceOptimizer extends JFrame {
 					PcapFileFilter pcapFileFilter = new PcapFileFilter();
 					fc.addChoosableFileFilter(pcapFileFilter);
 					fc.setFileFilter(pcapFileFilter);
+					fc.setMultiSelectionEnabled(true);
 
 					if (fc.showOpenDialog(ApplicationResourceOptimizer.this) == JFileChooser.APPROVE_OPTION) {
 						try {
-							openPcap(fc.getSelectedFile());
+							File[] selected = fc.getSelectedFiles();
+							openPcap(selected.length > 0 ? selected : new File[] { fc.getSelectedFile() });
 						} catch (IOException e1) {
 							LOGGER.log(Level.SEVERE, "Failed loading trace", e1);
 							MessageDialogFactory.showUnexpectedExceptionDialog(ApplicationResourceOptimizer.this, e1);
@@ -1840,48 +1994,103 @@ public class ApplicationResourceOptimizer extends JFrame {
 
 	/**
 	 * Refreshes the view with updated app/ip settings. This method should be
-	 * run on the event dispatch thread
+	 * run on the event dispatch thread. The analysis runs in the background,
+	 * and the sessions and the diagnostics chart are displayed as soon as
+	 * they are available. The analysis can be cancelled from the progress
+	 * dialog. Once the cancelled analysis has stopped, the last analysis of
+	 * the trace that completed is displayed again. When the trace has no
+	 * completed analysis, because it has just been opened, the trace is
+	 * closed.
 	 */
 	private synchronized void refresh(final Profile profile, final AnalysisFilter filter, final String msg) throws IOException {
 
 		if (traceData != null) {
-			new SwingWorker<TraceData.Analysis, Object>() {
+			final TraceData analyzedTraceData = traceData;
+			final CancellationToken token = new CancellationToken();
+			refreshToken = token;
+			new SwingWorker<TraceData.Analysis, AnalysisStage>() {
 
 				private AROProgressDialog dialog;
+				private volatile TraceData.Analysis partialAnalysis;
+				private boolean partiallyDisplayed;
 				private WindowListener wl = new WindowAdapter() {
 
 					@Override
 					public void windowClosing(WindowEvent arg0) {
-						try {
-							cancel(true);
-						} catch (CancellationException cE) {
-							cE.printStackTrace();
-						}
+						cancelAnalysis();
 					}
 
 				};
 
 				{
-					dialog = new AROProgressDialog(ApplicationResourceOptimizer.this, RB.getString("progress.loadingTraceResults"));
+					dialog = new AROProgressDialog(ApplicationResourceOptimizer.this,
+							RB.getString("progress.loadingTraceResults"), new ActionListener() {
+								@Override
+								public void actionPerformed(ActionEvent e) {
+									cancelAnalysis();
+								}
+							});
 					dialog.addWindowListener(wl);
 					dialog.setVisible(true);
 				}
 
 				@Override
 				protected TraceData.Analysis doInBackground() throws IOException {
-					TraceData.Analysis analysis = traceData.runAnalysis(profile, filter);
-					return isCancelled() ? null : analysis;
+					TraceData.Analysis analysis = analyzedTraceData.runAnalysis(profile, filter,
+							new AnalysisListener() {
+								@Override
+								public void stageCompleted(TraceData.Analysis analysis,
+										AnalysisStage stage) {
+									partialAnalysis = analysis;
+									publish(stage);
+								}
+							}, token);
+					return analysis;
+				}
+
+				@Override
+				protected void process(List<AnalysisStage> stages) {
+					if (token.isCancelled()) {
+						return;
+					}
+					TraceData.Analysis analysis = partialAnalysis;
+					for (AnalysisStage stage : stages) {
+						switch (stage) {
+						case BASIC_STATISTICS:
+							dialog.setMessage(RB.getString("progress.analysis.sessions"));
+							break;
+						case SESSIONS:
+							dialog.setMessage(RB.getString("progress.analysis.radio"));
+							getAroSimpleTab().refreshSessions(analysis);
+							partiallyDisplayed = true;
+							break;
+						case RADIO:
+							dialog.setMessage(RB.getString("progress.analysis.bestPractices"));
+							getAroAdvancedTab().setAnalysisData(analysis);
+							partiallyDisplayed = true;
+							break;
+						default:
+							break;
+						}
+					}
 				}
 
 				@Override
 				protected void done() {
 					try {
-						if (!this.isCancelled()) {
-							displayAnalysis(get(), profile, filter, msg);
-						} else {
+						if (traceData != analyzedTraceData) {
+
+							// Another trace or the next snapshot of a live
+							// trace has been displayed since
 							return;
 						}
-
+						TraceData.Analysis analysis = getCompletedAnalysis();
+						if (analysis != null) {
+							displayAnalysis(analysis, profile, filter, msg);
+							completed(analysis);
+						} else {
+							cancelled();
+						}
 					} catch (IOException e) {
 						LOGGER.log(Level.SEVERE, "Unexpected IOException analyzing trace", e);
 						MessageDialogFactory.showUnexpectedExceptionDialog(ApplicationResourceOptimizer.this, e);
@@ -1896,11 +2105,59 @@ public class ApplicationResourceOptimizer extends JFrame {
 							MessageDialogFactory.showUnexpectedExceptionDialog(ApplicationResourceOptimizer.this, e);
 						}
 					} finally {
+						if (refreshToken == token) {
+							refreshToken = null;
+						}
 						dialog.removeWindowListener(wl);
 						dialog.dispose();
 					}
 
 				}
+
+				/**
+				 * Returns the analysis, or null if it was cancelled.
+				 */
+				private TraceData.Analysis getCompletedAnalysis() throws InterruptedException,
+						ExecutionException {
+					try {
+						return get();
+					} catch (ExecutionException e) {
+						if (e.getCause() instanceof CancellationException) {
+							return null;
+						}
+						throw e;
+					}
+				}
+
+				/**
+				 * Displays the last completed analysis of the trace again, or
+				 * closes the trace when it has none, once the cancelled
+				 * analysis has stopped.
+				 */
+				private void cancelled() throws IOException {
+					TraceData.Analysis previous = completedAnalysis;
+					if (previous != null && previous.getTraceData() == analyzedTraceData) {
+						previous.restore();
+						displayAnalysis(previous, previous.getProfile(), null, null);
+					} else {
+
+						// There is no analysis of the trace to go back to
+						clearTrace();
+						if (partiallyDisplayed) {
+							displayAnalysis(null, ApplicationResourceOptimizer.this.profile,
+									null, null);
+						}
+					}
+				}
+
+				/**
+				 * Stops the analysis at its next cancellation check. The
+				 * progress dialog is closed once the analysis has stopped.
+				 */
+				private void cancelAnalysis() {
+					token.cancel();
+					dialog.setMessage(RB.getString("progress.cancelling"));
+				}
 			}.execute();
 
 		} else {
@@ -1908,6 +2165,19 @@ public class ApplicationResourceOptimizer extends JFrame {
 		}
 	}
 
+	/**
+	 * Records an analysis that has been displayed, and releases the storage
+	 * of the analysis of the same trace that it replaces.
+	 */
+	private synchronized void completed(TraceData.Analysis analysis) {
+		TraceData.Analysis replaced = this.completedAnalysis;
+		this.completedAnalysis = analysis;
+		if (replaced != null && replaced != analysis
+				&& replaced.getTraceData() == analysis.getTraceData()) {
+			releaseInBackground(replaced);
+		}
+	}
+
 	/**
 	 * Performs the analysis based on the time range selected in the exclude
 	 * time range dialog.
@@ -1955,12 +2225,28 @@ public class ApplicationResourceOptimizer extends JFrame {
 			getAroVideoPlayer().updateSyncButton();
 
 		}
+		StageTimings timings = analysis != null ? analysis.getChartTimings() : new StageTimings();
+		timings.clear();
+		StageTimings.Stage stage = timings.start(RB.getString("stage.chart.video.player"));
 		getAroVideoPlayer().refresh(analysisData);
-		getAroAdvancedTab().setAnalysisData(analysisData);
+		stage.stop();
+		stage = timings.start(RB.getString("stage.chart.diagnostics.tab"));
+		if (analysisData == null || getAroAdvancedTab().getAnalysisData() != analysisData) {
+			getAroAdvancedTab().setAnalysisData(analysisData);
+		}
+		stage.stop();
+		stage = timings.start(RB.getString("stage.chart.overview.tab"));
 		getAroSimpleTab().refresh(analysisData);
+		stage.stop();
+		stage = timings.start(RB.getString("stage.chart.best.practices.tab"));
 		getBestPracticesPanel().refresh(analysisData);
+		stage.stop();
+		stage = timings.start(RB.getString("stage.chart.statistics.tab"));
 		getAnalysisResultsPanel().refresh(analysisData);
+		stage.stop();
+		stage = timings.start(RB.getString("stage.chart.waterfall.tab"));
 		getWaterfallPanel().refresh(analysis);
+		stage.stop();
 
 		this.profile = profile;
 		UserPreferences.getInstance().setLastProfile(profile);
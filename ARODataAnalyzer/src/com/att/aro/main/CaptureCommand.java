@@ -0,0 +1,92 @@
+/*
+ * Copyright 2012 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.main;
+
+import java.io.File;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.att.aro.pcap.PcapMergeReader;
+import com.att.aro.pcap.PcapSplitter;
+
+/**
+ * Merges rotated capture files into one capture, or splits captures into
+ * time slices, from the command line.
+ */
+class CaptureCommand extends HeadlessCommand {
+
+	/**
+	 * The command line option that merges capture files.
+	 */
+	static final String MERGE_OPTION = "-merge";
+
+	/**
+	 * The command line option that splits capture files into time slices.
+	 */
+	static final String SPLIT_OPTION = "-split";
+
+	CaptureCommand() {
+		super("Capture command", "cmdline.capture.error");
+	}
+
+	/**
+	 * Runs the capture command with the specified command line arguments.
+	 *
+	 * @param args
+	 *            The command line arguments, starting with
+	 *            {@link #MERGE_OPTION} or {@link #SPLIT_OPTION}.
+	 * @return true if the command succeeded.
+	 */
+	@Override
+	boolean execute(String[] args) throws Exception {
+		if (MERGE_OPTION.equals(args[0])) {
+			if (args.length < 3) {
+				return usage("cmdline.merge.usage");
+			}
+			File output = new File(args[1]);
+			long count = PcapMergeReader.merge(getFiles(args, 2), output);
+			System.out.println(MessageFormat.format(rb.getString("cmdline.merge.written"),
+					count, output.getAbsolutePath()));
+		} else {
+			if (args.length < 4) {
+				return usage("cmdline.split.usage");
+			}
+			double sliceDuration = Double.parseDouble(args[1]);
+			File outputDir = new File(args[2]);
+			if (!outputDir.isDirectory() && !outputDir.mkdirs()) {
+				throw new IllegalArgumentException(outputDir.getAbsolutePath());
+			}
+			List<File> inputs = getFiles(args, 3);
+			String prefix = inputs.get(0).getName();
+			if (prefix.lastIndexOf('.') > 0) {
+				prefix = prefix.substring(0, prefix.lastIndexOf('.'));
+			}
+			List<File> slices = PcapSplitter.split(inputs, sliceDuration, outputDir, prefix);
+			System.out.println(MessageFormat.format(rb.getString("cmdline.split.written"),
+					slices.size(), outputDir.getAbsolutePath()));
+		}
+		return true;
+	}
+
+	private static List<File> getFiles(String[] args, int first) {
+		List<File> files = new ArrayList<File>();
+		for (int i = first; i < args.length; ++i) {
+			files.add(new File(args[i]));
+		}
+		return files;
+	}
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2012 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.main;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Collection;
+
+import com.att.aro.bp.BestPracticeDisplay;
+import com.att.aro.bp.BestPracticeDisplayFactory;
+import com.att.aro.bp.BestPracticeDisplayGroup;
+import com.att.aro.model.Profile;
+import com.att.aro.model.TraceComparison;
+import com.att.aro.model.TraceData;
+
+/**
+ * Compares two traces from the command line, such as two builds of the same
+ * application. Both traces are analyzed with the same profile, compared with
+ * {@link TraceComparison}, and the comparison is written as comma separated
+ * values to the directory of the candidate trace.
+ */
+class CompareCommand extends HeadlessCommand {
+
+	/**
+	 * The command line option that selects the trace comparison.
+	 */
+	static final String OPTION = "-compare";
+
+	/**
+	 * The name of the file that the comparison is written to in the candidate
+	 * trace directory.
+	 */
+	static final String OUTPUT_FILE = "trace_comparison.csv";
+
+	CompareCommand() {
+		super("Trace comparison", "cmdline.compare.error");
+	}
+
+	/**
+	 * Runs the trace comparison with the specified command line arguments.
+	 *
+	 * @param args
+	 *            The command line arguments, starting with {@link #OPTION}.
+	 * @return true if the comparison was written.
+	 */
+	@Override
+	boolean execute(String[] args) throws Exception {
+		if (args.length < 3 || args.length > 4) {
+			return usage("cmdline.compare.usage");
+		}
+		File baseDir = new File(args[1]);
+		File candidateDir = new File(args[2]);
+		Profile profile = args.length > 3 ? Profile.createFromFile(new File(args[3]))
+				: ProfileManager.getInstance().getLastUserProfileOrDefault();
+
+		System.out.println(MessageFormat.format(rb.getString("cmdline.sweep.loading"),
+				baseDir.getAbsolutePath()));
+		TraceData.Analysis base = new TraceData(baseDir).runAnalysis(profile, null);
+		System.out.println(MessageFormat.format(rb.getString("cmdline.sweep.loading"),
+				candidateDir.getAbsolutePath()));
+		TraceData.Analysis candidate = new TraceData(candidateDir).runAnalysis(profile, null);
+
+		Collection<BestPracticeDisplay> bestPractices = new ArrayList<BestPracticeDisplay>();
+		for (BestPracticeDisplayGroup group : BestPracticeDisplayFactory.getInstance()
+				.getBestPracticeDisplay()) {
+			bestPractices.addAll(group.getBestPractices());
+		}
+		TraceComparison comparison = new TraceComparison(base, candidate, bestPractices,
+				TraceComparison.DEFAULT_BURST_TOLERANCE);
+
+		File outputFile = new File(candidateDir, OUTPUT_FILE);
+		Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(
+				outputFile), "UTF-8"));
+		try {
+			TraceComparison.writeCsv(comparison, writer);
+		} finally {
+			writer.close();
+		}
+		for (TraceComparison.Metric metric : comparison.getMetrics()) {
+			System.out.println(MessageFormat.format(rb.getString("cmdline.compare.metric"),
+					metric.getName(), metric.getBase(), metric.getCandidate(),
+					metric.getDelta()));
+		}
+		for (TraceComparison.BestPracticeDiff bp : comparison.getBestPractices()) {
+			if (bp.isRegression()) {
+				System.out.println(MessageFormat.format(
+						rb.getString("cmdline.compare.regression"), bp.getName()));
+			}
+		}
+		System.out.println(MessageFormat.format(rb.getString("cmdline.compare.written"),
+				outputFile.getAbsolutePath()));
+		return true;
+	}
+}
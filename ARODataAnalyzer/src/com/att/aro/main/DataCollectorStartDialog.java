@@ -41,6 +41,8 @@ import javax.swing.JTextField;
 import javax.swing.SwingConstants;
 import javax.swing.border.TitledBorder;
 
+import com.att.aro.model.UserPreferences;
+
 /**
  * Represents the dialog that is used to start the ARO Data Collector. The
  * dialog prompts the user to enter a trace folder name, and starts the ARO Data
@@ -60,6 +62,7 @@ public class DataCollectorStartDialog extends JDialog {
 	private JPanel optionsPanel;
 	private JPanel jAdvancedOptionsPanel;
 	private JCheckBox jRecordVideoCheckBox;
+	private JCheckBox jLiveAnalysisCheckBox;
 	private JLabel TraceFolderLabel;
 	private JTextField jTraceFolderName;
 	private DatacollectorBridge mARODataCollectorBridge;
@@ -201,6 +204,8 @@ public class DataCollectorStartDialog extends JDialog {
 							return;
 						} else {
 							DataCollectorStartDialog.this.dispose();
+							UserPreferences.getInstance().setLiveAnalysis(
+									getJLiveAnalysisCheckBox().isSelected());
 							mARODataCollectorBridge.startARODataCollector(jTraceFolderName
 									.getText(), getJRecordVideoCheckBox().isSelected());
 						}
@@ -259,6 +264,10 @@ public class DataCollectorStartDialog extends JDialog {
 	 */
 	private JPanel getJAdvancedOptionsPanel() {
 		if (jAdvancedOptionsPanel == null) {
+			GridBagConstraints gridBagConstraints4 = new GridBagConstraints();
+			gridBagConstraints4.gridx = 0;
+			gridBagConstraints4.anchor = GridBagConstraints.WEST;
+			gridBagConstraints4.gridy = 3;
 			GridBagConstraints gridBagConstraints3 = new GridBagConstraints();
 			gridBagConstraints3.gridx = 0;
 			gridBagConstraints3.anchor = GridBagConstraints.WEST;
@@ -279,6 +288,7 @@ public class DataCollectorStartDialog extends JDialog {
 			jAdvancedOptionsPanel.add(getJTraceFolderLabel(), gridBagConstraints1);
 			jAdvancedOptionsPanel.add(getJTraceFolderTextField(), gridBagConstraints2);
 			jAdvancedOptionsPanel.add(getJRecordVideoCheckBox(), gridBagConstraints3);
+			jAdvancedOptionsPanel.add(getJLiveAnalysisCheckBox(), gridBagConstraints4);
 		}
 		return jAdvancedOptionsPanel;
 	}
@@ -308,6 +318,20 @@ public class DataCollectorStartDialog extends JDialog {
 		return jRecordVideoCheckBox;
 	}
 
+	/**
+	 * This method initializes jLiveAnalysisCheckBox
+	 * 
+	 * @return javax.swing.JCheckBox
+	 */
+	private JCheckBox getJLiveAnalysisCheckBox() {
+		if (jLiveAnalysisCheckBox == null) {
+			jLiveAnalysisCheckBox = new JCheckBox();
+			jLiveAnalysisCheckBox.setText(rb.getString("collector.live"));
+			jLiveAnalysisCheckBox.setSelected(UserPreferences.getInstance().isLiveAnalysis());
+		}
+		return jLiveAnalysisCheckBox;
+	}
+
 	private JTextField getJTraceFolderTextField() {
 		if (jTraceFolderName == null) {
 			jTraceFolderName = new JTextField(25);
@@ -18,12 +18,14 @@ package com.att.aro.main;
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.io.RandomAccessFile;
 import java.net.Socket;
 import java.text.MessageFormat;
 import java.util.ResourceBundle;
@@ -43,11 +45,14 @@ import com.android.ddmlib.AndroidDebugBridge;
 import com.android.ddmlib.IDevice;
 import com.android.ddmlib.IShellOutputReceiver;
 import com.android.ddmlib.MultiLineReceiver;
+import com.android.ddmlib.NullOutputReceiver;
 import com.android.ddmlib.SyncService;
 import com.android.ddmlib.SyncService.SyncResult;
 import com.att.aro.commonui.AROProgressDialog;
 import com.att.aro.commonui.MessageDialogFactory;
+import com.att.aro.model.LiveTrace;
 import com.att.aro.model.TraceData;
+import com.att.aro.model.UserPreferences;
 import com.att.aro.videocapture.VideoCaptureThread;
 
 /**
@@ -116,6 +121,13 @@ public class DatacollectorBridge {
 		};
 
 	private static final int AROSDCARD_TIMERCHECK_FREQUENCY= 2000;
+
+	/**
+	 * The block size in which the tail of a capture file being collected is
+	 * copied on the device, and the file the tail is copied to
+	 */
+	private static final int LIVE_TAIL_BLOCK_SIZE = 4096;
+	private static final String LIVE_TAIL_FILE = TRACE_ROOT + "live.tail";
 	private static final int AROSDCARD_MIN_SPACEBYTES = 5120; // 5MB Minimum
 																// Space
 																// required to
@@ -230,6 +242,13 @@ public class DatacollectorBridge {
 	 * emulator
 	 */
 	private Timer checkSDCardSpace;
+
+	/**
+	 * Timer that is used to analyze the trace while it is being collected, and
+	 * the lock that is held while the trace files are pulled and analyzed
+	 */
+	private volatile Timer liveAnalysisTimer;
+	private final Object liveAnalysisLock = new Object();
 	
 	private static boolean isAROOnMac = false;
 
@@ -690,6 +709,7 @@ public class DatacollectorBridge {
 
 				@Override
 				protected String doInBackground() {
+					stopLiveAnalysis();
 					try {
 						stopTcpDump();
 						appendAppVersion();
@@ -1232,6 +1252,153 @@ public class DatacollectorBridge {
 		}, AROSDCARD_TIMERCHECK_FREQUENCY, AROSDCARD_TIMERCHECK_FREQUENCY);
 	}
 
+	/**
+	 * Starts analyzing the trace while it is being collected. At each interval
+	 * the trace files are pulled from the device, and the analyzer reads the
+	 * packets captured since the previous interval.
+	 */
+	private void startLiveAnalysis() {
+		stopLiveAnalysis();
+
+		final LiveTrace liveTrace = new LiveTrace(localTraceFolder);
+		final String[] traceFileNames = mAndroidDevice.isEmulator() ? mDataEmulatorCollectortraceFileNames
+				: mDataDeviceCollectortraceFileNames;
+		long interval = Integer.parseInt(rb.getString("live.refreshInterval"));
+		this.liveAnalysisTimer = new Timer();
+		liveAnalysisTimer.schedule(new TimerTask() {
+
+			// The capture file being written, where 0 is traffic.cap
+			private int captureIndex;
+
+			public void run() {
+				synchronized (liveAnalysisLock) {
+					if (getStatus() != Status.STARTED) {
+						return;
+					}
+					try {
+						SyncService service = mAndroidDevice.getSyncService();
+						if (service == null) {
+							return;
+						}
+						try {
+							for (String file : traceFileNames) {
+								if (!TraceData.PCAP_FILE.equals(file)) {
+									pullLiveFile(service, file);
+								}
+							}
+
+							// Rotated capture files do not change once the
+							// next file is created, so they are pulled one
+							// last time and not again
+							pullLiveCapture(service, getCaptureFileName(captureIndex));
+							while (pullLiveCapture(service, getCaptureFileName(captureIndex + 1))) {
+								pullLiveCapture(service, getCaptureFileName(captureIndex));
+								++captureIndex;
+							}
+						} finally {
+							service.close();
+						}
+					} catch (IOException e) {
+						logger.log(Level.WARNING, "Unable to pull trace files being collected", e);
+						return;
+					}
+					mAROAnalyzer.refreshLive(liveTrace);
+				}
+			}
+		}, interval, interval);
+	}
+
+	/**
+	 * Stops analyzing the trace while it is being collected, and waits for an
+	 * analysis in progress to complete. This method must not be called on the
+	 * UI thread, on which the analysis is displayed.
+	 */
+	private void stopLiveAnalysis() {
+		Timer timer = liveAnalysisTimer;
+		if (timer != null) {
+			timer.cancel();
+			liveAnalysisTimer = null;
+			synchronized (liveAnalysisLock) {
+				logger.fine("Live analysis stopped");
+			}
+		}
+	}
+
+	/**
+	 * Pulls a file of the trace being collected from the device.
+	 * 
+	 * @return true if the file was pulled, or false if it is not available.
+	 */
+	private boolean pullLiveFile(SyncService service, String file) {
+		SyncResult result = service.pullFile(deviceTracePath + "/" + file, new File(
+				localTraceFolder, file).getAbsolutePath(), SyncService.getNullProgressMonitor());
+		return result.getCode() == SyncService.RESULT_OK;
+	}
+
+	/**
+	 * Pulls the part of a capture file of the trace being collected that has
+	 * been appended since the file was last pulled. Capture files only grow,
+	 * so the file is copied on the device from the last whole block pulled,
+	 * and the copy replaces the local file from that block on. The whole file
+	 * is pulled the first time, and when the tail cannot be copied.
+	 * 
+	 * @return true if the file was pulled, or false if it is not available.
+	 * @throws IOException
+	 *             when the local file cannot be written.
+	 */
+	private boolean pullLiveCapture(SyncService service, String file) throws IOException {
+		File localFile = new File(localTraceFolder, file);
+		long localLength = localFile.length();
+		long skip = localLength / LIVE_TAIL_BLOCK_SIZE;
+		if (skip == 0) {
+			return pullLiveFile(service, file);
+		}
+
+		mAndroidDevice.executeShellCommand("dd if=" + deviceTracePath + "/" + file + " of="
+				+ LIVE_TAIL_FILE + " bs=" + LIVE_TAIL_BLOCK_SIZE + " skip=" + skip,
+				NullOutputReceiver.getReceiver());
+		File tail = File.createTempFile("live", ".tail");
+		try {
+			SyncResult result = service.pullFile(LIVE_TAIL_FILE, tail.getAbsolutePath(),
+					SyncService.getNullProgressMonitor());
+			long offset = skip * LIVE_TAIL_BLOCK_SIZE;
+			if (result.getCode() != SyncService.RESULT_OK
+					|| offset + tail.length() < localLength) {
+				logger.fine("Unable to copy the tail of " + file + ", pulling the whole file");
+				return pullLiveFile(service, file);
+			}
+
+			RandomAccessFile output = new RandomAccessFile(localFile, "rw");
+			try {
+				FileInputStream input = new FileInputStream(tail);
+				try {
+					output.setLength(offset);
+					output.seek(offset);
+					byte[] buffer = new byte[LIVE_TAIL_BLOCK_SIZE];
+					for (int n = input.read(buffer); n >= 0; n = input.read(buffer)) {
+						output.write(buffer, 0, n);
+					}
+				} finally {
+					input.close();
+				}
+			} finally {
+				output.close();
+			}
+			return true;
+		} finally {
+			tail.delete();
+			mAndroidDevice.executeShellCommand("rm " + LIVE_TAIL_FILE,
+					NullOutputReceiver.getReceiver());
+		}
+	}
+
+	/**
+	 * Returns the name of the capture file with the specified index.
+	 */
+	private static String getCaptureFileName(int index) {
+		return index == 0 ? TraceData.PCAP_FILE : TraceData.TRAFFIC + index + TraceData.CAP_EXT;
+	}
+
 	/**
 	 * Pull the given file name from Jar and write to the local drive for use on
 	 * emulator
@@ -1559,6 +1726,11 @@ public class DatacollectorBridge {
 						mVideoCapture = null;
 					}
 
+					if (!CommandLineHandler.getInstance().IsCommandLineEvent()
+							&& UserPreferences.getInstance().isLiveAnalysis()) {
+						startLiveAnalysis();
+					}
+
 
 					if (mAndroidDevice.isEmulator()) {
 						
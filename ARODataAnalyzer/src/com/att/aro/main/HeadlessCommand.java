@@ -0,0 +1,111 @@
+/*
+ * Copyright 2012 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.main;
+
+import java.text.MessageFormat;
+import java.util.ResourceBundle;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A command that runs from the command line without the user interface,
+ * selected by the option in the first argument. A command reports its
+ * progress on the standard output, and its usage or the reason it failed on
+ * the standard error.
+ */
+abstract class HeadlessCommand {
+
+	private static final Logger logger = Logger.getLogger(HeadlessCommand.class.getName());
+
+	/**
+	 * The resource bundle of the messages of the commands.
+	 */
+	static final ResourceBundle rb = ResourceBundleManager.getDefaultBundle();
+
+	private final String name;
+	private final String errorKey;
+
+	/**
+	 * Initializes an instance of the HeadlessCommand class.
+	 *
+	 * @param name
+	 *            The name of the command that a failure is logged with.
+	 * @param errorKey
+	 *            The key of the message that reports a failure.
+	 */
+	HeadlessCommand(String name, String errorKey) {
+		this.name = name;
+		this.errorKey = errorKey;
+	}
+
+	/**
+	 * Runs the command with the specified command line arguments. A failure,
+	 * including a packet capture library that is not available, is logged
+	 * and reported.
+	 *
+	 * @param args
+	 *            The command line arguments, starting with the option of the
+	 *            command.
+	 * @return true if the command succeeded.
+	 */
+	final boolean run(String[] args) {
+		try {
+			return execute(args);
+		} catch (Exception e) {
+			return failed(e);
+		} catch (UnsatisfiedLinkError e) {
+
+			// The packet capture library is not available
+			return failed(e);
+		}
+	}
+
+	/**
+	 * Executes the command.
+	 *
+	 * @param args
+	 *            The command line arguments, starting with the option of the
+	 *            command.
+	 * @return true if the command succeeded, or false if the arguments do not
+	 *         match its usage.
+	 * @throws Exception
+	 *             when the command fails.
+	 */
+	abstract boolean execute(String[] args) throws Exception;
+
+	/**
+	 * Reports the usage of the command.
+	 *
+	 * @param usageKey
+	 *            The key of the usage message.
+	 * @return false.
+	 */
+	static boolean usage(String usageKey) {
+		System.err.println(rb.getString(usageKey));
+		return false;
+	}
+
+	/**
+	 * Reports that the command failed.
+	 *
+	 * @return false.
+	 */
+	private boolean failed(Throwable e) {
+		logger.log(Level.SEVERE, name + " failed", e);
+		System.err.println(MessageFormat.format(rb.getString(errorKey), e.getMessage()));
+		return false;
+	}
+}
@@ -21,6 +21,8 @@ import java.lang.Thread.UncaughtExceptionHandler;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.ResourceBundle;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -43,6 +45,17 @@ public class Launch {
 			.getDefaultBundle();
 	private static final int indexOfTraceDirectoryName = 0;
 	private static final int indexOfTraceDurationInMins = 1;
+
+	// The commands that run without the user interface, by their option
+	private static final Map<String, HeadlessCommand> commands = new HashMap<String, HeadlessCommand>();
+	static {
+		commands.put(ProfileSweepCommand.OPTION, new ProfileSweepCommand());
+		commands.put(PeriodicProjectionCommand.OPTION, new PeriodicProjectionCommand());
+		commands.put(CompareCommand.OPTION, new CompareCommand());
+		CaptureCommand capture = new CaptureCommand();
+		commands.put(CaptureCommand.MERGE_OPTION, capture);
+		commands.put(CaptureCommand.SPLIT_OPTION, capture);
+	}
 	
 	/**
 	 * The starting point for the ARO Data Analyzer. This method launches the
@@ -54,6 +67,15 @@ public class Launch {
 	 */
 	public static void main(String[] args) {
 		
+		//Run a command without the user interface
+		HeadlessCommand command = args != null && args.length > 0 ? commands.get(args[0]) : null;
+		if (command != null) {
+			if (!command.run(args)) {
+				System.exit(1);
+			}
+			return;
+		}
+
 		//Handle command line parameters
 		if (handleCommandLineParameters(args) == false) {
 			return;
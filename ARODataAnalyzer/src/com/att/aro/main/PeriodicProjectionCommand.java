@@ -0,0 +1,92 @@
+/*
+ * Copyright 2012 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.main;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.text.MessageFormat;
+
+import com.att.aro.model.PeriodicTrafficProjection;
+import com.att.aro.model.Profile;
+import com.att.aro.model.TraceData;
+
+/**
+ * Projects the radio cost of the periodic transfers of a trace over one day
+ * from the command line. The trace is analyzed with the profile, the
+ * projection is run with {@link PeriodicTrafficProjection}, and the result is
+ * written as comma separated values to the trace directory.
+ */
+class PeriodicProjectionCommand extends HeadlessCommand {
+
+	/**
+	 * The command line option that selects the periodic projection.
+	 */
+	static final String OPTION = "-periodic";
+
+	/**
+	 * The name of the file that the results are written to in the trace
+	 * directory.
+	 */
+	static final String OUTPUT_FILE = "periodic_projection.csv";
+
+	PeriodicProjectionCommand() {
+		super("Periodic projection", "cmdline.periodic.error");
+	}
+
+	/**
+	 * Runs the periodic projection with the specified command line arguments.
+	 *
+	 * @param args
+	 *            The command line arguments, starting with {@link #OPTION}.
+	 * @return true if the projection was written.
+	 */
+	@Override
+	boolean execute(String[] args) throws Exception {
+		if (args.length < 2 || args.length > 3) {
+			return usage("cmdline.periodic.usage");
+		}
+		File traceDir = new File(args[1]);
+		Profile profile = args.length > 2 ? Profile.createFromFile(new File(args[2]))
+				: ProfileManager.getInstance().getLastUserProfileOrDefault();
+
+		System.out.println(MessageFormat.format(rb.getString("cmdline.sweep.loading"),
+				traceDir.getAbsolutePath()));
+		TraceData traceData = new TraceData(traceDir);
+		TraceData.Analysis analysis = traceData.runAnalysis(profile, null);
+
+		PeriodicTrafficProjection projection = new PeriodicTrafficProjection(analysis);
+		System.out.println(MessageFormat.format(rb.getString("cmdline.periodic.running"),
+				projection.getSourceCount()));
+		PeriodicTrafficProjection.Result result = projection.run(profile);
+
+		File outputFile = new File(traceDir, OUTPUT_FILE);
+		Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(
+				outputFile), "UTF-8"));
+		try {
+			PeriodicTrafficProjection.writeCsv(result, writer);
+		} finally {
+			writer.close();
+		}
+		PeriodicTrafficProjection.writeCsv(result, new PrintWriter(System.out));
+		System.out.println(MessageFormat.format(rb.getString("cmdline.periodic.written"),
+				outputFile.getAbsolutePath()));
+		return true;
+	}
+}
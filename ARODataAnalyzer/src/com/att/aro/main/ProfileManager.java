@@ -249,4 +249,21 @@ public class ProfileManager {
 		return getDefaultProfile(null);
 	}
 
+	/**
+	 * Returns the last profile used for the analysis, or the default profile
+	 * when the last profile cannot be loaded.
+	 * 
+	 * @return The profile.
+	 */
+	public Profile getLastUserProfileOrDefault() {
+		try {
+			return getLastUserProfile(null);
+		} catch (ProfileException e) {
+			return getDefaultProfile();
+		} catch (IOException e) {
+			logger.log(Level.WARNING, "Unable to load last user profile", e);
+			return getDefaultProfile();
+		}
+	}
+
 }
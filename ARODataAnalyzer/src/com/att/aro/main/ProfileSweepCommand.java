@@ -0,0 +1,130 @@
+/*
+ * Copyright 2012 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.main;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+import com.att.aro.model.Profile;
+import com.att.aro.model.ProfileSweep;
+import com.att.aro.model.TraceData;
+
+/**
+ * Runs a profile sweep from the command line. The trace is analyzed once with
+ * the base profile, then every combination of the values in the grid file is
+ * evaluated with {@link ProfileSweep}, and the results are written as comma
+ * separated values to the trace directory.
+ */
+class ProfileSweepCommand extends HeadlessCommand {
+
+	/**
+	 * The command line option that selects the profile sweep.
+	 */
+	static final String OPTION = "-sweep";
+
+	/**
+	 * The name of the file that the results are written to in the trace
+	 * directory.
+	 */
+	static final String OUTPUT_FILE = "profile_sweep.csv";
+
+	ProfileSweepCommand() {
+		super("Profile sweep", "cmdline.sweep.error");
+	}
+
+	/**
+	 * Runs the profile sweep with the specified command line arguments.
+	 *
+	 * @param args
+	 *            The command line arguments, starting with {@link #OPTION}.
+	 * @return true if the sweep was written.
+	 */
+	@Override
+	boolean execute(String[] args) throws Exception {
+		if (args.length < 3 || args.length > 4) {
+			return usage("cmdline.sweep.usage");
+		}
+		File traceDir = new File(args[1]);
+		File gridFile = new File(args[2]);
+		Profile profile = args.length > 3 ? Profile.createFromFile(new File(args[3]))
+				: ProfileManager.getInstance().getLastUserProfileOrDefault();
+		Map<String, List<String>> grid = readGrid(gridFile);
+
+		System.out.println(MessageFormat.format(rb.getString("cmdline.sweep.loading"),
+				traceDir.getAbsolutePath()));
+		TraceData traceData = new TraceData(traceDir);
+		TraceData.Analysis analysis = traceData.runAnalysis(profile, null);
+
+		Map<Profile, Map<String, String>> points = ProfileSweep.createGrid(profile, grid);
+		System.out.println(MessageFormat.format(rb.getString("cmdline.sweep.running"),
+				points.size()));
+		List<ProfileSweep.Result> results = new ProfileSweep(analysis).run(points, Runtime
+				.getRuntime().availableProcessors());
+
+		File outputFile = new File(traceDir, OUTPUT_FILE);
+		Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(
+				outputFile), "UTF-8"));
+		try {
+			ProfileSweep.writeCsv(results, writer);
+		} finally {
+			writer.close();
+		}
+		ProfileSweep.writeCsv(results, new PrintWriter(System.out));
+		System.out.println(MessageFormat.format(rb.getString("cmdline.sweep.written"),
+				outputFile.getAbsolutePath()));
+		return true;
+	}
+
+	/**
+	 * Reads the grid file. Each property of the file is a profile property
+	 * whose value is a comma separated list of the values to sweep. The
+	 * properties are varied in alphabetical order.
+	 */
+	private static Map<String, List<String>> readGrid(File file) throws IOException {
+		Properties props = new Properties();
+		InputStream input = new FileInputStream(file);
+		try {
+			props.load(input);
+		} finally {
+			input.close();
+		}
+
+		Map<String, List<String>> grid = new TreeMap<String, List<String>>();
+		for (String name : props.stringPropertyNames()) {
+			List<String> values = new ArrayList<String>();
+			for (String value : props.getProperty(name).split(",")) {
+				if (value.trim().length() > 0) {
+					values.add(value.trim());
+				}
+			}
+			grid.put(name, values);
+		}
+		return grid;
+	}
+}
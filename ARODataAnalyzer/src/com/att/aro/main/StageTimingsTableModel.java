@@ -0,0 +1,118 @@
+/*
+ *  Copyright 2012 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.main;
+
+import java.text.DecimalFormat;
+import java.text.NumberFormat;
+import java.util.ResourceBundle;
+
+import javax.swing.table.TableColumnModel;
+
+import com.att.aro.commonui.DataTableModel;
+import com.att.aro.commonui.NumberFormatRenderer;
+import com.att.aro.model.StageTimings.StageTiming;
+
+/**
+ * Represents the data table model for the stage timings shown in the Analysis
+ * Timings dialog.
+ */
+public class StageTimingsTableModel extends DataTableModel<StageTiming> {
+	private static final long serialVersionUID = 1L;
+
+	private static final int STAGE_COL = 0;
+	private static final int WALL_COL = 1;
+	private static final int CPU_COL = 2;
+	private static final int ALLOC_COL = 3;
+	private static final ResourceBundle rb = ResourceBundleManager.getDefaultBundle();
+	private static final String[] columns = { rb.getString("stageTimings.stage"),
+			rb.getString("stageTimings.wall"), rb.getString("stageTimings.cpu"),
+			rb.getString("stageTimings.allocated") };
+
+	/**
+	 * Initializes a new instance of the StageTimingsTableModel class.
+	 */
+	public StageTimingsTableModel() {
+		super(columns);
+	}
+
+	/**
+	 * Returns a class representing the specified column. This method is
+	 * primarily used to sort numeric columns.
+	 * 
+	 * @param columnIndex
+	 *            The index of the specified column.
+	 * 
+	 * @return A class representing the specified column.
+	 */
+	@Override
+	public Class<?> getColumnClass(int columnIndex) {
+		switch (columnIndex) {
+		case WALL_COL:
+		case CPU_COL:
+			return Double.class;
+		case ALLOC_COL:
+			return Long.class;
+		default:
+			return super.getColumnClass(columnIndex);
+		}
+	}
+
+	/**
+	 * Returns a TableColumnModel with number renderers for the time and size
+	 * columns.
+	 * 
+	 * @return A TableColumnModel object.
+	 */
+	@Override
+	public TableColumnModel createDefaultTableColumnModel() {
+		TableColumnModel cols = super.createDefaultTableColumnModel();
+		NumberFormatRenderer msRenderer = new NumberFormatRenderer(new DecimalFormat("0.0"));
+		NumberFormatRenderer kbRenderer = new NumberFormatRenderer(NumberFormat.getIntegerInstance());
+		cols.getColumn(STAGE_COL).setPreferredWidth(220);
+		cols.getColumn(WALL_COL).setCellRenderer(msRenderer);
+		cols.getColumn(CPU_COL).setCellRenderer(msRenderer);
+		cols.getColumn(ALLOC_COL).setCellRenderer(kbRenderer);
+		return cols;
+	}
+
+	/**
+	 * Defines how the data object managed by this table model is mapped to its
+	 * columns when displayed in a row of the table. Times are in milliseconds
+	 * and allocations in kilobytes. Unsupported measurements are shown empty.
+	 * 
+	 * @param item
+	 *            A StageTiming object containing the column information.
+	 * @param columnIndex
+	 *            The index of the specified column.
+	 * 
+	 * @return An object containing the table column value.
+	 */
+	@Override
+	protected Object getColumnValue(StageTiming item, int columnIndex) {
+		switch (columnIndex) {
+		case STAGE_COL:
+			return item.getName();
+		case WALL_COL:
+			return item.getWallNanos() / 1000000.0;
+		case CPU_COL:
+			return item.getCpuNanos() >= 0 ? item.getCpuNanos() / 1000000.0 : null;
+		case ALLOC_COL:
+			return item.getAllocatedBytes() >= 0 ? item.getAllocatedBytes() / 1024 : null;
+		default:
+			return null;
+		}
+	}
+}
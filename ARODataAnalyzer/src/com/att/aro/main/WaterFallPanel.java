@@ -11,6 +11,7 @@ import java.text.DecimalFormat;
 import java.text.MessageFormat;
 import java.text.NumberFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.ResourceBundle;
@@ -44,12 +45,9 @@ import org.jfree.chart.labels.ItemLabelPosition;
 import org.jfree.chart.labels.StandardCategoryItemLabelGenerator;
 import org.jfree.chart.plot.CategoryPlot;
 import org.jfree.chart.plot.PlotOrientation;
-import org.jfree.chart.renderer.category.CategoryItemRenderer;
 import org.jfree.chart.renderer.category.StackedBarRenderer;
 import org.jfree.data.Range;
 import org.jfree.data.category.CategoryDataset;
-import org.jfree.data.category.DefaultCategoryDataset;
-import org.jfree.data.category.SlidingCategoryDataset;
 import org.jfree.text.TextBlockAnchor;
 import org.jfree.ui.RectangleAnchor;
 import org.jfree.ui.RectangleInsets;
@@ -115,6 +113,16 @@ public class WaterFallPanel extends JPanel {
 	private static final Color threexColor = Color.BLUE;
 	private static final Color fourxColor = Color.RED;
 
+	/**
+	 * The series of the waterfall dataset, in stacking order. Only one of the
+	 * AFTER series has a value for each request.
+	 */
+	private static final List<WaterFall> SERIES = Arrays.asList(WaterFall.BEFORE,
+			WaterFall.DNS_LOOKUP, WaterFall.INITIAL_CONNECTION, WaterFall.SSL_NEGOTIATION,
+			WaterFall.REQUEST_TIME, WaterFall.TIME_TO_FIRST_BYTE, WaterFall.CONTENT_DOWNLOAD,
+			WaterFall.HTTP_3XX_REDIRECTION, WaterFall.HTTP_4XX_CLIENTERROR, WaterFall.AFTER,
+			WaterFall.AFTER_3XX, WaterFall.AFTER_4XX);
+
 	private static final NumberFormat format = new DecimalFormat();
 	private static final TickUnits units = new TickUnits();
 	static {
@@ -147,7 +155,7 @@ public class WaterFallPanel extends JPanel {
 	}
 
 	private ApplicationResourceOptimizer parent;
-	private SlidingCategoryDataset dataset;
+	private WaterfallDataset dataset;
 	private JButton zoomInButton;
 	private JButton zoomOutButton;
 	private ChartPanel chartPanel;
@@ -167,8 +175,7 @@ public class WaterFallPanel extends JPanel {
 
 		super(new BorderLayout());
 		this.parent = parent;
-		this.dataset = new SlidingCategoryDataset(new DefaultCategoryDataset(), 0,
-				CATEGORY_MAX_COUNT);
+		this.dataset = new WaterfallDataset(SERIES, CATEGORY_MAX_COUNT);
 		this.popup = new WaterfallPopup(parent);
 
 		JPanel graphPanel = new JPanel(new BorderLayout());
@@ -242,126 +249,44 @@ public class WaterFallPanel extends JPanel {
 
 		// Set the visible time range
 		setTimeRange(0, range);
-		
-		CategoryAxis cAxis = getCategoryAxis();
-		cAxis.clearCategoryLabelToolTips();
 
-		// Build the dataset
-		DefaultCategoryDataset underlying = new DefaultCategoryDataset();
+		// Build the timeline values of the requests, in start time order
+		int seriesCount = SERIES.size();
+		double[] values = new double[categoryList.size() * seriesCount];
+		Arrays.fill(values, Double.NaN);
+		int offset = 0;
 		for (WaterfallCategory wfc : categoryList) {
 			RequestResponseTimeline tl = wfc.reqResp.getWaterfallInfos();
 
-			underlying.addValue(tl.getStartTime(), WaterFall.BEFORE, wfc);
-			underlying.addValue(tl.getDnsLookupDuration(), WaterFall.DNS_LOOKUP, wfc);
-			underlying.addValue(tl.getInitialConnDuration(), WaterFall.INITIAL_CONNECTION, wfc);
-			underlying.addValue(tl.getSslNegotiationDuration(), WaterFall.SSL_NEGOTIATION, wfc);
-			underlying.addValue(tl.getRequestDuration(), WaterFall.REQUEST_TIME, wfc);
-			underlying.addValue(tl.getTimeToFirstByte(), WaterFall.TIME_TO_FIRST_BYTE, wfc);
-			underlying.addValue(tl.getContentDownloadDuration(), WaterFall.CONTENT_DOWNLOAD, wfc);
-			underlying.addValue(null, WaterFall.HTTP_3XX_REDIRECTION, wfc);
-			underlying.addValue(null, WaterFall.HTTP_4XX_CLIENTERROR, wfc);
+			values[offset + SERIES.indexOf(WaterFall.BEFORE)] = tl.getStartTime();
+			values[offset + SERIES.indexOf(WaterFall.DNS_LOOKUP)] = tl.getDnsLookupDuration();
+			values[offset + SERIES.indexOf(WaterFall.INITIAL_CONNECTION)] = tl.getInitialConnDuration();
+			values[offset + SERIES.indexOf(WaterFall.SSL_NEGOTIATION)] = tl.getSslNegotiationDuration();
+			values[offset + SERIES.indexOf(WaterFall.REQUEST_TIME)] = tl.getRequestDuration();
+			values[offset + SERIES.indexOf(WaterFall.TIME_TO_FIRST_BYTE)] = tl.getTimeToFirstByte();
+			values[offset + SERIES.indexOf(WaterFall.CONTENT_DOWNLOAD)] = tl.getContentDownloadDuration();
 
 			int code = wfc.reqResp.getAssocReqResp().getStatusCode();
 			double endTime = this.traceDuration - tl.getStartTime() - tl.getTotalTime();
 			if(code >= 300 && code < 400) {
-				underlying.addValue(endTime, WaterFall.AFTER_3XX, wfc);
+				values[offset + SERIES.indexOf(WaterFall.AFTER_3XX)] = endTime;
 			} else if(code >= 400) {
-				underlying.addValue(endTime, WaterFall.AFTER_4XX, wfc);
+				values[offset + SERIES.indexOf(WaterFall.AFTER_4XX)] = endTime;
 			} else {
-				underlying.addValue(endTime, WaterFall.AFTER, wfc);
+				values[offset + SERIES.indexOf(WaterFall.AFTER)] = endTime;
 			}
-			
-			cAxis.addCategoryLabelToolTip(wfc, wfc.getTooltip());
+			offset += seriesCount;
 		}
+		this.dataset.setData(categoryList, values);
+		updateCategoryToolTips();
 
 		// Vertical scroll bar is used to scroll through data
 		JScrollBar v = getVerticalScroll();
-		int count = underlying.getColumnCount();
+		int count = categoryList.size();
 		v.setValue(0);
 		v.setMaximum(count);
 		v.setVisibleAmount(count > 0 ? this.dataset.getMaximumCategoryCount() - 1 / count : 1);
 
-		// Add the dataset to the plot
-		CategoryPlot plot = getChartPanel().getChart().getCategoryPlot();
-		this.dataset = new SlidingCategoryDataset(underlying, 0, CATEGORY_MAX_COUNT);
-		plot.setDataset(this.dataset);
-
-		// Place proper colors on renderer for waterfall states
-		final CategoryItemRenderer renderer = plot.getRenderer();
-		for (Object o : underlying.getRowKeys()) {
-			WaterFall wf = (WaterFall) o;
-			int index = underlying.getRowIndex(wf);
-
-			Color paint;
-			switch (wf) {
-			case DNS_LOOKUP:
-				paint = dnsLoolupColor;
-				break;
-			case INITIAL_CONNECTION:
-				paint = initiaConnColor;
-				break;
-			case SSL_NEGOTIATION:
-				paint = sslNegColor;
-				break;
-			case REQUEST_TIME:
-				paint = requestTimeColor;
-				break;
-			case TIME_TO_FIRST_BYTE:
-				paint = firstByteTimeColor;
-				break;
-			case CONTENT_DOWNLOAD:
-				paint = contentDownloadColor;
-				break;
-			case AFTER_3XX:
-				paint = noneColor;
-				renderer.setSeriesItemLabelPaint(index, threexColor);
-				renderer.setSeriesVisibleInLegend(index, false);
-				break;
-			case AFTER_4XX:
-				paint = noneColor;
-				renderer.setSeriesItemLabelPaint(index, fourxColor);
-				renderer.setSeriesVisibleInLegend(index, false);
-				break;
-			case HTTP_3XX_REDIRECTION:
-				paint = threexColor;
-				break;
-			case HTTP_4XX_CLIENTERROR:
-				paint = fourxColor;
-				break;
-			default:
-				renderer.setSeriesItemLabelPaint(index, Color.black);
-				renderer.setSeriesVisibleInLegend(index, false);
-				paint = noneColor;
-			}
-			renderer.setSeriesPaint(index, paint);
-		}
-
-		// Adding the label at the end of bars
-		renderer.setBaseItemLabelGenerator(new StandardCategoryItemLabelGenerator() {
-			private static final long serialVersionUID = 1L;
-
-			@Override
-			public String generateLabel(CategoryDataset dataset, int row, int column) {
-				if (WaterFall.AFTER == dataset.getRowKey(row)
-						|| WaterFall.AFTER_3XX == dataset.getRowKey(row)
-						|| WaterFall.AFTER_4XX == dataset.getRowKey(row)) {
-					WaterfallCategory waterfallItem = (WaterfallCategory) dataset
-							.getColumnKey(column);
-
-					RequestResponseTimeline waterfallInfos = waterfallItem.reqResp
-							.getWaterfallInfos();
-					DecimalFormat formatter = new DecimalFormat("#.##");
-					int code = waterfallItem.reqResp.getAssocReqResp().getStatusCode();
-					return MessageFormat.format(
-							rb.getString("waterfall.totalTime"),
-							formatter.format(waterfallInfos.getTotalTime()),
-							code > 0 ? waterfallItem.reqResp.getScheme() + " " + code : rb.getString("waterfall.unknownCode"));
-				}
-
-				return null;
-			}
-		});
-
 		logger.exiting("WaterFallPanel", "refresh");
 
 	}
@@ -389,8 +314,82 @@ public class WaterFallPanel extends JPanel {
 			renderer.setPositiveItemLabelPositionFallback(new ItemLabelPosition(ItemLabelAnchor.INSIDE9,
 					TextAnchor.CENTER_LEFT));
 
+			// Place proper colors on renderer for waterfall states
+			for (WaterFall wf : SERIES) {
+				int index = SERIES.indexOf(wf);
+
+				Color paint;
+				switch (wf) {
+				case DNS_LOOKUP:
+					paint = dnsLoolupColor;
+					break;
+				case INITIAL_CONNECTION:
+					paint = initiaConnColor;
+					break;
+				case SSL_NEGOTIATION:
+					paint = sslNegColor;
+					break;
+				case REQUEST_TIME:
+					paint = requestTimeColor;
+					break;
+				case TIME_TO_FIRST_BYTE:
+					paint = firstByteTimeColor;
+					break;
+				case CONTENT_DOWNLOAD:
+					paint = contentDownloadColor;
+					break;
+				case AFTER_3XX:
+					paint = noneColor;
+					renderer.setSeriesItemLabelPaint(index, threexColor);
+					renderer.setSeriesVisibleInLegend(index, false);
+					break;
+				case AFTER_4XX:
+					paint = noneColor;
+					renderer.setSeriesItemLabelPaint(index, fourxColor);
+					renderer.setSeriesVisibleInLegend(index, false);
+					break;
+				case HTTP_3XX_REDIRECTION:
+					paint = threexColor;
+					break;
+				case HTTP_4XX_CLIENTERROR:
+					paint = fourxColor;
+					break;
+				default:
+					renderer.setSeriesItemLabelPaint(index, Color.black);
+					renderer.setSeriesVisibleInLegend(index, false);
+					paint = noneColor;
+				}
+				renderer.setSeriesPaint(index, paint);
+			}
+
+			// Adding the label at the end of bars
+			renderer.setBaseItemLabelGenerator(new StandardCategoryItemLabelGenerator() {
+				private static final long serialVersionUID = 1L;
+				private final DecimalFormat formatter = new DecimalFormat("#.##");
+
+				@Override
+				public String generateLabel(CategoryDataset dataset, int row, int column) {
+					if (WaterFall.AFTER == dataset.getRowKey(row)
+							|| WaterFall.AFTER_3XX == dataset.getRowKey(row)
+							|| WaterFall.AFTER_4XX == dataset.getRowKey(row)) {
+						WaterfallCategory waterfallItem = (WaterfallCategory) dataset
+								.getColumnKey(column);
+
+						RequestResponseTimeline waterfallInfos = waterfallItem.reqResp
+								.getWaterfallInfos();
+						int code = waterfallItem.reqResp.getAssocReqResp().getStatusCode();
+						return MessageFormat.format(
+								rb.getString("waterfall.totalTime"),
+								formatter.format(waterfallInfos.getTotalTime()),
+								code > 0 ? waterfallItem.reqResp.getScheme() + " " + code : rb.getString("waterfall.unknownCode"));
+					}
+
+					return null;
+				}
+			});
+
 			// Set up plot
-			CategoryPlot plot = new CategoryPlot(new DefaultCategoryDataset(), getCategoryAxis(),
+			CategoryPlot plot = new CategoryPlot(dataset, getCategoryAxis(),
 					getTimeAxis(), renderer);
 			plot.setOrientation(PlotOrientation.HORIZONTAL);
 			plot.setDomainGridlinesVisible(true);
@@ -507,8 +506,10 @@ public class WaterFallPanel extends JPanel {
 
 				@Override
 				public void stateChanged(ChangeEvent arg0) {
-					if (dataset.getColumnCount() > 0) {
-						dataset.setFirstCategoryIndex(verticalScroll.getValue());
+					if (dataset.getCategoryCount() > 0) {
+						dataset.setFirstCategoryIndex(Math.min(verticalScroll.getValue(),
+								dataset.getCategoryCount() - 1));
+						updateCategoryToolTips();
 					}
 				}
 
@@ -598,6 +599,18 @@ public class WaterFallPanel extends JPanel {
 		setTimeRange(low, high);
 	}
 	
+	/**
+	 * Sets the category label tooltips of the requests that are visible.
+	 */
+	private void updateCategoryToolTips() {
+		CategoryAxis cAxis = getCategoryAxis();
+		cAxis.clearCategoryLabelToolTips();
+		for (Object o : dataset.getColumnKeys()) {
+			WaterfallCategory wfc = (WaterfallCategory) o;
+			cAxis.addCategoryLabelToolTip(wfc, wfc.getTooltip());
+		}
+	}
+
 	private void setTimeRange(double low, double high) {
 		logger.log(Level.FINE, "NEW range to {0} - {1}", new Object[] {low, high});
 		logger.log(Level.FINE, "Trace duration is {0} seconds", traceDuration);
@@ -0,0 +1,209 @@
+/*
+ *  Copyright 2012 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.main;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jfree.data.UnknownKeyException;
+import org.jfree.data.category.CategoryDataset;
+import org.jfree.data.general.AbstractDataset;
+
+/**
+ * The category dataset of the waterfall chart. The values of all categories
+ * are held in one primitive array, and the dataset exposes a sliding window of
+ * at most {@link #getMaximumCategoryCount()} categories, so that the chart
+ * renders only the rows that are visible. Key lookups take constant time.
+ */
+class WaterfallDataset extends AbstractDataset implements CategoryDataset {
+	private static final long serialVersionUID = 1L;
+
+	@SuppressWarnings("rawtypes")
+	private final List<Comparable> rowKeys;
+	private final Map<Object, Integer> rowIndexes = new HashMap<Object, Integer>();
+	private final int maximumCategoryCount;
+
+	@SuppressWarnings("rawtypes")
+	private List<Comparable> categories = Collections.emptyList();
+	private Map<Object, Integer> categoryIndexes = Collections.emptyMap();
+	private double[] values = new double[0];
+	private int firstCategoryIndex;
+
+	/**
+	 * Initializes an instance of the WaterfallDataset class with no
+	 * categories.
+	 * 
+	 * @param rowKeys
+	 *            The series of the dataset, in stacking order.
+	 * @param maximumCategoryCount
+	 *            The maximum number of categories in the window.
+	 */
+	@SuppressWarnings("rawtypes")
+	WaterfallDataset(List<? extends Comparable> rowKeys, int maximumCategoryCount) {
+		this.rowKeys = Collections.unmodifiableList(new ArrayList<Comparable>(rowKeys));
+		for (int i = 0; i < rowKeys.size(); ++i) {
+			rowIndexes.put(rowKeys.get(i), i);
+		}
+		this.maximumCategoryCount = maximumCategoryCount;
+	}
+
+	/**
+	 * Replaces the categories and values of the dataset, and moves the window
+	 * to the first category.
+	 * 
+	 * @param categories
+	 *            The categories, in display order.
+	 * @param values
+	 *            The values, with the values of all series of a category
+	 *            stored together, in the order of the row keys. NaN means
+	 *            that the category has no value for the series.
+	 */
+	@SuppressWarnings("rawtypes")
+	void setData(List<? extends Comparable> categories, double[] values) {
+		if (values.length != categories.size() * rowKeys.size()) {
+			throw new IllegalArgumentException("Expected " + categories.size() * rowKeys.size()
+					+ " values");
+		}
+		Map<Object, Integer> indexes = new HashMap<Object, Integer>(categories.size() * 2);
+		for (int i = 0; i < categories.size(); ++i) {
+			indexes.put(categories.get(i), i);
+		}
+		this.categories = Collections.unmodifiableList(new ArrayList<Comparable>(categories));
+		this.categoryIndexes = indexes;
+		this.values = values;
+		this.firstCategoryIndex = 0;
+		fireDatasetChanged();
+	}
+
+	/**
+	 * Returns the total number of categories, including those outside the
+	 * window.
+	 * 
+	 * @return The category count.
+	 */
+	int getCategoryCount() {
+		return categories.size();
+	}
+
+	/**
+	 * Returns the maximum number of categories in the window.
+	 * 
+	 * @return The maximum category count.
+	 */
+	int getMaximumCategoryCount() {
+		return maximumCategoryCount;
+	}
+
+	/**
+	 * Returns the index of the first category in the window.
+	 * 
+	 * @return The index of the first category.
+	 */
+	int getFirstCategoryIndex() {
+		return firstCategoryIndex;
+	}
+
+	/**
+	 * Moves the window to start at the specified category.
+	 * 
+	 * @param first
+	 *            The index of the first category in the window.
+	 */
+	void setFirstCategoryIndex(int first) {
+		if (first < 0 || (first > 0 && first >= categories.size())) {
+			throw new IllegalArgumentException("Invalid category index: " + first);
+		}
+		if (first != firstCategoryIndex) {
+			this.firstCategoryIndex = first;
+			fireDatasetChanged();
+		}
+	}
+
+	@SuppressWarnings("rawtypes")
+	@Override
+	public Comparable getRowKey(int row) {
+		return rowKeys.get(row);
+	}
+
+	@SuppressWarnings("rawtypes")
+	@Override
+	public int getRowIndex(Comparable key) {
+		Integer index = rowIndexes.get(key);
+		return index != null ? index : -1;
+	}
+
+	@SuppressWarnings("rawtypes")
+	@Override
+	public List getRowKeys() {
+		return rowKeys;
+	}
+
+	@SuppressWarnings("rawtypes")
+	@Override
+	public Comparable getColumnKey(int column) {
+		return categories.get(firstCategoryIndex + column);
+	}
+
+	@SuppressWarnings("rawtypes")
+	@Override
+	public int getColumnIndex(Comparable key) {
+		Integer index = categoryIndexes.get(key);
+		if (index == null) {
+			return -1;
+		}
+		int column = index - firstCategoryIndex;
+		return column >= 0 && column < getColumnCount() ? column : -1;
+	}
+
+	@SuppressWarnings("rawtypes")
+	@Override
+	public List getColumnKeys() {
+		return categories.subList(firstCategoryIndex, firstCategoryIndex + getColumnCount());
+	}
+
+	@SuppressWarnings("rawtypes")
+	@Override
+	public Number getValue(Comparable rowKey, Comparable columnKey) {
+		int row = getRowIndex(rowKey);
+		if (row < 0) {
+			throw new UnknownKeyException("Unknown row key: " + rowKey);
+		}
+		int column = getColumnIndex(columnKey);
+		if (column < 0) {
+			throw new UnknownKeyException("Unknown column key: " + columnKey);
+		}
+		return getValue(row, column);
+	}
+
+	@Override
+	public int getRowCount() {
+		return rowKeys.size();
+	}
+
+	@Override
+	public int getColumnCount() {
+		return Math.max(0, Math.min(maximumCategoryCount, categories.size() - firstCategoryIndex));
+	}
+
+	@Override
+	public Number getValue(int row, int column) {
+		double value = values[(firstCategoryIndex + column) * rowKeys.size() + row];
+		return Double.isNaN(value) ? null : Double.valueOf(value);
+	}
+}
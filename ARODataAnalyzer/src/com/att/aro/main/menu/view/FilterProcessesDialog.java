@@ -205,7 +205,9 @@ public class FilterProcessesDialog extends JDialog {
 	 */
 	private void oKButtonAction() {
 
-		CpuActivityList cpuAList = getThisWindowOwner().getAnalysisData().getCpuActivityList();
+		// The selection applies to the CPU activities of the trace, which are
+		// shared by the analyses of all time ranges
+		CpuActivityList cpuAList = getThisWindowOwner().getTraceData().getCpuActivityList();
 		cpuAList.setProcessSelection(filteredProcessSelection);
 		cpuAList.recalculateTotalCpu();
 
@@ -87,13 +87,24 @@ public class AnalysisFilter implements Serializable {
 	 * @return The color used to display the specified packet.
 	 */
 	public Color getPacketColor(PacketInfo packet) {
+		return getColor(packet.getAppName(), packet.getRemoteIPAddress());
+	}
+
+	/**
+	 * Returns the color used to display the packets of the specified
+	 * application and remote IP address based on the settings in this filter.
+	 * @param appName - The application name.
+	 * @param remoteIp - The remote IP address.
+	 * @return The color used to display the packets, or null if they are not selected.
+	 */
+	public Color getColor(String appName, InetAddress remoteIp) {
 
 		// Check to see if application is selected
-		ApplicationSelection appSel = getApplicationSelection(packet.getAppName());
+		ApplicationSelection appSel = getApplicationSelection(appName);
 		if (appSel != null) {
 			
 			// IP address may be selected
-			IPAddressSelection ipSel = appSel.getIPAddressSelection(packet.getRemoteIPAddress());
+			IPAddressSelection ipSel = appSel.getIPAddressSelection(remoteIp);
 			if (ipSel != null && ipSel.isSelected()) {
 				return ipSel.getColor();
 			}
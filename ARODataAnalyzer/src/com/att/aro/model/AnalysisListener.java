@@ -0,0 +1,38 @@
+/*
+ *  Copyright 2012 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.model;
+
+import java.util.EventListener;
+
+/**
+ * The listener interface for receiving the partial results of a trace
+ * analysis as each {@link AnalysisStage} completes.
+ */
+public interface AnalysisListener extends EventListener {
+
+	/**
+	 * Invoked on the analysis thread when a stage of the analysis completes.
+	 * The results of the completed stages may be read from the analysis, but
+	 * the other results are not yet available and the analysis must not be
+	 * modified.
+	 * 
+	 * @param analysis
+	 *            The analysis in progress.
+	 * @param stage
+	 *            The completed stage.
+	 */
+	void stageCompleted(TraceData.Analysis analysis, AnalysisStage stage);
+}
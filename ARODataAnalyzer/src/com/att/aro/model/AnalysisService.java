@@ -0,0 +1,285 @@
+/*
+ *  Copyright 2012 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.model;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs trace analyses on a fixed pool of worker threads for batch operations
+ * such as the data dump. The memory needed by each trace is estimated from the
+ * size of its packet capture files and its packet count, and a trace is only
+ * analyzed when the estimate fits in what is left of the memory budget, so
+ * that several small traces are analyzed at the same time while a large trace
+ * is analyzed alone. A trace whose estimate exceeds the whole budget is
+ * analyzed when no other trace is being analyzed. Traces are admitted in the
+ * order they are ready, so a large trace that is waiting for memory is not
+ * overtaken by smaller traces that would still fit.
+ * <p>
+ * The worker threads are kept for the life of the service, so the reassembly
+ * buffers that {@link TCPSession} keeps for each thread are reused from one
+ * trace to the next.
+ */
+public class AnalysisService {
+
+	private static final Logger logger = Logger.getLogger(AnalysisService.class.getName());
+
+	/**
+	 * The estimated number of bytes of memory needed for each byte of the
+	 * packet capture files, which covers the packet data and the reassembled
+	 * session content.
+	 */
+	private static final long BYTES_PER_CAPTURED_BYTE = 3;
+
+	/**
+	 * The estimated number of bytes of memory needed for each packet, which
+	 * covers the packet and packet information objects.
+	 */
+	private static final long BYTES_PER_PACKET = 400;
+
+	/**
+	 * The average packet size that is assumed when the packet count of a trace
+	 * is not known.
+	 */
+	private static final long AVERAGE_PACKET_SIZE = 500;
+
+	/**
+	 * A task that is run with the analysis of a trace.
+	 *
+	 * @param <T>
+	 *            The type of the result of the task.
+	 */
+	public interface Task<T> {
+
+		/**
+		 * Runs the task.
+		 *
+		 * @param analysis
+		 *            The analysis of the trace.
+		 * @return The result of the task.
+		 * @throws Exception
+		 */
+		T run(TraceData.Analysis analysis) throws Exception;
+	}
+
+	private final ExecutorService executor;
+	private final long memoryBudget;
+	private long memoryUsed;
+
+	/**
+	 * The analyses that are waiting for memory, in the order they started
+	 * waiting.
+	 */
+	private final LinkedList<Object> waiting = new LinkedList<Object>();
+
+	/**
+	 * Initializes an instance of the AnalysisService class with the number of
+	 * threads set by the com.att.aro.analysis.threads system property, or one
+	 * thread per processor, and the memory budget set by the
+	 * com.att.aro.analysis.memoryBudget system property, or 60 percent of the
+	 * maximum heap size.
+	 */
+	public AnalysisService() {
+		this(Integer.getInteger("com.att.aro.analysis.threads", Runtime.getRuntime()
+				.availableProcessors()), Long.getLong("com.att.aro.analysis.memoryBudget", Runtime
+				.getRuntime().maxMemory() / 10 * 6));
+	}
+
+	/**
+	 * Initializes an instance of the AnalysisService class with the specified
+	 * number of threads and memory budget.
+	 *
+	 * @param threadCount
+	 *            The number of worker threads.
+	 * @param memoryBudget
+	 *            The number of bytes of memory that the analyses that run at
+	 *            the same time may use.
+	 */
+	public AnalysisService(int threadCount, long memoryBudget) {
+		this.executor = Executors.newFixedThreadPool(Math.max(1, threadCount));
+		this.memoryBudget = Math.max(1, memoryBudget);
+	}
+
+	/**
+	 * Submits the analysis of a trace. The trace is loaded and analyzed with
+	 * the specified profile on a worker thread once its estimated memory need
+	 * fits in the budget, and the task is run with the analysis. The trace
+	 * data is released when the task returns.
+	 *
+	 * @param traceDir
+	 *            The trace directory.
+	 * @param profile
+	 *            The device profile.
+	 * @param task
+	 *            The task to run with the analysis.
+	 * @return The future result of the task, which fails with the exception
+	 *         thrown when the trace is loaded or analyzed, or by the task.
+	 */
+	public <T> Future<T> submit(final File traceDir, final Profile profile, final Task<T> task) {
+		return executor.submit(new Callable<T>() {
+			@Override
+			public T call() throws Exception {
+				long need = Math.min(estimateMemory(traceDir), memoryBudget);
+				acquire(need);
+				try {
+					TraceData traceData = new TraceData(traceDir);
+					try {
+						return task.run(traceData.runAnalysis(profile, null));
+					} finally {
+						traceData.release();
+					}
+				} finally {
+					release(need);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Stops the worker threads once the submitted analyses are complete.
+	 */
+	public void shutdown() {
+		executor.shutdown();
+	}
+
+	/**
+	 * Stops the worker threads, interrupting the analyses that are waiting for
+	 * memory.
+	 */
+	public void shutdownNow() {
+		executor.shutdownNow();
+	}
+
+	/**
+	 * Returns the number of bytes of memory that the analyses that run at the
+	 * same time may use.
+	 *
+	 * @return The memory budget.
+	 */
+	public long getMemoryBudget() {
+		return memoryBudget;
+	}
+
+	/**
+	 * Returns the estimated number of bytes of memory needed by the analyses
+	 * that are running.
+	 *
+	 * @return The memory in use.
+	 */
+	public synchronized long getMemoryUsed() {
+		return memoryUsed;
+	}
+
+	/**
+	 * Estimates the number of bytes of memory needed to load and analyze the
+	 * trace in the specified directory, from the size of its packet capture
+	 * files and the number of packets listed in its application ID file.
+	 *
+	 * @param traceDir
+	 *            The trace directory.
+	 * @return The estimated memory need.
+	 */
+	public static long estimateMemory(File traceDir) {
+		long captured = 0;
+		File[] files = traceDir.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				String name = file.getName();
+				if (name.startsWith(TraceData.TRAFFIC) && name.endsWith(TraceData.CAP_EXT)) {
+					captured += file.length();
+				}
+			}
+		}
+
+		long packets = -1;
+		File appIdFile = new File(traceDir, TraceData.APPID_FILE);
+		if (appIdFile.isFile()) {
+			try {
+				packets = countLines(appIdFile);
+			} catch (IOException e) {
+				logger.log(Level.FINE, "Unable to count packets of " + traceDir, e);
+			}
+		}
+		if (packets < 0) {
+			packets = captured / AVERAGE_PACKET_SIZE;
+		}
+		return captured * BYTES_PER_CAPTURED_BYTE + packets * BYTES_PER_PACKET;
+	}
+
+	/**
+	 * Waits until the specified amount of memory fits in the budget and every
+	 * need that was waiting before it has been granted. A need is always
+	 * granted when no memory is in use.
+	 */
+	synchronized void acquire(long need) throws InterruptedException {
+		Object ticket = new Object();
+		waiting.add(ticket);
+		try {
+			while (waiting.getFirst() != ticket
+					|| (memoryUsed > 0 && memoryUsed + need > memoryBudget)) {
+				wait();
+			}
+			memoryUsed += need;
+		} finally {
+
+			// Lets the next need in line be granted, also when this one is
+			// interrupted
+			waiting.remove(ticket);
+			notifyAll();
+		}
+	}
+
+	/**
+	 * Returns the specified amount of memory to the budget.
+	 */
+	synchronized void release(long need) {
+		memoryUsed -= need;
+		notifyAll();
+	}
+
+	/**
+	 * Returns the number of lines in the specified file.
+	 */
+	private static long countLines(File file) throws IOException {
+		InputStream input = new BufferedInputStream(new FileInputStream(file));
+		try {
+			long count = 0;
+			boolean partial = false;
+			int b;
+			while ((b = input.read()) >= 0) {
+				if (b == '\n') {
+					++count;
+					partial = false;
+				} else {
+					partial = true;
+				}
+			}
+			return partial ? count + 1 : count;
+		} finally {
+			input.close();
+		}
+	}
+}
@@ -0,0 +1,48 @@
+/*
+ *  Copyright 2012 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.model;
+
+/**
+ * The stages of a trace analysis after which partial results are available.
+ * The stages complete in the order they are declared, and the results of a
+ * stage remain valid for the rest of the analysis.
+ */
+public enum AnalysisStage {
+
+	/**
+	 * The filtered packets, total bytes, duration, average throughput and the
+	 * application and IP address summaries are available.
+	 */
+	BASIC_STATISTICS,
+
+	/**
+	 * The TCP and UDP sessions, with their HTTP requests and responses, are
+	 * available.
+	 */
+	SESSIONS,
+
+	/**
+	 * The RRC state machine, the energy model and the bursts are available, so
+	 * the diagnostics chart can be displayed.
+	 */
+	RADIO,
+
+	/**
+	 * The file and cache analyses, best practices and application score are
+	 * available, and the analysis is complete.
+	 */
+	BEST_PRACTICES
+}
@@ -49,6 +49,7 @@ public class Burst implements Serializable {
 	private PacketInfo beginPacket;
 	private PacketInfo endPacket;
 	private PacketInfo firstUplinkDataPacket;
+	private String periodicSource;
 	private boolean bLong; // ibt > th2?
 
 	// energy
@@ -239,6 +240,27 @@ public class Burst implements Serializable {
 		firstUplinkDataPacket = p;
 	}
 
+	/**
+	 * Returns the IP address, host name, or object name whose periodic
+	 * requests made the burst PERIODICAL.
+	 * 
+	 * @return The periodic source, or null if the burst is not periodical.
+	 */
+	public String getPeriodicSource() {
+		return periodicSource;
+	}
+
+	/**
+	 * Sets the IP address, host name, or object name whose periodic requests
+	 * made the burst PERIODICAL.
+	 * 
+	 * @param periodicSource
+	 *            The periodic source.
+	 */
+	public void setPeriodicSource(String periodicSource) {
+		this.periodicSource = periodicSource;
+	}
+
 	/**
 	 * Returns the category of the burst.
 	 * 
@@ -437,15 +437,53 @@ public class BurstCollectionAnalysis implements Serializable {
 	 */
 	private void computeBurstEnergyRadioResource() {
 		List<RrcStateRange> rrcCollection = analysis.getRrcStateMachine().getRRcStateRanges();
+		if (rrcCollection.isEmpty()) {
+			return;
+		}
+		int count = burstCollection.size();
+		double[] energies = new double[count];
+		double[] activeTimes = new double[count];
+		this.totalEnergy = computeBurstEnergy(burstCollection, rrcCollection, profile,
+				analysis.getPackets(), energies, activeTimes);
+		for (int i = 0; i < count; ++i) {
+			Burst burst = burstCollection.get(i);
+			burst.setEnergy(energies[i]);
+			burst.setActiveTime(activeTimes[i]);
+		}
+	}
+
+	/**
+	 * Computes the energy and active radio time of each of the specified
+	 * bursts, using the specified RRC state ranges and profile. The bursts are
+	 * not modified, so that other profiles can be evaluated against the bursts
+	 * of an existing analysis.
+	 * 
+	 * @param bursts
+	 *            The bursts in time order. Must not be empty.
+	 * @param rrcCollection
+	 *            The RRC state ranges.
+	 * @param profile
+	 *            The device profile used to compute the energy.
+	 * @param packets
+	 *            The packets of the analysis.
+	 * @param energies
+	 *            Receives the energy of each burst, may be null.
+	 * @param activeTimes
+	 *            Receives the active radio time of each burst, may be null.
+	 * @return The total energy of the bursts.
+	 */
+	static double computeBurstEnergy(List<Burst> bursts, List<RrcStateRange> rrcCollection,
+			Profile profile, List<PacketInfo> packets, double[] energies, double[] activeTimes) {
 		int rrcCount = rrcCollection.size();
 		if (rrcCount == 0) {
-			return;
+			return 0.0;
 		}
 		int p = 0;
+		int b = 0;
 		double time2 = -1;
 		double totalEnergy = 0.0f;
-		Iterator<Burst> iter = burstCollection.iterator();
-		Burst currentBurst = iter.next();
+		Iterator<Burst> iter = bursts.iterator();
+		iter.next();
 		double time1 = rrcCollection.get(0).getBeginTime();
 		while (true) {
 			Burst nextBurst = iter.hasNext() ? iter.next() : null;
@@ -460,7 +498,7 @@ public class BurstCollectionAnalysis implements Serializable {
 				} else {
 					if (time2 > rrCntrl.getEndTime()) {
 						e += profile.energy(time1, rrCntrl.getEndTime(), rrCntrl.getState(),
-								analysis.getPackets());
+								packets);
 						if ((rrCntrl.getState() == RRCState.STATE_DCH || rrCntrl.getState() == RRCState.TAIL_DCH)
 								|| (rrCntrl.getState() == RRCState.LTE_CONTINUOUS || rrCntrl
 										.getState() == RRCState.LTE_CR_TAIL)
@@ -477,7 +515,7 @@ public class BurstCollectionAnalysis implements Serializable {
 				RrcStateRange rrCntrl = rrcCollection.get(p);
 				if (rrCntrl.getEndTime() < time2) {
 					e += profile.energy(Math.max(rrCntrl.getBeginTime(), time1),
-							rrCntrl.getEndTime(), rrCntrl.getState(), analysis.getPackets());
+							rrCntrl.getEndTime(), rrCntrl.getState(), packets);
 					if ((rrCntrl.getState() == RRCState.STATE_DCH || rrCntrl.getState() == RRCState.TAIL_DCH)
 							|| (rrCntrl.getState() == RRCState.LTE_CONTINUOUS || rrCntrl.getState() == RRCState.LTE_CR_TAIL)
 							|| (rrCntrl.getState() == RRCState.WIFI_ACTIVE || rrCntrl.getState() == RRCState.WIFI_TAIL)) {
@@ -487,7 +525,7 @@ public class BurstCollectionAnalysis implements Serializable {
 					p++;
 				} else {
 					e += profile.energy(Math.max(rrCntrl.getBeginTime(), time1), time2,
-							rrCntrl.getState(), analysis.getPackets());
+							rrCntrl.getState(), packets);
 					if ((rrCntrl.getState() == RRCState.STATE_DCH || rrCntrl.getState() == RRCState.TAIL_DCH)
 							|| (rrCntrl.getState() == RRCState.LTE_CONTINUOUS || rrCntrl.getState() == RRCState.LTE_CR_TAIL)
 							|| (rrCntrl.getState() == RRCState.WIFI_ACTIVE || rrCntrl.getState() == RRCState.WIFI_TAIL)) {
@@ -496,18 +534,21 @@ public class BurstCollectionAnalysis implements Serializable {
 					break;
 				}
 			}
-			currentBurst.setEnergy(e);
+			if (energies != null) {
+				energies[b] = e;
+			}
+			if (activeTimes != null) {
+				activeTimes[b] = activeTime;
+			}
 			totalEnergy += e;
-			currentBurst.setActiveTime(activeTime);
+			++b;
 
 			time1 = time2;
-			if (nextBurst != null) {
-				currentBurst = nextBurst;
-			} else {
+			if (nextBurst == null) {
 				break;
 			}
 		}
-		this.totalEnergy = totalEnergy;
+		return totalEnergy;
 	}
 
 	/**
@@ -947,6 +988,7 @@ public class BurstCollectionAnalysis implements Serializable {
 		if (ipList.contains(ia)) {
 			periodicCount++;
 			burst.setBurstInfo(BurstCategory.PERIODICAL);
+			burst.setPeriodicSource(ia.toString());
 			hostPeriodicInfoSet.add(ia.toString());
 			LOGGER.log(Level.FINE, LOG_MSG1, burst.getBurstInfos());
 			return true;
@@ -981,10 +1023,11 @@ public class BurstCollectionAnalysis implements Serializable {
 							burst.setBurstInfo(BurstCategory.PERIODICAL);
 							burst.setFirstUplinkDataPacket(firstUplinkPayloadPacket);
 							if (hostList.contains(httpInfo.getHostName())) {
-								hostPeriodicInfoSet.add(httpInfo.getHostName());
+								burst.setPeriodicSource(httpInfo.getHostName());
 							} else {
-								hostPeriodicInfoSet.add(httpInfo.getObjNameWithoutParams());
+								burst.setPeriodicSource(httpInfo.getObjNameWithoutParams());
 							}
+							hostPeriodicInfoSet.add(burst.getPeriodicSource());
 							LOGGER.log(Level.FINE, LOG_MSG1, burst.getBurstInfos());
 							continue;
 						}
@@ -130,6 +130,22 @@ public class CacheAnalysis implements Serializable {
 	 * @throws java.io.IOException
 	 */
 	public CacheAnalysis(Collection<TCPSession> sessions) throws IOException {
+		this(sessions, null);
+	}
+
+	/**
+	 * Performs a cache analysis of the specified TCP sessions, which stops
+	 * when the specified token is cancelled.
+	 * 
+	 * @param sessions A Collection of TCPSession objects.
+	 * @param token The token that cancels the analysis, or null.
+	 * 
+	 * @throws java.io.IOException
+	 * @throws java.util.concurrent.CancellationException
+	 *             when the token is cancelled.
+	 */
+	public CacheAnalysis(Collection<TCPSession> sessions, CancellationToken token)
+			throws IOException {
 		
 		logger.fine("Starting CacheAnalysis with number of sessions: " + sessions.size());
 
@@ -149,7 +165,11 @@ public class CacheAnalysis implements Serializable {
 		Collections.sort(rrInfo);
 
 		// Iterate through responses looking for duplicates
+		int count = 0;
 		for (HttpRequestResponseInfo response : rrInfo) {
+			if (token != null && (++count & 0xff) == 0) {
+				token.checkCancelled();
+			}
 			if (response.getDirection() == HttpRequestResponseInfo.Direction.REQUEST) {
 
 				// Check whether request is valid
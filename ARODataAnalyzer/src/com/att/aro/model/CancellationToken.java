@@ -0,0 +1,58 @@
+/*
+ *  Copyright 2012 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.model;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * Requests the cancellation of a long running task, such as a trace analysis.
+ * The task checks the token between its stages and in its long loops, and
+ * stops with a CancellationException once the token is cancelled. The token
+ * may be cancelled from any thread.
+ */
+public class CancellationToken {
+
+	private volatile boolean cancelled;
+
+	/**
+	 * Requests the cancellation of the task.
+	 */
+	public void cancel() {
+		this.cancelled = true;
+	}
+
+	/**
+	 * Returns whether the cancellation of the task was requested.
+	 * 
+	 * @return true if the token is cancelled.
+	 */
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	/**
+	 * Throws a CancellationException if the cancellation of the task was
+	 * requested.
+	 * 
+	 * @throws CancellationException
+	 *             when the token is cancelled.
+	 */
+	public void checkCancelled() {
+		if (cancelled) {
+			throw new CancellationException();
+		}
+	}
+}
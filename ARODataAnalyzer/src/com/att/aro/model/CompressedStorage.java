@@ -0,0 +1,349 @@
+/*
+ *  Copyright 2012 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.model;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.lang.ref.SoftReference;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * The reassembled storage of one direction of a TCP session, held on the heap
+ * as blocks that are compressed independently of each other. A range of the
+ * storage, such as the body of a request/response, is read by decompressing
+ * only the blocks that hold it. Blocks that do not get smaller when they are
+ * compressed, such as blocks of images or of content that is already
+ * compressed, are held as they are. The whole storage, once it has been
+ * decompressed, is kept until the memory is needed.
+ * <p>
+ * The blocks may be spilled to a session storage file, like uncompressed
+ * storage, in which case only the blocks that hold a range are read back.
+ */
+final class CompressedStorage implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private static final Logger logger = Logger.getLogger(CompressedStorage.class.getName());
+
+	/**
+	 * Indicates whether the storage of the TCP sessions is compressed. Set
+	 * with the com.att.aro.storage.compress system property.
+	 */
+	static final boolean ENABLED = Boolean.getBoolean("com.att.aro.storage.compress");
+
+	/**
+	 * The number of bytes of storage in each block. Set with the
+	 * com.att.aro.storage.blockSize system property.
+	 */
+	static final int BLOCK_SIZE = Integer.getInteger("com.att.aro.storage.blockSize", 64 * 1024);
+
+	private final int size;
+	private final int blockSize;
+
+	// The blocks back to back, the offset of each block followed by the end
+	// of the last one, and the blocks that are not compressed
+	private volatile byte[] blocks;
+	private final int[] offsets;
+	private final BitSet stored;
+
+	// Location of the blocks when they are spilled to a file
+	private transient volatile SessionStorageFile file;
+	private long fileOffset;
+
+	// The whole storage, decompressed
+	private transient volatile SoftReference<byte[]> decompressed;
+
+	/**
+	 * Initializes an instance of the CompressedStorage class with the
+	 * specified storage.
+	 * 
+	 * @param storage
+	 *            The storage.
+	 */
+	CompressedStorage(byte[] storage) {
+		this.size = storage.length;
+		this.blockSize = BLOCK_SIZE;
+
+		int count = (size + blockSize - 1) / blockSize;
+		this.offsets = new int[count + 1];
+		this.stored = new BitSet(count);
+		ByteArrayOutputStream output = new ByteArrayOutputStream(size / 2);
+		byte[] buffer = new byte[blockSize];
+		Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+		try {
+			for (int i = 0; i < count; ++i) {
+				int start = i * blockSize;
+				int length = Math.min(blockSize, size - start);
+				deflater.reset();
+				deflater.setInput(storage, start, length);
+				deflater.finish();
+
+				// A block is stored as it is unless compressing makes it smaller
+				int compressedLength = 0;
+				while (!deflater.finished() && compressedLength < length) {
+					compressedLength += deflater.deflate(buffer, compressedLength, length
+							- compressedLength);
+				}
+				offsets[i] = output.size();
+				if (deflater.finished() && compressedLength < length) {
+					output.write(buffer, 0, compressedLength);
+				} else {
+					output.write(storage, start, length);
+					stored.set(i);
+				}
+			}
+		} finally {
+			deflater.end();
+		}
+		offsets[count] = output.size();
+		this.blocks = output.toByteArray();
+	}
+
+	/**
+	 * Initializes a copy of the specified storage with its blocks.
+	 */
+	private CompressedStorage(CompressedStorage storage, byte[] blocks) {
+		this.size = storage.size;
+		this.blockSize = storage.blockSize;
+		this.blocks = blocks;
+		this.offsets = storage.offsets;
+		this.stored = storage.stored;
+	}
+
+	/**
+	 * Returns the number of bytes of storage.
+	 * 
+	 * @return The uncompressed size.
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the number of bytes that the compressed storage takes.
+	 * 
+	 * @return The compressed size.
+	 */
+	int getCompressedSize() {
+		return offsets[offsets.length - 1];
+	}
+
+	/**
+	 * Returns the number of bytes that the compressed storage takes on the
+	 * heap, which is none once the blocks are spilled.
+	 * 
+	 * @return The compressed size on the heap.
+	 */
+	int getHeapSize() {
+		return file != null ? 0 : getCompressedSize();
+	}
+
+	/**
+	 * Writes the blocks to the specified file, and releases them from the
+	 * heap.
+	 * 
+	 * @param file
+	 *            The session storage file.
+	 * @throws IOException
+	 */
+	void spill(SessionStorageFile file) throws IOException {
+		if (this.file != null) {
+			return;
+		}
+		this.fileOffset = file.write(blocks);
+		this.file = file;
+		this.blocks = null;
+	}
+
+	/**
+	 * Returns a copy of this storage that shares its blocks, which are not
+	 * modified while they are on the heap, so that the copy can be spilled
+	 * to another file.
+	 * 
+	 * @return The copy, or null if the blocks are spilled.
+	 */
+	CompressedStorage copy() {
+		byte[] blocks = this.blocks;
+		return blocks != null ? new CompressedStorage(this, blocks) : null;
+	}
+
+	/**
+	 * Indicates whether the blocks are spilled to a file.
+	 * 
+	 * @return true if the blocks are spilled.
+	 */
+	boolean isSpilled() {
+		return file != null;
+	}
+
+	/**
+	 * Returns the specified range of the storage. The range is shortened when
+	 * the storage ends before the end of the range.
+	 * 
+	 * @param offset
+	 *            The offset of the range in the storage.
+	 * @param length
+	 *            The number of bytes in the range.
+	 * @return The bytes of the range, or null if the storage could not be
+	 *         decompressed.
+	 */
+	byte[] read(int offset, int length) {
+		offset = Math.max(0, Math.min(offset, size));
+		length = Math.max(0, Math.min(length, size - offset));
+		byte[] all = getDecompressed();
+		if (all != null) {
+			return Arrays.copyOfRange(all, offset, offset + length);
+		}
+		byte[] result = new byte[length];
+		if (length == 0) {
+			return result;
+		}
+
+		// Only the blocks that hold the range are read back when they are
+		// spilled
+		int end = offset + length;
+		int first = offset / blockSize;
+		int last = (end - 1) / blockSize;
+		byte[] blocks = this.blocks;
+		int base = 0;
+		if (blocks == null) {
+			SessionStorageFile file = this.file;
+			base = offsets[first];
+			blocks = file != null ? file.read(fileOffset, getCompressedSize(), base,
+					offsets[last + 1] - base) : null;
+			if (blocks == null) {
+				return null;
+			}
+		}
+
+		byte[] buffer = null;
+		Inflater inflater = null;
+		try {
+			for (int i = first; i <= last; ++i) {
+				int start = i * blockSize;
+				int blockLength = Math.min(blockSize, size - start);
+				int from = Math.max(offset, start);
+				int to = Math.min(end, start + blockLength);
+				if (stored.get(i)) {
+					System.arraycopy(blocks, offsets[i] - base + from - start, result, from
+							- offset, to - from);
+					continue;
+				}
+
+				// Blocks that are only partly in the range are inflated to a
+				// buffer, other blocks directly to the result
+				if (inflater == null) {
+					inflater = new Inflater(true);
+				} else {
+					inflater.reset();
+				}
+				inflater.setInput(blocks, offsets[i] - base, offsets[i + 1] - offsets[i]);
+				if (from == start && to == start + blockLength) {
+					inflate(inflater, result, from - offset, blockLength);
+				} else {
+					if (buffer == null) {
+						buffer = new byte[blockSize];
+					}
+					inflate(inflater, buffer, 0, blockLength);
+					System.arraycopy(buffer, from - start, result, from - offset, to - from);
+				}
+			}
+		} catch (DataFormatException e) {
+			logger.log(Level.SEVERE, "Unable to decompress session storage", e);
+			return null;
+		} finally {
+			if (inflater != null) {
+				inflater.end();
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns all of the storage. The storage is decompressed once and kept
+	 * until the memory is needed, so the returned array is shared and must
+	 * not be modified.
+	 * 
+	 * @return The storage, or null if it could not be decompressed.
+	 */
+	byte[] toByteArray() {
+		byte[] result = getDecompressed();
+		if (result == null) {
+			result = read(0, size);
+			if (result != null) {
+				decompressed = new SoftReference<byte[]>(result);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the whole storage if it has been decompressed and is still
+	 * kept, or null.
+	 */
+	private byte[] getDecompressed() {
+		SoftReference<byte[]> reference = decompressed;
+		return reference != null ? reference.get() : null;
+	}
+
+	/**
+	 * Writes the blocks that are spilled to a file inline, so that the
+	 * storage keeps its content when it is read back.
+	 * 
+	 * @param out
+	 *            The stream to write to.
+	 * @throws IOException
+	 */
+	private synchronized void writeObject(ObjectOutputStream out) throws IOException {
+		SessionStorageFile file = this.file;
+		if (file == null) {
+			out.defaultWriteObject();
+			return;
+		}
+		byte[] spilled = file.read(fileOffset, getCompressedSize());
+		if (spilled == null) {
+			throw new IOException("Session storage is not available");
+		}
+		this.blocks = spilled;
+		try {
+			out.defaultWriteObject();
+		} finally {
+			this.blocks = null;
+		}
+	}
+
+	/**
+	 * Inflates a whole block.
+	 */
+	private static void inflate(Inflater inflater, byte[] output, int offset, int length)
+			throws DataFormatException {
+		int count = 0;
+		while (count < length) {
+			int n = inflater.inflate(output, offset + count, length - count);
+			if (n == 0 && (inflater.finished() || inflater.needsInput())) {
+				throw new DataFormatException("Truncated block of session storage");
+			}
+			count += n;
+		}
+	}
+}
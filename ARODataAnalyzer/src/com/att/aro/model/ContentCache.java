@@ -0,0 +1,268 @@
+/*
+ *  Copyright 2012 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.model;
+
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+
+/**
+ * Decodes and parses the content of HTTP requests and responses once for all
+ * of the content analyses of an analysis. The decoded text of each
+ * request/response and the HTML document parsed from it are kept in two
+ * caches that are each bounded in bytes, and from which the least recently
+ * used entries are removed first. The garbage collector may also clear the
+ * entries, and an entry that has been removed is decoded or parsed again
+ * when it is next asked for. The documents must not be modified by the
+ * analyses. The content analyses of an analysis share one cache, which is
+ * released when they are complete. The cache may be used from several
+ * threads; the content is decoded and parsed outside of the lock, so a
+ * request/response that two threads ask for at the same time may be parsed
+ * twice, but only the first result is kept.
+ */
+public class ContentCache {
+
+	private static final Logger logger = Logger.getLogger(ContentCache.class.getName());
+
+	/**
+	 * The maximum number of bytes of decoded content, and separately of
+	 * parsed documents, kept in the cache. Set with the
+	 * com.att.aro.content.cacheSize system property.
+	 */
+	static final long CACHE_SIZE = Long.getLong("com.att.aro.content.cacheSize",
+			32L * 1024 * 1024);
+
+	// Stands for content or a document that is not available
+	private static final Object NONE = new Object();
+
+	// The estimated size of an entry without its content, and the estimated
+	// number of bytes of a parsed document per character of its content
+	private static final int ENTRY_SIZE = 64;
+	private static final int DOCUMENT_BYTES_PER_CHAR = 8;
+
+	/**
+	 * A decoded content or parsed document in the cache, which the garbage
+	 * collector may clear.
+	 */
+	private static final class CachedValue extends SoftReference<Object> {
+		private final long size;
+
+		private CachedValue(Object value, long size) {
+			super(value);
+			this.size = size;
+		}
+	}
+
+	/**
+	 * Cached values by request/response, in access order, and bounded in
+	 * bytes. The request/responses are compared by identity.
+	 */
+	private static final class Cache {
+		private final long maxSize;
+		private final Map<HttpRequestResponseInfo, CachedValue> values = new LinkedHashMap<HttpRequestResponseInfo, CachedValue>(
+				16, 0.75f, true);
+		private long size;
+
+		private Cache(long maxSize) {
+			this.maxSize = maxSize;
+		}
+
+		/**
+		 * Returns the cached value, NONE for a value that is not available,
+		 * or null if the value is not in the cache.
+		 */
+		private Object get(HttpRequestResponseInfo rr) {
+			CachedValue cached = values.get(rr);
+			if (cached == null) {
+				return null;
+			}
+			Object value = cached.get();
+			if (value == null) {
+				values.remove(rr);
+				size -= cached.size;
+			}
+			return value;
+		}
+
+		/**
+		 * Adds a value unless another thread added one first, and returns
+		 * the value that is in the cache.
+		 */
+		private Object put(HttpRequestResponseInfo rr, Object value, long valueSize) {
+			Object existing = get(rr);
+			if (existing != null) {
+				return existing;
+			}
+			if (valueSize <= maxSize) {
+				values.put(rr, new CachedValue(value, valueSize));
+				size += valueSize;
+
+				// Remove the least recently used values until the cache fits
+				Iterator<CachedValue> iter = values.values().iterator();
+				while (size > maxSize && iter.hasNext()) {
+					size -= iter.next().size;
+					iter.remove();
+				}
+			}
+			return value;
+		}
+
+		private void clear() {
+			values.clear();
+			size = 0;
+		}
+	}
+
+	private final Cache contents;
+	private final Cache documents;
+
+	/**
+	 * Initializes an instance of the ContentCache class that keeps up to
+	 * {@link #CACHE_SIZE} bytes of content and of documents.
+	 */
+	public ContentCache() {
+		this(CACHE_SIZE);
+	}
+
+	/**
+	 * Initializes an instance of the ContentCache class that keeps up to the
+	 * specified number of bytes of content and of documents.
+	 * 
+	 * @param maxSize
+	 *            The maximum estimated size, in bytes, of the decoded content
+	 *            kept, and of the parsed documents kept.
+	 */
+	ContentCache(long maxSize) {
+		this.contents = new Cache(maxSize);
+		this.documents = new Cache(maxSize);
+	}
+
+	/**
+	 * Returns the content of the request/response as a text string. The
+	 * content is decoded on the first call only while it is in the cache, and
+	 * a failure to decode it is reported again on later calls.
+	 *
+	 * @param rr
+	 *            The request/response.
+	 * @return The content, or null if the request/response has no content.
+	 * @throws ContentException
+	 *             When part of the content is not available.
+	 * @throws IOException
+	 * @see HttpRequestResponseInfo#getContentString()
+	 */
+	public String getContentString(HttpRequestResponseInfo rr)
+			throws ContentException, IOException {
+		Object content;
+		synchronized (this) {
+			content = contents.get(rr);
+		}
+		if (content == null) {
+			long size = ENTRY_SIZE;
+			try {
+				String text = rr.getContentString();
+				if (text != null) {
+					content = text;
+					size += 2L * text.length();
+				} else {
+					content = NONE;
+				}
+			} catch (ContentException e) {
+				content = e;
+			} catch (IOException e) {
+				content = e;
+			}
+			synchronized (this) {
+				content = contents.put(rr, content, size);
+			}
+		}
+		if (content instanceof ContentException) {
+			throw (ContentException) content;
+		} else if (content instanceof IOException) {
+			throw (IOException) content;
+		}
+		return content != NONE ? (String) content : null;
+	}
+
+	/**
+	 * Returns the HTML document parsed from the content of the
+	 * request/response. The content is parsed on the first call only while
+	 * the document is in the cache.
+	 *
+	 * @param rr
+	 *            The request/response.
+	 * @return The document, which must not be modified, or null if the
+	 *         content is not available.
+	 */
+	public Document getDocument(HttpRequestResponseInfo rr) {
+		Object doc;
+		synchronized (this) {
+			doc = documents.get(rr);
+		}
+		if (doc == null) {
+			long size = ENTRY_SIZE;
+			doc = NONE;
+			try {
+				String content = getContentString(rr);
+				if (content != null) {
+					doc = Jsoup.parse(content);
+					size += (long) DOCUMENT_BYTES_PER_CHAR * content.length();
+				}
+			} catch (ContentException e) {
+				logger.log(Level.FINE, "Content not available for parsing", e);
+			} catch (IOException e) {
+				logger.log(Level.FINE, "Content not available for parsing", e);
+			}
+			synchronized (this) {
+				doc = documents.put(rr, doc, size);
+			}
+		}
+		return doc != NONE ? (Document) doc : null;
+	}
+
+	/**
+	 * Returns the number of request/responses whose decoded content is in the
+	 * cache.
+	 *
+	 * @return The decoded content count.
+	 */
+	public synchronized int getContentCount() {
+		return contents.values.size();
+	}
+
+	/**
+	 * Returns the number of parsed documents in the cache.
+	 *
+	 * @return The parsed document count.
+	 */
+	public synchronized int getDocumentCount() {
+		return documents.values.size();
+	}
+
+	/**
+	 * Releases the decoded contents and parsed documents.
+	 */
+	public synchronized void clear() {
+		contents.clear();
+		documents.clear();
+	}
+}
@@ -0,0 +1,482 @@
+/*
+ *  Copyright 2012 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.model;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+import com.att.aro.util.Util;
+
+/**
+ * Decodes the body of an HTTP request/response from the reassembled storage
+ * of its TCP session. The body is read from its segments in the storage, which
+ * are the chunks of a chunked body, and gzip or deflate content is inflated as
+ * it is read, into an output array that is sized from the gzip trailer when
+ * possible. The inflaters are pooled and reused, and the size of the
+ * decompressed content is limited by the 'content.maxDecodedSize' resource
+ * bundle property.
+ */
+public final class ContentDecoder {
+
+	private static final String CONTENT_ENCODING_GZIP = "gzip";
+	private static final String CONTENT_ENCODING_DEFLATE = "deflate";
+
+	/**
+	 * The maximum number of bytes of decompressed content.
+	 */
+	private static final int MAX_DECODED_SIZE = Integer.parseInt(Util.RB
+			.getString("content.maxDecodedSize"));
+
+	/**
+	 * The maximum number of idle inflaters of each kind kept in the pools.
+	 */
+	private static final int MAX_POOLED_INFLATERS = 16;
+
+	/**
+	 * The expected compression ratio used to size the output when the
+	 * decompressed size is not known.
+	 */
+	private static final int ESTIMATED_RATIO = 4;
+
+	/**
+	 * The largest ratio of the initial output size to the compressed size.
+	 * The size in a gzip trailer is only trusted up to this ratio, so that a
+	 * corrupt or crafted trailer cannot make a small body allocate a large
+	 * buffer before any content is inflated. Larger content grows the output.
+	 */
+	private static final int MAX_INITIAL_RATIO = 16;
+
+	private static final int GZIP_MAGIC = 0x8b1f;
+	private static final int GZIP_TRAILER_SIZE = 8;
+	private static final int FHCRC = 2;
+	private static final int FEXTRA = 4;
+	private static final int FNAME = 8;
+	private static final int FCOMMENT = 16;
+
+	private static final InflaterPool rawInflaters = new InflaterPool(true);
+	private static final InflaterPool zlibInflaters = new InflaterPool(false);
+
+	private ContentDecoder() {
+	}
+
+	/**
+	 * Decodes the body made up of the specified segments of the storage.
+	 * 
+	 * @param storage
+	 *            The reassembled storage of the session.
+	 * @param segments
+	 *            The offset and length of each part of the body in the
+	 *            storage.
+	 * @param contentEncoding
+	 *            The content encoding of the body, or null.
+	 * @return The decoded body.
+	 * @throws ContentException
+	 *             When part of the body is not in the storage, or the
+	 *             decompressed body is larger than the limit.
+	 * @throws IOException
+	 *             When the compressed body is not valid.
+	 */
+	public static byte[] decode(byte[] storage, SortedMap<Integer, Integer> segments,
+			String contentEncoding) throws ContentException, IOException {
+		return decode(storage, 0, segments, contentEncoding);
+	}
+
+	/**
+	 * Decodes the body made up of the specified segments of a part of the
+	 * storage, such as the part of compressed storage that holds the body.
+	 * 
+	 * @param storage
+	 *            The part of the reassembled storage of the session.
+	 * @param base
+	 *            The offset in the storage of the session of the first byte
+	 *            of the part.
+	 * @param segments
+	 *            The offset and length of each part of the body in the
+	 *            storage of the session.
+	 * @param contentEncoding
+	 *            The content encoding of the body, or null.
+	 * @return The decoded body.
+	 * @throws ContentException
+	 *             When part of the body is not in the storage, or the
+	 *             decompressed body is larger than the limit.
+	 * @throws IOException
+	 *             When the compressed body is not valid.
+	 */
+	public static byte[] decode(byte[] storage, int base, SortedMap<Integer, Integer> segments,
+			String contentEncoding) throws ContentException, IOException {
+		SegmentInput input = new SegmentInput(storage, base, segments);
+		if (CONTENT_ENCODING_GZIP.equals(contentEncoding)) {
+			return gunzip(input);
+		} else if (CONTENT_ENCODING_DEFLATE.equals(contentEncoding)) {
+			return inflate(input);
+		} else {
+			return input.readAll();
+		}
+	}
+
+	/**
+	 * Returns the maximum number of bytes of decompressed content.
+	 * 
+	 * @return The limit in bytes.
+	 */
+	public static int getMaxDecodedSize() {
+		return MAX_DECODED_SIZE;
+	}
+
+	/**
+	 * Inflates gzip content, which may be made up of several members.
+	 */
+	private static byte[] gunzip(SegmentInput input) throws ContentException, IOException {
+		// The size of the last member is at the end of its trailer
+		long lastSize = input.getLength() >= GZIP_TRAILER_SIZE ? input.readIntFromEnd() & 0xffffffffL
+				: 0;
+		lastSize = Math.min(lastSize, (long) input.getLength() * MAX_INITIAL_RATIO);
+		Output output = new Output((int) Math.min(lastSize, MAX_DECODED_SIZE));
+		do {
+			readGzipHeader(input);
+			Inflater inflater = rawInflaters.borrow();
+			try {
+				CRC32 crc = new CRC32();
+				int start = output.size;
+				inflate(input, inflater, output);
+				crc.update(output.buffer, start, output.size - start);
+				long expectedCrc = input.readInt() & 0xffffffffL;
+				long expectedSize = input.readInt() & 0xffffffffL;
+				if (expectedCrc != crc.getValue()
+						|| expectedSize != (inflater.getBytesWritten() & 0xffffffffL)) {
+					throw new ZipException("Corrupt GZIP trailer");
+				}
+			} finally {
+				rawInflaters.release(inflater);
+			}
+		} while (input.isGzipMember());
+		return output.toByteArray();
+	}
+
+	/**
+	 * Inflates deflate content, which servers send either with or without the
+	 * zlib header.
+	 */
+	private static byte[] inflate(SegmentInput input) throws ContentException, IOException {
+		Output output = new Output((int) Math.min((long) input.getLength() * ESTIMATED_RATIO,
+				MAX_DECODED_SIZE));
+		InflaterPool pool = input.isZlibHeader() ? zlibInflaters : rawInflaters;
+		Inflater inflater = pool.borrow();
+		try {
+			inflate(input, inflater, output);
+		} finally {
+			pool.release(inflater);
+		}
+		return output.toByteArray();
+	}
+
+	/**
+	 * Inflates one compressed stream from the input, leaving the input after
+	 * the end of the stream.
+	 */
+	private static void inflate(SegmentInput input, Inflater inflater, Output output)
+			throws ContentException, IOException {
+		byte[] probe = new byte[1];
+		try {
+			while (!inflater.finished()) {
+				if (inflater.needsInput()) {
+					if (!input.feed(inflater)) {
+						throw new EOFException("Unexpected end of ZLIB input stream");
+					}
+				} else if (inflater.needsDictionary()) {
+					throw new ZipException("Preset dictionary is not supported");
+				} else if (output.size < output.buffer.length) {
+					output.size += inflater.inflate(output.buffer, output.size,
+							output.buffer.length - output.size);
+				} else if (inflater.inflate(probe) > 0) {
+					// The output is full but the content is not complete
+					output.grow();
+					output.buffer[output.size++] = probe[0];
+				}
+			}
+		} catch (DataFormatException e) {
+			throw new ZipException(e.getMessage());
+		}
+		input.unread(inflater.getRemaining());
+	}
+
+	/**
+	 * Reads the header of a gzip member.
+	 */
+	private static void readGzipHeader(SegmentInput input) throws IOException {
+		if (input.readShort() != GZIP_MAGIC || input.read() != Deflater.DEFLATED) {
+			throw new ZipException("Not in GZIP format");
+		}
+		int flags = input.read();
+		input.skip(6); // MTIME, XFL and OS
+		if ((flags & FEXTRA) != 0) {
+			input.skip(input.readShort());
+		}
+		if ((flags & FNAME) != 0) {
+			while (input.read() != 0) {
+				// Skip the zero terminated file name
+			}
+		}
+		if ((flags & FCOMMENT) != 0) {
+			while (input.read() != 0) {
+				// Skip the zero terminated comment
+			}
+		}
+		if ((flags & FHCRC) != 0) {
+			input.skip(2);
+		}
+	}
+
+	/**
+	 * The segments of a body in the session storage, read in order without
+	 * copying them.
+	 */
+	private static class SegmentInput {
+		private final byte[] storage;
+		private final int[] starts;
+		private final int[] ends;
+		private final int length;
+		private int segment;
+		private int pos;
+
+		private SegmentInput(byte[] storage, int base, SortedMap<Integer, Integer> segments)
+				throws ContentException {
+			this.storage = storage;
+			this.starts = new int[segments.size()];
+			this.ends = new int[segments.size()];
+			int i = 0;
+			int total = 0;
+			for (Map.Entry<Integer, Integer> entry : segments.entrySet()) {
+				int start = entry.getKey() - base;
+				int size = entry.getValue();
+				if (start < 0 || storage.length < start + size) {
+					throw new ContentException("Content not available");
+				}
+				starts[i] = start;
+				ends[i] = start + size;
+				total += size;
+				++i;
+			}
+			this.length = total;
+			this.pos = starts.length > 0 ? starts[0] : 0;
+		}
+
+		private int getLength() {
+			return length;
+		}
+
+		/**
+		 * Moves to the next segment with remaining bytes. Returns false at the
+		 * end of the input.
+		 */
+		private boolean next() {
+			while (segment < starts.length && pos >= ends[segment]) {
+				if (++segment < starts.length) {
+					pos = starts[segment];
+				}
+			}
+			return segment < starts.length;
+		}
+
+		private int read() throws EOFException {
+			if (!next()) {
+				throw new EOFException("Unexpected end of input");
+			}
+			return storage[pos++] & 0xff;
+		}
+
+		private int readShort() throws EOFException {
+			return read() | (read() << 8);
+		}
+
+		private int readInt() throws EOFException {
+			return readShort() | (readShort() << 16);
+		}
+
+		private void skip(int count) throws EOFException {
+			for (int i = 0; i < count; ++i) {
+				read();
+			}
+		}
+
+		/**
+		 * Reads the little endian int in the last four bytes of the input,
+		 * without moving.
+		 */
+		private int readIntFromEnd() {
+			int value = 0;
+			int index = starts.length - 1;
+			int at = ends[index];
+			for (int i = 0; i < 4; ++i) {
+				while (at == starts[index]) {
+					at = ends[--index];
+				}
+				value = (value << 8) | (storage[--at] & 0xff);
+			}
+			return value;
+		}
+
+		/**
+		 * Indicates whether another gzip member follows. Data other than a
+		 * gzip member after the end of the content is ignored.
+		 */
+		private boolean isGzipMember() {
+			int savedSegment = segment;
+			int savedPos = pos;
+			boolean result = next() && read0() == (GZIP_MAGIC & 0xff) && next()
+					&& read0() == (GZIP_MAGIC >> 8);
+			segment = savedSegment;
+			pos = savedPos;
+			return result;
+		}
+
+		/**
+		 * Indicates whether the input starts with a zlib header.
+		 */
+		private boolean isZlibHeader() {
+			int savedSegment = segment;
+			int savedPos = pos;
+			boolean result = false;
+			if (next()) {
+				int cmf = read0();
+				if (next()) {
+					int flg = read0();
+					result = (cmf & 0x0f) == Deflater.DEFLATED && ((cmf << 8) | flg) % 31 == 0;
+				}
+			}
+			segment = savedSegment;
+			pos = savedPos;
+			return result;
+		}
+
+		private int read0() {
+			return storage[pos++] & 0xff;
+		}
+
+		/**
+		 * Sets the rest of the current segment as the input of the inflater.
+		 * Returns false at the end of the input.
+		 */
+		private boolean feed(Inflater inflater) {
+			if (!next()) {
+				return false;
+			}
+			inflater.setInput(storage, pos, ends[segment] - pos);
+			pos = ends[segment];
+			return true;
+		}
+
+		/**
+		 * Moves back over the bytes of the last segment fed to an inflater that
+		 * it did not use.
+		 */
+		private void unread(int count) {
+			pos -= count;
+		}
+
+		/**
+		 * Copies the whole input into a new array.
+		 */
+		private byte[] readAll() {
+			byte[] result = new byte[length];
+			int offset = 0;
+			for (int i = 0; i < starts.length; ++i) {
+				int size = ends[i] - starts[i];
+				System.arraycopy(storage, starts[i], result, offset, size);
+				offset += size;
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * The decoded output, in an array that grows up to the size limit.
+	 */
+	private static class Output {
+		private byte[] buffer;
+		private int size;
+
+		private Output(int capacity) {
+			this.buffer = new byte[capacity];
+		}
+
+		private void grow() throws ContentException {
+			if (buffer.length >= MAX_DECODED_SIZE) {
+				throw new ContentException("Decoded content is larger than "
+						+ MAX_DECODED_SIZE + " bytes");
+			}
+			int capacity = (int) Math.min(Math.max(buffer.length * 2L, 1024L), MAX_DECODED_SIZE);
+			byte[] newBuffer = new byte[capacity];
+			System.arraycopy(buffer, 0, newBuffer, 0, size);
+			buffer = newBuffer;
+		}
+
+		/**
+		 * Returns the output, without copying it when the array was sized
+		 * exactly.
+		 */
+		private byte[] toByteArray() {
+			if (size == buffer.length) {
+				return buffer;
+			}
+			byte[] result = new byte[size];
+			System.arraycopy(buffer, 0, result, 0, size);
+			return result;
+		}
+	}
+
+	/**
+	 * A pool of inflaters of one kind. The inflaters are reset when they are
+	 * released, and the ones beyond the size of the pool are ended.
+	 */
+	private static class InflaterPool {
+		private final boolean nowrap;
+		private final ConcurrentLinkedQueue<Inflater> idle = new ConcurrentLinkedQueue<Inflater>();
+		private final AtomicInteger idleCount = new AtomicInteger();
+
+		private InflaterPool(boolean nowrap) {
+			this.nowrap = nowrap;
+		}
+
+		private Inflater borrow() {
+			Inflater inflater = idle.poll();
+			if (inflater != null) {
+				idleCount.decrementAndGet();
+				return inflater;
+			}
+			return new Inflater(nowrap);
+		}
+
+		private void release(Inflater inflater) {
+			inflater.reset();
+			if (idleCount.incrementAndGet() <= MAX_POOLED_INFLATERS) {
+				idle.offer(inflater);
+			} else {
+				idleCount.decrementAndGet();
+				inflater.end();
+			}
+		}
+	}
+}
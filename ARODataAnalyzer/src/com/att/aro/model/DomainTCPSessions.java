@@ -75,6 +75,25 @@ public class DomainTCPSessions implements Serializable {
 		return result;
 	}
 
+	/**
+	 * Returns a collection of DomainTCPSessions objects rolled up from the
+	 * traffic cube of an analysis, without examining the sessions again.
+	 * 
+	 * @param cube The traffic cube of the analysis.
+	 * @return The collection of domain tcp sessions.
+	 */
+	public static Collection<DomainTCPSessions> extractDomainTCPSessions(TrafficCube cube) {
+		List<DomainTCPSessions> result = new ArrayList<DomainTCPSessions>();
+		for (TrafficCube.Row row : cube.rollUp(TrafficCube.Dimension.DOMAIN)) {
+			if (row.getSessionCount() > 0) {
+				result.add(new DomainTCPSessions(row.getDomainName(), cube.getSessions(row
+						.getDomainName()), row.getSessionDuration() / row.getSessionCount(), row
+						.getFileDownloadCount()));
+			}
+		}
+		return result;
+	}
+
 	/**
 	 * A factory method that returns a Collection of DomainTCPSessions objects extracted 
 	 * from a collection of TCPSession objects.
@@ -98,6 +117,14 @@ public class DomainTCPSessions implements Serializable {
 		this.avgSessionLength = (double) sessionLength / size;
 	}
 
+	private DomainTCPSessions(String domainName, Collection<TCPSession> sessions,
+			double avgSessionLength, double numFiles) {
+		this.domainName = domainName;
+		this.sessions = sessions;
+		this.avgSessionLength = avgSessionLength;
+		this.numFiles = numFiles;
+	}
+
 	/**
 	 * Returns the name of the TCP domain. 
 	 * 
@@ -16,7 +16,6 @@
 package com.att.aro.model;
 
 import java.io.Serializable;
-import java.util.Iterator;
 
 import com.att.aro.model.GpsInfo.GpsState;
 
@@ -26,7 +25,7 @@ import com.att.aro.model.GpsInfo.GpsState;
 public class EnergyModel implements Serializable {
 	private static final long serialVersionUID = 1L;
 
-	private TraceData.Analysis analysisData;
+	private RRCStateMachine rrcStateMachine;
 	private double gpsActiveEnergy;
 	private double gpsStandbyEnergy;
 	private double totalGpsEnergy;
@@ -42,74 +41,49 @@ public class EnergyModel implements Serializable {
 	 * @param analysisData The analysis data.
 	 */
 	public EnergyModel(TraceData.Analysis analysisData) {
-		this.analysisData = analysisData;
+		this(analysisData, analysisData.getProfile(), analysisData.getRrcStateMachine());
+	}
+
+	/**
+	 * Initializes an instance of the EnergyModel class using the peripheral
+	 * information of the specified analysis data, and the powers of the
+	 * specified profile.
+	 * 
+	 * @param analysisData The analysis data.
+	 * @param profile The device profile that supplies the power values.
+	 * @param rrcStateMachine The RRC state machine simulated with the profile.
+	 */
+	EnergyModel(TraceData.Analysis analysisData, Profile profile,
+			RRCStateMachine rrcStateMachine) {
+		this.rrcStateMachine = rrcStateMachine;
+
+		// The time spent in each state is totaled by the event series, so
+		// the energy of a peripheral does not depend on its number of events.
 
-		Profile profile = analysisData.getProfile();
 		// GPS Energy
-		Iterator<GpsInfo> gpsIter = analysisData.getGpsInfos().iterator();
-		if (gpsIter.hasNext()) {
-
-			while (gpsIter.hasNext()) {
-				GpsInfo gps = gpsIter.next();
-				GpsState gpsState = gps.getGpsState();
-				switch (gpsState) {
-				case GPS_ACTIVE:
-					gpsActiveEnergy += profile.getPowerGpsActive() * (gps.getEndTimeStamp() - gps.getBeginTimeStamp());
-					break;
-				case GPS_STANDBY:
-					gpsStandbyEnergy += profile.getPowerGpsStandby()
-							* (gps.getEndTimeStamp() - gps.getBeginTimeStamp());
-					break;
-				}
-			}
-		}
+		TimeSeries<GpsInfo> gpsInfos = analysisData.getGpsInfos();
+		this.gpsActiveEnergy = profile.getPowerGpsActive()
+				* gpsInfos.getDuration(GpsState.GPS_ACTIVE);
+		this.gpsStandbyEnergy = profile.getPowerGpsStandby()
+				* gpsInfos.getDuration(GpsState.GPS_STANDBY);
 		this.totalGpsEnergy = gpsActiveEnergy + gpsStandbyEnergy;
 
 		// Camera Energy
-		Iterator<CameraInfo> cameraIter = analysisData.getCameraInfos().iterator();
-		if (cameraIter.hasNext()) {
-
-			while (cameraIter.hasNext()) {
-				CameraInfo camera = cameraIter.next();
-				CameraInfo.CameraState cameraState = camera.getCameraState();
-				
-				if (cameraState == CameraInfo.CameraState.CAMERA_ON) {
-					totalCameraEnergy += profile.getPowerCameraOn()
-							* (camera.getEndTimeStamp() - camera.getBeginTimeStamp());
-				}
-			}
-		}
+		this.totalCameraEnergy = profile.getPowerCameraOn()
+				* analysisData.getCameraInfos().getDuration(CameraInfo.CameraState.CAMERA_ON);
 
 		// Bluetooth Energy
-		Iterator<BluetoothInfo> bluetoothIter = analysisData.getBluetoothInfos().iterator();
-		if (bluetoothIter.hasNext()) {
-			while (bluetoothIter.hasNext()) {
-				BluetoothInfo btInfo = bluetoothIter.next();
-				switch (btInfo.getBluetoothState()) {
-				case BLUETOOTH_CONNECTED:
-					bluetoothActiveEnergy += profile.getPowerBluetoothActive()
-							* (btInfo.getEndTimeStamp() - btInfo.getBeginTimeStamp());
-					break;
-				case BLUETOOTH_DISCONNECTED:
-					bluetoothStandbyEnergy += profile.getPowerBluetoothStandby()
-							* (btInfo.getEndTimeStamp() - btInfo.getBeginTimeStamp());
-					break;
-				}
-			}
-		}
+		TimeSeries<BluetoothInfo> bluetoothInfos = analysisData.getBluetoothInfos();
+		this.bluetoothActiveEnergy = profile.getPowerBluetoothActive()
+				* bluetoothInfos.getDuration(BluetoothInfo.BluetoothState.BLUETOOTH_CONNECTED);
+		this.bluetoothStandbyEnergy = profile.getPowerBluetoothStandby()
+				* bluetoothInfos.getDuration(BluetoothInfo.BluetoothState.BLUETOOTH_DISCONNECTED);
 		this.totalBluetoothEnergy = bluetoothActiveEnergy + bluetoothStandbyEnergy;
 
 		// Screen Energy
-		Iterator<ScreenStateInfo> screenIter = analysisData.getScreenStateInfos().iterator();
-		if (screenIter.hasNext()) {
-			while (screenIter.hasNext()) {
-				ScreenStateInfo screenInfo = screenIter.next();
-				if (screenInfo.getScreenState() == ScreenStateInfo.ScreenState.SCREEN_ON) {
-					totalScreenEnergy += profile.getPowerScreenOn()
-							* (screenInfo.getEndTimeStamp() - screenInfo.getBeginTimeStamp());
-				}
-			}
-		}
+		this.totalScreenEnergy = profile.getPowerScreenOn()
+				* analysisData.getScreenStateInfos().getDuration(
+						ScreenStateInfo.ScreenState.SCREEN_ON);
 	}
 
 	/**
@@ -195,7 +169,7 @@ public class EnergyModel implements Serializable {
 
 		double totalEnergy = getTotalBluetoothEnergy() + getTotalCameraEnergy()
 				+ getTotalGpsEnergy()
-				+ analysisData.getRrcStateMachine().getTotalRRCEnergy()
+				+ rrcStateMachine.getTotalRRCEnergy()
 				+ getTotalScreenEnergy();
 		return totalEnergy;
 	}
@@ -0,0 +1,379 @@
+/*
+ *  Copyright 2012 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.model;
+
+import java.text.DateFormat;
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.TimeZone;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Parses the dates of HTTP headers such as Date, Expires and Last-Modified.
+ * <p>
+ * The RFC 1123, RFC 850 and asctime formats of HTTP/1.1 are read directly
+ * from the text, and a value that does not match any of them is reported by
+ * returning null rather than by an exception. Values with other time zones
+ * or layouts fall back to date formats owned by the calling thread, so the
+ * parser can be used by several threads without locking. The results of the
+ * last values parsed are kept in a small cache shared by all of the threads,
+ * since a server sends the same Date header for every response within a
+ * second.
+ */
+public final class HttpDateParser {
+
+	/**
+	 * Date format pattern used to parse HTTP date headers in RFC 1123
+	 * format.
+	 */
+	private static final String PATTERN_RFC1123 = "EEE, dd MMM yyyy HH:mm:ss zzz";
+
+	/**
+	 * Date format pattern used to parse HTTP date headers in RFC 1036
+	 * format.
+	 */
+	private static final String PATTERN_RFC1036 = "EEEE, dd-MMM-yy HH:mm:ss zzz";
+
+	/**
+	 * Date format pattern used to parse HTTP date headers in ANSI C
+	 * <code>asctime()</code> format.
+	 */
+	private static final String PATTERN_ASCTIME = "EEE MMM d HH:mm:ss yyyy";
+	private static final String PATTERN_ASCTIME2 = "EEE MMM d HH:mm:ss zzz yyyy";
+
+	private static final String[] DAYS = { "Sun", "Mon", "Tue", "Wed", "Thu", "Fri", "Sat" };
+	private static final String[] MONTHS = { "Jan", "Feb", "Mar", "Apr", "May", "Jun", "Jul",
+			"Aug", "Sep", "Oct", "Nov", "Dec" };
+
+	private static final int GREGORIAN_START = 1583;
+	private static final long MILLIS_PER_DAY = 86400000L;
+	private static final long MILLIS_PER_MINUTE = 60000L;
+
+	/**
+	 * The time of a cache entry for a value that is not a date.
+	 */
+	private static final long NOT_A_DATE = Long.MIN_VALUE;
+
+	/**
+	 * The number of cache entries, which must be a power of 2.
+	 */
+	private static final int CACHE_SIZE = 64;
+
+	/**
+	 * The start of the century that two digit years are placed in, 80 years
+	 * ago, which is the same as the default of SimpleDateFormat.
+	 */
+	private static final long CENTURY_START;
+	private static final int CENTURY_START_YEAR;
+	static {
+		Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone("GMT"));
+		calendar.add(Calendar.YEAR, -80);
+		CENTURY_START = calendar.getTimeInMillis();
+		CENTURY_START_YEAR = calendar.get(Calendar.YEAR);
+	}
+
+	private static final AtomicReferenceArray<CacheEntry> cache = new AtomicReferenceArray<CacheEntry>(
+			CACHE_SIZE);
+
+	private static final ThreadLocal<DateFormat[]> fallbackFormats = new ThreadLocal<DateFormat[]>() {
+		@Override
+		protected DateFormat[] initialValue() {
+			return new DateFormat[] { new SimpleDateFormat(PATTERN_RFC1123),
+					new SimpleDateFormat(PATTERN_RFC1036), new SimpleDateFormat(PATTERN_ASCTIME),
+					new SimpleDateFormat(PATTERN_ASCTIME2) };
+		}
+	};
+
+	/**
+	 * A parsed value. Entries are immutable, so they can be shared by the
+	 * threads without locking.
+	 */
+	private static class CacheEntry {
+		private final String value;
+		private final long time;
+
+		private CacheEntry(String value, long time) {
+			this.value = value;
+			this.time = time;
+		}
+	}
+
+	private HttpDateParser() {
+	}
+
+	/**
+	 * Parses the value of an HTTP date header.
+	 * 
+	 * @param value
+	 *            The header value, which may be surrounded by white space.
+	 * @return The date, or null if the value is null or is not a date.
+	 */
+	public static Date parse(String value) {
+		if (value == null) {
+			return null;
+		}
+		String text = value.trim();
+		int index = text.hashCode() & (CACHE_SIZE - 1);
+		CacheEntry entry = cache.get(index);
+		long time;
+		if (entry != null && entry.value.equals(text)) {
+			time = entry.time;
+		} else {
+			time = parseHttpFormats(text);
+			if (time == NOT_A_DATE) {
+				time = parseFallback(text);
+			}
+			cache.set(index, new CacheEntry(text, time));
+		}
+		return time != NOT_A_DATE ? new Date(time) : null;
+	}
+
+	/**
+	 * Parses the RFC 1123, RFC 850 and asctime formats with GMT times.
+	 * 
+	 * @return The time in milliseconds, or NOT_A_DATE.
+	 */
+	private static long parseHttpFormats(String text) {
+		Reader reader = new Reader(text);
+		if (!reader.readDayOfWeek()) {
+			return NOT_A_DATE;
+		}
+		int day;
+		int month;
+		int year;
+		long timeOfDay;
+		boolean twoDigitYear = false;
+		if (reader.skip(',')) {
+			reader.skipSpaces();
+			day = reader.readNumber(1, 2);
+			if (reader.skip(' ')) {
+				// RFC 1123: Sun, 06 Nov 1994 08:49:37 GMT
+				month = reader.readMonth();
+				year = reader.skip(' ') ? reader.readNumber(4, 4) : -1;
+			} else if (reader.skip('-')) {
+				// RFC 850: Sunday, 06-Nov-94 08:49:37 GMT
+				month = reader.readMonth();
+				int start = reader.pos;
+				year = reader.skip('-') ? reader.readNumber(2, 4) : -1;
+				if (year >= 0 && reader.pos - start == 3) {
+					twoDigitYear = true;
+					year += CENTURY_START_YEAR / 100 * 100;
+				}
+			} else {
+				return NOT_A_DATE;
+			}
+			if (day < 0 || month < 0 || year < 0 || !reader.skip(' ')) {
+				return NOT_A_DATE;
+			}
+			timeOfDay = reader.readTimeOfDay();
+			if (timeOfDay < 0 || !reader.skip(' ') || !reader.readGmt()) {
+				return NOT_A_DATE;
+			}
+		} else if (reader.skip(' ')) {
+			// asctime: Sun Nov  6 08:49:37 1994
+			month = reader.readMonth();
+			if (month < 0 || !reader.skip(' ')) {
+				return NOT_A_DATE;
+			}
+			reader.skipSpaces();
+			day = reader.readNumber(1, 2);
+			if (day < 0 || !reader.skip(' ')) {
+				return NOT_A_DATE;
+			}
+			timeOfDay = reader.readTimeOfDay();
+			if (timeOfDay < 0 || !reader.skip(' ')) {
+				return NOT_A_DATE;
+			}
+			year = reader.readNumber(4, 4);
+			if (year < 0) {
+				return NOT_A_DATE;
+			}
+		} else {
+			return NOT_A_DATE;
+		}
+		if (!reader.isAtEnd() || year < GREGORIAN_START) {
+			// Dates of the Julian calendar are left to the fallback formats
+			return NOT_A_DATE;
+		}
+		long time = toEpochDay(year, month, day) * MILLIS_PER_DAY + timeOfDay
+				- reader.zoneOffset;
+		if (twoDigitYear && time < CENTURY_START) {
+			time = toEpochDay(year + 100, month, day) * MILLIS_PER_DAY + timeOfDay
+					- reader.zoneOffset;
+		}
+		return time;
+	}
+
+	/**
+	 * Parses the value with the date formats of the calling thread, which
+	 * accept any time zone.
+	 * 
+	 * @return The time in milliseconds, or NOT_A_DATE.
+	 */
+	private static long parseFallback(String text) {
+		for (DateFormat format : fallbackFormats.get()) {
+			Date date = format.parse(text, new ParsePosition(0));
+			if (date != null) {
+				return date.getTime();
+			}
+		}
+		return NOT_A_DATE;
+	}
+
+	/**
+	 * Returns the number of days from 1970-01-01 to the specified date of the
+	 * Gregorian calendar. Days past the end of the month roll over into the
+	 * next month.
+	 */
+	private static long toEpochDay(int year, int month, int day) {
+		int y = month <= 2 ? year - 1 : year;
+		int era = y / 400;
+		int yearOfEra = y - era * 400;
+		int monthFromMarch = (month + 9) % 12;
+		int dayOfYear = (153 * monthFromMarch + 2) / 5 + day - 1;
+		int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+		return era * 146097L + dayOfEra - 719468;
+	}
+
+	/**
+	 * Reads the fields of a date from left to right. The read methods return
+	 * -1 or false, leaving the position unspecified, when the text does not
+	 * match.
+	 */
+	private static class Reader {
+		private final String text;
+		private int pos;
+		private long zoneOffset;
+
+		private Reader(String text) {
+			this.text = text;
+		}
+
+		private boolean isAtEnd() {
+			return pos == text.length();
+		}
+
+		private boolean skip(char c) {
+			if (pos < text.length() && text.charAt(pos) == c) {
+				++pos;
+				return true;
+			}
+			return false;
+		}
+
+		private void skipSpaces() {
+			while (skip(' ')) {
+				// Skip
+			}
+		}
+
+		private int readLetters() {
+			int start = pos;
+			while (pos < text.length() && Character.isLetter(text.charAt(pos))) {
+				++pos;
+			}
+			return pos - start;
+		}
+
+		private int readNumber(int minDigits, int maxDigits) {
+			int start = pos;
+			int value = 0;
+			while (pos < text.length() && pos - start < maxDigits) {
+				char c = text.charAt(pos);
+				if (c < '0' || c > '9') {
+					break;
+				}
+				value = value * 10 + c - '0';
+				++pos;
+			}
+			return pos - start >= minDigits ? value : -1;
+		}
+
+		/**
+		 * Reads the short or long name of a day of the week.
+		 */
+		private boolean readDayOfWeek() {
+			int start = pos;
+			if (readLetters() < 3) {
+				return false;
+			}
+			for (String day : DAYS) {
+				if (text.regionMatches(true, start, day, 0, 3)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		/**
+		 * Reads the short name of a month, returning the month from 1 to 12.
+		 */
+		private int readMonth() {
+			int start = pos;
+			if (readLetters() != 3) {
+				return -1;
+			}
+			for (int i = 0; i < MONTHS.length; ++i) {
+				if (text.regionMatches(true, start, MONTHS[i], 0, 3)) {
+					return i + 1;
+				}
+			}
+			return -1;
+		}
+
+		/**
+		 * Reads HH:mm:ss, returning the milliseconds since midnight.
+		 */
+		private long readTimeOfDay() {
+			int hour = readNumber(1, 2);
+			int minute = skip(':') ? readNumber(1, 2) : -1;
+			int second = skip(':') ? readNumber(1, 2) : -1;
+			if (hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0
+					|| second > 60) {
+				return -1;
+			}
+			return ((hour * 60L + minute) * 60L + second) * 1000L;
+		}
+
+		/**
+		 * Reads GMT, UTC, UT or a +hhmm/-hhmm offset from GMT.
+		 */
+		private boolean readGmt() {
+			int start = pos;
+			int length = readLetters();
+			if (length > 0) {
+				return (length == 3 && (text.regionMatches(true, start, "GMT", 0, 3) || text
+						.regionMatches(true, start, "UTC", 0, 3)))
+						|| (length == 2 && text.regionMatches(true, start, "UT", 0, 2));
+			}
+			boolean negative = skip('-');
+			if (!negative && !skip('+')) {
+				return false;
+			}
+			int offset = readNumber(4, 4);
+			if (offset < 0 || offset % 100 > 59) {
+				return false;
+			}
+			zoneOffset = (offset / 100 * 60 + offset % 100) * MILLIS_PER_MINUTE;
+			if (negative) {
+				zoneOffset = -zoneOffset;
+			}
+			return true;
+		}
+	}
+}
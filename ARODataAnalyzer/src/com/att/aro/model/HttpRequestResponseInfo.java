@@ -15,21 +15,19 @@
  */
 package com.att.aro.model;
 
-import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.Serializable;
 import java.io.UnsupportedEncodingException;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.text.DateFormat;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -39,7 +37,6 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import java.util.zip.GZIPInputStream;
 
 import javax.swing.ImageIcon;
 
@@ -56,7 +53,8 @@ import com.att.aro.util.Util;
  * converted from struct HTTP_REQUEST_RESPONSE
  */
 public class HttpRequestResponseInfo implements
-		Comparable<HttpRequestResponseInfo> {
+		Comparable<HttpRequestResponseInfo>, Serializable, Cloneable {
+	private static final long serialVersionUID = 1L;
 
 	/**
 	 * Returns HTTP version 1.0.
@@ -208,25 +206,6 @@ public class HttpRequestResponseInfo implements
 	 */
 	private static class RequestResponseBuilder {
 
-		/**
-		 * Date format pattern used to parse HTTP date headers in RFC 1123
-		 * format.
-		 */
-		private static final String PATTERN_RFC1123 = "EEE, dd MMM yyyy HH:mm:ss zzz";
-
-		/**
-		 * Date format pattern used to parse HTTP date headers in RFC 1036
-		 * format.
-		 */
-		private static final String PATTERN_RFC1036 = "EEEE, dd-MMM-yy HH:mm:ss zzz";
-
-		/**
-		 * Date format pattern used to parse HTTP date headers in ANSI C
-		 * <code>asctime()</code> format.
-		 */
-		private static final String PATTERN_ASCTIME = "EEE MMM d HH:mm:ss yyyy";
-		private static final String PATTERN_ASCTIME2 = "EEE MMM d HH:mm:ss zzz yyyy";
-
 		private static final String CHARSET = "charset";
 		private static final String CHUNKED = "chunked";
 		private static final String NOCACHE = "no-cache";
@@ -284,23 +263,31 @@ public class HttpRequestResponseInfo implements
 				.compile("If-None-Match\\s*:");
 
 		private TCPSession session;
+		private TraceSymbols symbols;
 		private ArrayList<HttpRequestResponseInfo> result = new ArrayList<HttpRequestResponseInfo>();
 		private int counter;
 		private byte[] input;
 
-		private DateFormat rfc1123 = new SimpleDateFormat(PATTERN_RFC1123);
-		private DateFormat rfc1036 = new SimpleDateFormat(PATTERN_RFC1036);
-		private DateFormat asctime = new SimpleDateFormat(PATTERN_ASCTIME);
-		private DateFormat asctime2 = new SimpleDateFormat(PATTERN_ASCTIME2);
-		private DateFormat[] dateFormats = { rfc1123, rfc1036, asctime,
-				asctime2 };
-
 		public RequestResponseBuilder(TCPSession session) throws IOException {
+			this(session, null);
+		}
+
+		/**
+		 * Builds the requests and responses of the session, sharing their
+		 * repeated strings through the specified symbol tables.
+		 */
+		RequestResponseBuilder(TCPSession session, TraceSymbols symbols) throws IOException {
 			this.session = session;
+			this.symbols = symbols;
 			extractHttpRequestResponseInfo(PacketInfo.Direction.UPLINK);
 			extractHttpRequestResponseInfo(PacketInfo.Direction.DOWNLINK);
 			Collections.sort(result);
 			result.trimToSize();
+			if (symbols != null) {
+				for (HttpRequestResponseInfo rrInfo : result) {
+					rrInfo.internStrings(symbols);
+				}
+			}
 			if(!session.isUDP()){/* By pass for UDP packets*/
 				if (result.size() > 0) {
 					
@@ -999,8 +986,8 @@ public class HttpRequestResponseInfo implements
 		}
 
 		/**
-		 * Parses HTTP date formats. Synchronized because DateFormat objects are
-		 * not thread-safe. If defaultForExpired is true and value is an invalid
+		 * Parses HTTP date formats with {@link HttpDateParser}, which is
+		 * thread-safe. If defaultForExpired is true and value is an invalid
 		 * dateFormat (such as -1 or 0 meaning already expired), the returned
 		 * Date will be "beginning of time" Jan 1 1970.
 		 * 
@@ -1010,15 +997,10 @@ public class HttpRequestResponseInfo implements
 		 *            Jan 1 1970 GMT Date
 		 * @return formated Date value else null.
 		 */
-		private synchronized Date readHttpDate(String value, boolean defaultForExpired) {
-			if (value != null) {
-				for (DateFormat dateFormat : dateFormats) {
-					try {
-						return dateFormat.parse(value.trim());
-					} catch (ParseException e) {
-						// Ignore for now
-					}
-				}
+		private Date readHttpDate(String value, boolean defaultForExpired) {
+			Date date = HttpDateParser.parse(value);
+			if (date != null) {
+				return date;
 			}
 			
 			if (defaultForExpired) {
@@ -1045,6 +1027,87 @@ public class HttpRequestResponseInfo implements
 		return new RequestResponseBuilder(session).getResult();
 	}
 
+	/**
+	 * Builds the request/response list from the specified TCP session,
+	 * storing the host names, content types, URL prefixes and other repeated
+	 * values once in the symbol tables of the trace.
+	 * 
+	 * @param session
+	 *            The tcp session object.
+	 * @param symbols
+	 *            The symbol tables of the trace, or null.
+	 * @return The list of requests/responses that were found in the specified
+	 *         tcp session.
+	 * @throws IOException
+	 */
+	public static List<HttpRequestResponseInfo> extractHttpRequestResponseInfo(
+			TCPSession session, TraceSymbols symbols) throws IOException {
+		return new RequestResponseBuilder(session, symbols).getResult();
+	}
+
+	/**
+	 * Copies the request/responses of a session of the previous snapshot of a
+	 * live trace to the same session of the next snapshot, whose packet
+	 * information is mapped from the packet information of the previous one.
+	 * 
+	 * @param infos
+	 *            The request/responses of the previous session.
+	 * @param session
+	 *            The session of the next snapshot.
+	 * @param packets
+	 *            The packet information of the next snapshot by the packet
+	 *            information of the previous one.
+	 * @return The copies of the request/responses.
+	 */
+	static List<HttpRequestResponseInfo> copy(List<HttpRequestResponseInfo> infos,
+			TCPSession session, Map<PacketInfo, PacketInfo> packets) {
+		Map<HttpRequestResponseInfo, HttpRequestResponseInfo> copies = new IdentityHashMap<HttpRequestResponseInfo, HttpRequestResponseInfo>(
+				infos.size());
+		List<HttpRequestResponseInfo> result = new ArrayList<HttpRequestResponseInfo>(
+				infos.size());
+		for (HttpRequestResponseInfo info : infos) {
+			HttpRequestResponseInfo copy;
+			try {
+				copy = (HttpRequestResponseInfo) info.clone();
+			} catch (CloneNotSupportedException e) {
+				throw new IllegalStateException(e);
+			}
+			copy.session = session;
+			copy.firstDataPacket = packets.get(info.firstDataPacket);
+			copy.lastDataPacket = packets.get(info.lastDataPacket);
+			copies.put(info, copy);
+			result.add(copy);
+		}
+		for (HttpRequestResponseInfo copy : result) {
+			if (copy.assocReqResp != null) {
+				copy.assocReqResp = copies.get(copy.assocReqResp);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Replaces the repeated strings of this request or response with the
+	 * instances stored in the symbol tables.
+	 */
+	private void internStrings(TraceSymbols symbols) {
+		hostName = symbols.getHostNames().intern(hostName);
+		contentType = symbols.getContentTypes().intern(contentType);
+		if (objName != null) {
+			objNameWithoutParams = symbols.getUrlPrefixes().intern(getObjNameWithoutParams());
+			if (objName.equals(objNameWithoutParams)) {
+				objName = objNameWithoutParams;
+			}
+		}
+		SymbolTable headerValues = symbols.getHeaderValues();
+		scheme = headerValues.intern(scheme);
+		version = headerValues.intern(version);
+		requestType = headerValues.intern(requestType);
+		responseResult = headerValues.intern(responseResult);
+		contentEncoding = headerValues.intern(contentEncoding);
+		charset = headerValues.intern(charset);
+	}
+
 	/**
 	 * Constructor
 	 */
@@ -1508,47 +1571,31 @@ public class HttpRequestResponseInfo implements
 	}
 	
 	/**
-	 * Returns the binary content of the request/response body.
+	 * Returns the binary content of the request/response body. Chunked
+	 * content is joined, and gzip or deflate content is decompressed by
+	 * {@link ContentDecoder}.
 	 * 
 	 * @return An array of bytes containing the binary content of the
 	 *         request/response body, or Null if no content is found.
 	 * 
 	 * @throws ContentException
-	 *             - When part of the content is not available.
+	 *             - When part of the content is not available, or the
+	 *             decompressed content is larger than the limit.
 	 */
 	public byte[] getContent() throws ContentException, IOException {
 		if (contentOffsetLength != null) {
-			byte[] buffer = getStorageBuffer();
-			if (buffer == null) {
-				return null;
-			}
+			if (contentOffsetLength.isEmpty()) {
 
-			ByteArrayOutputStream output = new ByteArrayOutputStream(
-					(int) getActualByteCount());
-			for (Map.Entry<Integer, Integer> entry : contentOffsetLength
-					.entrySet()) {
-				int start = entry.getKey();
-				int size = entry.getValue();
-				if (buffer.length < start + size) {
-					throw new ContentException("Content not available");
-				}
-				for (int i = start; i < start + size; ++i) {
-					output.write(buffer[i]);
-				}
+				// Chunked content whose first chunk is the last, which is
+				// empty even when it is encoded
+				return new byte[0];
 			}
-			if (CONTENT_ENCODING_GZIP.equals(contentEncoding)) {
-
-				// Uncompress gzipped content
-				GZIPInputStream gzip = new GZIPInputStream(
-						new ByteArrayInputStream(output.toByteArray()));
-				output.reset();
-				buffer = new byte[2048];
-				int len;
-				while ((len = gzip.read(buffer)) >= 0) {
-					output.write(buffer, 0, len);
-				}
+			byte[] buffer = getContentStorage();
+			if (buffer == null) {
+				return null;
 			}
-			return output.toByteArray();
+			return ContentDecoder.decode(buffer, getContentStorageBase(), contentOffsetLength,
+					contentEncoding);
 		} else {
 			return null;
 		}
@@ -1570,14 +1617,15 @@ public class HttpRequestResponseInfo implements
 			} catch (ContentException e) {
 
 				// If we get a ContentException, just save the bytes we have
-				byte[] buffer = getStorageBuffer();
+				byte[] buffer = getContentStorage();
 				if (buffer == null) {
 					buffer = new byte[0];
 				}
+				int base = getContentStorageBase();
 
 				for (Map.Entry<Integer, Integer> entry : contentOffsetLength
 						.entrySet()) {
-					int start = entry.getKey();
+					int start = entry.getKey() - base;
 					int len = Math.min(entry.getValue(), buffer.length - start);
 					fos.write(buffer, start, len);
 				}
@@ -1597,8 +1645,7 @@ public class HttpRequestResponseInfo implements
 	public long getActualByteCount() {
 		if (contentOffsetLength != null) {
 
-			byte[] buffer = getStorageBuffer();
-			int bufferSize = buffer != null ? buffer.length : 0;
+			int bufferSize = getStorageBufferSize();
 
 			long result = 0;
 			for (Map.Entry<Integer, Integer> entry : contentOffsetLength
@@ -1640,8 +1687,10 @@ public class HttpRequestResponseInfo implements
 			}
 			
 			// Otherwise do byte by byte compare
-			byte[] b1 = getStorageBuffer();
-			byte[] b2 = rr.getStorageBuffer();
+			byte[] b1 = getContentStorage();
+			byte[] b2 = rr.getContentStorage();
+			int base1 = getContentStorageBase();
+			int base2 = rr.getContentStorageBase();
 
 			Iterator<Map.Entry<Integer, Integer>> it1 = contentOffsetLength.entrySet().iterator();
 			Iterator<Map.Entry<Integer, Integer>> it2 = rr.contentOffsetLength.entrySet().iterator();
@@ -1655,12 +1704,12 @@ public class HttpRequestResponseInfo implements
 				int i2 = e2.getKey();
 				
 				do {
-					if (b1[i1] != b2[i2]) {
+					if (b1[i1 - base1] != b2[i2 - base2]) {
 						return false;
 					}
 
 					++i1; ++i2;
-					if (i1 >= b1.length || i2 >= b2.length) {
+					if (i1 - base1 >= b1.length || i2 - base2 >= b2.length) {
 						break;
 					}
 					if (i1 >= e1.getKey() + e1.getValue()) {
@@ -1786,12 +1835,20 @@ public class HttpRequestResponseInfo implements
 	 * @return UTF-8 string or null if an error occurred
 	 */
 	public String getRequestResponseText() {
-		byte[] storage = getStorageBuffer();
+		byte[] storage;
+		int start;
+		if (readsStorageRanges()) {
+			storage = session.getStorage(packetDirection, rrStart, rawSize);
+			start = 0;
+		} else {
+			storage = getStorageBuffer();
+			start = rrStart;
+		}
 		if (storage == null) {
 			return null;
 		}
 		try {
-			return new String(storage, rrStart, rawSize, "UTF-8");
+			return new String(storage, start, rawSize, "UTF-8");
 		} catch (UnsupportedEncodingException e) {
 
 			// This should not happen because UTF-8 is valid encoding
@@ -1800,6 +1857,60 @@ public class HttpRequestResponseInfo implements
 		}
 	}
 
+	/**
+	 * Returns the size of the storage array in the session where this
+	 * request/response is located, without reading storage that the session
+	 * spilled to a file.
+	 */
+	private int getStorageBufferSize() {
+		switch (packetDirection) {
+		case DOWNLINK:
+			return session.getStorageDlSize();
+		case UPLINK:
+			return session.getStorageUlSize();
+		default:
+			return 0;
+		}
+	}
+
+	/**
+	 * Indicates whether the storage of the session is read in ranges, because
+	 * it is compressed or is spilled to a file.
+	 */
+	private boolean readsStorageRanges() {
+		return session.isStorageCompressed() || session.isStorageSpilled();
+	}
+
+	/**
+	 * Returns the storage in the session that holds the content of this
+	 * request/response. When the storage of the session is compressed or
+	 * spilled, only the range of the storage from the start to the end of the
+	 * content is read; otherwise the whole storage array is returned. An empty
+	 * array is returned when the content has no bytes, such as chunked
+	 * content whose first chunk is the last.
+	 */
+	private byte[] getContentStorage() {
+		if (contentOffsetLength.isEmpty()) {
+			return new byte[0];
+		}
+		if (readsStorageRanges()) {
+			int start = contentOffsetLength.firstKey();
+			int last = contentOffsetLength.lastKey();
+			return session.getStorage(packetDirection, start,
+					last + contentOffsetLength.get(last) - start);
+		}
+		return getStorageBuffer();
+	}
+
+	/**
+	 * Returns the offset in the session storage of the first byte of the
+	 * array returned by {@link #getContentStorage()}.
+	 */
+	private int getContentStorageBase() {
+		return readsStorageRanges() && !contentOffsetLength.isEmpty() ? contentOffsetLength
+				.firstKey() : 0;
+	}
+
 	/**
 	 * Convenience method that gets the storage array in the session where this request/
 	 * response is located.
@@ -1919,6 +2030,23 @@ public class HttpRequestResponseInfo implements
 			return false;
 	}
 	
+	/**
+	 * Returns the HTML document of a text/html response, parsed once by the
+	 * specified content cache.
+	 * 
+	 * @param contentCache
+	 *            - The content cache of the analysis.
+	 * 
+	 * @return The parsed document, or null if the content is not HTML or is
+	 *         not available.
+	 */
+	public org.jsoup.nodes.Document parseHtml(ContentCache contentCache) {
+		if (contentLength != 0 && contentType != null && isContentTypeTextHtml(contentType)) {
+			return contentCache.getDocument(this);
+		}
+		return null;
+	}
+
 	public org.jsoup.nodes.Document parseHtml(FileOrderAnalysis fileOrderAnalysis){
 		
 		org.jsoup.nodes.Document doc = null;
@@ -0,0 +1,158 @@
+/*
+ *  Copyright 2012 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+import com.att.aro.pcap.Packet;
+import com.att.aro.pcap.PcapFileReader;
+
+/**
+ * Follows the directory of a trace that is still being collected. Each poll
+ * reads only the packets appended to the capture files since the previous
+ * poll, including the rotated files that follow traffic.cap, so the packets
+ * of a long capture are read once. A snapshot of the trace with the packets
+ * read so far can be analyzed at any time while the capture continues, and
+ * copies the unchanged TCP sessions of the previous snapshot.
+ */
+public class LiveTrace {
+
+	private static final Logger logger = Logger.getLogger(LiveTrace.class.getName());
+
+	private File traceDir;
+	private List<Packet> packets = new ArrayList<Packet>();
+
+	// The analysis of the last snapshot
+	private TraceData.Analysis lastAnalysis;
+
+	// The capture file being read, where 0 is traffic.cap and i is
+	// traffic<i>.cap, and the position after its last packet read
+	private int fileIndex;
+	private long position;
+
+	/**
+	 * Initializes an instance of the LiveTrace class for the specified trace
+	 * directory.
+	 * 
+	 * @param traceDir
+	 *            The directory the trace files are collected into.
+	 */
+	public LiveTrace(File traceDir) {
+		this.traceDir = traceDir;
+	}
+
+	/**
+	 * Returns the directory of the trace.
+	 * 
+	 * @return The trace directory.
+	 */
+	public File getTraceDir() {
+		return traceDir;
+	}
+
+	/**
+	 * Reads the packets appended to the capture files since the last poll. A
+	 * packet that is not completely written yet is read by the next poll.
+	 * 
+	 * @return The number of new packets.
+	 * @throws IOException
+	 *             when a capture file cannot be read or is corrupt.
+	 */
+	public synchronized int poll() throws IOException {
+		int count = packets.size();
+		while (true) {
+			File file = getCaptureFile(fileIndex);
+			if (file.length() > Math.max(position, PcapFileReader.FILE_HEADER_LENGTH - 1)) {
+
+				// The packets and the position after them are kept together,
+				// so that the packets of a read that fails are read again by
+				// the next poll and not added twice
+				List<Packet> read = new ArrayList<Packet>();
+				PcapFileReader reader = new PcapFileReader(file, position);
+				try {
+					while (reader.next()) {
+						read.add(reader.getPacket());
+					}
+					packets.addAll(read);
+					position = reader.getPosition();
+				} finally {
+					reader.close();
+				}
+			}
+
+			// The capture continues in the next file once it has been
+			// created, so the current file is complete
+			if (!getCaptureFile(fileIndex + 1).exists()) {
+				break;
+			}
+			logger.fine("Capture continues in " + getCaptureFile(fileIndex + 1));
+			++fileIndex;
+			position = 0;
+		}
+		return packets.size() - count;
+	}
+
+	/**
+	 * Returns the number of packets read so far.
+	 * 
+	 * @return The packet count.
+	 */
+	public synchronized int getPacketCount() {
+		return packets.size();
+	}
+
+	/**
+	 * Creates a snapshot of the trace with the packets read so far and the
+	 * other trace files as they currently are, and analyzes it without a
+	 * filter. The snapshot has its own packet information, so the previous
+	 * snapshot can still be displayed while it is analyzed, and the TCP
+	 * sessions that have no new packets are copied from the previous snapshot
+	 * instead of being reassembled and parsed again. RRC states, bursts and
+	 * the other results that depend on the whole trace are computed again.
+	 * 
+	 * @param profile
+	 *            The device profile.
+	 * @return The analysis, whose trace is the snapshot.
+	 * @throws IOException
+	 *             when the trace files cannot be read.
+	 */
+	public TraceData.Analysis analyze(Profile profile) throws IOException {
+		List<Packet> snapshot;
+		TraceData.Analysis previous;
+		synchronized (this) {
+			snapshot = new ArrayList<Packet>(packets);
+			previous = lastAnalysis;
+		}
+		TraceData.Analysis analysis = new TraceData(traceDir, snapshot, previous).runAnalysis(
+				profile, null);
+		synchronized (this) {
+			lastAnalysis = analysis;
+		}
+		return analysis;
+	}
+
+	/**
+	 * Returns the capture file with the specified index.
+	 */
+	private File getCaptureFile(int index) {
+		return new File(traceDir, index == 0 ? TraceData.PCAP_FILE : TraceData.TRAFFIC + index
+				+ TraceData.CAP_EXT);
+	}
+}
@@ -0,0 +1,234 @@
+/*
+ *  Copyright 2012 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.model;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Partitions the packets of a trace by application name and remote IP
+ * address, so that an AnalysisFilter can be applied without examining every
+ * packet. Each partition holds the indexes of its packets in the trace packet
+ * list. The partitions that the filter selects are narrowed to the filter
+ * time range by binary search, and merged back into trace order.
+ */
+final class PacketPartitions {
+
+	/**
+	 * The packets of one application and remote IP address.
+	 */
+	private static final class Partition {
+		private final String appName;
+		private final InetAddress remoteIp;
+		private int[] indexes = new int[16];
+		private int size;
+
+		private Partition(String appName, InetAddress remoteIp) {
+			this.appName = appName;
+			this.remoteIp = remoteIp;
+		}
+
+		private void add(int index) {
+			if (size == indexes.length) {
+				indexes = Arrays.copyOf(indexes, size * 2);
+			}
+			indexes[size++] = index;
+		}
+	}
+
+	private final List<PacketInfo> packets;
+	private final double[] timestamps;
+	private final List<Partition> partitions = new ArrayList<Partition>();
+
+	/**
+	 * Initializes an instance of the PacketPartitions class for the specified
+	 * packets.
+	 *
+	 * @param packets
+	 *            The packets of the trace, in timestamp order.
+	 */
+	PacketPartitions(List<PacketInfo> packets) {
+		this.packets = packets;
+		this.timestamps = new double[packets.size()];
+		Map<String, Map<InetAddress, Partition>> index = new HashMap<String, Map<InetAddress, Partition>>();
+		int i = 0;
+		for (PacketInfo packet : packets) {
+			timestamps[i] = packet.getTimeStamp();
+			String appName = packet.getAppName();
+			InetAddress remoteIp = packet.getRemoteIPAddress();
+			Map<InetAddress, Partition> ipPartitions = index.get(appName);
+			if (ipPartitions == null) {
+				ipPartitions = new HashMap<InetAddress, Partition>();
+				index.put(appName, ipPartitions);
+			}
+			Partition partition = ipPartitions.get(remoteIp);
+			if (partition == null) {
+				partition = new Partition(appName, remoteIp);
+				ipPartitions.put(remoteIp, partition);
+				partitions.add(partition);
+			}
+			partition.add(i++);
+		}
+	}
+
+	/**
+	 * Returns the number of partitions.
+	 *
+	 * @return The partition count.
+	 */
+	int getPartitionCount() {
+		return partitions.size();
+	}
+
+	/**
+	 * Returns the packets that are selected by the specified filter, in trace
+	 * order. The result is the same as testing every packet against the
+	 * filter time range and {@link AnalysisFilter#getPacketColor(PacketInfo)}.
+	 *
+	 * @param filter
+	 *            The analysis filter.
+	 * @return A new list of the selected packets.
+	 */
+	List<PacketInfo> select(AnalysisFilter filter) {
+		TimeRange timeRange = filter.getTimeRange();
+		int count = 0;
+		int total = 0;
+		int[][] runs = new int[partitions.size()][];
+		int[] from = new int[partitions.size()];
+		int[] to = new int[partitions.size()];
+		for (Partition partition : partitions) {
+			if (filter.getColor(partition.appName, partition.remoteIp) == null) {
+				continue;
+			}
+			int lo = 0;
+			int hi = partition.size;
+			if (timeRange != null) {
+				lo = firstAtOrAfter(partition, timeRange.getBeginTime());
+				hi = firstAfter(partition, timeRange.getEndTime());
+			}
+			if (lo < hi) {
+				runs[count] = partition.indexes;
+				from[count] = lo;
+				to[count] = hi;
+				total += hi - lo;
+				++count;
+			}
+		}
+
+		List<PacketInfo> result = new ArrayList<PacketInfo>(total);
+		if (count == 1) {
+			for (int i = from[0]; i < to[0]; ++i) {
+				result.add(packets.get(runs[0][i]));
+			}
+		} else if (count > 1) {
+			merge(runs, from, to, count, result);
+		}
+		return result;
+	}
+
+	/**
+	 * Merges the runs of packet indexes in ascending index order, using a
+	 * binary heap of the runs ordered by their next index.
+	 */
+	private void merge(int[][] runs, int[] from, int[] to, int count, List<PacketInfo> result) {
+		int[] heap = new int[count];
+		for (int i = 0; i < count; ++i) {
+			heap[i] = i;
+		}
+		for (int i = count / 2 - 1; i >= 0; --i) {
+			siftDown(heap, i, count, runs, from);
+		}
+		int size = count;
+		while (size > 0) {
+			int run = heap[0];
+			result.add(packets.get(runs[run][from[run]]));
+			if (++from[run] >= to[run]) {
+				heap[0] = heap[--size];
+			}
+
+			// The run at the top of the heap is exhausted when the heap is
+			// empty, so its next index must not be read
+			if (size > 0) {
+				siftDown(heap, 0, size, runs, from);
+			}
+		}
+	}
+
+	private static void siftDown(int[] heap, int i, int size, int[][] runs, int[] from) {
+		int run = heap[i];
+		int key = runs[run][from[run]];
+		while (true) {
+			int child = 2 * i + 1;
+			if (child >= size) {
+				break;
+			}
+			int childKey = runs[heap[child]][from[heap[child]]];
+			if (child + 1 < size) {
+				int rightKey = runs[heap[child + 1]][from[heap[child + 1]]];
+				if (rightKey < childKey) {
+					++child;
+					childKey = rightKey;
+				}
+			}
+			if (key <= childKey) {
+				break;
+			}
+			heap[i] = heap[child];
+			i = child;
+		}
+		heap[i] = run;
+	}
+
+	/**
+	 * Returns the position of the first packet of the partition with a
+	 * timestamp at or after the specified time.
+	 */
+	private int firstAtOrAfter(Partition partition, double time) {
+		int lo = 0;
+		int hi = partition.size;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (timestamps[partition.indexes[mid]] < time) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+
+	/**
+	 * Returns the position of the first packet of the partition with a
+	 * timestamp after the specified time.
+	 */
+	private int firstAfter(Partition partition, double time) {
+		int lo = 0;
+		int hi = partition.size;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (timestamps[partition.indexes[mid]] <= time) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+}
@@ -0,0 +1,236 @@
+/*
+ *  Copyright 2012 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.model;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An index of the packets of the TCP and UDP sessions of an analysis, sorted
+ * by timestamp, that maps each packet to its session. Used to find the packet
+ * nearest to a point in time, or the packets in a time range, by binary search.
+ */
+public class PacketTimeIndex {
+
+	private double[] timestamps;
+	private PacketInfo[] packets;
+	private TCPSession[] sessions;
+
+	/**
+	 * Initializes an instance of the PacketTimeIndex class for the packets of
+	 * the specified sessions.
+	 *
+	 * @param tcpSessions
+	 *            The TCP and UDP sessions of the analysis.
+	 */
+	public PacketTimeIndex(List<TCPSession> tcpSessions) {
+		int count = 0;
+		for (TCPSession session : tcpSessions) {
+			count += (session.isUDP() ? session.getUDPPackets() : session.getPackets()).size();
+		}
+
+		// Sort the positions of the packets by timestamp. The sort is stable,
+		// so packets with the same timestamp stay in session order.
+		PacketInfo[] unsortedPackets = new PacketInfo[count];
+		TCPSession[] unsortedSessions = new TCPSession[count];
+		double[] unsortedTimestamps = new double[count];
+		int[] order = new int[count];
+		int i = 0;
+		for (TCPSession session : tcpSessions) {
+			for (PacketInfo packet : session.isUDP() ? session.getUDPPackets() : session
+					.getPackets()) {
+				unsortedPackets[i] = packet;
+				unsortedSessions[i] = session;
+				unsortedTimestamps[i] = packet.getTimeStamp();
+				order[i] = i;
+				++i;
+			}
+		}
+		sort(order, unsortedTimestamps);
+
+		this.timestamps = new double[count];
+		this.packets = new PacketInfo[count];
+		this.sessions = new TCPSession[count];
+		for (i = 0; i < count; ++i) {
+			int pos = order[i];
+			packets[i] = unsortedPackets[pos];
+			sessions[i] = unsortedSessions[pos];
+			timestamps[i] = unsortedTimestamps[pos];
+		}
+	}
+
+	/**
+	 * Sorts the positions by their keys with a stable bottom-up merge sort.
+	 * 
+	 * @param order
+	 *            The positions to sort.
+	 * @param keys
+	 *            The keys of the positions.
+	 */
+	static void sort(int[] order, double[] keys) {
+		int[] src = order;
+		int[] dst = new int[order.length];
+		for (int width = 1; width < order.length; width *= 2) {
+			for (int lo = 0; lo < order.length; lo += 2 * width) {
+				int mid = Math.min(lo + width, order.length);
+				int hi = Math.min(lo + 2 * width, order.length);
+				int left = lo;
+				int right = mid;
+				for (int k = lo; k < hi; ++k) {
+					if (left < mid
+							&& (right >= hi || Double.compare(keys[src[left]], keys[src[right]]) <= 0)) {
+						dst[k] = src[left++];
+					} else {
+						dst[k] = src[right++];
+					}
+				}
+			}
+			int[] swap = src;
+			src = dst;
+			dst = swap;
+		}
+		if (src != order) {
+			System.arraycopy(src, 0, order, 0, order.length);
+		}
+	}
+
+	/**
+	 * Returns the number of packets in the index.
+	 *
+	 * @return The packet count.
+	 */
+	public int size() {
+		return packets.length;
+	}
+
+	/**
+	 * Returns the packet at the specified position in the index.
+	 *
+	 * @param index
+	 *            The position of the packet.
+	 * @return The packet.
+	 */
+	public PacketInfo getPacket(int index) {
+		return packets[index];
+	}
+
+	/**
+	 * Returns the session of the packet at the specified position in the
+	 * index.
+	 *
+	 * @param index
+	 *            The position of the packet.
+	 * @return The TCP or UDP session that contains the packet.
+	 */
+	public TCPSession getSession(int index) {
+		return sessions[index];
+	}
+
+	/**
+	 * Returns the position of the packet nearest to the specified time, within
+	 * the specified range. When two packets are equally near, the later one is
+	 * returned.
+	 *
+	 * @param timeStamp
+	 *            The time to match.
+	 * @param range
+	 *            The maximum difference between the packet timestamp and the
+	 *            time. A range of 0 matches only packets with the exact time.
+	 * @return The position of the packet, or -1 if no packet is within range.
+	 */
+	public int indexOfNearest(double timeStamp, double range) {
+		int after = firstIndexAfter(timeStamp);
+		int result = -1;
+		double best = range;
+		if (after > 0) {
+			double diff = timeStamp - timestamps[after - 1];
+			if (diff <= best) {
+				result = after - 1;
+				best = diff;
+			}
+		}
+		if (after < timestamps.length) {
+			double diff = timestamps[after] - timeStamp;
+			if (diff <= best) {
+				result = after;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the packets with a timestamp within the specified time range, in
+	 * timestamp order.
+	 *
+	 * @param beginTime
+	 *            The beginning of the time range.
+	 * @param endTime
+	 *            The end of the time range.
+	 * @return An unmodifiable list of the packets in the range.
+	 */
+	public List<PacketInfo> getPackets(double beginTime, double endTime) {
+		int from = firstIndexAtOrAfter(beginTime);
+		int to = Math.max(from, firstIndexAfter(endTime));
+		return Collections.unmodifiableList(Arrays.asList(packets).subList(from, to));
+	}
+
+	/**
+	 * Returns the position of the first packet with a timestamp at or after
+	 * the specified time.
+	 *
+	 * @param time
+	 *            The time.
+	 * @return The position, which is equal to the size of the index if there
+	 *         is no such packet.
+	 */
+	public int firstIndexAtOrAfter(double time) {
+		int lo = 0;
+		int hi = timestamps.length;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (timestamps[mid] < time) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+
+	/**
+	 * Returns the position of the first packet with a timestamp after the
+	 * specified time.
+	 *
+	 * @param time
+	 *            The time.
+	 * @return The position, which is equal to the size of the index if there
+	 *         is no such packet.
+	 */
+	public int firstIndexAfter(double time) {
+		int lo = 0;
+		int hi = timestamps.length;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (timestamps[mid] <= time) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+}
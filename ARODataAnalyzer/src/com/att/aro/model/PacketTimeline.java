@@ -0,0 +1,467 @@
+/*
+ *  Copyright 2012 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.model;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A compact encoding of the timestamp, length, payload length and direction
+ * of each packet of a trace, for traces that are too long to keep these
+ * values as objects. The
+ * packets are encoded in blocks of a fixed number of packets. In each block,
+ * the first timestamp is stored in full and each following timestamp as the
+ * change of the difference to the previous timestamp (delta of delta), so
+ * packets that arrive at a steady rate take one byte. The timestamps are
+ * stored to the microsecond, the payload length as the length of the headers,
+ * and all values as variable length integers.
+ * <p>
+ * The smallest and largest timestamp of each block is kept, so a cursor over
+ * a time range finds its first block by binary search and skips the blocks
+ * that are outside the range without decoding them. The timeline is held in
+ * a few arrays, and may be serialized or written to a stream as it is.
+ */
+public class PacketTimeline implements Serializable {
+	private static final long serialVersionUID = 2L;
+
+	/**
+	 * The default number of packets in each block.
+	 */
+	public static final int DEFAULT_BLOCK_SIZE = 1024;
+
+	private static final int VERSION = 2;
+	private static final double MICROS_PER_SECOND = 1000000.0;
+	private static final PacketInfo.Direction[] DIRECTIONS = PacketInfo.Direction.values();
+
+	private final int size;
+	private final int blockSize;
+
+	// The blocks back to back, and the offset of each block followed by the
+	// end of the last one
+	private final byte[] data;
+	private final int[] offsets;
+
+	// The smallest and largest timestamp of each block, the largest timestamp
+	// of each block and all blocks before it, and the smallest timestamp of
+	// each block and all blocks after it
+	private final long[] minTimes;
+	private final long[] maxTimes;
+	private final long[] maxTimesBefore;
+	private final long[] minTimesAfter;
+
+	/**
+	 * Initializes an instance of the PacketTimeline class with the specified
+	 * packets, in blocks of the default size.
+	 * 
+	 * @param packets
+	 *            The packets, in the order they are kept in the timeline.
+	 */
+	public PacketTimeline(List<PacketInfo> packets) {
+		this(packets, DEFAULT_BLOCK_SIZE);
+	}
+
+	/**
+	 * Initializes an instance of the PacketTimeline class with the specified
+	 * packets and block size.
+	 * 
+	 * @param packets
+	 *            The packets, in the order they are kept in the timeline.
+	 * @param blockSize
+	 *            The number of packets in each block.
+	 */
+	public PacketTimeline(List<PacketInfo> packets, int blockSize) {
+		if (blockSize < 1) {
+			throw new IllegalArgumentException("Block size must be positive: " + blockSize);
+		}
+		this.size = packets.size();
+		this.blockSize = blockSize;
+
+		int blockCount = (size + blockSize - 1) / blockSize;
+		this.offsets = new int[blockCount + 1];
+		this.minTimes = new long[blockCount];
+		this.maxTimes = new long[blockCount];
+
+		Encoder encoder = new Encoder(size * 4 + 16);
+		long previous = 0;
+		long delta = 0;
+		for (int i = 0; i < size; ++i) {
+			PacketInfo packet = packets.get(i);
+			long time = toMicros(packet.getTimeStamp());
+			int block = i / blockSize;
+			if (i % blockSize == 0) {
+				offsets[block] = encoder.length;
+				minTimes[block] = time;
+				maxTimes[block] = time;
+				encoder.writeLong(zigzag(time));
+				delta = 0;
+			} else {
+				long newDelta = time - previous;
+				encoder.writeLong(zigzag(newDelta - delta));
+				delta = newDelta;
+				minTimes[block] = Math.min(minTimes[block], time);
+				maxTimes[block] = Math.max(maxTimes[block], time);
+			}
+			encoder.writeLong(((long) packet.getLen() << 2) | packet.getDir().ordinal());
+			encoder.writeLong(zigzag(packet.getLen() - packet.getPayloadLen()));
+			previous = time;
+		}
+		offsets[blockCount] = encoder.length;
+		this.data = Arrays.copyOf(encoder.buffer, encoder.length);
+		this.maxTimesBefore = new long[blockCount];
+		this.minTimesAfter = new long[blockCount];
+		summarize();
+	}
+
+	/**
+	 * Initializes an instance of the PacketTimeline class with encoded blocks
+	 * that have been read from a stream.
+	 */
+	private PacketTimeline(int size, int blockSize, byte[] data, int[] offsets, long[] minTimes,
+			long[] maxTimes) {
+		this.size = size;
+		this.blockSize = blockSize;
+		this.data = data;
+		this.offsets = offsets;
+		this.minTimes = minTimes;
+		this.maxTimes = maxTimes;
+		this.maxTimesBefore = new long[minTimes.length];
+		this.minTimesAfter = new long[minTimes.length];
+		summarize();
+	}
+
+	/**
+	 * Reads a timeline that was written with {@link #write(OutputStream)}.
+	 * 
+	 * @param input
+	 *            The stream to read from.
+	 * @return The timeline.
+	 * @throws IOException
+	 *             When the stream cannot be read or does not hold a timeline.
+	 */
+	public static PacketTimeline read(InputStream input) throws IOException {
+		DataInputStream in = new DataInputStream(input);
+		int version = in.readInt();
+		if (version != VERSION) {
+			throw new IOException("Unsupported packet timeline version: " + version);
+		}
+		int size = in.readInt();
+		int blockSize = in.readInt();
+		int blockCount = in.readInt();
+		if (size < 0 || blockSize < 1 || blockCount != (size + blockSize - 1) / blockSize) {
+			throw new IOException("Invalid packet timeline header");
+		}
+		int[] offsets = new int[blockCount + 1];
+		long[] minTimes = new long[blockCount];
+		long[] maxTimes = new long[blockCount];
+		for (int i = 0; i < blockCount; ++i) {
+			offsets[i] = in.readInt();
+			minTimes[i] = in.readLong();
+			maxTimes[i] = in.readLong();
+		}
+		offsets[blockCount] = in.readInt();
+		byte[] data = new byte[offsets[blockCount]];
+		in.readFully(data);
+		return new PacketTimeline(size, blockSize, data, offsets, minTimes, maxTimes);
+	}
+
+	/**
+	 * Writes the timeline to the specified stream, in a form that is read
+	 * back with {@link #read(InputStream)}.
+	 * 
+	 * @param output
+	 *            The stream to write to.
+	 * @throws IOException
+	 */
+	public void write(OutputStream output) throws IOException {
+		DataOutputStream out = new DataOutputStream(output);
+		out.writeInt(VERSION);
+		out.writeInt(size);
+		out.writeInt(blockSize);
+		out.writeInt(minTimes.length);
+		for (int i = 0; i < minTimes.length; ++i) {
+			out.writeInt(offsets[i]);
+			out.writeLong(minTimes[i]);
+			out.writeLong(maxTimes[i]);
+		}
+		out.writeInt(offsets[minTimes.length]);
+		out.write(data);
+		out.flush();
+	}
+
+	/**
+	 * Returns the number of packets in the timeline.
+	 * 
+	 * @return The packet count.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the number of packets in each block.
+	 * 
+	 * @return The block size.
+	 */
+	public int getBlockSize() {
+		return blockSize;
+	}
+
+	/**
+	 * Returns the number of blocks in the timeline.
+	 * 
+	 * @return The block count.
+	 */
+	public int getBlockCount() {
+		return minTimes.length;
+	}
+
+	/**
+	 * Returns the number of bytes of encoded packets.
+	 * 
+	 * @return The encoded size.
+	 */
+	public int getEncodedSize() {
+		return data.length;
+	}
+
+	/**
+	 * Returns a cursor over all of the packets of the timeline.
+	 * 
+	 * @return A cursor that is positioned before the first packet.
+	 */
+	public Cursor cursor() {
+		return new Cursor(Long.MIN_VALUE, Long.MAX_VALUE);
+	}
+
+	/**
+	 * Returns a cursor over the packets with a timestamp within the specified
+	 * time range, in timeline order. The first block that may hold a packet in
+	 * the range is found by binary search.
+	 * 
+	 * @param beginTime
+	 *            The beginning of the time range.
+	 * @param endTime
+	 *            The end of the time range.
+	 * @return A cursor that is positioned before the first packet in the
+	 *         range.
+	 */
+	public Cursor cursor(double beginTime, double endTime) {
+		return new Cursor(toMicros(beginTime), toMicros(endTime));
+	}
+
+	/**
+	 * Reads the packets of a timeline one at a time. A cursor is not thread
+	 * safe, but several cursors may read the same timeline at the same time.
+	 */
+	public class Cursor {
+
+		private final long beginTime;
+		private final long endTime;
+
+		private int block;
+		private int remaining;
+		private int position;
+		private int index = -1;
+		private long time;
+		private long delta;
+		private long value;
+		private int headerLen;
+
+		private Cursor(long beginTime, long endTime) {
+			this.beginTime = beginTime;
+			this.endTime = endTime;
+
+			// Find the first block with a timestamp at or after the beginning
+			// of the range in it or a block before it
+			int lo = 0;
+			int hi = maxTimesBefore.length;
+			while (lo < hi) {
+				int mid = (lo + hi) >>> 1;
+				if (maxTimesBefore[mid] < beginTime) {
+					lo = mid + 1;
+				} else {
+					hi = mid;
+				}
+			}
+			this.block = lo - 1;
+		}
+
+		/**
+		 * Moves to the next packet.
+		 * 
+		 * @return true if the cursor is on a packet, or false if there are no
+		 *         more packets.
+		 */
+		public boolean next() {
+			while (true) {
+				if (remaining == 0) {
+					if (!nextBlock()) {
+						return false;
+					}
+				} else {
+					delta += unzigzag(readLong());
+					time += delta;
+					value = readLong();
+					headerLen = (int) unzigzag(readLong());
+					++index;
+					--remaining;
+				}
+				if (time >= beginTime && time <= endTime) {
+					return true;
+				}
+			}
+		}
+
+		/**
+		 * Decodes the first packet of the next block that may hold packets in
+		 * the time range.
+		 */
+		private boolean nextBlock() {
+			for (int b = block + 1; b < minTimes.length; ++b) {
+				if (minTimesAfter[b] > endTime) {
+					break;
+				}
+				if (maxTimes[b] >= beginTime && minTimes[b] <= endTime) {
+					block = b;
+					position = offsets[b];
+					index = b * blockSize;
+					remaining = Math.min(blockSize, size - index) - 1;
+					time = unzigzag(readLong());
+					delta = 0;
+					value = readLong();
+					headerLen = (int) unzigzag(readLong());
+					return true;
+				}
+			}
+			block = minTimes.length;
+			index = size;
+			return false;
+		}
+
+		private long readLong() {
+			long result = 0;
+			int shift = 0;
+			byte b;
+			do {
+				b = data[position++];
+				result |= (long) (b & 0x7f) << shift;
+				shift += 7;
+			} while (b < 0);
+			return result;
+		}
+
+		/**
+		 * Returns the position of the packet in the timeline.
+		 * 
+		 * @return The packet position.
+		 */
+		public int getIndex() {
+			return index;
+		}
+
+		/**
+		 * Returns the timestamp of the packet.
+		 * 
+		 * @return The packet timestamp, in seconds.
+		 */
+		public double getTimeStamp() {
+			return time / MICROS_PER_SECOND;
+		}
+
+		/**
+		 * Returns the length of the packet.
+		 * 
+		 * @return The packet length, in bytes.
+		 */
+		public int getLen() {
+			return (int) (value >>> 2);
+		}
+
+		/**
+		 * Returns the length of the payload of the packet.
+		 * 
+		 * @return The payload length, in bytes.
+		 */
+		public int getPayloadLen() {
+			return getLen() - headerLen;
+		}
+
+		/**
+		 * Returns the direction of the packet.
+		 * 
+		 * @return The packet direction.
+		 */
+		public PacketInfo.Direction getDir() {
+			return DIRECTIONS[(int) (value & 3)];
+		}
+	}
+
+	/**
+	 * Computes the running largest and smallest timestamps that the binary
+	 * search and the block skipping use.
+	 */
+	private void summarize() {
+		int blockCount = minTimes.length;
+		for (int i = 0; i < blockCount; ++i) {
+			maxTimesBefore[i] = i > 0 ? Math.max(maxTimesBefore[i - 1], maxTimes[i]) : maxTimes[i];
+		}
+		for (int i = blockCount - 1; i >= 0; --i) {
+			minTimesAfter[i] = i < blockCount - 1 ? Math.min(minTimesAfter[i + 1], minTimes[i])
+					: minTimes[i];
+		}
+	}
+
+	private static long toMicros(double time) {
+		return Math.round(time * MICROS_PER_SECOND);
+	}
+
+	private static long zigzag(long value) {
+		return (value << 1) ^ (value >> 63);
+	}
+
+	private static long unzigzag(long value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	/**
+	 * Writes variable length integers to a growing buffer.
+	 */
+	private static final class Encoder {
+		private byte[] buffer;
+		private int length;
+
+		private Encoder(int capacity) {
+			this.buffer = new byte[Math.max(16, capacity)];
+		}
+
+		private void writeLong(long value) {
+			if (length + 10 > buffer.length) {
+				buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + 10));
+			}
+			while ((value & ~0x7fL) != 0) {
+				buffer[length++] = (byte) ((value & 0x7f) | 0x80);
+				value >>>= 7;
+			}
+			buffer[length++] = (byte) value;
+		}
+	}
+}
@@ -0,0 +1,735 @@
+/*
+ *  Copyright 2012 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.model;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Projects the radio cost of the periodic transfers of an analyzed trace over
+ * a longer period, such as a day. Each source of PERIODICAL bursts is assumed
+ * to repeat its typical burst at its observed period for the whole projection.
+ * <p>
+ * Rather than simulating every synthetic packet of the projection, the
+ * repetitions are grouped into clusters whose radio activity overlaps. Each
+ * distinct cluster is simulated once with the RRC state machine, long runs of
+ * repetitions of a single source are extrapolated from a few simulated
+ * cycles, and the idle time between clusters is computed analytically.
+ */
+public class PeriodicTrafficProjection {
+
+	private static final Logger logger = Logger.getLogger(PeriodicTrafficProjection.class
+			.getName());
+
+	/**
+	 * The length of one day in seconds.
+	 */
+	public static final double DAY = 24 * 60 * 60;
+
+	/**
+	 * The idle time before the first packet of a simulated cluster, which is
+	 * longer than any promotion delay.
+	 */
+	private static final double LEAD_TIME = 10.0;
+
+	/**
+	 * The time simulated after the last packet of a cluster, which is longer
+	 * than any tail.
+	 */
+	private static final double TAIL_LIMIT = 3600.0;
+
+	/**
+	 * The number of cycles simulated before a run of repetitions of a single
+	 * source is extrapolated.
+	 */
+	private static final int EXTRAPOLATION_CYCLES = 8;
+
+	/**
+	 * The longest pattern of cycles that an extrapolated run may repeat. A
+	 * repetition that arrives while the radio is in a tail state can leave the
+	 * radio in a different state than the previous one, so the cost of a run
+	 * may only repeat every few cycles.
+	 */
+	private static final int MAX_PATTERN_CYCLES = 3;
+
+	/**
+	 * The difference in seconds or joules up to which the costs of two cycles
+	 * of an extrapolated run are the same.
+	 */
+	private static final double PATTERN_TOLERANCE = 1e-6;
+
+	/**
+	 * The projected radio cost of one periodic source.
+	 */
+	public static class SourceProjection {
+		private String source;
+		private int observedBursts;
+		private double period;
+		private long bytesPerCycle;
+		private int cycles;
+		private double cycleEnergy;
+		private double cycleRadioTime;
+		private double energy;
+		private double radioTime;
+
+		private SourceProjection(Source source) {
+			this.source = source.name;
+			this.observedBursts = source.burstCount;
+			this.period = source.period;
+			this.bytesPerCycle = source.bytes;
+		}
+
+		/**
+		 * Returns the IP address, host name, or object name of the source.
+		 *
+		 * @return The periodic source.
+		 */
+		public String getSource() {
+			return source;
+		}
+
+		/**
+		 * Returns the number of PERIODICAL bursts of the source in the trace.
+		 *
+		 * @return The observed burst count.
+		 */
+		public int getObservedBursts() {
+			return observedBursts;
+		}
+
+		/**
+		 * Returns the period of the source, which is the median time between
+		 * the beginnings of its bursts.
+		 *
+		 * @return The period in seconds.
+		 */
+		public double getPeriod() {
+			return period;
+		}
+
+		/**
+		 * Returns the number of bytes transferred in one cycle of the source.
+		 *
+		 * @return The bytes per cycle.
+		 */
+		public long getBytesPerCycle() {
+			return bytesPerCycle;
+		}
+
+		/**
+		 * Returns the number of cycles of the source in the projection.
+		 *
+		 * @return The cycle count.
+		 */
+		public int getCycles() {
+			return cycles;
+		}
+
+		/**
+		 * Returns the radio energy of one cycle of the source when no other
+		 * transfer keeps the radio active.
+		 *
+		 * @return The energy in joules.
+		 */
+		public double getCycleEnergy() {
+			return cycleEnergy;
+		}
+
+		/**
+		 * Returns the time the radio is not idle for one cycle of the source
+		 * when no other transfer keeps the radio active.
+		 *
+		 * @return The radio on time in seconds.
+		 */
+		public double getCycleRadioTime() {
+			return cycleRadioTime;
+		}
+
+		/**
+		 * Returns the projected radio energy of the source. When the radio
+		 * activity of several sources overlaps, the energy of the overlap is
+		 * shared in proportion to the energy of their cycles.
+		 *
+		 * @return The energy in joules.
+		 */
+		public double getEnergy() {
+			return energy;
+		}
+
+		/**
+		 * Returns the projected time the radio is not idle because of the
+		 * source, shared in the same way as the energy.
+		 *
+		 * @return The radio on time in seconds.
+		 */
+		public double getRadioTime() {
+			return radioTime;
+		}
+	}
+
+	/**
+	 * The projected radio cost of all periodic sources for one profile.
+	 */
+	public static class Result {
+		private Profile profile;
+		private double duration;
+		private List<SourceProjection> sources;
+		private double radioEnergy;
+		private double radioTime;
+		private double idleEnergy;
+		private int simulationCount;
+
+		private Result(Profile profile, double duration, List<SourceProjection> sources) {
+			this.profile = profile;
+			this.duration = duration;
+			this.sources = Collections.unmodifiableList(sources);
+		}
+
+		/**
+		 * Returns the profile the projection was simulated with.
+		 *
+		 * @return The profile.
+		 */
+		public Profile getProfile() {
+			return profile;
+		}
+
+		/**
+		 * Returns the duration of the projection.
+		 *
+		 * @return The duration in seconds.
+		 */
+		public double getDuration() {
+			return duration;
+		}
+
+		/**
+		 * Returns the projections of the periodic sources.
+		 *
+		 * @return An unmodifiable list of the source projections.
+		 */
+		public List<SourceProjection> getSources() {
+			return sources;
+		}
+
+		/**
+		 * Returns the projected energy of the radio while it is not idle.
+		 *
+		 * @return The energy in joules.
+		 */
+		public double getRadioEnergy() {
+			return radioEnergy;
+		}
+
+		/**
+		 * Returns the projected time the radio is not idle.
+		 *
+		 * @return The radio on time in seconds.
+		 */
+		public double getRadioTime() {
+			return radioTime;
+		}
+
+		/**
+		 * Returns the projected energy of the radio while it is idle.
+		 *
+		 * @return The energy in joules.
+		 */
+		public double getIdleEnergy() {
+			return idleEnergy;
+		}
+
+		/**
+		 * Returns the projected energy of the radio for the whole projection.
+		 *
+		 * @return The energy in joules.
+		 */
+		public double getTotalEnergy() {
+			return radioEnergy + idleEnergy;
+		}
+
+		/**
+		 * Returns the number of RRC simulations that were run for the
+		 * projection.
+		 *
+		 * @return The simulation count.
+		 */
+		public int getSimulationCount() {
+			return simulationCount;
+		}
+	}
+
+	/**
+	 * A periodic source and its typical burst.
+	 */
+	private static final class Source {
+		private final String name;
+		private final int burstCount;
+		private final double period;
+		private final double phase;
+		private final List<PacketInfo> template;
+		private final double templateBegin;
+		private final long bytes;
+
+		private Source(String name, List<Burst> bursts) {
+			this.name = name;
+			this.burstCount = bursts.size();
+
+			double[] gaps = new double[bursts.size() - 1];
+			for (int i = 1; i < bursts.size(); ++i) {
+				gaps[i - 1] = bursts.get(i).getBeginTime() - bursts.get(i - 1).getBeginTime();
+			}
+			Arrays.sort(gaps);
+			this.period = gaps[gaps.length / 2];
+			this.phase = bursts.get(0).getBeginTime();
+
+			// Use the burst with the median size as the typical burst
+			List<Burst> bySize = new ArrayList<Burst>(bursts);
+			Collections.sort(bySize, new Comparator<Burst>() {
+				@Override
+				public int compare(Burst o1, Burst o2) {
+					return Long.valueOf(o1.getBurstBytes()).compareTo(o2.getBurstBytes());
+				}
+			});
+			Burst typical = bySize.get(bySize.size() / 2);
+			this.template = typical.getPackets();
+			this.templateBegin = typical.getBeginTime();
+			this.bytes = typical.getBurstBytes();
+		}
+	}
+
+	/**
+	 * The radio cost of a simulated cluster of repetitions.
+	 */
+	private static final class Cost {
+		private final double energy;
+		private final double radioTime;
+		private final double activeBegin;
+		private final double activeEnd;
+
+		private Cost(double energy, double radioTime, double activeBegin, double activeEnd) {
+			this.energy = energy;
+			this.radioTime = radioTime;
+			this.activeBegin = activeBegin;
+			this.activeEnd = activeEnd;
+		}
+	}
+
+	/**
+	 * Identifies a cluster by its sources and their offsets in microseconds
+	 * from the first repetition.
+	 */
+	private static final class ClusterKey {
+		private final int[] sources;
+		private final long[] offsets;
+
+		private ClusterKey(int[] sources, long[] offsets) {
+			this.sources = sources;
+			this.offsets = offsets;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * Arrays.hashCode(sources) + Arrays.hashCode(offsets);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof ClusterKey)) {
+				return false;
+			}
+			ClusterKey other = (ClusterKey) obj;
+			return Arrays.equals(sources, other.sources) && Arrays.equals(offsets, other.offsets);
+		}
+	}
+
+	private List<Source> sources = new ArrayList<Source>();
+
+	/**
+	 * Initializes an instance of the PeriodicTrafficProjection class for the
+	 * periodic bursts of the specified analysis. Sources with fewer than two
+	 * PERIODICAL bursts in the trace are not projected, because their period
+	 * is unknown.
+	 *
+	 * @param analysis
+	 *            The trace analysis.
+	 */
+	public PeriodicTrafficProjection(TraceData.Analysis analysis) {
+		Map<String, List<Burst>> bursts = new LinkedHashMap<String, List<Burst>>();
+		BurstCollectionAnalysis bcAnalysis = analysis.getBcAnalysis();
+		if (bcAnalysis != null) {
+			for (Burst burst : bcAnalysis.getBurstCollection()) {
+				if (burst.getBurstCategory() == BurstCategory.PERIODICAL
+						&& burst.getPeriodicSource() != null) {
+					List<Burst> list = bursts.get(burst.getPeriodicSource());
+					if (list == null) {
+						list = new ArrayList<Burst>();
+						bursts.put(burst.getPeriodicSource(), list);
+					}
+					list.add(burst);
+				}
+			}
+		}
+		for (Map.Entry<String, List<Burst>> entry : bursts.entrySet()) {
+			if (entry.getValue().size() >= 2) {
+				Source source = new Source(entry.getKey(), entry.getValue());
+				if (source.period > 0.0) {
+					sources.add(source);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of periodic sources that can be projected.
+	 *
+	 * @return The source count.
+	 */
+	public int getSourceCount() {
+		return sources.size();
+	}
+
+	/**
+	 * Projects the radio cost of the periodic sources over one day.
+	 *
+	 * @param profile
+	 *            The device profile.
+	 * @return The projection.
+	 */
+	public Result run(Profile profile) {
+		return run(profile, DAY);
+	}
+
+	/**
+	 * Projects the radio cost of the periodic sources over the specified
+	 * duration. The repetitions of each source keep the phase they have in
+	 * the trace. This method does not modify the projection and may be called
+	 * concurrently.
+	 *
+	 * @param profile
+	 *            The device profile.
+	 * @param duration
+	 *            The duration of the projection in seconds.
+	 * @return The projection.
+	 */
+	public Result run(Profile profile, double duration) {
+		Map<ClusterKey, Cost> costs = new HashMap<ClusterKey, Cost>();
+		int sourceCount = sources.size();
+		List<SourceProjection> projections = new ArrayList<SourceProjection>(sourceCount);
+		Cost[] cycleCosts = new Cost[sourceCount];
+		for (int s = 0; s < sourceCount; ++s) {
+			cycleCosts[s] = getCost(profile, new int[] { s }, new double[] { 0.0 }, costs);
+			SourceProjection projection = new SourceProjection(sources.get(s));
+			projection.cycleEnergy = cycleCosts[s].energy;
+			projection.cycleRadioTime = cycleCosts[s].radioTime;
+			projections.add(projection);
+		}
+		Result result = new Result(profile, duration, projections);
+
+		// Schedule the repetitions of all sources in time order
+		final List<Double> times = new ArrayList<Double>();
+		List<Integer> occurrenceSources = new ArrayList<Integer>();
+		for (int s = 0; s < sourceCount; ++s) {
+			Source source = sources.get(s);
+			double first = source.phase % source.period;
+			int start = times.size();
+			for (long k = 0;; ++k) {
+				double time = first + k * source.period;
+				if (time >= duration) {
+					break;
+				}
+				times.add(time);
+				occurrenceSources.add(s);
+			}
+			projections.get(s).cycles = times.size() - start;
+		}
+		int count = times.size();
+		List<Integer> order = new ArrayList<Integer>(count);
+		for (int i = 0; i < count; ++i) {
+			order.add(i);
+		}
+		Collections.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer o1, Integer o2) {
+				return times.get(o1).compareTo(times.get(o2));
+			}
+		});
+
+		// Group the repetitions whose radio activity overlaps into clusters,
+		// and add up the cost of each cluster and of the idle gap before it.
+		// Each gap is charged separately, because the idle energy of some
+		// profiles, such as the paging of LTE, depends on the gap length.
+		RRCState idleState = getIdleState(profile);
+		List<PacketInfo> noPackets = Collections.emptyList();
+		double idleBegin = 0.0;
+		int i = 0;
+		while (i < count) {
+			int begin = i;
+			int first = order.get(i);
+			double clusterEnd = times.get(first) + cycleCosts[occurrenceSources.get(first)].activeEnd;
+			for (++i; i < count; ++i) {
+				int next = order.get(i);
+				Cost cycle = cycleCosts[occurrenceSources.get(next)];
+				if (times.get(next) + cycle.activeBegin >= clusterEnd) {
+					break;
+				}
+				clusterEnd = Math.max(clusterEnd, times.get(next) + cycle.activeEnd);
+			}
+
+			int size = i - begin;
+			int[] clusterSources = new int[size];
+			double[] offsets = new double[size];
+			double totalCycleEnergy = 0.0;
+			double totalCycleTime = 0.0;
+			for (int j = 0; j < size; ++j) {
+				int occurrence = order.get(begin + j);
+				clusterSources[j] = occurrenceSources.get(occurrence);
+				offsets[j] = times.get(occurrence) - times.get(first);
+				totalCycleEnergy += cycleCosts[clusterSources[j]].energy;
+				totalCycleTime += cycleCosts[clusterSources[j]].radioTime;
+			}
+			Cost cost = size == 1 ? cycleCosts[clusterSources[0]] : getClusterCost(profile,
+					clusterSources, offsets, costs);
+			result.radioEnergy += cost.energy;
+			result.radioTime += cost.radioTime;
+			double activeBegin = times.get(first) + cost.activeBegin;
+			if (activeBegin > idleBegin) {
+				result.idleEnergy += profile.energy(0.0, activeBegin - idleBegin, idleState,
+						noPackets);
+			}
+			idleBegin = Math.max(idleBegin, times.get(first) + cost.activeEnd);
+			for (int j = 0; j < size; ++j) {
+				Cost cycle = cycleCosts[clusterSources[j]];
+				SourceProjection projection = projections.get(clusterSources[j]);
+				projection.energy += totalCycleEnergy > 0.0 ? cost.energy * cycle.energy
+						/ totalCycleEnergy : cost.energy / size;
+				projection.radioTime += totalCycleTime > 0.0 ? cost.radioTime
+						* cycle.radioTime / totalCycleTime : cost.radioTime / size;
+			}
+		}
+
+		// The radio is idle for the rest of the projection
+		if (duration > idleBegin) {
+			result.idleEnergy += profile.energy(0.0, duration - idleBegin, idleState, noPackets);
+		}
+		result.simulationCount = costs.size();
+		logger.fine("Projected " + count + " periodic transfers with " + costs.size()
+				+ " simulations");
+		return result;
+	}
+
+	/**
+	 * Writes the specified projection as comma separated values, with one row
+	 * for each source followed by the idle radio and the total.
+	 *
+	 * @param result
+	 *            The projection.
+	 * @param writer
+	 *            The writer that receives the output.
+	 * @throws IOException
+	 */
+	public static void writeCsv(Result result, Writer writer) throws IOException {
+		writer.write("Source,Observed Bursts,Period (s),Bytes per Cycle,Cycles,"
+				+ "Energy per Cycle (J),Energy (J),Radio Time (s)\n");
+		for (SourceProjection source : result.getSources()) {
+			writer.write(ProfileSweep.csvValue(source.getSource()));
+			writer.write(',');
+			writer.write(String.valueOf(source.getObservedBursts()));
+			writer.write(',');
+			writer.write(String.valueOf(source.getPeriod()));
+			writer.write(',');
+			writer.write(String.valueOf(source.getBytesPerCycle()));
+			writer.write(',');
+			writer.write(String.valueOf(source.getCycles()));
+			writer.write(',');
+			writer.write(String.valueOf(source.getCycleEnergy()));
+			writer.write(',');
+			writer.write(String.valueOf(source.getEnergy()));
+			writer.write(',');
+			writer.write(String.valueOf(source.getRadioTime()));
+			writer.write('\n');
+		}
+		writer.write("Idle,,,,,," + result.getIdleEnergy() + ","
+				+ Math.max(0.0, result.getDuration() - result.getRadioTime()) + "\n");
+		writer.write("Total,,,,,," + result.getTotalEnergy() + "," + result.getDuration() + "\n");
+		writer.flush();
+	}
+
+	/**
+	 * Returns the cost of a cluster of more than one repetition. A cluster of
+	 * evenly spaced repetitions of one source is extrapolated from the cost
+	 * of its first cycles, once the radio repeats the same pattern of states
+	 * every few cycles. A cluster whose first cycles do not repeat a pattern
+	 * is simulated in full.
+	 */
+	private Cost getClusterCost(Profile profile, int[] clusterSources, double[] offsets,
+			Map<ClusterKey, Cost> costs) {
+		int size = clusterSources.length;
+		if (size > EXTRAPOLATION_CYCLES && isEvenlySpaced(clusterSources, offsets)) {
+
+			// The cost of the first n cycles is at index n - 1
+			Cost[] prefixes = new Cost[EXTRAPOLATION_CYCLES];
+			for (int n = 1; n <= EXTRAPOLATION_CYCLES; ++n) {
+				prefixes[n - 1] = getCost(profile, Arrays.copyOf(clusterSources, n),
+						Arrays.copyOf(offsets, n), costs);
+			}
+			int pattern = findPattern(prefixes);
+			if (pattern > 0) {
+
+				// Extrapolate from the simulated run that ends at the same
+				// point of the pattern as the cluster
+				int remaining = size - EXTRAPOLATION_CYCLES;
+				int base = EXTRAPOLATION_CYCLES - (pattern - remaining % pattern) % pattern;
+				int patterns = (size - base) / pattern;
+				Cost last = prefixes[EXTRAPOLATION_CYCLES - 1];
+				Cost previous = prefixes[EXTRAPOLATION_CYCLES - 1 - pattern];
+				Cost cost = prefixes[base - 1];
+				return new Cost(cost.energy + patterns * (last.energy - previous.energy),
+						cost.radioTime + patterns * (last.radioTime - previous.radioTime),
+						cost.activeBegin, cost.activeEnd + (size - base)
+								* (offsets[1] - offsets[0]));
+			}
+		}
+		return getCost(profile, clusterSources, offsets, costs);
+	}
+
+	/**
+	 * Returns the number of cycles of the shortest pattern that the last
+	 * cycles of the specified costs of the first cycles of a run repeat, or
+	 * zero if they do not repeat a pattern.
+	 */
+	private static int findPattern(Cost[] prefixes) {
+		int last = prefixes.length - 1;
+		for (int pattern = 1; pattern <= MAX_PATTERN_CYCLES; ++pattern) {
+			boolean repeats = true;
+			for (int n = last; n > last - pattern && repeats; --n) {
+				repeats = isSameIncrement(prefixes, n, n - pattern);
+			}
+			if (repeats) {
+				return pattern;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Returns true if the cycles at the specified indexes of a run add the
+	 * same cost.
+	 */
+	private static boolean isSameIncrement(Cost[] prefixes, int n, int m) {
+		return Math.abs(prefixes[n].energy - prefixes[n - 1].energy - prefixes[m].energy
+				+ prefixes[m - 1].energy) <= PATTERN_TOLERANCE
+				&& Math.abs(prefixes[n].radioTime - prefixes[n - 1].radioTime
+						- prefixes[m].radioTime + prefixes[m - 1].radioTime) <= PATTERN_TOLERANCE;
+	}
+
+	private static boolean isEvenlySpaced(int[] clusterSources, double[] offsets) {
+		long step = toMicros(offsets[1] - offsets[0]);
+		for (int j = 1; j < clusterSources.length; ++j) {
+			if (clusterSources[j] != clusterSources[0]
+					|| Math.abs(toMicros(offsets[j] - offsets[j - 1]) - step) > 1) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the cost of a cluster, simulating it if a cluster with the same
+	 * sources and offsets has not been simulated yet.
+	 */
+	private Cost getCost(Profile profile, int[] clusterSources, double[] offsets,
+			Map<ClusterKey, Cost> costs) {
+		long[] micros = new long[offsets.length];
+		for (int j = 0; j < offsets.length; ++j) {
+			micros[j] = toMicros(offsets[j]);
+		}
+		ClusterKey key = new ClusterKey(clusterSources, micros);
+		Cost cost = costs.get(key);
+		if (cost == null) {
+			cost = simulate(profile, clusterSources, offsets);
+			costs.put(key, cost);
+		}
+		return cost;
+	}
+
+	/**
+	 * Simulates the radio for copies of the typical bursts of the sources at
+	 * the specified offsets, starting and ending with the radio idle.
+	 */
+	private Cost simulate(Profile profile, int[] clusterSources, double[] offsets) {
+		List<PacketInfo> packets = new ArrayList<PacketInfo>();
+		for (int j = 0; j < clusterSources.length; ++j) {
+			Source source = sources.get(clusterSources[j]);
+			double shift = LEAD_TIME + offsets[j] - source.templateBegin;
+			for (PacketInfo packet : source.template) {
+				PacketInfo copy = new PacketInfo(packet.getAppName(), packet.getPacket());
+				copy.setTimestamp(packet.getTimeStamp() + shift);
+				copy.setDir(packet.getDir());
+				packets.add(copy);
+			}
+		}
+		Collections.sort(packets);
+
+		double traceDuration = packets.get(packets.size() - 1).getTimeStamp() + TAIL_LIMIT;
+		RrcSimulation.RangeBuffer ranges = new RrcSimulation(packets).run(profile, traceDuration)
+				.getRanges();
+		RRCState idleState = getIdleState(profile);
+		double energy = 0.0;
+		double radioTime = 0.0;
+		double activeBegin = Double.MAX_VALUE;
+		double activeEnd = LEAD_TIME;
+		for (int i = 0; i < ranges.size(); ++i) {
+			RRCState state = ranges.getState(i);
+			double begin = ranges.getBegin(i);
+			double end = ranges.getEnd(i);
+			if (state != idleState && end > begin) {
+				energy += profile.energy(begin, end, state, packets);
+				radioTime += end - begin;
+				activeBegin = Math.min(activeBegin, begin);
+				activeEnd = Math.max(activeEnd, end);
+			}
+		}
+		if (activeBegin == Double.MAX_VALUE) {
+			activeBegin = LEAD_TIME;
+		}
+		return new Cost(energy, radioTime, activeBegin - LEAD_TIME, activeEnd - LEAD_TIME);
+	}
+
+	private static RRCState getIdleState(Profile profile) {
+		switch (profile.getProfileType()) {
+		case LTE:
+			return RRCState.LTE_IDLE;
+		case WIFI:
+			return RRCState.WIFI_IDLE;
+		default:
+			return RRCState.STATE_IDLE;
+		}
+	}
+
+	private static long toMicros(double seconds) {
+		return Math.round(seconds * 1000000.0);
+	}
+}
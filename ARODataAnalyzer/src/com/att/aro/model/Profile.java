@@ -346,13 +346,30 @@ public abstract class Profile implements Serializable {
 	 * @throws IOException
 	 */
 	public final synchronized void saveToFile(File file) throws IOException {
+		Properties props = toProperties();
+		props.store(new FileOutputStream(file), "Set what this comment is");
+		this.file = file;
+		this.name = file.getAbsolutePath();
+	}
+
+	/**
+	 * Returns the current profile values contained in this object as
+	 * properties, in the format read by the profile constructors.
+	 * 
+	 * @return The profile properties.
+	 */
+	public final synchronized Properties toProperties() {
 		Properties props = new Properties();
 
 		// Get sub-class data
 		saveProperties(props);
 
-		props.setProperty(CARRIER, carrier);
-		props.setProperty(DEVICE, device);
+		if (carrier != null) {
+			props.setProperty(CARRIER, carrier);
+		}
+		if (device != null) {
+			props.setProperty(DEVICE, device);
+		}
 		props.setProperty(PROFILE_TYPE, getProfileType().name());
 		props.setProperty(USER_INPUT_TH, String.valueOf(userInputTh));
 		props.setProperty(POWER_GPS_ACTIVE, String.valueOf(powerGpsActive));
@@ -370,9 +387,7 @@ public abstract class Profile implements Serializable {
 		props.setProperty(LARGE_BURST_SIZE, String.valueOf(largeBurstSize));
 		props.setProperty(CLOSE_SPACED_BURSTS, String.valueOf(closeSpacedBurstThreshold));
 		props.setProperty(W_THROUGHPUT, String.valueOf(throughputWindow));
-		props.store(new FileOutputStream(file), "Set what this comment is");
-		this.file = file;
-		this.name = file.getAbsolutePath();
+		return props;
 	}
 
 	/**
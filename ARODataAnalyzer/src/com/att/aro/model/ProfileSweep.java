@@ -0,0 +1,367 @@
+/*
+ *  Copyright 2012 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.model;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Logger;
+
+/**
+ * Evaluates other device profiles against an analyzed trace. For each profile,
+ * only the RRC state machine, the energy model and the burst energy are
+ * re-computed; the packets, sessions, bursts and best practices of the
+ * analysis are reused as they are. The profiles are evaluated in parallel, and
+ * the analysis is not modified.
+ */
+public class ProfileSweep {
+
+	private static final Logger logger = Logger.getLogger(ProfileSweep.class.getName());
+
+	/**
+	 * The RRC and energy results of one profile of a sweep.
+	 */
+	public static class Result {
+		private Profile profile;
+		private Map<String, String> parameters;
+		private RRCStateMachine rrcStateMachine;
+		private EnergyModel energyModel;
+		private double burstEnergy;
+
+		private Result(Profile profile, Map<String, String> parameters,
+				RRCStateMachine rrcStateMachine, EnergyModel energyModel, double burstEnergy) {
+			this.profile = profile;
+			this.parameters = parameters;
+			this.rrcStateMachine = rrcStateMachine;
+			this.energyModel = energyModel;
+			this.burstEnergy = burstEnergy;
+		}
+
+		/**
+		 * Returns the profile that was evaluated.
+		 *
+		 * @return The profile.
+		 */
+		public Profile getProfile() {
+			return profile;
+		}
+
+		/**
+		 * Returns the parameter values that the profile was created with when
+		 * it is a point of a grid.
+		 *
+		 * @return An unmodifiable map of profile property names to values,
+		 *         which is empty when the profile is not a grid point.
+		 */
+		public Map<String, String> getParameters() {
+			return parameters;
+		}
+
+		/**
+		 * Returns the RRC state machine simulated with the profile.
+		 *
+		 * @return The RRC state machine.
+		 */
+		public RRCStateMachine getRrcStateMachine() {
+			return rrcStateMachine;
+		}
+
+		/**
+		 * Returns the energy model computed with the profile.
+		 *
+		 * @return The energy model.
+		 */
+		public EnergyModel getEnergyModel() {
+			return energyModel;
+		}
+
+		/**
+		 * Returns the total energy consumed with the profile.
+		 *
+		 * @return The total energy in joules.
+		 */
+		public double getTotalEnergy() {
+			return energyModel.getTotalEnergyConsumed();
+		}
+
+		/**
+		 * Returns the energy consumed by the radio with the profile.
+		 *
+		 * @return The RRC energy in joules.
+		 */
+		public double getRrcEnergy() {
+			return rrcStateMachine.getTotalRRCEnergy();
+		}
+
+		/**
+		 * Returns the energy of the bursts of the analysis with the profile.
+		 *
+		 * @return The burst energy in joules.
+		 */
+		public double getBurstEnergy() {
+			return burstEnergy;
+		}
+
+		/**
+		 * Returns the promotion ratio with the profile. This is the
+		 * continuous reception promotion ratio for LTE profiles.
+		 *
+		 * @return The promotion ratio.
+		 */
+		public double getPromotionRatio() {
+			return profile.getProfileType() == ProfileType.LTE ? rrcStateMachine
+					.getCRPromotionRatio() : rrcStateMachine.getPromotionRatio();
+		}
+
+		/**
+		 * Returns the energy consumed by the radio per kilobyte of data.
+		 *
+		 * @return The joules per kilobyte.
+		 */
+		public double getJoulesPerKilobyte() {
+			return rrcStateMachine.getJoulesPerKilobyte();
+		}
+	}
+
+	private TraceData.Analysis analysis;
+	private RrcSimulation simulation;
+
+	/**
+	 * Initializes an instance of the ProfileSweep class for the specified
+	 * analysis.
+	 *
+	 * @param analysis
+	 *            The trace analysis to evaluate the profiles against.
+	 */
+	public ProfileSweep(TraceData.Analysis analysis) {
+		this.analysis = analysis;
+		this.simulation = new RrcSimulation(analysis.getPackets());
+	}
+
+	/**
+	 * Creates the profiles of a grid of parameter values. One profile is
+	 * created for each combination of the values, with all other values taken
+	 * from the base profile.
+	 *
+	 * @param base
+	 *            The profile that supplies the values that are not in the grid.
+	 * @param grid
+	 *            The values of each profile property to sweep, in the order the
+	 *            properties should vary (the last property varies fastest).
+	 * @return The profiles of the grid, each mapped to its parameter values.
+	 * @throws ProfileException
+	 *             when a grid value is not valid for the profile
+	 * @throws IllegalArgumentException
+	 *             when a grid property is not a property of the base profile
+	 */
+	public static Map<Profile, Map<String, String>> createGrid(Profile base,
+			Map<String, List<String>> grid) throws ProfileException {
+		Properties baseProps = base.toProperties();
+		for (Map.Entry<String, List<String>> entry : grid.entrySet()) {
+			if (!baseProps.containsKey(entry.getKey())) {
+				throw new IllegalArgumentException("Unknown profile parameter: "
+						+ entry.getKey());
+			}
+			if (entry.getValue().isEmpty()) {
+				throw new IllegalArgumentException("No values for profile parameter: "
+						+ entry.getKey());
+			}
+		}
+
+		List<String> names = new ArrayList<String>(grid.keySet());
+		int[] index = new int[names.size()];
+		Map<Profile, Map<String, String>> result = new LinkedHashMap<Profile, Map<String, String>>();
+		while (true) {
+			Properties props = new Properties();
+			props.putAll(baseProps);
+			Map<String, String> parameters = new LinkedHashMap<String, String>();
+			for (int i = 0; i < names.size(); ++i) {
+				String value = grid.get(names.get(i)).get(index[i]).trim();
+				props.setProperty(names.get(i), value);
+				parameters.put(names.get(i), value);
+			}
+			Profile profile = Profile.create(base.getProfileType(), base.getName(), props);
+			result.put(profile, Collections.unmodifiableMap(parameters));
+
+			// Advance to the next combination
+			int i = names.size() - 1;
+			while (i >= 0 && ++index[i] >= grid.get(names.get(i)).size()) {
+				index[i--] = 0;
+			}
+			if (i < 0) {
+				break;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Evaluates the specified profiles, using one thread per available
+	 * processor.
+	 *
+	 * @param profiles
+	 *            The profiles to evaluate.
+	 * @return The results, in the order of the profiles.
+	 * @throws InterruptedException
+	 */
+	public List<Result> run(List<Profile> profiles) throws InterruptedException {
+		Map<Profile, Map<String, String>> points = new LinkedHashMap<Profile, Map<String, String>>();
+		for (Profile profile : profiles) {
+			points.put(profile, Collections.<String, String> emptyMap());
+		}
+		return run(points, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Evaluates the specified grid points.
+	 *
+	 * @param points
+	 *            The profiles to evaluate, each mapped to the parameter values
+	 *            it was created with, as returned by
+	 *            {@link #createGrid(Profile, Map)}.
+	 * @param threadCount
+	 *            The maximum number of profiles evaluated at the same time.
+	 * @return The results, in the order of the points.
+	 * @throws InterruptedException
+	 */
+	public List<Result> run(Map<Profile, Map<String, String>> points, int threadCount)
+			throws InterruptedException {
+		if (points.isEmpty()) {
+			return Collections.emptyList();
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1,
+				Math.min(threadCount, points.size())));
+		try {
+			List<Future<Result>> futures = new ArrayList<Future<Result>>(points.size());
+			for (final Map.Entry<Profile, Map<String, String>> point : points.entrySet()) {
+				futures.add(executor.submit(new Callable<Result>() {
+					@Override
+					public Result call() {
+						return evaluate(point.getKey(), point.getValue());
+					}
+				}));
+			}
+			List<Result> result = new ArrayList<Result>(futures.size());
+			for (Future<Result> future : futures) {
+				try {
+					result.add(future.get());
+				} catch (ExecutionException e) {
+					Throwable cause = e.getCause();
+					if (cause instanceof RuntimeException) {
+						throw (RuntimeException) cause;
+					} else if (cause instanceof Error) {
+						throw (Error) cause;
+					}
+					throw new IllegalStateException(cause);
+				}
+			}
+			return result;
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Writes the specified results as comma separated values, with one column
+	 * for each grid parameter followed by the energy columns.
+	 *
+	 * @param results
+	 *            The sweep results.
+	 * @param writer
+	 *            The writer that receives the output.
+	 * @throws IOException
+	 */
+	public static void writeCsv(List<Result> results, Writer writer) throws IOException {
+		Set<String> names = new LinkedHashSet<String>();
+		for (Result r : results) {
+			names.addAll(r.getParameters().keySet());
+		}
+
+		writer.write("Profile,Type");
+		for (String name : names) {
+			writer.write(',');
+			writer.write(name);
+		}
+		writer.write(",Total Energy (J),RRC Energy (J),Burst Energy (J),Promotion Ratio,J/KB\n");
+		for (Result r : results) {
+			writer.write(csvValue(r.getProfile().getName()));
+			writer.write(',');
+			writer.write(r.getProfile().getProfileType().name());
+			for (String name : names) {
+				writer.write(',');
+				String value = r.getParameters().get(name);
+				writer.write(value != null ? csvValue(value) : "");
+			}
+			writer.write(',');
+			writer.write(String.valueOf(r.getTotalEnergy()));
+			writer.write(',');
+			writer.write(String.valueOf(r.getRrcEnergy()));
+			writer.write(',');
+			writer.write(String.valueOf(r.getBurstEnergy()));
+			writer.write(',');
+			writer.write(String.valueOf(r.getPromotionRatio()));
+			writer.write(',');
+			writer.write(String.valueOf(r.getJoulesPerKilobyte()));
+			writer.write('\n');
+		}
+		writer.flush();
+	}
+
+	/**
+	 * Evaluates one profile. Only reads the analysis, so that profiles can be
+	 * evaluated concurrently.
+	 */
+	private Result evaluate(Profile profile, Map<String, String> parameters) {
+		logger.fine("Evaluating profile " + profile.getName() + " " + parameters);
+		List<PacketInfo> packets = analysis.getPackets();
+		TimeRange timeRange = analysis.getFilter() != null ? analysis.getFilter().getTimeRange()
+				: null;
+		List<RrcStateRange> ranges = simulation.run(profile,
+				analysis.getTraceData().getTraceDuration()).toStateRanges();
+		RRCStateMachine rrcStateMachine = new RRCStateMachine(profile, ranges, timeRange,
+				packets, analysis.getTotalBytes(), analysis.getPacketsDuration(), analysis
+						.getTraceData().getTraceDuration());
+		EnergyModel energyModel = new EnergyModel(analysis, profile, rrcStateMachine);
+
+		double burstEnergy = 0.0;
+		BurstCollectionAnalysis bcAnalysis = analysis.getBcAnalysis();
+		if (bcAnalysis != null && !bcAnalysis.getBurstCollection().isEmpty()) {
+			burstEnergy = BurstCollectionAnalysis.computeBurstEnergy(
+					bcAnalysis.getBurstCollection(), rrcStateMachine.getRRcStateRanges(),
+					profile, packets, null, null);
+		}
+		return new Result(profile, parameters, rrcStateMachine, energyModel, burstEnergy);
+	}
+
+	static String csvValue(String value) {
+		if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0) {
+			return "\"" + value.replace("\"", "\"\"") + "\"";
+		}
+		return value;
+	}
+}
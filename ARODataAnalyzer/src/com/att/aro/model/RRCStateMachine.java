@@ -89,12 +89,42 @@ public class RRCStateMachine implements Serializable {
 	 *            The trace analysis data.
 	 */
 	public RRCStateMachine(TraceData.Analysis analysisData) {
-        
-		TimeRange timeRange = analysisData.getFilter().getTimeRange();
-		if(timeRange == null){
-		this.rrc = RrcStateRange.runTrace(analysisData);
-		}else{
-			this.rrc = getRRCStatesForTheTimeRange(RrcStateRange.runTrace(analysisData) , timeRange.getBeginTime() , timeRange.getEndTime());
+		this(analysisData.getProfile(), RrcStateRange.runTrace(analysisData), analysisData
+				.getFilter().getTimeRange(), analysisData.getPackets(), analysisData
+				.getTotalBytes(), analysisData.getPacketsDuration(), analysisData.getTraceData()
+				.getTraceDuration());
+	}
+
+	/**
+	 * Initializes an instance of the RrcStateMachine class from state ranges
+	 * that have already been simulated for the specified profile. This is used
+	 * to evaluate other profiles against an existing analysis without
+	 * re-running it.
+	 * 
+	 * @param profile
+	 *            The device profile the state ranges were simulated with.
+	 * @param rrcRanges
+	 *            The simulated RRC state ranges of the whole trace.
+	 * @param timeRange
+	 *            The time range the statistics are limited to, or null.
+	 * @param packets
+	 *            The packets of the analysis.
+	 * @param totalBytes
+	 *            The total bytes of the packets of the analysis.
+	 * @param packetsDuration
+	 *            The duration of the packets of the analysis.
+	 * @param traceDuration
+	 *            The duration of the trace.
+	 */
+	RRCStateMachine(Profile profile, List<RrcStateRange> rrcRanges, TimeRange timeRange,
+			List<PacketInfo> packets, long totalBytes, double packetsDuration,
+			double traceDuration) {
+
+		if (timeRange == null) {
+			this.rrc = rrcRanges;
+		} else {
+			this.rrc = getRRCStatesForTheTimeRange(rrcRanges, timeRange.getBeginTime(),
+					timeRange.getEndTime());
 		}
 		if (logger.isLoggable(Level.FINER)) {
 			for (RrcStateRange r : rrc) {
@@ -102,25 +132,23 @@ public class RRCStateMachine implements Serializable {
 						+ ": "
 						+ (r.getEndTime() - r.getBeginTime())
 						+ " "
-						+ analysisData.getProfile().energy(r.getBeginTime(), r.getEndTime(),
-								r.getState(), analysisData.getPackets()));
+						+ profile.energy(r.getBeginTime(), r.getEndTime(), r.getState(),
+								packets));
 			}
 		}
 
-		this.packetsDuration = analysisData.getPacketsDuration();
-		this.traceDuration = analysisData.getTraceData().getTraceDuration();
-
-		final Profile profile = analysisData.getProfile();
+		this.packetsDuration = packetsDuration;
+		this.traceDuration = traceDuration;
 
 		if (profile instanceof Profile3G) {
 			// Perform analysis on 3G RRC data
-			run3GRRcStatistics(analysisData);
+			run3GRRcStatistics((Profile3G) profile, packets, totalBytes);
 		} else if (profile instanceof ProfileLTE) {
 			// Perform analysis on LTE RRC data
-			runLTERRcStatistics(analysisData);
+			runLTERRcStatistics((ProfileLTE) profile, packets, totalBytes);
 		}else if (profile instanceof ProfileWiFi) {
 			// Perform analysis on LTE RRC data
-			runWiFiRRcStatistics(analysisData);
+			runWiFiRRcStatistics((ProfileWiFi) profile, packets, totalBytes);
 		}
 
 		if (logger.isLoggable(Level.FINE)) {
@@ -139,7 +167,7 @@ public class RRCStateMachine implements Serializable {
 		}
 	}
 	
-	private List<RrcStateRange> getRRCStatesForTheTimeRange(List<RrcStateRange> rrcRanges , double beginTime , double endTime){
+	private static List<RrcStateRange> getRRCStatesForTheTimeRange(List<RrcStateRange> rrcRanges , double beginTime , double endTime){
 		
 		List<RrcStateRange> filteredRRCStates = new ArrayList<RrcStateRange>();
 		boolean stateAdded = false;
@@ -694,9 +722,8 @@ public class RRCStateMachine implements Serializable {
 	/**
 	 * 3G RRC state time modification.
 	 */
-	private synchronized void run3GRRcStatistics(TraceData.Analysis analysisData) {
-		final Profile3G prof3g = (Profile3G) analysisData.getProfile();
-		List<PacketInfo> packets = analysisData.getPackets();
+	private synchronized void run3GRRcStatistics(Profile3G prof3g, List<PacketInfo> packets,
+			long bytes) {
 		for (RrcStateRange rrc : this.rrc) {
 			double energy = prof3g.energy(rrc.getBeginTime(), rrc.getEndTime(), rrc.getState(),
 					packets);
@@ -740,16 +767,14 @@ public class RRCStateMachine implements Serializable {
 		}
 		this.totalRRCEnergy = fachEnergy + dchEnergy + fachToDchEnergy + idleToDchEnergy
 				+ idleEnergy;
-		long bytes = analysisData.getTotalBytes();
 		this.joulesPerKilobyte = bytes != 0 ? totalRRCEnergy / (bytes / 1000.0) : 0.0;
 	}
 
 	/**
 	 * LTE RRC state time modification.
 	 */
-	private synchronized void runLTERRcStatistics(TraceData.Analysis analysisData) {
-		ProfileLTE profile = (ProfileLTE) analysisData.getProfile();
-		List<PacketInfo> packets = analysisData.getPackets();
+	private synchronized void runLTERRcStatistics(ProfileLTE profile, List<PacketInfo> packets,
+			long bytes) {
 		for (RrcStateRange rrc : this.rrc) {
 			double d = rrc.getEndTime() - rrc.getBeginTime();
 			double energy = profile.energy(rrc.getBeginTime(), rrc.getEndTime(), rrc.getState(),
@@ -784,12 +809,10 @@ public class RRCStateMachine implements Serializable {
 				break;
 			}
 		}
-		long bytes = analysisData.getTotalBytes();
 		this.joulesPerKilobyte = bytes != 0 ? totalRRCEnergy / (bytes / 1000.0) : 0.0;
 	}
-	private synchronized void runWiFiRRcStatistics(TraceData.Analysis analysisData) {
-		ProfileWiFi profile = (ProfileWiFi) analysisData.getProfile();
-		List<PacketInfo> packets = analysisData.getPackets();
+	private synchronized void runWiFiRRcStatistics(ProfileWiFi profile, List<PacketInfo> packets,
+			long bytes) {
 		for (RrcStateRange rrc : this.rrc) {
 			double d = rrc.getEndTime() - rrc.getBeginTime();
 			double energy = profile.energy(rrc.getBeginTime(), rrc.getEndTime(), rrc.getState() , packets);
@@ -811,7 +834,6 @@ public class RRCStateMachine implements Serializable {
 				break;
 			}
 			}
-		long bytes = analysisData.getTotalBytes();
 		this.joulesPerKilobyte = bytes != 0 ? totalRRCEnergy / (bytes / 1000.0) : 0.0;
 	}
 }
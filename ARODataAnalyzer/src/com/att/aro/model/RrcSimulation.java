@@ -0,0 +1,1064 @@
+/*
+ *  Copyright 2012 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.att.aro.model.PacketInfo.Direction;
+
+/**
+ * Simulates the RRC state machine over the packets of a trace. The timestamp,
+ * size and direction of each packet are copied once into primitive arrays, so
+ * that the simulation can be run repeatedly for different profiles without
+ * touching the PacketInfo objects. The simulated state ranges are collected in
+ * a growable primitive buffer and are only converted into RrcStateRange
+ * objects when the results are requested.
+ */
+final class RrcSimulation {
+
+	private static final byte UPLINK = 0;
+	private static final byte DOWNLINK = 1;
+	private static final byte OTHER = 2;
+
+	private static final RRCState[] STATES = RRCState.values();
+
+	private final int count;
+	private final double[] timestamps;
+	private final int[] lengths;
+	private final byte[] dirs;
+
+	/**
+	 * Initializes an instance of the RrcSimulation class for the specified
+	 * packets.
+	 *
+	 * @param packets
+	 *            The packets of the trace, in timestamp order.
+	 */
+	RrcSimulation(List<PacketInfo> packets) {
+		this.count = packets.size();
+		this.timestamps = new double[count];
+		this.lengths = new int[count];
+		this.dirs = new byte[count];
+		int i = 0;
+		for (PacketInfo packet : packets) {
+			timestamps[i] = packet.getTimeStamp();
+			lengths[i] = packet.getLen();
+			Direction dir = packet.getDir();
+			dirs[i] = dir == Direction.UPLINK ? UPLINK : dir == Direction.DOWNLINK ? DOWNLINK
+					: OTHER;
+			++i;
+		}
+	}
+
+	/**
+	 * Returns the number of packets in the simulation.
+	 *
+	 * @return The packet count.
+	 */
+	int getPacketCount() {
+		return count;
+	}
+
+	/**
+	 * Runs the simulation for the specified profile. This method does not
+	 * modify the simulation and may be called concurrently.
+	 *
+	 * @param profile
+	 *            The device profile.
+	 * @param traceDuration
+	 *            The duration of the trace.
+	 * @return The result of the simulation.
+	 */
+	Result run(Profile profile, double traceDuration) {
+		return run(profile, traceDuration, null);
+	}
+
+	/**
+	 * Runs the simulation for the specified profile, checking the specified
+	 * token every few thousand packets.
+	 *
+	 * @param profile
+	 *            The device profile.
+	 * @param traceDuration
+	 *            The duration of the trace.
+	 * @param token
+	 *            The token that cancels the simulation, or null.
+	 * @return The result of the simulation.
+	 * @throws java.util.concurrent.CancellationException
+	 *             when the token is cancelled.
+	 */
+	Result run(Profile profile, double traceDuration, CancellationToken token) {
+		if (profile instanceof Profile3G) {
+			return run3G((Profile3G) profile, traceDuration, token);
+		} else if (profile instanceof ProfileLTE) {
+			return runLTE((ProfileLTE) profile, traceDuration, token);
+		} else if (profile instanceof ProfileWiFi) {
+			return runWiFi((ProfileWiFi) profile, traceDuration, token);
+		} else {
+			throw new IllegalArgumentException("Invalid profile type for state machine: "
+					+ profile.getClass());
+		}
+	}
+
+	/**
+	 * The state ranges and per packet states produced by one run of the
+	 * simulation.
+	 */
+	static final class Result {
+		private final RangeBuffer ranges;
+		private final RRCState[] packetStates;
+
+		private Result(RangeBuffer ranges, RRCState[] packetStates) {
+			this.ranges = ranges;
+			this.packetStates = packetStates;
+		}
+
+		/**
+		 * Returns the simulated state ranges.
+		 */
+		RangeBuffer getRanges() {
+			return ranges;
+		}
+
+		/**
+		 * Sets the simulated RRC state on each of the packets. The packets
+		 * must be the ones the simulation was created from.
+		 */
+		void applyPacketStates(List<PacketInfo> packets) {
+			int i = 0;
+			for (PacketInfo packet : packets) {
+				packet.setStateMachine(packetStates[i++]);
+			}
+		}
+
+		/**
+		 * Returns the simulated state ranges as a list of RrcStateRange.
+		 */
+		List<RrcStateRange> toStateRanges() {
+			return ranges.toStateRanges();
+		}
+	}
+
+	/**
+	 * Growable buffer of state ranges stored in parallel primitive arrays.
+	 */
+	static final class RangeBuffer {
+		private double[] begin;
+		private double[] end;
+		private byte[] state;
+		private int size;
+
+		RangeBuffer(int capacity) {
+			capacity = Math.max(capacity, 16);
+			this.begin = new double[capacity];
+			this.end = new double[capacity];
+			this.state = new byte[capacity];
+		}
+
+		int size() {
+			return size;
+		}
+
+		double getBegin(int i) {
+			return begin[i];
+		}
+
+		double getEnd(int i) {
+			return end[i];
+		}
+
+		RRCState getState(int i) {
+			return STATES[state[i]];
+		}
+
+		void add(double beginTime, double endTime, RRCState rrcState) {
+			add(beginTime, endTime, (byte) rrcState.ordinal());
+		}
+
+		private void add(double beginTime, double endTime, byte rrcState) {
+			if (size == begin.length) {
+				int capacity = size * 2;
+				double[] newBegin = new double[capacity];
+				double[] newEnd = new double[capacity];
+				byte[] newState = new byte[capacity];
+				System.arraycopy(begin, 0, newBegin, 0, size);
+				System.arraycopy(end, 0, newEnd, 0, size);
+				System.arraycopy(state, 0, newState, 0, size);
+				begin = newBegin;
+				end = newEnd;
+				state = newState;
+			}
+			begin[size] = beginTime;
+			end[size] = endTime;
+			state[size] = rrcState;
+			++size;
+		}
+
+		private void truncate(int newSize) {
+			size = newSize;
+		}
+
+		/**
+		 * Converts the buffer into a list of RrcStateRange objects.
+		 */
+		List<RrcStateRange> toStateRanges() {
+			List<RrcStateRange> result = new ArrayList<RrcStateRange>(size);
+			for (int i = 0; i < size; ++i) {
+				result.add(new RrcStateRange(begin[i], end[i], STATES[state[i]]));
+			}
+			return result;
+		}
+
+		/**
+		 * Stable sort of the ranges by begin time, followed by merging
+		 * consecutive ranges that have the same state.
+		 */
+		private RangeBuffer compress() {
+			int[] order = sortedOrder();
+			RangeBuffer result = new RangeBuffer(size);
+			if (size > 0) {
+				int first = order[0];
+				byte runState = state[first];
+				double runBegin = begin[first];
+				for (int i = 1; i < size; ++i) {
+					int idx = order[i];
+					if (state[idx] != runState) {
+						result.add(runBegin, end[order[i - 1]], runState);
+						runState = state[idx];
+						runBegin = begin[idx];
+					}
+				}
+				result.add(runBegin, end[order[size - 1]], runState);
+			}
+			return result;
+		}
+
+		/**
+		 * Returns the indexes of the ranges in stable begin time order. The
+		 * ranges are nearly always appended in order already, in which case
+		 * no sorting is done.
+		 */
+		private int[] sortedOrder() {
+			int[] order = new int[size];
+			boolean sorted = true;
+			for (int i = 0; i < size; ++i) {
+				order[i] = i;
+				if (i > 0 && Double.compare(begin[i], begin[i - 1]) < 0) {
+					sorted = false;
+				}
+			}
+			if (!sorted) {
+				mergeSort(order, new int[size], 0, size);
+			}
+			return order;
+		}
+
+		private void mergeSort(int[] order, int[] scratch, int from, int to) {
+			if (to - from < 2) {
+				return;
+			}
+			int mid = (from + to) >>> 1;
+			mergeSort(order, scratch, from, mid);
+			mergeSort(order, scratch, mid, to);
+			if (Double.compare(begin[order[mid - 1]], begin[order[mid]]) <= 0) {
+				return;
+			}
+			System.arraycopy(order, from, scratch, from, to - from);
+			int i = from;
+			int j = mid;
+			for (int k = from; k < to; ++k) {
+				if (j >= to || (i < mid && Double.compare(begin[scratch[i]], begin[scratch[j]]) <= 0)) {
+					order[k] = scratch[i++];
+				} else {
+					order[k] = scratch[j++];
+				}
+			}
+		}
+
+		/**
+		 * Removes the ranges that begin after the end of the trace, clips the
+		 * ranges that end after it and fills any remaining time at the end of
+		 * the trace with the idle state.
+		 */
+		private RangeBuffer truncate(double traceDuration, RRCState idleState) {
+			RangeBuffer result = new RangeBuffer(size + 1);
+			double prevTimeStamp = 0.0;
+			for (int i = 0; i < size; ++i) {
+				double rangeEnd = end[i] > traceDuration ? traceDuration : end[i];
+				if (begin[i] < traceDuration) {
+					result.add(begin[i], rangeEnd, state[i]);
+				}
+				prevTimeStamp = rangeEnd;
+			}
+			if (prevTimeStamp < traceDuration) {
+
+				// Add idle time to end of trace
+				result.add(prevTimeStamp, traceDuration, idleState);
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * Simulates the RRC states for an LTE profile.
+	 */
+	private Result runLTE(ProfileLTE profile, double traceDuration, CancellationToken token) {
+		RangeBuffer result = new RangeBuffer(count / 4);
+		RRCState[] packetStates = new RRCState[count];
+
+		if (count > 0) {
+			double promotionTime = profile.getPromotionTime();
+			double inactivityTimer = profile.getInactivityTimer();
+			double drxShortTime = profile.getDrxShortTime();
+			double drxLongTime = profile.getDrxLongTime();
+
+			// Track time of state changes
+			double timer = 0.0;
+
+			// Keep timestamp of previous packet in iteration
+			packetStates[0] = RRCState.LTE_CONTINUOUS;
+			double last = timestamps[0];
+
+			// First packet starts continuous reception
+			timer = promoteLTE(result, timer, last, promotionTime);
+			for (int i = 1; i < count; ++i) {
+				checkCancelled(token, i);
+				packetStates[i] = RRCState.LTE_CONTINUOUS;
+				double curr = timestamps[i];
+
+				// Check to see if we dropped to CR tail
+				if (curr - last > inactivityTimer) {
+					timer = tailLTE(result, timer, last, curr, inactivityTimer, drxShortTime,
+							drxLongTime);
+
+					// If end of tail was reached, we need to promote for new
+					// packet
+					if (timer < curr) {
+						timer = promoteLTE(result, timer, curr, promotionTime);
+					}
+				}
+
+				// Save current packet time as last packet for next iteration
+				last = curr;
+			}
+
+			// Do final LTE tail
+			timer = tailLTE(result, timer, last, traceDuration, inactivityTimer, drxShortTime,
+					drxLongTime);
+
+			// Check for final idle time
+			if (timer < traceDuration) {
+				result.add(timer, traceDuration, RRCState.LTE_IDLE);
+			}
+		} else {
+
+			// State is idle for the entire trace
+			result.add(0.0, traceDuration, RRCState.LTE_IDLE);
+		}
+		return new Result(result, packetStates);
+	}
+
+	/**
+	 * Checks the token every 4096 packets of a simulation.
+	 */
+	private static void checkCancelled(CancellationToken token, int packetIndex) {
+		if (token != null && (packetIndex & 0xfff) == 0) {
+			token.checkCancelled();
+		}
+	}
+
+	/**
+	 * Creates the IDLE and PROMOTION state ranges for promoting between LTE
+	 * idle and continuous reception, and returns the time at which the
+	 * promotion is complete.
+	 */
+	private static double promoteLTE(RangeBuffer result, double start, double end,
+			double promotionTime) {
+
+		// Find the time that the promotion started before the packet was
+		// received
+		double promoStart = Math.max(start, end - promotionTime);
+
+		// Check to see if there was some IDLE time
+		if (promoStart > start) {
+			result.add(start, promoStart, RRCState.LTE_IDLE);
+		}
+
+		// Add the promotion state range
+		result.add(promoStart, end, RRCState.LTE_PROMOTION);
+		return end;
+	}
+
+	/**
+	 * Creates the state ranges for an LTE tail sequence, and returns the time
+	 * at which the tail sequence was completed or stopped.
+	 */
+	private static double tailLTE(RangeBuffer result, double timer, double start, double end,
+			double inactivityTimer, double drxShortTime, double drxLongTime) {
+
+		// Add the continuous reception time
+		result.add(timer, start, RRCState.LTE_CONTINUOUS);
+
+		// Check for CR tail time
+		timer = Math.min(start + inactivityTimer, end);
+		if (timer > start) {
+			result.add(start, timer, RRCState.LTE_CR_TAIL);
+			start = timer;
+		}
+
+		// Check for DRX short tail time
+		timer = Math.min(start + drxShortTime, end);
+		if (timer > start) {
+			result.add(start, timer, RRCState.LTE_DRX_SHORT);
+			start = timer;
+		}
+
+		// Check for DRX long tail time
+		timer = Math.min(start + drxLongTime, end);
+		if (timer > start) {
+			result.add(start, timer, RRCState.LTE_DRX_LONG);
+			start = timer;
+		}
+		return timer;
+	}
+
+	/**
+	 * Simulates the states for a WiFi profile.
+	 */
+	private Result runWiFi(ProfileWiFi profile, double traceDuration, CancellationToken token) {
+		RangeBuffer result = new RangeBuffer(count / 4);
+		RRCState[] packetStates = new RRCState[count];
+
+		if (count > 0) {
+			double wifiTailTime = profile.getWifiTailTime();
+
+			// Track time of state changes
+			double timer = 0.0;
+
+			// Keep timestamp of previous packet in iteration
+			packetStates[0] = RRCState.WIFI_ACTIVE;
+			double last = timestamps[0];
+
+			// Idle state till first packet is received
+			result.add(timer, last, RRCState.WIFI_IDLE);
+			timer = last;
+
+			for (int i = 1; i < count; ++i) {
+				checkCancelled(token, i);
+				packetStates[i] = RRCState.WIFI_ACTIVE;
+				double curr = timestamps[i];
+
+				// Check to see if we dropped to WiFi Active
+				if (curr - last > wifiTailTime) {
+					timer = tailWiFi(result, timer, last, curr, wifiTailTime);
+
+					// If end of tail was reached, we need to the idle time
+					// before the next packet arrives
+					if (timer < curr) {
+						result.add(timer, curr, RRCState.WIFI_IDLE);
+						timer = curr;
+					}
+				}
+
+				// Save current packet time as last packet for next iteration
+				last = curr;
+			}
+
+			// Do final WiFi tail
+			timer = tailWiFi(result, timer, last, traceDuration, wifiTailTime);
+
+			// Check for final idle time
+			if (timer < traceDuration) {
+				result.add(timer, traceDuration, RRCState.WIFI_IDLE);
+			}
+		} else {
+
+			// State is idle for the entire trace
+			result.add(0.0, traceDuration, RRCState.WIFI_IDLE);
+		}
+		return new Result(result, packetStates);
+	}
+
+	private static double tailWiFi(RangeBuffer result, double timer, double start, double end,
+			double wifiTailTime) {
+
+		// Add the continuous reception time
+		result.add(timer, start, RRCState.WIFI_ACTIVE);
+
+		// Check for CR tail time
+		timer = Math.min(start + wifiTailTime, end);
+		if (timer > start) {
+			result.add(start, timer, RRCState.WIFI_TAIL);
+		}
+		return timer;
+	}
+
+	/**
+	 * Simulates the RRC states for a 3G profile.
+	 */
+	private Result run3G(Profile3G profile, double traceDuration, CancellationToken token) {
+		RangeBuffer result = new RangeBuffer(count / 2);
+		RRCState[] packetStates = new RRCState[count];
+
+		if (count > 0) {
+
+			// Get important profile info
+			double idleDchPromoAvg = profile.getIdleDchPromoAvg();
+			double idleDchPromoMin = profile.getIdleDchPromoMin();
+			double idleDchPromoMax = profile.getIdleDchPromoMax();
+			double fachDchPromoAvg = profile.getFachDchPromoAvg();
+			double fachDchPromoMin = profile.getFachDchPromoMin();
+			double fachDchPromoMax = profile.getFachDchPromoMax();
+			double dchFachTimer = profile.getDchFachTimer();
+			double fachIdleTimer = profile.getFachIdleTimer();
+
+			double timer = 0;
+
+			DchDemotionQueue dchDemotionQueue = new DchDemotionQueue(profile);
+			FachQueue fachQueue = new FachQueue(profile);
+
+			// Set up initial packet
+			double currTimeStamp = timestamps[0];
+			packetStates[0] = RRCState.PROMO_IDLE_DCH;
+
+			// Add initial idle state
+			addStateRangeEx(result, 0, Double.MAX_VALUE, RRCState.STATE_IDLE, currTimeStamp);
+
+			for (int i = 1; i <= count; ++i) {
+				checkCancelled(token, i);
+				byte dir;
+				int currLen;
+				if (i >= count) {
+
+					// The last iteration of this loop
+					dir = UPLINK;
+					currTimeStamp = Double.MAX_VALUE;
+					currLen = 0;
+				} else {
+
+					// Iteration on a packet
+					dir = dirs[i];
+					currTimeStamp = timestamps[i];
+					currLen = lengths[i];
+				}
+				double prevTimeStamp = timestamps[i - 1];
+				double deltaTime = currTimeStamp - prevTimeStamp;
+
+				RRCState state = null; // the next state to be determined
+				RRCState promoState = packetStates[i - 1];
+				switch (promoState) {
+				case PROMO_IDLE_DCH:
+				case PROMO_FACH_DCH: {
+					double promoAvg, promoMin, promoMax;
+					if (promoState == RRCState.PROMO_IDLE_DCH) {
+						promoAvg = idleDchPromoAvg;
+						promoMin = idleDchPromoMin;
+						promoMax = idleDchPromoMax;
+					} else {
+						promoAvg = fachDchPromoAvg;
+						promoMin = fachDchPromoMin;
+						promoMax = fachDchPromoMax;
+					}
+
+					if ((dir == UPLINK || dir == DOWNLINK) && timer + deltaTime <= promoMin) { // Case 1
+						prevTimeStamp = addStateRangeEx(result, prevTimeStamp, Double.MAX_VALUE,
+								promoState, currTimeStamp);
+						state = promoState;
+						timer += deltaTime;
+
+					} else if (timer + deltaTime <= promoMax) { // Case 2
+						prevTimeStamp = addStateRangeEx(result, prevTimeStamp, Double.MAX_VALUE,
+								promoState, currTimeStamp);
+						state = RRCState.STATE_DCH;
+
+						dchDemotionQueue.init(currTimeStamp, currLen, dir);
+
+					} else if (timer + deltaTime <= promoAvg + dchFachTimer) { // Case 3
+						prevTimeStamp = addStateRangeEx(result, prevTimeStamp, promoAvg - timer,
+								promoState, currTimeStamp);
+						prevTimeStamp = addStateRangeEx(result, prevTimeStamp, Double.MAX_VALUE,
+								RRCState.STATE_DCH, currTimeStamp);
+						state = RRCState.STATE_DCH;
+
+						dchDemotionQueue.init(currTimeStamp, currLen, dir);
+
+					} else if (timer + deltaTime <= promoAvg + dchFachTimer + fachIdleTimer) { // Case 4
+						if (dir == DOWNLINK) {
+							fachQueue.init();
+							if (fachQueue.simFACH(currTimeStamp, dir, currLen)) { // FACH->DCH
+								double tMax0 = currTimeStamp - fachDchPromoAvg;
+								prevTimeStamp = addStateRangeEx(result, prevTimeStamp, promoAvg
+										- timer, promoState, tMax0);
+								prevTimeStamp = addStateRangeEx(result, prevTimeStamp,
+										dchFachTimer, RRCState.TAIL_DCH, tMax0);
+								prevTimeStamp = addStateRangeEx(result, prevTimeStamp,
+										Double.MAX_VALUE, RRCState.STATE_FACH, tMax0);
+								prevTimeStamp = addStateRangeEx(result, prevTimeStamp,
+										Double.MAX_VALUE, RRCState.PROMO_FACH_DCH, currTimeStamp);
+								state = RRCState.STATE_DCH;
+
+								dchDemotionQueue.init(currTimeStamp, currLen, dir);
+
+							} else {
+								prevTimeStamp = addStateRangeEx(result, prevTimeStamp, promoAvg
+										- timer, promoState, currTimeStamp);
+								prevTimeStamp = addStateRangeEx(result, prevTimeStamp,
+										dchFachTimer, RRCState.TAIL_DCH, currTimeStamp);
+								prevTimeStamp = addStateRangeEx(result, prevTimeStamp,
+										Double.MAX_VALUE, RRCState.STATE_FACH, currTimeStamp);
+								state = RRCState.STATE_FACH;
+							}
+						} else {
+							fachQueue.init();
+							prevTimeStamp = addStateRangeEx(result, prevTimeStamp,
+									promoAvg - timer, promoState, currTimeStamp);
+							prevTimeStamp = addStateRangeEx(result, prevTimeStamp, dchFachTimer,
+									RRCState.TAIL_DCH, currTimeStamp);
+							prevTimeStamp = addStateRangeEx(result, prevTimeStamp,
+									Double.MAX_VALUE, RRCState.STATE_FACH, currTimeStamp);
+							if (fachQueue.simFACH(currTimeStamp, dir, currLen)) {
+								state = RRCState.PROMO_FACH_DCH;
+								timer = 0;
+							} else {
+								state = RRCState.STATE_FACH;
+							}
+						}
+					} else { // case 5
+						if (dir == UPLINK) {
+							prevTimeStamp = addStateRangeEx(result, prevTimeStamp,
+									promoAvg - timer, promoState, currTimeStamp);
+							prevTimeStamp = addStateRangeEx(result, prevTimeStamp, dchFachTimer,
+									RRCState.TAIL_DCH, currTimeStamp);
+							prevTimeStamp = addStateRangeEx(result, prevTimeStamp, fachIdleTimer,
+									RRCState.TAIL_FACH, currTimeStamp);
+							prevTimeStamp = addStateRangeEx(result, prevTimeStamp,
+									Double.MAX_VALUE, RRCState.STATE_IDLE, currTimeStamp);
+							state = RRCState.PROMO_IDLE_DCH;
+							timer = 0;
+						} else {
+							double tMax0 = currTimeStamp - idleDchPromoAvg;
+							prevTimeStamp = addStateRangeEx(result, prevTimeStamp,
+									promoAvg - timer, promoState, tMax0);
+							prevTimeStamp = addStateRangeEx(result, prevTimeStamp, dchFachTimer,
+									RRCState.TAIL_DCH, tMax0);
+							prevTimeStamp = addStateRangeEx(result, prevTimeStamp, fachIdleTimer,
+									RRCState.TAIL_FACH, tMax0);
+							prevTimeStamp = addStateRangeEx(result, prevTimeStamp,
+									Double.MAX_VALUE, RRCState.STATE_IDLE, tMax0);
+							prevTimeStamp = addStateRangeEx(result, prevTimeStamp,
+									Double.MAX_VALUE, RRCState.PROMO_IDLE_DCH, currTimeStamp);
+							state = RRCState.STATE_DCH;
+
+							dchDemotionQueue.init(currTimeStamp, currLen, dir);
+						}
+					}
+					break;
+				}
+
+				case STATE_DCH: {
+					double dchTail = dchDemotionQueue.getDCHTail(); // Dynamic DCH tail
+
+					if (deltaTime <= dchTail + 1e-5) { // DCH Case 1
+						prevTimeStamp = addStateRangeEx(result, prevTimeStamp, Double.MAX_VALUE,
+								RRCState.STATE_DCH, currTimeStamp);
+						state = RRCState.STATE_DCH;
+
+						dchDemotionQueue.update(currTimeStamp, currLen, dir);
+
+					} else if (deltaTime <= dchTail + fachIdleTimer) { // DCH Case 2
+						if (dir == DOWNLINK) {
+							fachQueue.init();
+							if (fachQueue.simFACH(currTimeStamp, dir, currLen)) {
+								double tMax0 = currTimeStamp - fachDchPromoAvg;
+								changeStateRangeBack(result, dchFachTimer - dchTail,
+										RRCState.TAIL_DCH);
+								prevTimeStamp = addStateRangeEx(result, prevTimeStamp, dchTail,
+										RRCState.TAIL_DCH, tMax0);
+								prevTimeStamp = addStateRangeEx(result, prevTimeStamp,
+										Double.MAX_VALUE, RRCState.STATE_FACH, tMax0);
+								prevTimeStamp = addStateRangeEx(result, prevTimeStamp,
+										Double.MAX_VALUE, RRCState.PROMO_FACH_DCH, currTimeStamp);
+								state = RRCState.STATE_DCH;
+
+								dchDemotionQueue.init(currTimeStamp, currLen, dir);
+
+							} else {
+								changeStateRangeBack(result, dchFachTimer - dchTail,
+										RRCState.TAIL_DCH);
+								prevTimeStamp = addStateRangeEx(result, prevTimeStamp, dchTail,
+										RRCState.TAIL_DCH, currTimeStamp);
+								prevTimeStamp = addStateRangeEx(result, prevTimeStamp,
+										Double.MAX_VALUE, RRCState.STATE_FACH, currTimeStamp);
+								state = RRCState.STATE_FACH;
+							}
+						} else {
+							fachQueue.init();
+							changeStateRangeBack(result, dchFachTimer - dchTail,
+									RRCState.TAIL_DCH);
+							prevTimeStamp = addStateRangeEx(result, prevTimeStamp, dchTail,
+									RRCState.TAIL_DCH, currTimeStamp);
+							prevTimeStamp = addStateRangeEx(result, prevTimeStamp,
+									Double.MAX_VALUE, RRCState.STATE_FACH, currTimeStamp);
+							if (fachQueue.simFACH(currTimeStamp, dir, currLen)) {
+								state = RRCState.PROMO_FACH_DCH;
+								timer = 0;
+							} else {
+								state = RRCState.STATE_FACH;
+							}
+						}
+					} else { // DCH Case 3
+						if (dir == UPLINK) {
+							changeStateRangeBack(result, dchFachTimer - dchTail,
+									RRCState.TAIL_DCH);
+							prevTimeStamp = addStateRangeEx(result, prevTimeStamp, dchTail,
+									RRCState.TAIL_DCH, currTimeStamp);
+							prevTimeStamp = addStateRangeEx(result, prevTimeStamp, fachIdleTimer,
+									RRCState.TAIL_FACH, currTimeStamp);
+							prevTimeStamp = addStateRangeEx(result, prevTimeStamp,
+									Double.MAX_VALUE, RRCState.STATE_IDLE, currTimeStamp);
+							state = RRCState.PROMO_IDLE_DCH;
+							timer = 0;
+						} else {
+							double tMax0 = currTimeStamp - idleDchPromoAvg;
+							changeStateRangeBack(result, dchFachTimer - dchTail,
+									RRCState.TAIL_DCH);
+							prevTimeStamp = addStateRangeEx(result, prevTimeStamp, dchTail,
+									RRCState.TAIL_DCH, tMax0);
+							prevTimeStamp = addStateRangeEx(result, prevTimeStamp, fachIdleTimer,
+									RRCState.TAIL_FACH, tMax0);
+							prevTimeStamp = addStateRangeEx(result, prevTimeStamp,
+									Double.MAX_VALUE, RRCState.STATE_IDLE, tMax0);
+							prevTimeStamp = addStateRangeEx(result, prevTimeStamp,
+									Double.MAX_VALUE, RRCState.PROMO_IDLE_DCH, currTimeStamp);
+							state = RRCState.STATE_DCH;
+
+							dchDemotionQueue.init(currTimeStamp, currLen, dir);
+						}
+					}
+					break;
+				}
+
+				case STATE_FACH: {
+					if (deltaTime <= fachIdleTimer) {
+						if (dir == UPLINK) {
+							prevTimeStamp = addStateRangeEx(result, prevTimeStamp,
+									Double.MAX_VALUE, RRCState.STATE_FACH, currTimeStamp);
+							if (fachQueue.simFACH(currTimeStamp, dir, currLen)) {
+								state = RRCState.PROMO_FACH_DCH;
+								timer = 0;
+							} else {
+								state = RRCState.STATE_FACH;
+							}
+						} else {
+							if (fachQueue.simFACH(currTimeStamp, dir, currLen)) {
+								double tMax0 = currTimeStamp - fachDchPromoAvg;
+
+								// TODO: ( diff ) handle the case where promo
+								// delay is 0 ( for what - if )
+								if (tMax0 > prevTimeStamp || fachDchPromoAvg < 1e-6) {
+									prevTimeStamp = addStateRangeEx(result, prevTimeStamp,
+											Double.MAX_VALUE, RRCState.STATE_FACH, tMax0);
+									prevTimeStamp = addStateRangeEx(result, prevTimeStamp,
+											Double.MAX_VALUE, RRCState.PROMO_FACH_DCH,
+											currTimeStamp);
+								} else {
+
+									// Handle an error situation here: a
+									// DOWNLINK DCH packet follows "immediately"
+									// after a packet on FACH
+									tMax0 = currTimeStamp - fachDchPromoMin;
+									if (tMax0 > prevTimeStamp) {
+										prevTimeStamp = addStateRangeEx(result, prevTimeStamp,
+												Double.MAX_VALUE, RRCState.STATE_FACH, tMax0);
+										prevTimeStamp = addStateRangeEx(result, prevTimeStamp,
+												Double.MAX_VALUE, RRCState.PROMO_FACH_DCH,
+												currTimeStamp);
+									} else if (!insertEarlierPromotion(result, packetStates, i,
+											currTimeStamp, prevTimeStamp, fachDchPromoMin,
+											fachDchPromoAvg)) {
+
+										// Still not working - force it on FACH
+										prevTimeStamp = addStateRangeEx(result, prevTimeStamp,
+												Double.MAX_VALUE, RRCState.STATE_FACH,
+												currTimeStamp);
+										fachQueue.init();
+									}
+								} // finish handling the error case
+
+								state = RRCState.STATE_DCH;
+								dchDemotionQueue.init(currTimeStamp, currLen, dir);
+
+							} else {
+								prevTimeStamp = addStateRangeEx(result, prevTimeStamp,
+										Double.MAX_VALUE, RRCState.STATE_FACH, currTimeStamp);
+								state = RRCState.STATE_FACH;
+							}
+
+						}
+					} else {
+						if (dir == UPLINK) {
+							prevTimeStamp = addStateRangeEx(result, prevTimeStamp, fachIdleTimer,
+									RRCState.TAIL_FACH, currTimeStamp);
+							prevTimeStamp = addStateRangeEx(result, prevTimeStamp,
+									Double.MAX_VALUE, RRCState.STATE_IDLE, currTimeStamp);
+							state = RRCState.PROMO_IDLE_DCH;
+							timer = 0;
+						} else {
+							double tMax0 = currTimeStamp - idleDchPromoAvg;
+							prevTimeStamp = addStateRangeEx(result, prevTimeStamp, fachIdleTimer,
+									RRCState.TAIL_FACH, tMax0);
+							prevTimeStamp = addStateRangeEx(result, prevTimeStamp,
+									Double.MAX_VALUE, RRCState.STATE_IDLE, tMax0);
+							prevTimeStamp = addStateRangeEx(result, prevTimeStamp,
+									Double.MAX_VALUE, RRCState.PROMO_IDLE_DCH, currTimeStamp);
+
+							state = RRCState.STATE_DCH;
+
+							dchDemotionQueue.init(currTimeStamp, currLen, dir);
+						}
+					}
+					break;
+				}
+				default:
+					throw new IllegalStateException("Unexpected packet state: " + promoState);
+				}
+
+				if (i < count) {
+					packetStates[i] = state;
+				}
+			}
+		}
+
+		return new Result(result.compress().truncate(traceDuration, RRCState.STATE_IDLE),
+				packetStates);
+	}
+
+	/**
+	 * Tries to insert a FACH to DCH promotion after an earlier uplink packet
+	 * that was sent in the FACH state, replacing the state ranges that were
+	 * simulated since that packet.
+	 *
+	 * @return true if an earlier FACH packet was found to promote from.
+	 */
+	private boolean insertEarlierPromotion(RangeBuffer result, RRCState[] packetStates, int i,
+			double currTimeStamp, double prevTimeStamp, double fachDchPromoMin,
+			double fachDchPromoAvg) {
+		for (int ii = i - 1; ii > 0; ii--) {
+			if (packetStates[ii] != RRCState.STATE_FACH) {
+				return false;
+			}
+
+			// FACH-DCH promo: from packets[ii].ts to packets[ii].ts+y
+			// DCH: from packets[ii].ts+y to tMax
+			double t0 = timestamps[ii];
+			if (dirs[ii] == UPLINK && currTimeStamp >= t0 + fachDchPromoMin) {
+				for (int jj = result.size() - 1; jj > 0; jj--) {
+					if (result.getBegin(jj) == t0) {
+						result.truncate(jj);
+
+						double yy;
+						if (currTimeStamp >= t0 + fachDchPromoAvg) {
+							yy = fachDchPromoAvg;
+						} else {
+							yy = fachDchPromoMin;
+						}
+
+						result.add(t0, t0 + yy, RRCState.PROMO_FACH_DCH);
+						result.add(t0 + yy, prevTimeStamp, RRCState.STATE_DCH);
+						addStateRangeEx(result, prevTimeStamp, Double.MAX_VALUE,
+								RRCState.STATE_DCH, currTimeStamp);
+						break;
+					}
+				}
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Adds a state range of the specified duration, clipped at tMax, and
+	 * returns the end of the added range.
+	 */
+	private static double addStateRangeEx(RangeBuffer rrc, double t, double duration,
+			RRCState state, double tMax) {
+		if (t >= tMax || duration <= 0)
+			return t;
+		if (t + duration > tMax)
+			duration = tMax - t;
+
+		double end = t + duration;
+		rrc.add(t, end, state);
+		return end;
+	}
+
+	/**
+	 * Changes the state of the most recent state ranges, covering the
+	 * specified duration, to the new state.
+	 */
+	private static void changeStateRangeBack(RangeBuffer rrc, double duration, RRCState newState) {
+
+		final double EPS = 1e-5;
+
+		if (duration < EPS)
+			return;
+
+		byte state = (byte) newState.ordinal();
+		for (int i = rrc.size - 1; i >= 0; i--) {
+			rrc.state[i] = state;
+			duration -= rrc.end[i] - rrc.begin[i];
+
+			if (duration > EPS)
+				continue;
+			return;
+		}
+	}
+
+	/**
+	 * Handles the calculation related to DCH State and DCH Tail State.
+	 */
+	private static final class DchDemotionQueue {
+		private final double dchTimerResetWin;
+		private final int dchTimerResetSize;
+		private final double dchFachTimer;
+		private int dchDemotionQueueUL = -1;
+		private int dchDemotionQueueDL = -1;
+		private double dchTimerResetTS;
+		private double dchLastPktTSUL;
+		private double dchLastPktTSDL;
+
+		DchDemotionQueue(Profile3G profile) {
+			this.dchTimerResetWin = profile.getDchTimerResetWin();
+			this.dchTimerResetSize = profile.getDchTimerResetSize();
+			this.dchFachTimer = profile.getDchFachTimer();
+		}
+
+		/**
+		 * Initialize the DCH state information.
+		 */
+		void init(double ts, int size, byte dir) {
+			if (dir == UPLINK) {
+				dchDemotionQueueUL = size;
+				dchDemotionQueueDL = 0;
+				dchLastPktTSUL = ts;
+				dchLastPktTSDL = -9999.0f;
+			} else if (dir == DOWNLINK) {
+				dchDemotionQueueUL = 0;
+				dchDemotionQueueDL = size;
+				dchLastPktTSDL = ts;
+				dchLastPktTSUL = -9999.0f;
+			}
+
+			dchTimerResetTS = ts;
+		}
+
+		/**
+		 * Updates the RRC information in existing RRC state.
+		 */
+		void update(double ts, int size, byte dir) {
+			if (dir == UPLINK) {
+				if (ts > dchLastPktTSUL + dchTimerResetWin) {
+					dchDemotionQueueUL = size;
+				} else {
+					dchDemotionQueueUL += size;
+				}
+				if (ts > dchLastPktTSDL + dchTimerResetWin)
+					dchDemotionQueueDL = 0;
+				dchLastPktTSUL = ts;
+			} else if (dir == DOWNLINK) {
+				if (ts > dchLastPktTSDL + dchTimerResetWin) {
+					dchDemotionQueueDL = size;
+				} else {
+					dchDemotionQueueDL += size;
+				}
+				if (ts > dchLastPktTSUL + dchTimerResetWin)
+					dchDemotionQueueUL = 0;
+				dchLastPktTSDL = ts;
+			}
+
+			if (dchDemotionQueueUL >= dchTimerResetSize
+					|| dchDemotionQueueDL >= dchTimerResetSize) {
+				dchTimerResetTS = ts;
+			}
+		}
+
+		double getDCHTail() {
+			double lastTS = Math.max(dchLastPktTSDL, dchLastPktTSUL);
+			return dchFachTimer - (lastTS - dchTimerResetTS);
+		}
+	}
+
+	/**
+	 * Simulates the RLC buffers in the FACH state.
+	 */
+	private static final class FachQueue {
+		private final double rlcUlRateP0;
+		private final double rlcUlRateP1;
+		private final double rlcUlRateP2;
+		private final double rlcDlRateP0;
+		private final double rlcDlRateP1;
+		private final double rlcDlRateP2;
+		private final int rlcUlTh;
+		private final int rlcDlTh;
+		private int ulQueue, dlQueue;
+		private double ulTS, dlTS;
+
+		FachQueue(Profile3G profile) {
+			this.rlcUlRateP0 = profile.getRlcUlRateP0();
+			this.rlcUlRateP1 = profile.getRlcUlRateP1();
+			this.rlcUlRateP2 = profile.getRlcUlRateP2();
+			this.rlcDlRateP0 = profile.getRlcDlRateP0();
+			this.rlcDlRateP1 = profile.getRlcDlRateP1();
+			this.rlcDlRateP2 = profile.getRlcDlRateP2();
+			this.rlcUlTh = profile.getRlcUlTh();
+			this.rlcDlTh = profile.getRlcDlTh();
+		}
+
+		/**
+		 * Initialize the FACH data.
+		 */
+		void init() {
+			ulQueue = dlQueue = 0;
+			ulTS = dlTS = -1000.0f;
+		}
+
+		/**
+		 * Returns true if the packet triggers a FACH->DCH promotion.
+		 */
+		boolean simFACH(double ts, byte dir, int size) {
+			if (dir == UPLINK) {
+				double queueConsumptionTime = (ulQueue * ulQueue * rlcUlRateP2 + ulQueue
+						* rlcUlRateP1 + rlcUlRateP0) / 1000.0f;
+				if (ts - ulTS > queueConsumptionTime)
+					ulQueue = 0;
+
+				ulQueue += size;
+				ulTS = ts;
+			} else if (dir == DOWNLINK) {
+				double queueConsumptionTime = (dlQueue * dlQueue * rlcDlRateP2 + dlQueue
+						* rlcDlRateP1 + rlcDlRateP0) / 1000.0f;
+				if (ts - dlTS > queueConsumptionTime)
+					dlQueue = 0;
+
+				dlQueue += size;
+				dlTS = ts;
+			}
+
+			return (dlQueue > rlcDlTh || ulQueue > rlcUlTh);
+		}
+	}
+}
@@ -0,0 +1,391 @@
+/*
+ *  Copyright 2012 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.ref.SoftReference;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A temporary file that holds the reassembled uplink and downlink storage of
+ * the TCP sessions of an analysis, so that the request and response bodies do
+ * not stay on the heap for the life of the analysis. A session that is spilled
+ * to the file keeps only the offset and size of its storage, and reads it back
+ * when its content is needed. Recently read storage is kept in a cache that is
+ * bounded in bytes and that the garbage collector may clear.
+ * <p>
+ * The files of a trace are created in a temporary directory of the trace, and
+ * are deleted with the directory when the trace is released. Directories that
+ * are still there when the application exits are deleted then.
+ */
+final class SessionStorageFile {
+
+	private static final Logger logger = Logger.getLogger(SessionStorageFile.class.getName());
+
+	/**
+	 * The total session storage on the heap, in bytes, above which the
+	 * storage is spilled to a file. Storage that is compressed counts, and is
+	 * spilled, compressed. Set with the com.att.aro.storage.spillThreshold
+	 * system property.
+	 */
+	static final long SPILL_THRESHOLD = Long.getLong("com.att.aro.storage.spillThreshold",
+			128L * 1024 * 1024);
+
+	/**
+	 * The maximum number of bytes of storage kept in the cache. Set with the
+	 * com.att.aro.storage.cacheSize system property.
+	 */
+	static final long CACHE_SIZE = Long.getLong("com.att.aro.storage.cacheSize",
+			32L * 1024 * 1024);
+
+	/**
+	 * Storage in the cache, which the garbage collector may clear.
+	 */
+	private static final class CachedStorage extends SoftReference<byte[]> {
+		private final int size;
+
+		private CachedStorage(byte[] data) {
+			super(data);
+			this.size = data.length;
+		}
+	}
+
+	/**
+	 * Spills the storage of TCP sessions as they are reassembled. The storage
+	 * of the first sessions is held on the heap until its total size reaches
+	 * the threshold, and is then written to a new file with the storage of
+	 * each session that follows, so that the storage of a large trace is
+	 * never all on the heap at once.
+	 */
+	static final class Spiller {
+		private final TraceData trace;
+		private final long threshold;
+		private final List<TCPSession> pending = new ArrayList<TCPSession>();
+		private long pendingSize;
+		private SessionStorageFile file;
+
+		/**
+		 * Initializes an instance of the Spiller class that spills to a file
+		 * of the specified trace once the storage reaches
+		 * {@link SessionStorageFile#SPILL_THRESHOLD}.
+		 * 
+		 * @param trace
+		 *            The trace of the sessions.
+		 */
+		Spiller(TraceData trace) {
+			this(trace, SPILL_THRESHOLD);
+		}
+
+		/**
+		 * Initializes an instance of the Spiller class that spills to a file
+		 * of the specified trace once the storage reaches the specified size.
+		 * 
+		 * @param trace
+		 *            The trace of the sessions.
+		 * @param threshold
+		 *            The total storage, in bytes, above which the storage is
+		 *            spilled.
+		 */
+		Spiller(TraceData trace, long threshold) {
+			this.trace = trace;
+			this.threshold = threshold;
+		}
+
+		/**
+		 * Adds a session whose storage is reassembled and whose HTTP
+		 * request/responses are parsed.
+		 * 
+		 * @param session
+		 *            The session.
+		 * @throws IOException
+		 */
+		void add(TCPSession session) throws IOException {
+			if (file != null) {
+				session.spillStorage(file);
+				return;
+			}
+
+			pending.add(session);
+			pendingSize += session.getHeapStorageSize();
+			if (pendingSize > 0 && pendingSize >= threshold) {
+				logger.fine("Spilling session storage above " + pendingSize + " bytes");
+				file = trace.createStorageFile();
+				for (TCPSession s : pending) {
+					s.spillStorage(file);
+				}
+				pending.clear();
+			}
+		}
+
+		/**
+		 * Returns the file that the storage is spilled to.
+		 * 
+		 * @return The file, or null if the storage has not reached the
+		 *         threshold.
+		 */
+		SessionStorageFile getFile() {
+			return file;
+		}
+	}
+
+	// The temporary directories that are not yet deleted
+	private static final Set<File> directories = new HashSet<File>();
+	static {
+		Runtime.getRuntime().addShutdownHook(new Thread("Session storage cleanup") {
+			@Override
+			public void run() {
+				List<File> dirs;
+				synchronized (directories) {
+					dirs = new ArrayList<File>(directories);
+				}
+				for (File dir : dirs) {
+					deleteDirectory(dir);
+				}
+			}
+		});
+	}
+
+	private final File file;
+	private final RandomAccessFile raf;
+	private final FileChannel channel;
+	private long length;
+	private boolean released;
+
+	// Cached storage by offset in the file, in access order
+	private final Map<Long, CachedStorage> cache = new LinkedHashMap<Long, CachedStorage>(16,
+			0.75f, true);
+	private long cachedBytes;
+
+	/**
+	 * Creates a temporary directory for the storage files of a trace.
+	 * 
+	 * @return The directory.
+	 * @throws IOException
+	 */
+	static File createDirectory() throws IOException {
+		File dir = File.createTempFile("aro", ".storage");
+		if (!dir.delete() || !dir.mkdir()) {
+			throw new IOException("Unable to create session storage directory " + dir);
+		}
+		synchronized (directories) {
+			directories.add(dir);
+		}
+		return dir;
+	}
+
+	/**
+	 * Deletes a temporary directory and the storage files in it. The files
+	 * must already be released.
+	 * 
+	 * @param dir
+	 *            The directory.
+	 */
+	static void deleteDirectory(File dir) {
+		File[] files = dir.listFiles();
+		if (files != null) {
+			for (File f : files) {
+				if (!f.delete()) {
+					logger.fine("Unable to delete session storage file " + f);
+				}
+			}
+		}
+		if (dir.exists() && !dir.delete()) {
+			logger.fine("Unable to delete session storage directory " + dir);
+		}
+		synchronized (directories) {
+			directories.remove(dir);
+		}
+	}
+
+	/**
+	 * Initializes an instance of the SessionStorageFile class with a new file
+	 * in the specified directory.
+	 * 
+	 * @param dir
+	 *            The storage directory of the trace.
+	 * @throws IOException
+	 */
+	SessionStorageFile(File dir) throws IOException {
+		this.file = File.createTempFile("sessions", ".storage", dir);
+		this.raf = new RandomAccessFile(file, "rw");
+		this.channel = raf.getChannel();
+	}
+
+	/**
+	 * Appends the specified storage to the file.
+	 * 
+	 * @param data
+	 *            The storage.
+	 * @return The offset of the storage in the file.
+	 * @throws IOException
+	 */
+	synchronized long write(byte[] data) throws IOException {
+		if (released) {
+			throw new IOException("Session storage file is released");
+		}
+		long offset = length;
+		ByteBuffer buffer = ByteBuffer.wrap(data);
+		while (buffer.hasRemaining()) {
+			channel.write(buffer, length + buffer.position());
+		}
+		length += data.length;
+		return offset;
+	}
+
+	/**
+	 * Returns the storage at the specified offset in the file, from the cache
+	 * when possible. The returned array is shared and must not be modified.
+	 * 
+	 * @param offset
+	 *            The offset of the storage in the file.
+	 * @param size
+	 *            The size of the storage.
+	 * @return The storage, or null if it could not be read or the file is
+	 *         released.
+	 */
+	byte[] read(long offset, int size) {
+		Long key = Long.valueOf(offset);
+		synchronized (this) {
+			if (released) {
+				return null;
+			}
+			CachedStorage cached = cache.get(key);
+			if (cached != null) {
+				byte[] data = cached.get();
+				if (data != null) {
+					return data;
+				}
+				cache.remove(key);
+				cachedBytes -= cached.size;
+			}
+		}
+
+		byte[] data = readFully(offset, size);
+		if (data == null) {
+			return null;
+		}
+
+		synchronized (this) {
+			if (size <= CACHE_SIZE && !cache.containsKey(key)) {
+				cache.put(key, new CachedStorage(data));
+				cachedBytes += size;
+
+				// Remove the least recently used storage until the cache fits
+				Iterator<CachedStorage> iter = cache.values().iterator();
+				while (cachedBytes > CACHE_SIZE && iter.hasNext()) {
+					cachedBytes -= iter.next().size;
+					iter.remove();
+				}
+			}
+		}
+		return data;
+	}
+
+	/**
+	 * Returns a range of the storage at the specified offset in the file. The
+	 * range is copied from the cache when the storage is cached. Storage that
+	 * fits in the cache is read whole and cached, so that its other ranges
+	 * are copied too; only the range is read of storage larger than the
+	 * cache. The range is shortened when the storage ends before the end of
+	 * the range.
+	 * 
+	 * @param offset
+	 *            The offset of the storage in the file.
+	 * @param size
+	 *            The size of the storage.
+	 * @param start
+	 *            The offset of the range in the storage.
+	 * @param length
+	 *            The number of bytes in the range.
+	 * @return The bytes of the range, or null if they could not be read or
+	 *         the file is released.
+	 */
+	byte[] read(long offset, int size, int start, int length) {
+		start = Math.max(0, Math.min(start, size));
+		length = Math.max(0, Math.min(length, size - start));
+		if (size > CACHE_SIZE) {
+			return isReleased() ? null : readFully(offset + start, length);
+		}
+		byte[] data = read(offset, size);
+		return data != null ? Arrays.copyOfRange(data, start, start + length) : null;
+	}
+
+	/**
+	 * Reads the specified number of bytes at the specified offset in the
+	 * file. Returns null if they could not be read.
+	 */
+	private byte[] readFully(long offset, int size) {
+		byte[] data = new byte[size];
+		try {
+			ByteBuffer buffer = ByteBuffer.wrap(data);
+			while (buffer.hasRemaining()) {
+				if (channel.read(buffer, offset + buffer.position()) < 0) {
+					throw new IOException("Unexpected end of session storage file");
+				}
+			}
+		} catch (IOException e) {
+			if (isReleased()) {
+				return null;
+			}
+			logger.log(Level.SEVERE, "Unable to read session storage", e);
+			return null;
+		}
+		return data;
+	}
+
+	/**
+	 * Closes and deletes the file. The storage of the sessions that refer to
+	 * the file is no longer available.
+	 */
+	synchronized void release() {
+		if (released) {
+			return;
+		}
+		released = true;
+		cache.clear();
+		cachedBytes = 0;
+		try {
+			raf.close();
+		} catch (IOException e) {
+			logger.log(Level.FINE, "Unable to close session storage file " + file, e);
+		}
+		if (!file.delete()) {
+			logger.fine("Unable to delete session storage file " + file);
+		}
+	}
+
+	/**
+	 * Indicates whether the file is released.
+	 * 
+	 * @return true if the file is released.
+	 */
+	synchronized boolean isReleased() {
+		return released;
+	}
+}
@@ -0,0 +1,372 @@
+/*
+ *  Copyright 2012 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.jsoup.nodes.Document;
+
+import com.att.aro.model.HttpRequestResponseInfo.Direction;
+
+/**
+ * Walks the TCP sessions of an analysis once and calls each registered
+ * {@link SessionVisitor} for every session, request, response and parsed HTML
+ * document. The HTML documents are parsed once through the content cache of
+ * the analysis and shared by all of the visitors.
+ * <p>
+ * When the traversal is run with more than one thread, the contents of the
+ * next few sessions are decoded and parsed by a thread pool ahead of the
+ * traversal, while the visitors are still called from the calling thread in
+ * the order of the sessions, so the results do not depend on the number of
+ * threads. The parses run only a few sessions ahead, so that their documents
+ * are still in the content cache when the sessions are visited.
+ * <p>
+ * A visitor of an analyzer plugin that throws an exception is not called
+ * again, and the traversal continues with the other visitors.
+ */
+public class SessionTraversal {
+
+	private static final Logger logger = Logger.getLogger(SessionTraversal.class.getName());
+
+	// The number of sessions parsed ahead of the traversal by each thread
+	private static final int LOOKAHEAD_PER_THREAD = 2;
+
+	private ContentCache contentCache;
+	private List<SessionVisitor> visitors = new ArrayList<SessionVisitor>();
+	private List<SessionVisitor> failedVisitors = new ArrayList<SessionVisitor>();
+
+	/**
+	 * Calls the visitor of an analyzer plugin until it throws an exception.
+	 */
+	private class PluginVisitor implements SessionVisitor {
+		private SessionVisitor visitor;
+		private boolean failed;
+
+		PluginVisitor(SessionVisitor visitor) {
+			this.visitor = visitor;
+		}
+
+		@Override
+		public void onSession(TCPSession session) {
+			if (!failed) {
+				try {
+					visitor.onSession(session);
+				} catch (RuntimeException e) {
+					failed(e);
+				}
+			}
+		}
+
+		@Override
+		public void onRequest(HttpRequestResponseInfo request) {
+			if (!failed) {
+				try {
+					visitor.onRequest(request);
+				} catch (RuntimeException e) {
+					failed(e);
+				}
+			}
+		}
+
+		@Override
+		public void onResponse(HttpRequestResponseInfo response) {
+			if (!failed) {
+				try {
+					visitor.onResponse(response);
+				} catch (RuntimeException e) {
+					failed(e);
+				}
+			}
+		}
+
+		@Override
+		public void onHtmlDocument(HttpRequestResponseInfo response, Document document) {
+			if (!failed) {
+				try {
+					visitor.onHtmlDocument(response, document);
+				} catch (RuntimeException e) {
+					failed(e);
+				}
+			}
+		}
+
+		@Override
+		public void finish() {
+			if (!failed) {
+				try {
+					visitor.finish();
+				} catch (RuntimeException e) {
+					failed(e);
+				}
+			}
+		}
+
+		/**
+		 * Stops calling the visitor after it has thrown an exception.
+		 */
+		private void failed(RuntimeException e) {
+			logger.log(Level.SEVERE, "Analyzer plugin visitor failed: "
+					+ visitor.getClass().getName(), e);
+			failed = true;
+			failedVisitors.add(visitor);
+		}
+	}
+
+	/**
+	 * Initializes an instance of the SessionTraversal class.
+	 * 
+	 * @param contentCache
+	 *            The content cache that the HTML documents are parsed with, or
+	 *            null if none of the visitors uses the HTML documents.
+	 */
+	public SessionTraversal(ContentCache contentCache) {
+		this.contentCache = contentCache;
+	}
+
+	/**
+	 * Registers a visitor. The visitors are called in the order in which they
+	 * were registered.
+	 * 
+	 * @param visitor
+	 *            The visitor to register.
+	 */
+	public void addVisitor(SessionVisitor visitor) {
+		visitors.add(visitor);
+	}
+
+	/**
+	 * Registers the visitor of an analyzer plugin. When the visitor throws an
+	 * exception, the exception is logged and the visitor is not called again,
+	 * instead of failing the traversal.
+	 * 
+	 * @param visitor
+	 *            The visitor to register.
+	 */
+	public void addPluginVisitor(SessionVisitor visitor) {
+		visitors.add(new PluginVisitor(visitor));
+	}
+
+	/**
+	 * Returns the registered visitors.
+	 * 
+	 * @return An unmodifiable list of the visitors.
+	 */
+	public List<SessionVisitor> getVisitors() {
+		List<SessionVisitor> result = new ArrayList<SessionVisitor>(visitors.size());
+		for (SessionVisitor visitor : visitors) {
+			result.add(visitor instanceof PluginVisitor ? ((PluginVisitor) visitor).visitor
+					: visitor);
+		}
+		return Collections.unmodifiableList(result);
+	}
+
+	/**
+	 * Returns the visitors of analyzer plugins that threw an exception, and
+	 * whose results are incomplete.
+	 * 
+	 * @return An unmodifiable list of the visitors.
+	 */
+	public List<SessionVisitor> getFailedVisitors() {
+		return Collections.unmodifiableList(failedVisitors);
+	}
+
+	/**
+	 * Visits the specified sessions from the calling thread.
+	 * 
+	 * @param sessions
+	 *            The TCP sessions to visit.
+	 */
+	public void run(List<TCPSession> sessions) {
+		run(sessions, 1);
+	}
+
+	/**
+	 * Visits the specified sessions, parsing their HTML documents with up to
+	 * the specified number of threads, and then calls
+	 * {@link SessionVisitor#finish()} on each visitor.
+	 * 
+	 * @param sessions
+	 *            The TCP sessions to visit.
+	 * @param threadCount
+	 *            The maximum number of sessions that are parsed at the same
+	 *            time.
+	 */
+	public void run(List<TCPSession> sessions, int threadCount) {
+		run(sessions, threadCount, null);
+	}
+
+	/**
+	 * Visits the specified sessions, parsing their HTML documents with up to
+	 * the specified number of threads, and then calls
+	 * {@link SessionVisitor#finish()} on each visitor. The traversal stops
+	 * between two sessions when the specified token is cancelled.
+	 * 
+	 * @param sessions
+	 *            The TCP sessions to visit.
+	 * @param threadCount
+	 *            The maximum number of sessions that are parsed at the same
+	 *            time.
+	 * @param token
+	 *            The token that cancels the traversal, or null.
+	 * @throws java.util.concurrent.CancellationException
+	 *             when the token is cancelled.
+	 */
+	public void run(List<TCPSession> sessions, int threadCount, CancellationToken token) {
+		ExecutorService executor = null;
+		List<Future<?>> parsed = null;
+		int lookahead = 0;
+		if (contentCache != null && threadCount > 1 && sessions.size() > 1) {
+			executor = Executors.newFixedThreadPool(Math.min(threadCount, sessions.size()));
+			parsed = new ArrayList<Future<?>>(sessions.size());
+			lookahead = threadCount * LOOKAHEAD_PER_THREAD;
+		}
+		try {
+			for (int i = 0; i < sessions.size(); ++i) {
+				if (token != null) {
+					token.checkCancelled();
+				}
+				if (parsed != null) {
+
+					// Parse the sessions up to the lookahead in the pool
+					while (parsed.size() < sessions.size() && parsed.size() <= i + lookahead) {
+						final TCPSession session = sessions.get(parsed.size());
+						parsed.add(executor.submit(new Runnable() {
+							@Override
+							public void run() {
+								parseDocuments(session);
+							}
+						}));
+					}
+					if (!awaitParsed(parsed.get(i))) {
+						// Parse the remaining documents while visiting
+						executor.shutdownNow();
+						parsed = null;
+					} else {
+						parsed.set(i, null);
+					}
+				}
+				visit(sessions.get(i));
+			}
+			for (SessionVisitor visitor : visitors) {
+				visitor.finish();
+			}
+		} finally {
+			if (executor != null) {
+				executor.shutdownNow();
+			}
+		}
+	}
+
+	/**
+	 * Visits the specified sessions with a single visitor from the calling
+	 * thread.
+	 * 
+	 * @param sessions
+	 *            The TCP sessions to visit.
+	 * @param contentCache
+	 *            The content cache that the HTML documents are parsed with, or
+	 *            null if the visitor does not use the HTML documents.
+	 * @param visitor
+	 *            The visitor.
+	 */
+	public static void traverse(List<TCPSession> sessions, ContentCache contentCache,
+			SessionVisitor visitor) {
+		SessionTraversal traversal = new SessionTraversal(contentCache);
+		traversal.addVisitor(visitor);
+		traversal.run(sessions);
+	}
+
+	/**
+	 * Waits until the documents of a session have been parsed. Returns false
+	 * if the calling thread was interrupted.
+	 */
+	private boolean awaitParsed(Future<?> future) {
+		try {
+			future.get();
+			return true;
+		} catch (InterruptedException e) {
+			logger.log(Level.FINE, "Interrupted while parsing session content", e);
+			Thread.currentThread().interrupt();
+			return false;
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IllegalStateException(cause);
+		}
+	}
+
+	/**
+	 * Parses the HTML documents of the specified session into the content
+	 * cache.
+	 */
+	private void parseDocuments(TCPSession session) {
+		for (HttpRequestResponseInfo rr : session.getRequestResponseInfo()) {
+			if (isHtmlResponse(rr)) {
+				contentCache.getDocument(rr);
+			}
+		}
+	}
+
+	/**
+	 * Calls the visitors for the specified session and its requests and
+	 * responses.
+	 */
+	private void visit(TCPSession session) {
+		for (SessionVisitor visitor : visitors) {
+			visitor.onSession(session);
+		}
+		for (HttpRequestResponseInfo rr : session.getRequestResponseInfo()) {
+			if (rr.getDirection() == Direction.REQUEST) {
+				for (SessionVisitor visitor : visitors) {
+					visitor.onRequest(rr);
+				}
+			} else {
+				for (SessionVisitor visitor : visitors) {
+					visitor.onResponse(rr);
+				}
+				if (contentCache != null && isHtmlResponse(rr)) {
+					Document doc = contentCache.getDocument(rr);
+					if (doc != null) {
+						for (SessionVisitor visitor : visitors) {
+							visitor.onHtmlDocument(rr, doc);
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Indicates whether the specified request/response is a text/html
+	 * response.
+	 */
+	private static boolean isHtmlResponse(HttpRequestResponseInfo rr) {
+		return rr.getDirection() == Direction.RESPONSE && rr.getContentType() != null
+				&& rr.getContentType().equalsIgnoreCase("text/html");
+	}
+}
@@ -0,0 +1,77 @@
+/*
+ *  Copyright 2012 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.model;
+
+import org.jsoup.nodes.Document;
+
+/**
+ * An analyzer that is called back for each TCP session and HTTP
+ * request/response of an analysis. The visitors of an analysis are registered
+ * with a {@link SessionTraversal}, which walks the sessions once and calls
+ * every visitor for each of them, so the sessions and the parsed HTML
+ * documents are shared by all of the analyzers.
+ * <p>
+ * The traversal calls the visitor from one thread, in the order of the
+ * sessions and of the requests/responses within each session, so a visitor
+ * does not need to be thread safe. Best practices that are loaded as plugins
+ * provide their visitor through
+ * {@link com.att.aro.plugin.SessionAnalyzerPlugin}.
+ * 
+ * @see SessionVisitorAdapter
+ */
+public interface SessionVisitor {
+
+	/**
+	 * Called for each TCP session, before its requests and responses.
+	 * 
+	 * @param session
+	 *            The TCP session.
+	 */
+	void onSession(TCPSession session);
+
+	/**
+	 * Called for each HTTP request of the current session.
+	 * 
+	 * @param request
+	 *            The request.
+	 */
+	void onRequest(HttpRequestResponseInfo request);
+
+	/**
+	 * Called for each HTTP response of the current session.
+	 * 
+	 * @param response
+	 *            The response.
+	 */
+	void onResponse(HttpRequestResponseInfo response);
+
+	/**
+	 * Called after {@link #onResponse(HttpRequestResponseInfo)} for each
+	 * text/html response whose content could be parsed.
+	 * 
+	 * @param response
+	 *            The response.
+	 * @param document
+	 *            The parsed content of the response, which is shared by all
+	 *            of the visitors and must not be modified.
+	 */
+	void onHtmlDocument(HttpRequestResponseInfo response, Document document);
+
+	/**
+	 * Called once after all of the sessions have been visited.
+	 */
+	void finish();
+}
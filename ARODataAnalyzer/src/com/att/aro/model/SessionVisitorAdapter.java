@@ -0,0 +1,45 @@
+/*
+ *  Copyright 2012 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.model;
+
+import org.jsoup.nodes.Document;
+
+/**
+ * An abstract adapter class for session visitors. The methods of this class
+ * are empty, so a visitor only needs to override the callbacks it uses.
+ */
+public abstract class SessionVisitorAdapter implements SessionVisitor {
+
+	@Override
+	public void onSession(TCPSession session) {
+	}
+
+	@Override
+	public void onRequest(HttpRequestResponseInfo request) {
+	}
+
+	@Override
+	public void onResponse(HttpRequestResponseInfo response) {
+	}
+
+	@Override
+	public void onHtmlDocument(HttpRequestResponseInfo response, Document document) {
+	}
+
+	@Override
+	public void finish() {
+	}
+}
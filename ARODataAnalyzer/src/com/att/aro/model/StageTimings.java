@@ -0,0 +1,321 @@
+/*
+ *  Copyright 2012 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.model;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Serializable;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Records the wall time, CPU time and allocated bytes of the stages of reading
+ * and analyzing a trace. CPU time and allocated bytes are measured for the
+ * calling thread, and are reported as -1 when the JVM does not support the
+ * measurement.
+ */
+public class StageTimings implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private static final Logger logger = Logger.getLogger(StageTimings.class.getName());
+
+	/**
+	 * The name of the file that the timings are exported to in the trace
+	 * directory.
+	 */
+	public static final String EXPORT_FILE = "analysis_timings.json";
+
+	private static final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+	private static final boolean cpuTimeSupported;
+	private static final boolean allocationSupported;
+	static {
+		boolean cpu = false;
+		try {
+			cpu = threadBean.isCurrentThreadCpuTimeSupported();
+			if (cpu && !threadBean.isThreadCpuTimeEnabled()) {
+				threadBean.setThreadCpuTimeEnabled(true);
+			}
+		} catch (UnsupportedOperationException e) {
+			cpu = false;
+		} catch (SecurityException e) {
+			cpu = false;
+		}
+		cpuTimeSupported = cpu;
+
+		boolean alloc = false;
+		try {
+			if (threadBean instanceof com.sun.management.ThreadMXBean) {
+				com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) threadBean;
+				alloc = sunBean.isThreadAllocatedMemorySupported();
+				if (alloc && !sunBean.isThreadAllocatedMemoryEnabled()) {
+					sunBean.setThreadAllocatedMemoryEnabled(true);
+				}
+			}
+		} catch (LinkageError e) {
+			alloc = false;
+		} catch (UnsupportedOperationException e) {
+			alloc = false;
+		} catch (SecurityException e) {
+			alloc = false;
+		}
+		allocationSupported = alloc;
+	}
+
+	/**
+	 * The measurements of a single completed stage.
+	 */
+	public static class StageTiming implements Serializable {
+		private static final long serialVersionUID = 1L;
+
+		private String name;
+		private long wallNanos;
+		private long cpuNanos;
+		private long allocatedBytes;
+
+		private StageTiming(String name, long wallNanos, long cpuNanos, long allocatedBytes) {
+			this.name = name;
+			this.wallNanos = wallNanos;
+			this.cpuNanos = cpuNanos;
+			this.allocatedBytes = allocatedBytes;
+		}
+
+		/**
+		 * Returns the name of the stage.
+		 *
+		 * @return The stage name.
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * Returns the elapsed wall clock time of the stage.
+		 *
+		 * @return The wall time in nanoseconds.
+		 */
+		public long getWallNanos() {
+			return wallNanos;
+		}
+
+		/**
+		 * Returns the CPU time used by the stage.
+		 *
+		 * @return The CPU time in nanoseconds, or -1 if not supported.
+		 */
+		public long getCpuNanos() {
+			return cpuNanos;
+		}
+
+		/**
+		 * Returns the number of bytes allocated by the stage.
+		 *
+		 * @return The allocated bytes, or -1 if not supported.
+		 */
+		public long getAllocatedBytes() {
+			return allocatedBytes;
+		}
+	}
+
+	/**
+	 * A stage that is being measured. Returned by
+	 * {@link StageTimings#start(String)} and completed by calling
+	 * {@link #stop()}.
+	 */
+	public class Stage {
+		private String name;
+		private long wallStart;
+		private long cpuStart;
+		private long allocStart;
+
+		private Stage(String name) {
+			this.name = name;
+			this.allocStart = currentAllocatedBytes();
+			this.cpuStart = currentCpuTime();
+			this.wallStart = System.nanoTime();
+		}
+
+		/**
+		 * Stops measuring the stage and records its timing.
+		 *
+		 * @return The recorded timing.
+		 */
+		public StageTiming stop() {
+			long wall = System.nanoTime() - wallStart;
+			long cpu = cpuStart >= 0 ? currentCpuTime() - cpuStart : -1;
+			long alloc = allocStart >= 0 ? currentAllocatedBytes() - allocStart : -1;
+			StageTiming timing = new StageTiming(name, wall, cpu, alloc);
+			add(timing);
+			if (logger.isLoggable(Level.FINE)) {
+				logger.fine(name + " took " + (wall / 1000000) + " ms");
+			}
+			return timing;
+		}
+	}
+
+	private List<StageTiming> timings = new ArrayList<StageTiming>();
+
+	/**
+	 * Starts measuring a stage on the current thread.
+	 *
+	 * @param name
+	 *            The name of the stage.
+	 * @return The stage, which must be stopped on the same thread.
+	 */
+	public Stage start(String name) {
+		return new Stage(name);
+	}
+
+	/**
+	 * Returns the timings recorded so far, in the order the stages completed.
+	 *
+	 * @return An unmodifiable list of stage timings.
+	 */
+	public synchronized List<StageTiming> getTimings() {
+		return Collections.unmodifiableList(new ArrayList<StageTiming>(timings));
+	}
+
+	/**
+	 * Returns the timing of the stage with the specified name.
+	 *
+	 * @param name
+	 *            The name of the stage.
+	 * @return The last recorded timing of the stage, or null if the stage has
+	 *         not been recorded.
+	 */
+	public synchronized StageTiming getTiming(String name) {
+		for (int i = timings.size() - 1; i >= 0; --i) {
+			StageTiming timing = timings.get(i);
+			if (timing.getName().equals(name)) {
+				return timing;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the sum of the wall time of all the recorded stages.
+	 *
+	 * @return The total wall time in nanoseconds.
+	 */
+	public synchronized long getTotalWallNanos() {
+		long result = 0;
+		for (StageTiming timing : timings) {
+			result += timing.getWallNanos();
+		}
+		return result;
+	}
+
+	/**
+	 * Writes the specified timings to the export file in the trace directory.
+	 *
+	 * @param traceDir
+	 *            The trace directory.
+	 * @param readTimings
+	 *            The timings of reading the trace, may be null.
+	 * @param analysisTimings
+	 *            The timings of analyzing the trace, may be null.
+	 * @param chartTimings
+	 *            The timings of displaying the analysis, may be null.
+	 * @return The file that was written.
+	 * @throws IOException
+	 */
+	public static File export(File traceDir, StageTimings readTimings,
+			StageTimings analysisTimings, StageTimings chartTimings) throws IOException {
+		File file = new File(traceDir, EXPORT_FILE);
+		Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+		try {
+			writer.write("{\n  \"read\": ");
+			writer.write(readTimings != null ? readTimings.toJson("  ") : "[]");
+			writer.write(",\n  \"analysis\": ");
+			writer.write(analysisTimings != null ? analysisTimings.toJson("  ") : "[]");
+			writer.write(",\n  \"chart\": ");
+			writer.write(chartTimings != null ? chartTimings.toJson("  ") : "[]");
+			writer.write("\n}\n");
+		} finally {
+			writer.close();
+		}
+		return file;
+	}
+
+	/**
+	 * Returns the recorded timings as a JSON array of objects.
+	 *
+	 * @param indent
+	 *            The indent of the array.
+	 * @return The JSON text.
+	 */
+	public synchronized String toJson(String indent) {
+		StringBuilder result = new StringBuilder("[");
+		for (int i = 0; i < timings.size(); ++i) {
+			StageTiming timing = timings.get(i);
+			result.append(i > 0 ? ",\n" : "\n").append(indent).append("  {\"stage\": \"");
+			appendEscaped(result, timing.getName());
+			result.append("\", \"wallNanos\": ").append(timing.getWallNanos());
+			result.append(", \"cpuNanos\": ").append(timing.getCpuNanos());
+			result.append(", \"allocatedBytes\": ").append(timing.getAllocatedBytes());
+			result.append('}');
+		}
+		if (!timings.isEmpty()) {
+			result.append('\n').append(indent);
+		}
+		return result.append(']').toString();
+	}
+
+	/**
+	 * Removes all of the recorded timings.
+	 */
+	public synchronized void clear() {
+		timings.clear();
+	}
+
+	private synchronized void add(StageTiming timing) {
+		timings.add(timing);
+	}
+
+	private static void appendEscaped(StringBuilder sb, String s) {
+		for (int i = 0; i < s.length(); ++i) {
+			char c = s.charAt(i);
+			if (c == '"' || c == '\\') {
+				sb.append('\\').append(c);
+			} else if (c < 0x20) {
+				sb.append(String.format("\\u%04x", (int) c));
+			} else {
+				sb.append(c);
+			}
+		}
+	}
+
+	private static long currentCpuTime() {
+		return cpuTimeSupported ? threadBean.getCurrentThreadCpuTime() : -1;
+	}
+
+	private static long currentAllocatedBytes() {
+		if (allocationSupported) {
+			return ((com.sun.management.ThreadMXBean) threadBean).getThreadAllocatedBytes(Thread
+					.currentThread().getId());
+		}
+		return -1;
+	}
+}
@@ -0,0 +1,112 @@
+/*
+ *  Copyright 2012 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.model;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A dictionary of strings that stores each distinct string once and assigns
+ * it a compact int id. The ids are assigned in the order the strings are
+ * first added, starting from 0, so that they can be used as indexes into
+ * arrays.
+ */
+public class SymbolTable implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private Map<String, Integer> ids = new HashMap<String, Integer>();
+	private String[] symbols = new String[16];
+	private int size;
+
+	/**
+	 * Returns the stored instance of the specified string, adding the string
+	 * to the table if it is not there yet.
+	 * 
+	 * @param symbol
+	 *            The string, or null.
+	 * @return The stored string that is equal to the specified string, or
+	 *         null if the string is null.
+	 */
+	public synchronized String intern(String symbol) {
+		if (symbol == null) {
+			return null;
+		}
+		int id = getId(symbol);
+		return symbols[id];
+	}
+
+	/**
+	 * Returns the id of the specified string, adding the string to the table
+	 * if it is not there yet.
+	 * 
+	 * @param symbol
+	 *            The string.
+	 * @return The id of the string.
+	 */
+	public synchronized int getId(String symbol) {
+		Integer id = ids.get(symbol);
+		if (id == null) {
+			if (size == symbols.length) {
+				symbols = Arrays.copyOf(symbols, size * 2);
+			}
+			id = size;
+			symbols[size++] = symbol;
+			ids.put(symbol, id);
+		}
+		return id;
+	}
+
+	/**
+	 * Returns the id of the specified string without adding it to the table.
+	 * 
+	 * @param symbol
+	 *            The string.
+	 * @return The id of the string, or -1 if it is not in the table.
+	 */
+	public synchronized int findId(String symbol) {
+		Integer id = ids.get(symbol);
+		return id != null ? id : -1;
+	}
+
+	/**
+	 * Returns the string with the specified id.
+	 * 
+	 * @param id
+	 *            The id.
+	 * @return The string.
+	 * @throws IndexOutOfBoundsException
+	 *             when there is no string with the id.
+	 */
+	public synchronized String getSymbol(int id) {
+		if (id < 0 || id >= size) {
+			throw new IndexOutOfBoundsException("Invalid symbol id: " + id);
+		}
+		return symbols[id];
+	}
+
+	/**
+	 * Returns the number of strings in the table, which is also the next id
+	 * that will be assigned.
+	 * 
+	 * @return The symbol count.
+	 */
+	public synchronized int size() {
+		return size;
+	}
+}
@@ -17,14 +17,18 @@ package com.att.aro.model;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.lang.ref.SoftReference;
 import java.net.InetAddress;
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.ListIterator;
@@ -37,6 +41,7 @@ import java.util.logging.Logger;
 
 import com.att.aro.model.PacketInfo.TcpInfo;
 import com.att.aro.pcap.DomainNameSystem;
+import com.att.aro.pcap.Packet;
 import com.att.aro.pcap.TCPPacket;
 import com.att.aro.pcap.UDPPacket;
 
@@ -121,6 +126,21 @@ public class TCPSession implements Serializable, Comparable<TCPSession> {
 	private byte[] storageDl;
 	private SortedMap<Integer, PacketInfo> packetOffsetsDl;
 
+	// Location of the storage when it is spilled to a file
+	private transient volatile SessionStorageFile storageFile;
+	private long storageUlOffset;
+	private int storageUlSize;
+	private long storageDlOffset;
+	private int storageDlSize;
+
+	// The storage when it is compressed on the heap
+	private CompressedStorage compressedUl;
+	private CompressedStorage compressedDl;
+
+	// The TCP information of the packets by ordinal plus one, recorded when
+	// the session can be copied to the next snapshot of a live trace
+	private transient byte[] packetTcpInfos;
+
 	/**
 	 * Tracks information about a reassembled session
 	 */
@@ -150,6 +170,24 @@ public class TCPSession implements Serializable, Comparable<TCPSession> {
 
 	}
 
+	// The reassembly buffers of each thread, which are kept from one trace to
+	// the next until the garbage collector needs the memory
+	private static final ThreadLocal<SoftReference<Reassembler[]>> reassemblers = new ThreadLocal<SoftReference<Reassembler[]>>();
+
+	/**
+	 * Returns the uplink and downlink reassembly buffers of the current
+	 * thread.
+	 */
+	private static Reassembler[] getReassemblers() {
+		SoftReference<Reassembler[]> ref = reassemblers.get();
+		Reassembler[] result = ref != null ? ref.get() : null;
+		if (result == null) {
+			result = new Reassembler[] { new Reassembler(), new Reassembler() };
+			reassemblers.set(new SoftReference<Reassembler[]>(result));
+		}
+		return result;
+	}
+
 	/**
 	 * Initializes an instance of the TCPSession class, using the specified remote IP, remote port, 
 	 * and local port.
@@ -177,14 +215,116 @@ public class TCPSession implements Serializable, Comparable<TCPSession> {
 	 */
 	public static List<TCPSession> extractTCPSessions(
 			Collection<PacketInfo> packets) throws IOException {
+		return extractTCPSessions(packets, null);
+	}
+
+	/**
+	 * Creates a List of TCP sessions using the specified Collection of
+	 * packets, checking the specified token for cancellation while packets and
+	 * sessions are processed.
+	 * 
+	 * @param packets A collection of PacketInfo objects holding the packet information.
+	 * @param token The cancellation token, or null if the extraction cannot be cancelled.
+	 * 
+	 * @return The collection of tcp sessions that are found from the packets
+	 *         data.
+	 * @throws IOException
+	 * @throws java.util.concurrent.CancellationException when the token is cancelled.
+	 */
+	public static List<TCPSession> extractTCPSessions(
+			Collection<PacketInfo> packets, CancellationToken token) throws IOException {
+		return extractTCPSessions(packets, token, null);
+	}
+
+	/**
+	 * Creates a List of TCP sessions using the specified Collection of
+	 * packets, checking the specified token for cancellation, and storing the
+	 * host names and HTTP values of the sessions once in the specified symbol
+	 * tables.
+	 * 
+	 * @param packets A collection of PacketInfo objects holding the packet information.
+	 * @param token The cancellation token, or null if the extraction cannot be cancelled.
+	 * @param symbols The symbol tables of the trace, or null.
+	 * 
+	 * @return The collection of tcp sessions that are found from the packets
+	 *         data.
+	 * @throws IOException
+	 * @throws java.util.concurrent.CancellationException when the token is cancelled.
+	 */
+	public static List<TCPSession> extractTCPSessions(Collection<PacketInfo> packets,
+			CancellationToken token, TraceSymbols symbols) throws IOException {
+		return extractTCPSessions(packets, token, symbols, null);
+	}
+
+	/**
+	 * Creates a List of TCP sessions using the specified Collection of
+	 * packets, checking the specified token for cancellation, storing the
+	 * host names and HTTP values of the sessions once in the specified symbol
+	 * tables, and passing each session to the specified spiller as soon as it
+	 * is reassembled and parsed.
+	 * 
+	 * @param packets A collection of PacketInfo objects holding the packet information.
+	 * @param token The cancellation token, or null if the extraction cannot be cancelled.
+	 * @param symbols The symbol tables of the trace, or null.
+	 * @param spiller The spiller of the session storage, or null to keep the storage on the heap.
+	 * 
+	 * @return The collection of tcp sessions that are found from the packets
+	 *         data.
+	 * @throws IOException
+	 * @throws java.util.concurrent.CancellationException when the token is cancelled.
+	 */
+	static List<TCPSession> extractTCPSessions(Collection<PacketInfo> packets,
+			CancellationToken token, TraceSymbols symbols, SessionStorageFile.Spiller spiller)
+			throws IOException {
+		return extractTCPSessions(packets, token, symbols, spiller, null);
+	}
+
+	/**
+	 * Creates a List of TCP sessions using the specified Collection of
+	 * packets, as {@link #extractTCPSessions(Collection, CancellationToken,
+	 * TraceSymbols, SessionStorageFile.Spiller)} does, copying the sessions of
+	 * the previous snapshot of a live trace whose packets have not changed.
+	 * The copied sessions are not reassembled and parsed again, and the
+	 * sessions of the previous snapshot are not modified.
+	 * 
+	 * @param packets A collection of PacketInfo objects holding the packet information.
+	 * @param token The cancellation token, or null if the extraction cannot be cancelled.
+	 * @param symbols The symbol tables of the trace, or null.
+	 * @param spiller The spiller of the session storage, or null to keep the storage on the heap.
+	 * @param previousSessions The sessions of the previous snapshot, an empty
+	 *            collection for the first snapshot, or null when the sessions
+	 *            are not copied to a later snapshot.
+	 * 
+	 * @return The collection of tcp sessions that are found from the packets
+	 *         data.
+	 * @throws IOException
+	 * @throws java.util.concurrent.CancellationException when the token is cancelled.
+	 */
+	static List<TCPSession> extractTCPSessions(Collection<PacketInfo> packets,
+			CancellationToken token, TraceSymbols symbols, SessionStorageFile.Spiller spiller,
+			Collection<TCPSession> previousSessions) throws IOException {
 		logger.entering("com.att.aro.model.TCPSession", "extractTCPSessions(Collection<PacketInfo>)");
 		Map<String, TCPSession> allSessions = new LinkedHashMap<String, TCPSession>();
 		List<PacketInfo> dnsPackets = new ArrayList<PacketInfo>();
 		List<PacketInfo> udpPackets = new ArrayList<PacketInfo>();
 		Map<InetAddress, String> hostMap = new HashMap<InetAddress, String>();
+
+		// The previous TCP sessions by their first packet
+		Map<Packet, TCPSession> reusable = new IdentityHashMap<Packet, TCPSession>();
+		if (previousSessions != null) {
+			for (TCPSession session : previousSessions) {
+				if (!session.udpOnly && !session.packets.isEmpty()) {
+					reusable.put(session.packets.get(0).getPacket(), session);
+				}
+			}
+		}
 		
 		logger.finest("Starting loop through packets");
+		int count = 0;
 		for (PacketInfo packet : packets) {
+			if (token != null && (++count & 0xfff) == 0) {
+				token.checkCancelled();
+			}
 
 			/**
 			 * Save DNS packets
@@ -234,9 +374,6 @@ public class TCPSession implements Serializable, Comparable<TCPSession> {
 				continue;
 			}
 
-			// Clear TCP Info
-			packet.setTcpInfo(null);
-
 			/**
 			 * Creates a new TCP Session using remoteIP, remotePort, localPort.
 			 * Stores the session in allSessions Collection
@@ -309,9 +446,13 @@ public class TCPSession implements Serializable, Comparable<TCPSession> {
 		logger.finest("Starting creating sessions");
 		// Reassemble sessions
 		List<TCPSession> sessions = new ArrayList<TCPSession>(allSessions.values());
-		Reassembler ul = new Reassembler();
-		Reassembler dl = new Reassembler();
+		Reassembler[] buffers = getReassemblers();
+		Reassembler ul = buffers[0];
+		Reassembler dl = buffers[1];
 		for (int sessionIndex = 0; sessionIndex < sessions.size(); ++sessionIndex) {
+			if (token != null) {
+				token.checkCancelled();
+			}
 			
 			logger.log(Level.FINEST, "Working with [{0}] session", sessionIndex);
 
@@ -321,6 +462,17 @@ public class TCPSession implements Serializable, Comparable<TCPSession> {
 			
 			logger.log(Level.FINEST, "Session has {0} packets", session.getPackets().size());
 
+			// Copy the previous session when its packets have not changed
+			TCPSession previous = reusable.get(session.packets.get(0).getPacket());
+			if (previous != null && session.copy(previous, spiller)) {
+				continue;
+			}
+
+			// Clear TCP Info
+			for (PacketInfo packetInfo : session.packets) {
+				packetInfo.setTcpInfo(null);
+			}
+
 			// Reset variables
 			boolean bTerminated = false;
 			ul.clear();
@@ -546,57 +698,18 @@ public class TCPSession implements Serializable, Comparable<TCPSession> {
 					p.setTcpInfo(TcpInfo.TCP_DATA_DUP);
 				}
 			}
-		} // END: Reassemble sessions
-		logger.finest("All sessions where created");
-
-		logger.finest("Starting looping through all sessions");
-		// More session parsing
-		for (TCPSession s : sessions) {
-			for (PacketInfo p : s.packets) {
-				s.bytesTransferred += p.getPacket().getLen();
-			}
-			s.analyzeACK();
-			s.analyzeZeroWindow();
-			s.analyzeRecoverPkts();
-
-			// TODO Validate TCP info is set on all
-			// CheckTCPInfo(s);
-
-			// // TODO Check this?
-			// s.pStorageUL->CheckPacketsRange();
-			// s.pStorageDL->CheckPacketsRange();
-			//
-
-			// Parse HTTP request response info
-			s.requestResponseInfo = HttpRequestResponseInfo
-					.extractHttpRequestResponseInfo(s);
-			for (HttpRequestResponseInfo rr : s.requestResponseInfo) {
-				if (rr.getDirection() == HttpRequestResponseInfo.Direction.REQUEST) {
 
-					// Assume first host found is same for entire session
-					if (s.domainName == null) {
-						String host = rr.getHostName();
-						if (host != null) {
-							URI referrer = rr.getReferrer();
-							s.remoteHostName = host;
-							s.domainName = referrer != null ? referrer
-									.getHost() : host;
-						}
-					}
-				} else if (rr.getDirection() == HttpRequestResponseInfo.Direction.RESPONSE) {
-					if (rr.getContentLength() > 0) {
-						++s.fileDownloadCount;
-					}
-				}
+			// More session parsing, once the packets of the session are final
+			session.parse(symbols);
+			if (previousSessions != null) {
+				session.recordTcpInfos();
 			}
-			if (s.domainName == null) {
-				s.domainName = s.remoteHostName != null ? s.remoteHostName : s.remoteIP.getHostAddress();
-			}
-		}
+			store(session, spiller);
+		} // END: Reassemble sessions
+		logger.finest("All sessions where created");
 		ul.clear();
 		dl.clear();
-		logger.finest("Ended looping through all sessions");
-		
+
 		logger.finest("Sorting sessions");
 		Collections.sort(sessions);
 		logger.finest("End of sorting sessions");
@@ -605,24 +718,220 @@ public class TCPSession implements Serializable, Comparable<TCPSession> {
 		
 		/*Get UDP sessions.*/
 		if(!udpPackets.isEmpty()){
-			List<TCPSession> udpSessions = getUDPSessions(udpPackets,sessions);
+			List<TCPSession> udpSessions = getUDPSessions(udpPackets,sessions, symbols, spiller);
 			sessions.addAll(udpSessions);
 		}
 
+		// Share the host names of the sessions across the trace
+		if (symbols != null) {
+			SymbolTable hostNames = symbols.getHostNames();
+			for (TCPSession s : sessions) {
+				s.remoteHostName = hostNames.intern(s.remoteHostName);
+				s.domainName = hostNames.intern(s.domainName);
+			}
+		}
+
 		return sessions;
 	}
+
+	/**
+	 * Analyzes the packets of this TCP session, and parses its HTTP
+	 * request/responses.
+	 * 
+	 * @param symbols
+	 *            The symbol tables of the trace, or null.
+	 * @throws IOException
+	 */
+	private void parse(TraceSymbols symbols) throws IOException {
+		for (PacketInfo p : packets) {
+			bytesTransferred += p.getPacket().getLen();
+		}
+		analyzeACK();
+		analyzeZeroWindow();
+		analyzeRecoverPkts();
+
+		// TODO Validate TCP info is set on all
+		// CheckTCPInfo(s);
+
+		// // TODO Check this?
+		// s.pStorageUL->CheckPacketsRange();
+		// s.pStorageDL->CheckPacketsRange();
+		//
+
+		// Parse HTTP request response info
+		requestResponseInfo = HttpRequestResponseInfo
+				.extractHttpRequestResponseInfo(this, symbols);
+		for (HttpRequestResponseInfo rr : requestResponseInfo) {
+			if (rr.getDirection() == HttpRequestResponseInfo.Direction.REQUEST) {
+
+				// Assume first host found is same for entire session
+				if (domainName == null) {
+					String host = rr.getHostName();
+					if (host != null) {
+						URI referrer = rr.getReferrer();
+						remoteHostName = host;
+						domainName = referrer != null ? referrer
+								.getHost() : host;
+					}
+				}
+			} else if (rr.getDirection() == HttpRequestResponseInfo.Direction.RESPONSE) {
+				if (rr.getContentLength() > 0) {
+					++fileDownloadCount;
+				}
+			}
+		}
+		if (domainName == null) {
+			domainName = remoteHostName != null ? remoteHostName : remoteIP.getHostAddress();
+		}
+	}
+
+	/**
+	 * Records the TCP information of the packets of this session, which the
+	 * copy of the session in the next snapshot of a live trace sets on its
+	 * packets. The packets of this snapshot are not read for it, since a later
+	 * analysis of this snapshot may be setting them again.
+	 */
+	private void recordTcpInfos() {
+		packetTcpInfos = new byte[packets.size()];
+		for (int i = 0; i < packetTcpInfos.length; ++i) {
+			TcpInfo tcpInfo = packets.get(i).getTcpInfo();
+			packetTcpInfos[i] = (byte) (tcpInfo != null ? tcpInfo.ordinal() + 1 : 0);
+		}
+	}
+
+	/**
+	 * Copies the same session of the previous snapshot of a live trace to
+	 * this session, when both have exactly the same packets. The copy refers
+	 * to the packet information of this snapshot only, and the previous
+	 * session is not modified, since it may still be displayed. Storage that
+	 * the previous session spilled to a file is read back, so that this
+	 * session does not depend on the files of the previous snapshot, which
+	 * are released with it.
+	 * 
+	 * @param previous
+	 *            The session of the previous snapshot.
+	 * @param spiller
+	 *            The spiller of the session storage, or null.
+	 * @return true if the session is copied, or false if it has to be
+	 *         reassembled and parsed.
+	 * @throws IOException
+	 */
+	private boolean copy(TCPSession previous, SessionStorageFile.Spiller spiller)
+			throws IOException {
+		byte[] tcpInfos = previous.packetTcpInfos;
+		if (tcpInfos == null || previous.packets.size() != packets.size()) {
+			return false;
+		}
+		Map<PacketInfo, PacketInfo> packetMap = new IdentityHashMap<PacketInfo, PacketInfo>(
+				packets.size());
+		for (int i = 0; i < packets.size(); ++i) {
+			PacketInfo packet = packets.get(i);
+			PacketInfo previousPacket = previous.packets.get(i);
+			if (packet.getPacket() != previousPacket.getPacket()) {
+				return false;
+			}
+			packetMap.put(previousPacket, packet);
+		}
+
+		SessionStorageFile file = previous.storageFile;
+		if (file != null) {
+			byte[] ul = file.read(previous.storageUlOffset, previous.storageUlSize);
+			byte[] dl = file.read(previous.storageDlOffset, previous.storageDlSize);
+			if (ul == null || dl == null) {
+				return false;
+			}
+			this.storageUl = ul;
+			this.storageDl = dl;
+		} else if (previous.compressedUl != null) {
+
+			// Spilled blocks are not read back
+			CompressedStorage ul = previous.compressedUl.copy();
+			CompressedStorage dl = previous.compressedDl.copy();
+			if (ul == null || dl == null) {
+				return false;
+			}
+			this.compressedUl = ul;
+			this.compressedDl = dl;
+		} else {
+			this.storageUl = previous.storageUl;
+			this.storageDl = previous.storageDl;
+		}
+		this.packetOffsetsUl = copyPacketOffsets(previous.packetOffsetsUl, packetMap);
+		this.packetOffsetsDl = copyPacketOffsets(previous.packetOffsetsDl, packetMap);
+
+		this.remoteHostName = previous.remoteHostName;
+		this.domainName = previous.domainName;
+		this.fileDownloadCount = previous.fileDownloadCount;
+		this.bytesTransferred = previous.bytesTransferred;
+		this.ssl = previous.ssl;
+		this.lastSslHandshakePacket = packetMap.get(previous.lastSslHandshakePacket);
+		if (previous.sessionTermination != null) {
+			this.sessionTermination = new Termination(
+					packetMap.get(previous.sessionTermination.packet),
+					previous.sessionTermination.sessionTerminationDelay);
+		}
+		this.requestResponseInfo = HttpRequestResponseInfo.copy(previous.requestResponseInfo,
+				this, packetMap);
+
+		// Link the packets of this snapshot to the copy
+		TcpInfo[] values = TcpInfo.values();
+		for (int i = 0; i < packets.size(); ++i) {
+			PacketInfo packet = packets.get(i);
+			packet.setSession(this);
+			packet.setTcpInfo(tcpInfos[i] != 0 ? values[tcpInfos[i] - 1] : null);
+		}
+		this.packetTcpInfos = tcpInfos;
+		store(this, spiller);
+		return true;
+	}
+
+	/**
+	 * Returns the offsets of the packets in the storage of a session, with
+	 * the packets mapped to the packets of another snapshot of the trace.
+	 */
+	private static SortedMap<Integer, PacketInfo> copyPacketOffsets(
+			SortedMap<Integer, PacketInfo> packetOffsets, Map<PacketInfo, PacketInfo> packetMap) {
+		SortedMap<Integer, PacketInfo> result = new TreeMap<Integer, PacketInfo>();
+		for (Map.Entry<Integer, PacketInfo> entry : packetOffsets.entrySet()) {
+			result.put(entry.getKey(), packetMap.get(entry.getValue()));
+		}
+		return result;
+	}
+
+	/**
+	 * Keeps the storage of a parsed session compressed, when compression is
+	 * enabled, and off the heap once the storage of the sessions reaches the
+	 * spill threshold, until its content is requested.
+	 * 
+	 * @param session
+	 *            The session.
+	 * @param spiller
+	 *            The spiller of the session storage, or null.
+	 * @throws IOException
+	 */
+	private static void store(TCPSession session, SessionStorageFile.Spiller spiller)
+			throws IOException {
+		if (CompressedStorage.ENABLED) {
+			session.compressStorage();
+		}
+		if (spiller != null) {
+			spiller.add(session);
+		}
+	}
 /**
  * Get the UDP sessions from different UDP packets.
  * @return Collection of TCPSession objects containing only UDP packets
  * */
 	
 	private static List<TCPSession> getUDPSessions(
-			List<PacketInfo> udpPackets,List<TCPSession> sessions)throws IOException{
+			List<PacketInfo> udpPackets,List<TCPSession> sessions, TraceSymbols symbols,
+			SessionStorageFile.Spiller spiller)throws IOException{
 		Map<String, TCPSession> allUDPSessions = new LinkedHashMap<String, TCPSession>();	
 		ListIterator<PacketInfo> iter = null;// = udpPackets.listIterator();//(udpPackets.size());
 		DomainNameSystem dns = null;
-		Reassembler ul = new Reassembler();
-		Reassembler dl = new Reassembler();
+		Reassembler[] buffers = getReassemblers();
+		Reassembler ul = buffers[0];
+		Reassembler dl = buffers[1];
 
 		/*Remove all the dns packets part of TCP connections*/
 		for (TCPSession sess : sessions){
@@ -732,29 +1041,27 @@ public class TCPSession implements Serializable, Comparable<TCPSession> {
 			session.storageUl = ul.storage.toByteArray();
 			session.packetOffsetsUl = ul.packetOffsets;
 
-		}
-		for (TCPSession sess : udpSessions) {
-			sess.requestResponseInfo = HttpRequestResponseInfo.extractHttpRequestResponseInfo(sess);
+			session.requestResponseInfo = HttpRequestResponseInfo.extractHttpRequestResponseInfo(session, symbols);
 			
-			for (HttpRequestResponseInfo rr : sess.requestResponseInfo) {
+			for (HttpRequestResponseInfo rr : session.requestResponseInfo) {
 				if (rr.getDirection() == HttpRequestResponseInfo.Direction.REQUEST) {
 
 					// Assume first host found is same for entire session
-					if (sess.domainName == null) {
+					if (session.domainName == null) {
 						String host = rr.getHostName();
 						if (host != null) {
 							URI referrer = rr.getReferrer();
-							sess.remoteHostName = host;
-							sess.domainName = referrer != null ? referrer
+							session.remoteHostName = host;
+							session.domainName = referrer != null ? referrer
 									.getHost() : host;
 						}
 					}
 				} 
 			}
-			if (sess.domainName == null) {
-				sess.domainName = sess.remoteHostName != null ? sess.remoteHostName : sess.remoteIP.getHostAddress();
+			if (session.domainName == null) {
+				session.domainName = session.remoteHostName != null ? session.remoteHostName : session.remoteIP.getHostAddress();
 			}
-			
+			store(session, spiller);
 		}
 		ul.clear();
 		dl.clear();
@@ -951,9 +1258,14 @@ public class TCPSession implements Serializable, Comparable<TCPSession> {
 	 * @return The result string.
 	 */
 	public String getDataText() {
-		StringBuffer buf = new StringBuffer(storageUl.length + storageDl.length);
-		buf.append(new String(storageUl));
-		buf.append(new String(storageDl));
+		byte[] ul = getStorageUl();
+		byte[] dl = getStorageDl();
+		if (ul == null || dl == null) {
+			return "";
+		}
+		StringBuffer buf = new StringBuffer(ul.length + dl.length);
+		buf.append(new String(ul));
+		buf.append(new String(dl));
 		String result = buf.toString();
 		System.gc();
 		return result;
@@ -965,6 +1277,12 @@ public class TCPSession implements Serializable, Comparable<TCPSession> {
 	 * @return An array of bytes containing the uplink storage.
 	 */
 	public byte[] getStorageUl() {
+		SessionStorageFile file = storageFile;
+		if (file != null) {
+			return file.read(storageUlOffset, storageUlSize);
+		} else if (compressedUl != null) {
+			return compressedUl.toByteArray();
+		}
 		return storageUl;
 	}
 
@@ -974,9 +1292,185 @@ public class TCPSession implements Serializable, Comparable<TCPSession> {
 	 * @return An array of bytes containing the downlink storage.
 	 */
 	public byte[] getStorageDl() {
+		SessionStorageFile file = storageFile;
+		if (file != null) {
+			return file.read(storageDlOffset, storageDlSize);
+		} else if (compressedDl != null) {
+			return compressedDl.toByteArray();
+		}
 		return storageDl;
 	}
 
+	/**
+	 * Returns the size of the uplink storage, without reading storage that is
+	 * spilled to a file.
+	 * 
+	 * @return The number of bytes of uplink storage.
+	 */
+	int getStorageUlSize() {
+		if (compressedUl != null) {
+			return compressedUl.size();
+		}
+		return storageFile != null ? storageUlSize : storageUl != null ? storageUl.length : 0;
+	}
+
+	/**
+	 * Returns the size of the downlink storage, without reading storage that
+	 * is spilled to a file.
+	 * 
+	 * @return The number of bytes of downlink storage.
+	 */
+	int getStorageDlSize() {
+		if (compressedDl != null) {
+			return compressedDl.size();
+		}
+		return storageFile != null ? storageDlSize : storageDl != null ? storageDl.length : 0;
+	}
+
+	/**
+	 * Returns the number of bytes of storage that the session holds on the
+	 * heap, which are compressed when the storage is compressed.
+	 * 
+	 * @return The number of bytes of storage on the heap.
+	 */
+	int getHeapStorageSize() {
+		if (compressedUl != null) {
+			return compressedUl.getHeapSize() + compressedDl.getHeapSize();
+		}
+		return storageFile != null ? 0 : (storageUl != null ? storageUl.length : 0)
+				+ (storageDl != null ? storageDl.length : 0);
+	}
+
+	/**
+	 * Writes the uplink and downlink storage to the specified file, and
+	 * releases the storage arrays. Storage that is compressed is written
+	 * compressed.
+	 * 
+	 * @param file
+	 *            The storage file.
+	 * @throws IOException
+	 */
+	void spillStorage(SessionStorageFile file) throws IOException {
+		if (compressedUl != null) {
+			compressedUl.spill(file);
+			compressedDl.spill(file);
+			return;
+		}
+		if (storageFile != null || storageUl == null || storageDl == null) {
+			return;
+		}
+		this.storageUlOffset = file.write(storageUl);
+		this.storageUlSize = storageUl.length;
+		this.storageDlOffset = file.write(storageDl);
+		this.storageDlSize = storageDl.length;
+		this.storageFile = file;
+		this.storageUl = null;
+		this.storageDl = null;
+	}
+
+	/**
+	 * Writes the storage that is spilled to a file inline, so that the
+	 * session keeps its content when it is read back.
+	 * 
+	 * @param out
+	 *            The stream to write to.
+	 * @throws IOException
+	 */
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		SessionStorageFile file = storageFile;
+		if (file == null) {
+			out.defaultWriteObject();
+			return;
+		}
+		byte[] ul = file.read(storageUlOffset, storageUlSize);
+		byte[] dl = file.read(storageDlOffset, storageDlSize);
+		if (ul == null || dl == null) {
+			throw new IOException("Session storage is not available");
+		}
+		synchronized (this) {
+			this.storageUl = ul;
+			this.storageDl = dl;
+			try {
+				out.defaultWriteObject();
+			} finally {
+				this.storageUl = null;
+				this.storageDl = null;
+			}
+		}
+	}
+
+	/**
+	 * Compresses the uplink and downlink storage, and releases the storage
+	 * arrays.
+	 * 
+	 * @return The number of bytes that the compressed storage takes.
+	 */
+	int compressStorage() {
+		if (storageFile == null && storageUl != null && storageDl != null) {
+			this.compressedUl = new CompressedStorage(storageUl);
+			this.compressedDl = new CompressedStorage(storageDl);
+			this.storageUl = null;
+			this.storageDl = null;
+		}
+		return compressedUl != null ? compressedUl.getCompressedSize()
+				+ compressedDl.getCompressedSize() : 0;
+	}
+
+	/**
+	 * Indicates whether the storage is spilled to a file.
+	 * 
+	 * @return true if the storage is spilled.
+	 */
+	boolean isStorageSpilled() {
+		return storageFile != null || (compressedUl != null && compressedUl.isSpilled());
+	}
+
+	/**
+	 * Indicates whether the storage is compressed on the heap.
+	 * 
+	 * @return true if the storage is compressed.
+	 */
+	boolean isStorageCompressed() {
+		return compressedUl != null;
+	}
+
+	/**
+	 * Returns a range of the uplink or downlink storage. Only the part of the
+	 * storage that holds the range is read when the storage is compressed or
+	 * is spilled to a file and larger than the cache of the file. The range is shortened when the storage ends before the end of the
+	 * range. The returned array may be shared and must not be modified.
+	 * 
+	 * @param direction
+	 *            The direction of the storage.
+	 * @param offset
+	 *            The offset of the range in the storage.
+	 * @param length
+	 *            The number of bytes in the range.
+	 * @return The bytes of the range, or null if the storage is not
+	 *         available.
+	 */
+	byte[] getStorage(PacketInfo.Direction direction, int offset, int length) {
+		CompressedStorage compressed = direction == PacketInfo.Direction.UPLINK ? compressedUl
+				: compressedDl;
+		if (compressed != null) {
+			return compressed.read(offset, length);
+		}
+		SessionStorageFile file = storageFile;
+		if (file != null) {
+			return direction == PacketInfo.Direction.UPLINK ? file.read(storageUlOffset,
+					storageUlSize, offset, length) : file.read(storageDlOffset, storageDlSize,
+					offset, length);
+		}
+		byte[] storage = direction == PacketInfo.Direction.UPLINK ? getStorageUl()
+				: getStorageDl();
+		if (storage == null || (offset == 0 && length >= storage.length)) {
+			return storage;
+		}
+		offset = Math.max(0, Math.min(offset, storage.length));
+		return Arrays.copyOfRange(storage, offset, offset
+				+ Math.max(0, Math.min(length, storage.length - offset)));
+	}
+
 	/**
 	 * Returns a sorted Map of offsets and packet data for each uplink packet in the 
 	 * storage array. 
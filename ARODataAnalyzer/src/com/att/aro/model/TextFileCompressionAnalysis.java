@@ -24,7 +24,7 @@ import java.util.logging.Logger;
  * Represents Text File Compression Analysis
  *
  */
-public class TextFileCompressionAnalysis {
+public class TextFileCompressionAnalysis extends SessionVisitorAdapter {
 
 	private static final Logger LOGGER = Logger.getLogger(TextFileCompressionAnalysis.class.getName());
 
@@ -46,14 +46,30 @@ public class TextFileCompressionAnalysis {
 	 * 				- TCP session to be analyzed.
 	 */
 	public TextFileCompressionAnalysis(List<TCPSession> tcpSessions) {
+		SessionTraversal.traverse(tcpSessions, null, this);
+	}
+
+	/**
+	 * Creates a Text File Compression Analysis that is performed by a session
+	 * traversal.
+	 */
+	public TextFileCompressionAnalysis() {
+	}
+
+	@Override
+	public void onRequest(HttpRequestResponseInfo rr) {
+		checkCompression(rr);
+	}
+
+	@Override
+	public void onResponse(HttpRequestResponseInfo rr) {
+		checkCompression(rr);
+	}
 
-		for (TCPSession tcpSession : tcpSessions) {
-			for (HttpRequestResponseInfo rr : tcpSession.getRequestResponseInfo()) {
-				// if the http payload should be compressed but is not
-				if (rr.setHttpCompression(this)) {
-					results.add(new TextFileCompressionEntry(rr));
-				}
-			}
+	private void checkCompression(HttpRequestResponseInfo rr) {
+		// if the http payload should be compressed but is not
+		if (rr.setHttpCompression(this)) {
+			results.add(new TextFileCompressionEntry(rr));
 		}
 	}
 
@@ -0,0 +1,333 @@
+/*
+ *  Copyright 2012 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.model;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * An immutable list of trace events sorted by time, such as the states of a
+ * peripheral or the signal strength samples of the radio. A time range of the
+ * series is returned as a view that shares the events of the series: the
+ * boundaries of the range are found by binary search, and only the events
+ * that cross a boundary are copied, clipped to the range. The series also
+ * holds the running total of the duration of each state, so the time spent in
+ * a state in any range is found without iterating over the events.
+ * <p>
+ * An event is in a time range if it lies within the range, or if it overlaps
+ * the range and can be clipped to it. Point events have the same begin and
+ * end time.
+ *
+ * @param <T>
+ *            The event type.
+ */
+public final class TimeSeries<T> extends AbstractList<T> implements RandomAccess {
+
+	/**
+	 * Provides the times and state of an event of a time series.
+	 *
+	 * @param <T>
+	 *            The event type.
+	 */
+	public interface Accessor<T> {
+
+		/**
+		 * Returns the begin time of the event, in seconds.
+		 */
+		double getBeginTime(T event);
+
+		/**
+		 * Returns the end time of the event, in seconds.
+		 */
+		double getEndTime(T event);
+
+		/**
+		 * Returns the state of the event whose duration is totaled, or null if
+		 * the event has no state.
+		 */
+		Object getState(T event);
+
+		/**
+		 * Returns a copy of the event with the specified begin and end times,
+		 * or null if the event cannot be clipped and must be left out of a
+		 * range it does not lie within.
+		 */
+		T clip(T event, double beginTime, double endTime);
+	}
+
+	/**
+	 * The events and running totals shared by a series and its range views.
+	 */
+	private static class Data<T> {
+		private final List<T> events;
+		private final Accessor<T> accessor;
+		private final double[] beginTimes;
+		private final double[] endTimes;
+		private final boolean sorted;
+
+		// For each state, the total duration of the events in that state
+		// before each index.
+		private final Map<Object, double[]> durations = new HashMap<Object, double[]>();
+
+		Data(List<T> events, Accessor<T> accessor) {
+			this.events = new ArrayList<T>(events);
+			this.accessor = accessor;
+
+			int size = this.events.size();
+			beginTimes = new double[size];
+			endTimes = new double[size];
+			boolean sorted = true;
+			for (int i = 0; i < size; ++i) {
+				T event = this.events.get(i);
+				beginTimes[i] = accessor.getBeginTime(event);
+				endTimes[i] = accessor.getEndTime(event);
+				if (i > 0 && !(beginTimes[i - 1] <= beginTimes[i] && endTimes[i - 1] <= endTimes[i])) {
+					sorted = false;
+				}
+
+				Object state = accessor.getState(event);
+				if (state != null) {
+					double[] totals = durations.get(state);
+					if (totals == null) {
+						totals = new double[size + 1];
+						durations.put(state, totals);
+					}
+					totals[i + 1] = endTimes[i] - beginTimes[i];
+				}
+			}
+			this.sorted = sorted;
+
+			for (double[] totals : durations.values()) {
+				for (int i = 1; i <= size; ++i) {
+					totals[i] += totals[i - 1];
+				}
+			}
+		}
+
+		/**
+		 * Returns the event clipped to the time range, the event itself if it
+		 * lies within the range, or null if it is not in the range.
+		 */
+		T clip(int index, double beginTime, double endTime) {
+			T event = events.get(index);
+			double begin = beginTimes[index];
+			double end = endTimes[index];
+			if (begin >= beginTime && end <= endTime) {
+				return event;
+			} else if (begin <= beginTime && end <= endTime && end > beginTime) {
+				return accessor.clip(event, beginTime, end);
+			} else if (begin <= beginTime && end >= endTime) {
+				return accessor.clip(event, beginTime, endTime);
+			} else if (begin >= beginTime && begin < endTime && end >= endTime) {
+				return accessor.clip(event, begin, endTime);
+			}
+			return null;
+		}
+
+		/**
+		 * Returns the index of the first event that ends at or after the
+		 * specified time.
+		 */
+		int firstEndingAfter(double time) {
+			int low = 0;
+			int high = endTimes.length;
+			while (low < high) {
+				int mid = (low + high) >>> 1;
+				if (endTimes[mid] < time) {
+					low = mid + 1;
+				} else {
+					high = mid;
+				}
+			}
+			return low;
+		}
+
+		/**
+		 * Returns the index of the first event that begins after the specified
+		 * time.
+		 */
+		int firstBeginningAfter(double time) {
+			int low = 0;
+			int high = beginTimes.length;
+			while (low < high) {
+				int mid = (low + high) >>> 1;
+				if (beginTimes[mid] <= time) {
+					low = mid + 1;
+				} else {
+					high = mid;
+				}
+			}
+			return low;
+		}
+	}
+
+	private final Data<T> data;
+	private final double beginTime;
+	private final double endTime;
+
+	// The view is made of the clipped events at the beginning of the range,
+	// the shared events from index "from" to "to" of the series, and the
+	// clipped events at the end of the range.
+	private final List<T> head;
+	private final int from;
+	private final int to;
+	private final List<T> tail;
+
+	/**
+	 * Initializes an instance of the TimeSeries class with the specified
+	 * events.
+	 *
+	 * @param events
+	 *            The events, sorted by begin time. The list is copied.
+	 * @param accessor
+	 *            Provides the times and states of the events.
+	 */
+	public TimeSeries(List<T> events, Accessor<T> accessor) {
+		this.data = new Data<T>(events, accessor);
+		this.beginTime = Double.NEGATIVE_INFINITY;
+		this.endTime = Double.POSITIVE_INFINITY;
+		this.head = Collections.emptyList();
+		this.from = 0;
+		this.to = data.events.size();
+		this.tail = Collections.emptyList();
+	}
+
+	private TimeSeries(Data<T> data, double beginTime, double endTime, List<T> head, int from,
+			int to, List<T> tail) {
+		this.data = data;
+		this.beginTime = beginTime;
+		this.endTime = endTime;
+		this.head = head;
+		this.from = from;
+		this.to = to;
+		this.tail = tail;
+	}
+
+	/**
+	 * Returns a view of the events of this series in the specified time
+	 * range.
+	 *
+	 * @param beginTime
+	 *            The begin time of the range, in seconds.
+	 * @param endTime
+	 *            The end time of the range, in seconds.
+	 * @return The events in the range.
+	 */
+	public TimeSeries<T> range(double beginTime, double endTime) {
+		beginTime = Math.max(beginTime, this.beginTime);
+		endTime = Math.min(endTime, this.endTime);
+
+		if (!data.sorted || beginTime > endTime) {
+
+			// The boundaries cannot be searched for, so the range is made of
+			// clipped events only
+			List<T> events = new ArrayList<T>();
+			for (int i = 0; i < data.events.size(); ++i) {
+				T event = data.clip(i, beginTime, endTime);
+				if (event != null) {
+					events.add(event);
+				}
+			}
+			return new TimeSeries<T>(data, beginTime, endTime, events, 0, 0,
+					Collections.<T> emptyList());
+		}
+
+		// Since both the begin and end times of the events are sorted, the
+		// events that lie within the range are contiguous, and are preceded
+		// and followed by the events that cross the boundaries of the range.
+		int low = data.firstEndingAfter(beginTime);
+		int high = Math.max(low, data.firstBeginningAfter(endTime));
+		int from = low;
+		while (from < high && !(data.beginTimes[from] >= beginTime && data.endTimes[from] <= endTime)) {
+			++from;
+		}
+		int to = high;
+		while (to > from && !(data.beginTimes[to - 1] >= beginTime && data.endTimes[to - 1] <= endTime)) {
+			--to;
+		}
+		return new TimeSeries<T>(data, beginTime, endTime, clip(low, from, beginTime, endTime),
+				from, to, clip(to, high, beginTime, endTime));
+	}
+
+	/**
+	 * Returns the events from index "from" to "to" of the series clipped to
+	 * the time range.
+	 */
+	private List<T> clip(int from, int to, double beginTime, double endTime) {
+		if (from == to) {
+			return Collections.emptyList();
+		}
+		List<T> events = new ArrayList<T>(to - from);
+		for (int i = from; i < to; ++i) {
+			T event = data.clip(i, beginTime, endTime);
+			if (event != null) {
+				events.add(event);
+			}
+		}
+		return events;
+	}
+
+	/**
+	 * Returns the total duration of the events of this series in the
+	 * specified state.
+	 *
+	 * @param state
+	 *            The state.
+	 * @return The duration in seconds.
+	 */
+	public double getDuration(Object state) {
+		double duration = getDuration(head, state);
+		double[] totals = data.durations.get(state);
+		if (totals != null) {
+			duration += totals[to] - totals[from];
+		}
+		return duration + getDuration(tail, state);
+	}
+
+	private double getDuration(List<T> events, Object state) {
+		double duration = 0.0;
+		for (T event : events) {
+			if (state.equals(data.accessor.getState(event))) {
+				duration += data.accessor.getEndTime(event) - data.accessor.getBeginTime(event);
+			}
+		}
+		return duration;
+	}
+
+	@Override
+	public T get(int index) {
+		if (index < 0) {
+			throw new IndexOutOfBoundsException(Integer.toString(index));
+		} else if (index < head.size()) {
+			return head.get(index);
+		}
+		index -= head.size();
+		if (index < to - from) {
+			return data.events.get(from + index);
+		}
+		return tail.get(index - (to - from));
+	}
+
+	@Override
+	public int size() {
+		return head.size() + (to - from) + tail.size();
+	}
+}
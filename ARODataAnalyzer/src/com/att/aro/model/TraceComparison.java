@@ -0,0 +1,949 @@
+/*
+ *  Copyright 2012 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.model;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.att.aro.bp.BestPracticeDisplay;
+
+/**
+ * Compares two analyzed traces, such as two builds of the same application,
+ * and reports the differences. The HTTP transactions of the traces are aligned
+ * by normalized URL, the sessions by domain, and the bursts by category and
+ * time offset from the start of the trace. The analyses are only read, so a
+ * comparison may run while the analyses are displayed.
+ */
+public class TraceComparison {
+
+	/**
+	 * The default maximum difference in seconds between the time offsets of
+	 * two bursts of the same category that are aligned.
+	 */
+	public static final double DEFAULT_BURST_TOLERANCE = 2.0;
+
+	/**
+	 * A value measured on both traces.
+	 */
+	public static class Metric {
+		private String name;
+		private double base;
+		private double candidate;
+
+		private Metric(String name, double base, double candidate) {
+			this.name = name;
+			this.base = base;
+			this.candidate = candidate;
+		}
+
+		/**
+		 * Returns the name of the metric.
+		 *
+		 * @return The metric name.
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * Returns the value of the metric in the base trace.
+		 *
+		 * @return The base value.
+		 */
+		public double getBase() {
+			return base;
+		}
+
+		/**
+		 * Returns the value of the metric in the candidate trace.
+		 *
+		 * @return The candidate value.
+		 */
+		public double getCandidate() {
+			return candidate;
+		}
+
+		/**
+		 * Returns the candidate value minus the base value.
+		 *
+		 * @return The difference.
+		 */
+		public double getDelta() {
+			return candidate - base;
+		}
+
+		/**
+		 * Returns the difference relative to the base value.
+		 *
+		 * @return The relative difference, or NaN when the base value is 0.
+		 */
+		public double getRelativeDelta() {
+			return base != 0.0 ? (candidate - base) / base : Double.NaN;
+		}
+	}
+
+	/**
+	 * An HTTP request and its response.
+	 */
+	public static class Transaction {
+		private String key;
+		private HttpRequestResponseInfo request;
+		private HttpRequestResponseInfo response;
+
+		private Transaction(String key, HttpRequestResponseInfo request) {
+			this.key = key;
+			this.request = request;
+			this.response = request.getAssocReqResp();
+		}
+
+		/**
+		 * Returns the normalized URL of the transaction, preceded by the
+		 * request method.
+		 *
+		 * @return The match key.
+		 */
+		public String getKey() {
+			return key;
+		}
+
+		/**
+		 * Returns the request.
+		 *
+		 * @return The HTTP request.
+		 */
+		public HttpRequestResponseInfo getRequest() {
+			return request;
+		}
+
+		/**
+		 * Returns the response.
+		 *
+		 * @return The HTTP response, or null if the request was not answered.
+		 */
+		public HttpRequestResponseInfo getResponse() {
+			return response;
+		}
+
+		/**
+		 * Returns the bytes of the request and response, including headers.
+		 *
+		 * @return The byte count.
+		 */
+		public long getBytes() {
+			return request.getRawSize() + (response != null ? response.getRawSize() : 0);
+		}
+
+		/**
+		 * Returns the status code of the response.
+		 *
+		 * @return The status code, or 0 if there is no response.
+		 */
+		public int getStatusCode() {
+			return response != null ? response.getStatusCode() : 0;
+		}
+	}
+
+	/**
+	 * A transaction of the base trace aligned with a transaction of the
+	 * candidate trace. One side is null when the transaction occurs in only
+	 * one of the traces.
+	 */
+	public static class TransactionMatch {
+		private Transaction base;
+		private Transaction candidate;
+
+		private TransactionMatch(Transaction base, Transaction candidate) {
+			this.base = base;
+			this.candidate = candidate;
+		}
+
+		/**
+		 * Returns the normalized URL of the aligned transactions.
+		 *
+		 * @return The match key.
+		 */
+		public String getKey() {
+			return base != null ? base.getKey() : candidate.getKey();
+		}
+
+		/**
+		 * Returns the transaction of the base trace.
+		 *
+		 * @return The base transaction, or null if it was added in the
+		 *         candidate trace.
+		 */
+		public Transaction getBase() {
+			return base;
+		}
+
+		/**
+		 * Returns the transaction of the candidate trace.
+		 *
+		 * @return The candidate transaction, or null if it was removed in the
+		 *         candidate trace.
+		 */
+		public Transaction getCandidate() {
+			return candidate;
+		}
+
+		/**
+		 * Returns the candidate bytes minus the base bytes.
+		 *
+		 * @return The byte difference.
+		 */
+		public long getByteDelta() {
+			return (candidate != null ? candidate.getBytes() : 0)
+					- (base != null ? base.getBytes() : 0);
+		}
+	}
+
+	/**
+	 * The sessions, requests and bytes of one domain in both traces.
+	 */
+	public static class DomainDiff {
+		private String domain;
+		private int[] sessions = new int[2];
+		private int[] requests = new int[2];
+		private long[] bytes = new long[2];
+
+		private DomainDiff(String domain) {
+			this.domain = domain;
+		}
+
+		/**
+		 * Returns the domain name.
+		 *
+		 * @return The domain.
+		 */
+		public String getDomain() {
+			return domain;
+		}
+
+		/**
+		 * Returns the number of sessions with the domain in the base trace.
+		 *
+		 * @return The session count.
+		 */
+		public int getBaseSessions() {
+			return sessions[0];
+		}
+
+		/**
+		 * Returns the number of sessions with the domain in the candidate
+		 * trace.
+		 *
+		 * @return The session count.
+		 */
+		public int getCandidateSessions() {
+			return sessions[1];
+		}
+
+		/**
+		 * Returns the number of requests to the domain in the base trace.
+		 *
+		 * @return The request count.
+		 */
+		public int getBaseRequests() {
+			return requests[0];
+		}
+
+		/**
+		 * Returns the number of requests to the domain in the candidate trace.
+		 *
+		 * @return The request count.
+		 */
+		public int getCandidateRequests() {
+			return requests[1];
+		}
+
+		/**
+		 * Returns the bytes exchanged with the domain in the base trace.
+		 *
+		 * @return The byte count.
+		 */
+		public long getBaseBytes() {
+			return bytes[0];
+		}
+
+		/**
+		 * Returns the bytes exchanged with the domain in the candidate trace.
+		 *
+		 * @return The byte count.
+		 */
+		public long getCandidateBytes() {
+			return bytes[1];
+		}
+	}
+
+	/**
+	 * A burst of the base trace aligned with a burst of the same category in
+	 * the candidate trace. One side is null when no burst of the other trace
+	 * is near enough.
+	 */
+	public static class BurstMatch {
+		private BurstCategory category;
+		private Burst base;
+		private Burst candidate;
+
+		private BurstMatch(BurstCategory category, Burst base, Burst candidate) {
+			this.category = category;
+			this.base = base;
+			this.candidate = candidate;
+		}
+
+		/**
+		 * Returns the category of the aligned bursts.
+		 *
+		 * @return The burst category.
+		 */
+		public BurstCategory getCategory() {
+			return category;
+		}
+
+		/**
+		 * Returns the burst of the base trace.
+		 *
+		 * @return The base burst, or null.
+		 */
+		public Burst getBase() {
+			return base;
+		}
+
+		/**
+		 * Returns the burst of the candidate trace.
+		 *
+		 * @return The candidate burst, or null.
+		 */
+		public Burst getCandidate() {
+			return candidate;
+		}
+
+		/**
+		 * Returns the candidate burst energy minus the base burst energy.
+		 *
+		 * @return The energy difference in joules.
+		 */
+		public double getEnergyDelta() {
+			return (candidate != null ? candidate.getEnergy() : 0.0)
+					- (base != null ? base.getEnergy() : 0.0);
+		}
+	}
+
+	/**
+	 * The outcome of one best practice in both traces.
+	 */
+	public static class BestPracticeDiff {
+		private String name;
+		private boolean basePass;
+		private boolean candidatePass;
+
+		private BestPracticeDiff(String name, boolean basePass, boolean candidatePass) {
+			this.name = name;
+			this.basePass = basePass;
+			this.candidatePass = candidatePass;
+		}
+
+		/**
+		 * Returns the title of the best practice.
+		 *
+		 * @return The best practice name.
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * Returns whether the base trace passes the best practice.
+		 *
+		 * @return true if the base trace passes.
+		 */
+		public boolean isBasePass() {
+			return basePass;
+		}
+
+		/**
+		 * Returns whether the candidate trace passes the best practice.
+		 *
+		 * @return true if the candidate trace passes.
+		 */
+		public boolean isCandidatePass() {
+			return candidatePass;
+		}
+
+		/**
+		 * Returns whether the best practice passes in the base trace and fails
+		 * in the candidate trace.
+		 *
+		 * @return true if the outcome regressed.
+		 */
+		public boolean isRegression() {
+			return basePass && !candidatePass;
+		}
+	}
+
+	private TraceData.Analysis base;
+	private TraceData.Analysis candidate;
+	private List<Metric> metrics = new ArrayList<Metric>();
+	private List<TransactionMatch> transactions;
+	private List<DomainDiff> domains;
+	private List<BurstMatch> bursts;
+	private List<BestPracticeDiff> bestPractices = new ArrayList<BestPracticeDiff>();
+
+	/**
+	 * Compares the specified analyses, aligning bursts with the default
+	 * tolerance and without comparing best practices.
+	 *
+	 * @param base
+	 *            The analysis of the reference trace.
+	 * @param candidate
+	 *            The analysis of the trace to compare with the reference.
+	 */
+	public TraceComparison(TraceData.Analysis base, TraceData.Analysis candidate) {
+		this(base, candidate, null, DEFAULT_BURST_TOLERANCE);
+	}
+
+	/**
+	 * Compares the specified analyses.
+	 *
+	 * @param base
+	 *            The analysis of the reference trace.
+	 * @param candidate
+	 *            The analysis of the trace to compare with the reference.
+	 * @param bestPractices
+	 *            The best practices to evaluate on both traces, or null.
+	 * @param burstTolerance
+	 *            The maximum difference in seconds between the time offsets of
+	 *            two aligned bursts.
+	 */
+	public TraceComparison(TraceData.Analysis base, TraceData.Analysis candidate,
+			Collection<BestPracticeDisplay> bestPractices, double burstTolerance) {
+		this.base = base;
+		this.candidate = candidate;
+
+		List<Transaction> baseTransactions = getTransactions(base);
+		List<Transaction> candidateTransactions = getTransactions(candidate);
+		compareMetrics(baseTransactions.size(), candidateTransactions.size());
+		this.transactions = matchTransactions(baseTransactions, candidateTransactions);
+		this.domains = compareDomains();
+		this.bursts = matchBursts(burstTolerance);
+		if (bestPractices != null) {
+			for (BestPracticeDisplay bp : bestPractices) {
+				this.bestPractices.add(new BestPracticeDiff(bp.getOverviewTitle(), bp
+						.isPass(base), bp.isPass(candidate)));
+			}
+		}
+	}
+
+	/**
+	 * Returns the analysis of the reference trace.
+	 *
+	 * @return The base analysis.
+	 */
+	public TraceData.Analysis getBase() {
+		return base;
+	}
+
+	/**
+	 * Returns the analysis of the trace compared with the reference.
+	 *
+	 * @return The candidate analysis.
+	 */
+	public TraceData.Analysis getCandidate() {
+		return candidate;
+	}
+
+	/**
+	 * Returns the totals of both traces: bytes, packets, requests, sessions,
+	 * energy, RRC promotions and the number of cache entries of each cache
+	 * diagnosis.
+	 *
+	 * @return An unmodifiable list of the metrics.
+	 */
+	public List<Metric> getMetrics() {
+		return Collections.unmodifiableList(metrics);
+	}
+
+	/**
+	 * Returns the HTTP transactions of both traces aligned by normalized URL.
+	 * The transactions of a URL are paired in the order they occur, and the
+	 * transactions that occur more often in one trace are left unpaired.
+	 *
+	 * @return An unmodifiable list of the aligned transactions, in candidate
+	 *         trace order followed by the transactions that only occur in the
+	 *         base trace.
+	 */
+	public List<TransactionMatch> getTransactions() {
+		return Collections.unmodifiableList(transactions);
+	}
+
+	/**
+	 * Returns the session, request and byte counts of each domain in both
+	 * traces.
+	 *
+	 * @return An unmodifiable list of the domains, sorted by name.
+	 */
+	public List<DomainDiff> getDomains() {
+		return Collections.unmodifiableList(domains);
+	}
+
+	/**
+	 * Returns the bursts of both traces aligned by category and time offset.
+	 *
+	 * @return An unmodifiable list of the aligned bursts, by category and
+	 *         time.
+	 */
+	public List<BurstMatch> getBursts() {
+		return Collections.unmodifiableList(bursts);
+	}
+
+	/**
+	 * Returns the outcome of each best practice in both traces.
+	 *
+	 * @return An unmodifiable list of the best practice outcomes, which is
+	 *         empty when no best practices were compared.
+	 */
+	public List<BestPracticeDiff> getBestPractices() {
+		return Collections.unmodifiableList(bestPractices);
+	}
+
+	/**
+	 * Returns the normalized URL of a request, which is used to align the
+	 * transactions of the traces. The scheme, query and fragment are
+	 * removed, the host is converted to lower case, and path segments that
+	 * look like generated identifiers (numbers and long hexadecimal strings)
+	 * are replaced by "*", so that requests for the same resource match
+	 * across builds and sessions.
+	 *
+	 * @param request
+	 *            The HTTP request.
+	 * @return The normalized URL, preceded by the request method.
+	 */
+	public static String normalizeUrl(HttpRequestResponseInfo request) {
+		String host = request.getHostName();
+		String path = request.getObjNameWithoutParams();
+		if (path == null) {
+			path = "";
+		}
+		int hash = path.indexOf('#');
+		if (hash >= 0) {
+			path = path.substring(0, hash);
+		}
+
+		// Absolute URIs are sent to proxies
+		int scheme = path.indexOf("://");
+		if (scheme > 0 && path.charAt(0) != '/') {
+			int slash = path.indexOf('/', scheme + 3);
+			if (host == null) {
+				host = path.substring(scheme + 3, slash >= 0 ? slash : path.length());
+			}
+			path = slash >= 0 ? path.substring(slash) : "/";
+		}
+		if (host == null) {
+			TCPSession session = request.getSession();
+			host = session != null ? session.getDomainName() : "";
+		}
+
+		StringBuilder result = new StringBuilder(host.length() + path.length() + 8);
+		if (request.getRequestType() != null) {
+			result.append(request.getRequestType()).append(' ');
+		}
+		result.append(host.toLowerCase(Locale.US));
+		int start = 0;
+		while (start < path.length()) {
+			int end = path.indexOf('/', start);
+			if (end < 0) {
+				end = path.length();
+			}
+			if (isIdentifier(path, start, end)) {
+				result.append('*');
+			} else {
+				result.append(path, start, end);
+			}
+			if (end < path.length()) {
+				result.append('/');
+			}
+			start = end + 1;
+		}
+		return result.toString();
+	}
+
+	/**
+	 * Writes the comparison as comma separated values, in one section for
+	 * each part of the comparison.
+	 *
+	 * @param comparison
+	 *            The comparison.
+	 * @param writer
+	 *            The writer that receives the output.
+	 * @throws IOException
+	 */
+	public static void writeCsv(TraceComparison comparison, Writer writer) throws IOException {
+		writer.write("Metric,Base,Candidate,Delta,Delta (%)\n");
+		for (Metric m : comparison.getMetrics()) {
+			writer.write(ProfileSweep.csvValue(m.getName()));
+			writer.write(',');
+			writer.write(String.valueOf(m.getBase()));
+			writer.write(',');
+			writer.write(String.valueOf(m.getCandidate()));
+			writer.write(',');
+			writer.write(String.valueOf(m.getDelta()));
+			writer.write(',');
+			double relative = m.getRelativeDelta();
+			writer.write(Double.isNaN(relative) ? "" : String.valueOf(relative * 100.0));
+			writer.write('\n');
+		}
+
+		if (!comparison.getBestPractices().isEmpty()) {
+			writer.write("\nBest Practice,Base,Candidate,Regression\n");
+			for (BestPracticeDiff bp : comparison.getBestPractices()) {
+				writer.write(ProfileSweep.csvValue(bp.getName()));
+				writer.write(',');
+				writer.write(bp.isBasePass() ? "Pass" : "Fail");
+				writer.write(',');
+				writer.write(bp.isCandidatePass() ? "Pass" : "Fail");
+				writer.write(',');
+				writer.write(String.valueOf(bp.isRegression()));
+				writer.write('\n');
+			}
+		}
+
+		writer.write("\nDomain,Base Sessions,Candidate Sessions,Base Requests,Candidate Requests,Base Bytes,Candidate Bytes,Byte Delta\n");
+		for (DomainDiff d : comparison.getDomains()) {
+			writer.write(ProfileSweep.csvValue(d.getDomain()));
+			writer.write(',');
+			writer.write(String.valueOf(d.getBaseSessions()));
+			writer.write(',');
+			writer.write(String.valueOf(d.getCandidateSessions()));
+			writer.write(',');
+			writer.write(String.valueOf(d.getBaseRequests()));
+			writer.write(',');
+			writer.write(String.valueOf(d.getCandidateRequests()));
+			writer.write(',');
+			writer.write(String.valueOf(d.getBaseBytes()));
+			writer.write(',');
+			writer.write(String.valueOf(d.getCandidateBytes()));
+			writer.write(',');
+			writer.write(String.valueOf(d.getCandidateBytes() - d.getBaseBytes()));
+			writer.write('\n');
+		}
+
+		writer.write("\nTransaction,Base Time,Candidate Time,Base Status,Candidate Status,Base Bytes,Candidate Bytes,Byte Delta\n");
+		for (TransactionMatch t : comparison.getTransactions()) {
+			Transaction b = t.getBase();
+			Transaction c = t.getCandidate();
+			writer.write(ProfileSweep.csvValue(t.getKey()));
+			writer.write(',');
+			writer.write(b != null ? String.valueOf(b.getRequest().getTimeStamp()) : "");
+			writer.write(',');
+			writer.write(c != null ? String.valueOf(c.getRequest().getTimeStamp()) : "");
+			writer.write(',');
+			writer.write(b != null ? String.valueOf(b.getStatusCode()) : "");
+			writer.write(',');
+			writer.write(c != null ? String.valueOf(c.getStatusCode()) : "");
+			writer.write(',');
+			writer.write(b != null ? String.valueOf(b.getBytes()) : "");
+			writer.write(',');
+			writer.write(c != null ? String.valueOf(c.getBytes()) : "");
+			writer.write(',');
+			writer.write(String.valueOf(t.getByteDelta()));
+			writer.write('\n');
+		}
+
+		writer.write("\nBurst Category,Base Time,Candidate Time,Base Bytes,Candidate Bytes,Base Energy (J),Candidate Energy (J),Energy Delta (J)\n");
+		for (BurstMatch m : comparison.getBursts()) {
+			Burst b = m.getBase();
+			Burst c = m.getCandidate();
+			writer.write(m.getCategory().name());
+			writer.write(',');
+			writer.write(b != null ? String.valueOf(b.getBeginTime()) : "");
+			writer.write(',');
+			writer.write(c != null ? String.valueOf(c.getBeginTime()) : "");
+			writer.write(',');
+			writer.write(b != null ? String.valueOf(b.getBurstBytes()) : "");
+			writer.write(',');
+			writer.write(c != null ? String.valueOf(c.getBurstBytes()) : "");
+			writer.write(',');
+			writer.write(b != null ? String.valueOf(b.getEnergy()) : "");
+			writer.write(',');
+			writer.write(c != null ? String.valueOf(c.getEnergy()) : "");
+			writer.write(',');
+			writer.write(String.valueOf(m.getEnergyDelta()));
+			writer.write('\n');
+		}
+		writer.flush();
+	}
+
+	/**
+	 * Returns whether the path segment looks like a generated identifier.
+	 */
+	private static boolean isIdentifier(String path, int start, int end) {
+		if (end <= start) {
+			return false;
+		}
+		boolean digits = true;
+		boolean hex = true;
+		for (int i = start; i < end; ++i) {
+			char c = path.charAt(i);
+			if (c < '0' || c > '9') {
+				digits = false;
+				if (Character.digit(c, 16) < 0 && c != '-') {
+					hex = false;
+					break;
+				}
+			}
+		}
+		return digits || (hex && end - start >= 16);
+	}
+
+	/**
+	 * Adds the totals of both traces to the metrics.
+	 */
+	private void compareMetrics(int baseRequests, int candidateRequests) {
+		metrics.add(new Metric("Bytes", base.getTotalBytes(), candidate.getTotalBytes()));
+		metrics.add(new Metric("Packets", base.getPackets().size(), candidate.getPackets().size()));
+		metrics.add(new Metric("HTTP Requests", baseRequests, candidateRequests));
+		metrics.add(new Metric("Sessions", base.getTcpSessions().size(), candidate
+				.getTcpSessions().size()));
+		metrics.add(new Metric("Duration (s)", base.getPacketsDuration(), candidate
+				.getPacketsDuration()));
+		metrics.add(new Metric("Total Energy (J)", getTotalEnergy(base), getTotalEnergy(candidate)));
+		metrics.add(new Metric("RRC Energy (J)", getRrcEnergy(base), getRrcEnergy(candidate)));
+		metrics.add(new Metric("RRC Promotions", getPromotionCount(base),
+				getPromotionCount(candidate)));
+		metrics.add(new Metric("Bursts", base.getBurstInfos().size(), candidate.getBurstInfos()
+				.size()));
+
+		Map<CacheEntry.Diagnosis, int[]> diagnoses = new EnumMap<CacheEntry.Diagnosis, int[]>(
+				CacheEntry.Diagnosis.class);
+		countDiagnoses(base, diagnoses, 0);
+		countDiagnoses(candidate, diagnoses, 1);
+		for (Map.Entry<CacheEntry.Diagnosis, int[]> entry : diagnoses.entrySet()) {
+			metrics.add(new Metric("Cache " + entry.getKey().name(), entry.getValue()[0], entry
+					.getValue()[1]));
+		}
+	}
+
+	private static double getTotalEnergy(TraceData.Analysis analysis) {
+		return analysis.getEnergyModel() != null ? analysis.getEnergyModel()
+				.getTotalEnergyConsumed() : 0.0;
+	}
+
+	private static double getRrcEnergy(TraceData.Analysis analysis) {
+		return analysis.getRrcStateMachine() != null ? analysis.getRrcStateMachine()
+				.getTotalRRCEnergy() : 0.0;
+	}
+
+	/**
+	 * Counts the promotions of the RRC state machine of the analysis, for
+	 * both 3G and LTE profiles.
+	 */
+	private static int getPromotionCount(TraceData.Analysis analysis) {
+		int count = 0;
+		if (analysis.getRrcStateMachine() != null) {
+			for (RrcStateRange range : analysis.getRrcStateMachine().getRRcStateRanges()) {
+				switch (range.getState()) {
+				case PROMO_IDLE_DCH:
+				case PROMO_FACH_DCH:
+				case LTE_PROMOTION:
+					++count;
+					break;
+				default:
+					break;
+				}
+			}
+		}
+		return count;
+	}
+
+	private static void countDiagnoses(TraceData.Analysis analysis,
+			Map<CacheEntry.Diagnosis, int[]> counts, int side) {
+		CacheAnalysis cacheAnalysis = analysis.getCacheAnalysis();
+		if (cacheAnalysis == null) {
+			return;
+		}
+		for (CacheEntry entry : cacheAnalysis.getDiagnosisResults()) {
+			int[] count = counts.get(entry.getDiagnosis());
+			if (count == null) {
+				count = new int[2];
+				counts.put(entry.getDiagnosis(), count);
+			}
+			++count[side];
+		}
+	}
+
+	/**
+	 * Returns the HTTP transactions of the analysis in time order.
+	 */
+	private static List<Transaction> getTransactions(TraceData.Analysis analysis) {
+		List<Transaction> result = new ArrayList<Transaction>();
+		for (TCPSession session : analysis.getTcpSessions()) {
+			for (HttpRequestResponseInfo rr : session.getRequestResponseInfo()) {
+				if (rr.getDirection() == HttpRequestResponseInfo.Direction.REQUEST) {
+					result.add(new Transaction(normalizeUrl(rr), rr));
+				}
+			}
+		}
+		Collections.sort(result, new Comparator<Transaction>() {
+			@Override
+			public int compare(Transaction o1, Transaction o2) {
+				return Double.compare(o1.getRequest().getTimeStamp(), o2.getRequest()
+						.getTimeStamp());
+			}
+		});
+		return result;
+	}
+
+	/**
+	 * Pairs the transactions with the same key in the order they occur. Runs
+	 * in time linear in the number of transactions.
+	 */
+	private static List<TransactionMatch> matchTransactions(List<Transaction> baseTransactions,
+			List<Transaction> candidateTransactions) {
+		Map<String, List<Transaction>> byKey = new HashMap<String, List<Transaction>>();
+		for (Transaction t : baseTransactions) {
+			List<Transaction> list = byKey.get(t.getKey());
+			if (list == null) {
+				list = new ArrayList<Transaction>(2);
+				byKey.put(t.getKey(), list);
+			}
+			list.add(t);
+		}
+
+		// The number of base transactions of each key paired so far
+		Map<String, int[]> paired = new HashMap<String, int[]>(byKey.size() * 2);
+		List<TransactionMatch> result = new ArrayList<TransactionMatch>(Math.max(
+				baseTransactions.size(), candidateTransactions.size()));
+		for (Transaction t : candidateTransactions) {
+			List<Transaction> list = byKey.get(t.getKey());
+			Transaction match = null;
+			if (list != null) {
+				int[] count = paired.get(t.getKey());
+				if (count == null) {
+					count = new int[1];
+					paired.put(t.getKey(), count);
+				}
+				if (count[0] < list.size()) {
+					match = list.get(count[0]++);
+				}
+			}
+			result.add(new TransactionMatch(match, t));
+		}
+
+		// The base transactions of each key after the paired ones were removed
+		Map<String, int[]> seen = new HashMap<String, int[]>(byKey.size() * 2);
+		for (Transaction t : baseTransactions) {
+			int[] occurrence = seen.get(t.getKey());
+			if (occurrence == null) {
+				occurrence = new int[1];
+				seen.put(t.getKey(), occurrence);
+			}
+			int[] count = paired.get(t.getKey());
+			if (occurrence[0]++ >= (count != null ? count[0] : 0)) {
+				result.add(new TransactionMatch(t, null));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Totals the sessions, requests and bytes of each domain of both traces.
+	 */
+	private List<DomainDiff> compareDomains() {
+		Map<String, DomainDiff> result = new TreeMap<String, DomainDiff>();
+		addDomains(base, result, 0);
+		addDomains(candidate, result, 1);
+		return new ArrayList<DomainDiff>(result.values());
+	}
+
+	private static void addDomains(TraceData.Analysis analysis, Map<String, DomainDiff> domains,
+			int side) {
+		for (TCPSession session : analysis.getTcpSessions()) {
+			String name = session.getDomainName();
+			if (name == null) {
+				name = session.getRemoteIP().getHostAddress();
+			}
+			DomainDiff domain = domains.get(name);
+			if (domain == null) {
+				domain = new DomainDiff(name);
+				domains.put(name, domain);
+			}
+			++domain.sessions[side];
+			domain.bytes[side] += session.getBytesTransferred();
+			for (HttpRequestResponseInfo rr : session.getRequestResponseInfo()) {
+				if (rr.getDirection() == HttpRequestResponseInfo.Direction.REQUEST) {
+					++domain.requests[side];
+				}
+			}
+		}
+	}
+
+	/**
+	 * Aligns the bursts of each category by their time offset from the start
+	 * of the trace. Both lists of a category are merged in time order, and
+	 * two bursts are paired when they are within the tolerance of each other.
+	 */
+	private List<BurstMatch> matchBursts(double tolerance) {
+		Map<BurstCategory, List<Burst>> baseBursts = groupBursts(base);
+		Map<BurstCategory, List<Burst>> candidateBursts = groupBursts(candidate);
+		List<BurstMatch> result = new ArrayList<BurstMatch>();
+		for (BurstCategory category : BurstCategory.values()) {
+			List<Burst> b = baseBursts.get(category);
+			List<Burst> c = candidateBursts.get(category);
+			int i = 0;
+			int j = 0;
+			while (i < b.size() || j < c.size()) {
+				if (i >= b.size()) {
+					result.add(new BurstMatch(category, null, c.get(j++)));
+				} else if (j >= c.size()) {
+					result.add(new BurstMatch(category, b.get(i++), null));
+				} else {
+					double diff = c.get(j).getBeginTime() - b.get(i).getBeginTime();
+					if (Math.abs(diff) <= tolerance) {
+						result.add(new BurstMatch(category, b.get(i++), c.get(j++)));
+					} else if (diff > 0) {
+						result.add(new BurstMatch(category, b.get(i++), null));
+					} else {
+						result.add(new BurstMatch(category, null, c.get(j++)));
+					}
+				}
+			}
+		}
+		return result;
+	}
+
+	private static Map<BurstCategory, List<Burst>> groupBursts(TraceData.Analysis analysis) {
+		Map<BurstCategory, List<Burst>> result = new EnumMap<BurstCategory, List<Burst>>(
+				BurstCategory.class);
+		for (BurstCategory category : BurstCategory.values()) {
+			result.put(category, new ArrayList<Burst>());
+		}
+		for (Burst burst : analysis.getBurstInfos()) {
+			BurstCategory category = burst.getBurstCategory();
+			result.get(category != null ? category : BurstCategory.UNKNOWN).add(burst);
+		}
+		return result;
+	}
+}
@@ -34,9 +34,11 @@ import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.StringTokenizer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Matcher;
@@ -57,6 +59,7 @@ import com.att.aro.model.BluetoothInfo.BluetoothState;
 import com.att.aro.model.CameraInfo.CameraState;
 import com.att.aro.model.GpsInfo.GpsState;
 import com.att.aro.model.PacketInfo.Direction;
+import com.att.aro.model.PacketInfo.TcpInfo;
 import com.att.aro.model.ScreenStateInfo.ScreenState;
 import com.att.aro.model.UserEvent.UserEventType;
 import com.att.aro.model.WifiInfo.WifiState;
@@ -67,7 +70,9 @@ import com.att.aro.pcap.NetmonAdapter;
 import com.att.aro.pcap.PCapAdapter;
 import com.att.aro.pcap.Packet;
 import com.att.aro.pcap.PacketListener;
+import com.att.aro.pcap.PcapMergeReader;
 import com.att.aro.pcap.TCPPacket;
+import com.att.aro.plugin.SessionAnalyzerPlugin;
 import com.att.aro.util.Util;
 
 /**
@@ -87,16 +92,6 @@ public class TraceData implements Serializable {
 	public class Analysis implements Serializable {
 		private static final long serialVersionUID = 1L;
 
-		private class PacketCounter {
-			private int packetCount;
-			private long totalBytes;
-
-			public synchronized void add(PacketInfo p) {
-				totalBytes += p.getLen();
-				++packetCount;
-			}
-		}
-
 		// Configuration/profile/filter
 		private Profile profile;
 		private AnalysisFilter applicationFilter;
@@ -114,6 +109,9 @@ public class TraceData implements Serializable {
 		private double packetsDuration = 0.0;
 		private double avgKbps = 0.0;
 		private List<TCPSession> tcpSessions;
+		private TrafficCube trafficCube;
+		private transient volatile PacketTimeIndex packetTimeIndex;
+		private volatile PacketTimeline packetTimeline;
 		private RRCStateMachine rrcStateMachine;
 		private CacheAnalysis cacheAnalysis;
 		private TextFileCompressionAnalysis textFileCompressionAnalysis;
@@ -128,6 +126,7 @@ public class TraceData implements Serializable {
 		//private SmallRequestAnalysis smallRequestAnalysis;
 		private CacheInfoParser cacheInfoParser;
 		private DisplayNoneInCSSAnalysis displayNoneInCSSAnalysis;
+		private transient Map<SessionAnalyzerPlugin, SessionVisitor> pluginVisitors;
 		private BestPractices bestPractice;
 		private ApplicationScore applicationScore;
 		private EnergyModel energyModel;
@@ -140,31 +139,31 @@ public class TraceData implements Serializable {
 		private CpuActivityList cpuActivityList;
 
 		// GPS Info
-		private List<GpsInfo> gpsInfos = new ArrayList<GpsInfo>();
+		private TimeSeries<GpsInfo> gpsInfos;
 
 		// Bearer Info
-		private List<NetworkBearerTypeInfo> networkTypeInfos = new ArrayList<NetworkBearerTypeInfo>();
+		private TimeSeries<NetworkBearerTypeInfo> networkTypeInfos;
 
 		// Bluetooth Info
-		private List<BluetoothInfo> bluetoothInfos = new ArrayList<BluetoothInfo>();
+		private TimeSeries<BluetoothInfo> bluetoothInfos;
 
 		// Wifi Info
-		private List<WifiInfo> wifiInfos = new ArrayList<WifiInfo>();
+		private TimeSeries<WifiInfo> wifiInfos;
 
 		// Battery Info
-		private List<BatteryInfo> batteryInfos = new ArrayList<BatteryInfo>();
+		private TimeSeries<BatteryInfo> batteryInfos;
 
 		// Radio Info
-		private List<RadioInfo> radioInfos = new ArrayList<RadioInfo>();
+		private TimeSeries<RadioInfo> radioInfos;
 
 		// Camera Info
-		private List<CameraInfo> cameraInfos = new ArrayList<CameraInfo>();
+		private TimeSeries<CameraInfo> cameraInfos;
 
 		// Screen State Info
-		private List<ScreenStateInfo> screenStateInfos = new ArrayList<ScreenStateInfo>();
+		private TimeSeries<ScreenStateInfo> screenStateInfos;
 
 		// List of User Event Info
-		private List<UserEvent> userEvents = new ArrayList<UserEvent>();
+		private TimeSeries<UserEvent> userEvents;
 
 		private double gpsActiveDuration;
 		private double wifiActiveDuration;
@@ -173,6 +172,28 @@ public class TraceData implements Serializable {
 
 		private static final int MAX_LIMIT_FILETYPES = 8;
 
+		// Timings of the analysis stages, and of the last display of the
+		// analysis
+		private StageTimings timings = new StageTimings();
+		private StageTimings chartTimings = new StageTimings();
+
+		// Receives the partial results, and cancels the analysis in progress
+		private transient AnalysisListener listener;
+		private transient CancellationToken token;
+
+		// The file that the session storage is spilled to, if any
+		private transient SessionStorageFile storageFile;
+
+		// The TCP information and RRC states that this analysis set on its
+		// packets, by ordinal plus one, which are set again when the analysis
+		// is restored
+		private transient byte[] packetTcpInfos;
+		private transient byte[] packetStates;
+
+		// The sessions of the previous snapshot of a live trace, which are
+		// reused while the sessions are extracted
+		private transient List<TCPSession> previousSessions;
+
 		/**
 		 * Constructor
 		 * 
@@ -183,82 +204,90 @@ public class TraceData implements Serializable {
 		 * @param selectionType
 		 *            The selection type i.e. Application or IP address.
 		 */
-		private Analysis(Profile profile, AnalysisFilter filter) throws IOException {
+		private Analysis(Profile profile, AnalysisFilter filter, AnalysisListener listener,
+				CancellationToken token) throws IOException {
 
 			this.profile = profile != null ? profile : new Profile3G();
+			this.listener = listener;
+			this.token = token;
 
+			indexPeripheralEvents();
+			StageTimings.Stage stage = timings.start(Util.RB.getString("stage.filtering"));
 			TimeRange timeRange = filter != null ? filter.getTimeRange() : null;
 			if (timeRange != null) {
 				double beginTime = timeRange.getBeginTime();
 				double endTime = timeRange.getEndTime();
 				
-				this.cpuActivityList = TraceData.this.cpuActivityList;
-				cpuActivityList.updateTimeRange(beginTime, endTime);
-				
-				this.gpsInfos = getGpsInfosForTheTimeRange(TraceData.this.gpsInfos, beginTime, endTime);
-				this.bluetoothInfos = getBluetoothInfosForTheTimeRange(TraceData.this.bluetoothInfos, beginTime, endTime);
-				this.wifiInfos = getWifiInfosForTheTimeRange(TraceData.this.wifiInfos, beginTime, endTime);
-				this.batteryInfos = getBatteryInfosForTheTimeRange(TraceData.this.batteryInfos, beginTime, endTime);
-				this.radioInfos = getRadioInfosForTheTimeRange(TraceData.this.radioInfos, beginTime, endTime);
-				this.cameraInfos = getCameraInfosForTheTimeRange(TraceData.this.cameraInfos, beginTime, endTime);
-				this.screenStateInfos = getScreenInfosForTheTimeRange(TraceData.this.screenStateInfos, beginTime, endTime);
-				this.userEvents = getUserEventsForTheTimeRange(TraceData.this.userEvents, beginTime, endTime);
-				this.networkTypeInfos = getNetworkInfosForTheTimeRange(TraceData.this.networkTypeInfos, beginTime, endTime);
+				this.cpuActivityList = TraceData.this.cpuActivityList.forTimeRange(beginTime,
+						endTime);
+
+				// The peripheral events are views of the events of the trace
+				this.gpsInfos = TraceData.this.gpsSeries.range(beginTime, endTime);
+				this.bluetoothInfos = TraceData.this.bluetoothSeries.range(beginTime, endTime);
+				this.wifiInfos = TraceData.this.wifiSeries.range(beginTime, endTime);
+				this.batteryInfos = TraceData.this.batterySeries.range(beginTime, endTime);
+				this.radioInfos = TraceData.this.radioSeries.range(beginTime, endTime);
+				this.cameraInfos = TraceData.this.cameraSeries.range(beginTime, endTime);
+				this.screenStateInfos = TraceData.this.screenStateSeries.range(beginTime, endTime);
+				this.userEvents = TraceData.this.userEventSeries.range(beginTime, endTime);
+				this.networkTypeInfos = TraceData.this.networkTypeSeries.range(beginTime, endTime);
+				this.gpsActiveDuration = gpsInfos.getDuration(GpsState.GPS_ACTIVE);
+				this.bluetoothActiveDuration = bluetoothInfos
+						.getDuration(BluetoothState.BLUETOOTH_CONNECTED);
+				this.cameraActiveDuration = cameraInfos.getDuration(CameraState.CAMERA_ON);
 
 			} else {
 				this.cpuActivityList = TraceData.this.cpuActivityList;
-				this.gpsInfos = TraceData.this.gpsInfos;
-				this.bluetoothInfos = TraceData.this.bluetoothInfos;
-				this.wifiInfos = TraceData.this.wifiInfos;
-				this.batteryInfos = TraceData.this.batteryInfos;
-				this.radioInfos = TraceData.this.radioInfos;
-				this.cameraInfos = TraceData.this.cameraInfos;
-				this.screenStateInfos = TraceData.this.screenStateInfos;
-				this.userEvents = TraceData.this.userEvents;
+				this.gpsInfos = TraceData.this.gpsSeries;
+				this.bluetoothInfos = TraceData.this.bluetoothSeries;
+				this.wifiInfos = TraceData.this.wifiSeries;
+				this.batteryInfos = TraceData.this.batterySeries;
+				this.radioInfos = TraceData.this.radioSeries;
+				this.cameraInfos = TraceData.this.cameraSeries;
+				this.screenStateInfos = TraceData.this.screenStateSeries;
+				this.userEvents = TraceData.this.userEventSeries;
 				this.bluetoothActiveDuration = TraceData.this.bluetoothActiveDuration;
 				this.gpsActiveDuration = TraceData.this.gpsActiveDuration;
 				this.cameraActiveDuration = TraceData.this.cameraActiveDuration;
 				this.wifiActiveDuration = TraceData.this.wifiActiveDuration;
-				this.networkTypeInfos = TraceData.this.networkTypeInfos;
+				this.networkTypeInfos = TraceData.this.networkTypeSeries;
 			}
 
 			if (filter != null) {
 
-				// Filter packets based upon selected app names
-				packets = new ArrayList<PacketInfo>();
-				for (PacketInfo packet : TraceData.this.allPackets) {
-
-					// Check time range
-					double timestamp = packet.getTimeStamp();
-					if (timeRange != null
-							&& (timeRange.getBeginTime() > timestamp || timeRange.getEndTime() < timestamp)) {
-
-						// Not in time range
-						continue;
-					}
-
-					// Check to see if application is selected
-					if (filter.getPacketColor(packet) == null) {
-
-						// App unknown by filter
-						continue;
-					}
-
-					packets.add(packet);
-				}
+				// Filter packets based upon selected app names and time range
+				packets = getPacketPartitions().select(filter);
 			} else {
 
 				// No filter. Use all packets
 				packets = TraceData.this.allPackets;
+				this.previousSessions = TraceData.this.reusableSessions;
 			}
+			TraceData.this.reusableSessions = null;
+			stage.stop();
 
 			this.applicationFilter = filter != null ? new AnalysisFilter(filter) : new AnalysisFilter(TraceData.this);
 
-			runAnalysis();
+			boolean completed = false;
+			try {
+				runAnalysis();
+				completed = true;
+			} finally {
+				this.listener = null;
+				this.token = null;
+				this.previousSessions = null;
+
+				// An analysis that did not complete is never displayed
+				if (!completed) {
+					release();
+				}
+			}
 		}
 
 		/**
-		 * Performs a TimeRangeAnalysis on the trace data.
+		 * Performs a TimeRangeAnalysis on the trace data. The bytes in the
+		 * time range are summed from the packet timeline, with the packet
+		 * timestamps to the microsecond.
 		 * 
 		 * @return TimeRangeAnalysis The object containing TimeRangeAnalysis
 		 *         data.
@@ -268,14 +297,14 @@ public class TraceData implements Serializable {
 			List<RrcStateRange> rrcCollection = this.rrcStateMachine.getRRcStateRanges();
 			long payloadLength = 0;
 			long totalBytes = 0;
-			int n = packets.size();
 
-			for (int i = 0; i < n; i++) {
-				PacketInfo p = packets.get(i);
-				if (p.getTimeStamp() >= analyzeBeginTime && p.getTimeStamp() <= analyzeEndTime) {
-					payloadLength += p.getPayloadLen();
-					totalBytes += p.getLen();
-				}
+			// Only the blocks of the packet timeline that hold the time range
+			// are decoded
+			PacketTimeline.Cursor cursor = getPacketTimeline().cursor(analyzeBeginTime,
+					analyzeEndTime);
+			while (cursor.next()) {
+				payloadLength += cursor.getPayloadLen();
+				totalBytes += cursor.getLen();
 			}
 
 			double energy = 0.0f;
@@ -522,8 +551,8 @@ public class TraceData implements Serializable {
 		 * 
 		 * @return A List of GPSInfo objects containing the information.
 		 */
-		public List<GpsInfo> getGpsInfos() {
-			return Collections.unmodifiableList(gpsInfos);
+		public TimeSeries<GpsInfo> getGpsInfos() {
+			return gpsInfos;
 		}
 
 		/**
@@ -531,8 +560,8 @@ public class TraceData implements Serializable {
 		 * 
 		 * @return A List of BluetoothInfo objects containing the information.
 		 */
-		public List<BluetoothInfo> getBluetoothInfos() {
-			return Collections.unmodifiableList(bluetoothInfos);
+		public TimeSeries<BluetoothInfo> getBluetoothInfos() {
+			return bluetoothInfos;
 		}
 
 		/**
@@ -540,8 +569,8 @@ public class TraceData implements Serializable {
 		 * 
 		 * @return A List of WiFiInfo objects containing the information.
 		 */
-		public List<WifiInfo> getWifiInfos() {
-			return Collections.unmodifiableList(wifiInfos);
+		public TimeSeries<WifiInfo> getWifiInfos() {
+			return wifiInfos;
 		}
 
 		/**
@@ -549,8 +578,8 @@ public class TraceData implements Serializable {
 		 * 
 		 * @return A List of CameraInfo objects containing the information.
 		 */
-		public List<CameraInfo> getCameraInfos() {
-			return Collections.unmodifiableList(cameraInfos);
+		public TimeSeries<CameraInfo> getCameraInfos() {
+			return cameraInfos;
 		}
 
 		/**
@@ -558,8 +587,8 @@ public class TraceData implements Serializable {
 		 * 
 		 * @return A List of ScreenStateInfo objects containing the information.
 		 */
-		public List<ScreenStateInfo> getScreenStateInfos() {
-			return Collections.unmodifiableList(screenStateInfos);
+		public TimeSeries<ScreenStateInfo> getScreenStateInfos() {
+			return screenStateInfos;
 		}
 
 		/**
@@ -567,8 +596,8 @@ public class TraceData implements Serializable {
 		 * 
 		 * @return A List of BatteryInfo objects containing the information.
 		 */
-		public List<BatteryInfo> getBatteryInfos() {
-			return Collections.unmodifiableList(batteryInfos);
+		public TimeSeries<BatteryInfo> getBatteryInfos() {
+			return batteryInfos;
 		}
 
 		/**
@@ -577,8 +606,8 @@ public class TraceData implements Serializable {
 		 * @return A List of UserEvent objects containing the user generated
 		 *         events.
 		 */
-		public List<UserEvent> getUserEvents() {
-			return Collections.unmodifiableList(userEvents);
+		public TimeSeries<UserEvent> getUserEvents() {
+			return userEvents;
 		}
 
 		/**
@@ -586,8 +615,8 @@ public class TraceData implements Serializable {
 		 * 
 		 * @return A List of RadioInfo objects containing the information.
 		 */
-		public List<RadioInfo> getRadioInfos() {
-			return Collections.unmodifiableList(radioInfos);
+		public TimeSeries<RadioInfo> getRadioInfos() {
+			return radioInfos;
 		}
 
 		/**
@@ -605,8 +634,8 @@ public class TraceData implements Serializable {
 		 * @return A List of NetworkBearerTypeInfo objects containing the
 		 *         information.
 		 */
-		public List<NetworkBearerTypeInfo> getNetworTypeInfos() {
-			return Collections.unmodifiableList(networkTypeInfos);
+		public TimeSeries<NetworkBearerTypeInfo> getNetworTypeInfos() {
+			return networkTypeInfos;
 		}
 
 		/**
@@ -617,7 +646,66 @@ public class TraceData implements Serializable {
 			return TraceData.this;
 		}
 
+		/**
+		 * Clears the results of this analysis from the packets of the trace,
+		 * and releases the session storage that is spilled to a file.
+		 */
 		public void clear() {
+			clearPackets();
+			release();
+		}
+
+		/**
+		 * Releases the session storage of this analysis that is spilled to a
+		 * file. The content of the sessions that was spilled is no longer
+		 * available. Call this method when the analysis is replaced by a
+		 * later analysis of the trace.
+		 */
+		public void release() {
+			if (storageFile != null) {
+				releaseStorageFile(storageFile);
+				storageFile = null;
+			}
+		}
+
+		/**
+		 * Sets the results of this analysis on the packets of the trace again,
+		 * after a later analysis of the trace has replaced them, so that this
+		 * analysis can be displayed again.
+		 */
+		public void restore() {
+			clearPackets();
+			for (TCPSession session : tcpSessions) {
+				if (!session.isUDP()) {
+					for (PacketInfo p : session.getPackets()) {
+						p.setSession(session);
+					}
+				}
+			}
+			for (Burst burst : bcAnalysis.getBurstCollection()) {
+				for (PacketInfo p : burst.getPackets()) {
+					p.setBurst(burst);
+				}
+			}
+			if (packetTcpInfos == null) {
+
+				// The analysis was deserialized, and its packets with it
+				return;
+			}
+			TcpInfo[] tcpInfos = TcpInfo.values();
+			RRCState[] states = RRCState.values();
+			int i = 0;
+			for (PacketInfo p : packets) {
+				p.setTcpInfo(packetTcpInfos[i] != 0 ? tcpInfos[packetTcpInfos[i] - 1] : null);
+				p.setStateMachine(packetStates[i] != 0 ? states[packetStates[i] - 1] : null);
+				++i;
+			}
+		}
+
+		/**
+		 * Clears the results of any analysis from the packets of the trace.
+		 */
+		private void clearPackets() {
 			for (PacketInfo p : allPackets) {
 				p.setBurst(null);
 				p.setRequestResponseInfo(null);
@@ -627,6 +715,43 @@ public class TraceData implements Serializable {
 			}
 		}
 
+		/**
+		 * Keeps the TCP information and RRC states that this analysis set on
+		 * its packets, so that they can be restored.
+		 */
+		private void recordPacketResults() {
+			packetTcpInfos = new byte[packets.size()];
+			packetStates = new byte[packets.size()];
+			int i = 0;
+			for (PacketInfo p : packets) {
+				TcpInfo tcpInfo = p.getTcpInfo();
+				RRCState state = p.getStateMachine();
+				packetTcpInfos[i] = (byte) (tcpInfo != null ? tcpInfo.ordinal() + 1 : 0);
+				packetStates[i] = (byte) (state != null ? state.ordinal() + 1 : 0);
+				++i;
+			}
+		}
+
+		/**
+		 * Returns the timings of the stages of this analysis.
+		 * 
+		 * @return The analysis timings.
+		 */
+		public StageTimings getTimings() {
+			return timings;
+		}
+
+		/**
+		 * Returns the timings of the stages that populate the user interface
+		 * from this analysis. The timings are cleared each time the analysis
+		 * is displayed, so they are those of the last display.
+		 * 
+		 * @return The chart timings.
+		 */
+		public StageTimings getChartTimings() {
+			return chartTimings;
+		}
+
 		/**
 		 * Returns the profile associated with the trace data.
 		 * 
@@ -684,6 +809,51 @@ public class TraceData implements Serializable {
 			return Collections.unmodifiableList(tcpSessions);
 		}
 
+		/**
+		 * Returns the traffic statistics of the analysis, aggregated by
+		 * application, domain, IP address and time.
+		 * 
+		 * @return The traffic cube, or null if the sessions have not been
+		 *         extracted yet.
+		 */
+		public TrafficCube getTrafficCube() {
+			return trafficCube;
+		}
+
+		/**
+		 * Returns the index of the packets of the TCP and UDP sessions by
+		 * timestamp. The index is built on first use.
+		 * 
+		 * @return The packet time index.
+		 */
+		public PacketTimeIndex getPacketTimeIndex() {
+
+			// Threads that race here build equal indexes, so no lock is taken
+			PacketTimeIndex index = packetTimeIndex;
+			if (index == null) {
+				index = new PacketTimeIndex(tcpSessions);
+				packetTimeIndex = index;
+			}
+			return index;
+		}
+
+		/**
+		 * Returns the timestamps, lengths, payload lengths and directions of
+		 * the packets of the analysis in a compact encoding. The timeline is
+		 * built on first use, by the first time range analysis, and is kept
+		 * when the analysis is serialized.
+		 * 
+		 * @return The packet timeline.
+		 */
+		public PacketTimeline getPacketTimeline() {
+			PacketTimeline timeline = packetTimeline;
+			if (timeline == null) {
+				timeline = new PacketTimeline(packets);
+				packetTimeline = timeline;
+			}
+			return timeline;
+		}
+
 		/**
 		 * @return The rrcStateMachine
 		 */
@@ -827,6 +997,20 @@ public class TraceData implements Serializable {
 			return bcAnalysis;
 		}
 
+		/**
+		 * Returns the visitor that the specified analyzer plugin created for
+		 * this analysis.
+		 * 
+		 * @param plugin
+		 *            One of the plugins returned by
+		 *            {@link TraceData#getSessionAnalyzerPlugins()}.
+		 * @return The visitor, or null if the plugin did not analyze the
+		 *         sessions of this analysis.
+		 */
+		public SessionVisitor getPluginVisitor(SessionAnalyzerPlugin plugin) {
+			return pluginVisitors != null ? pluginVisitors.get(plugin) : null;
+		}
+
 		/**
 		 * Returns the names of the apps that contributed to network traffic in
 		 * the analysis
@@ -881,14 +1065,17 @@ public class TraceData implements Serializable {
 		 * 
 		 * @throws IOException
 		 */
-		private synchronized void runAnalysis() throws IOException {
+		private void runAnalysis() throws IOException {
 
 			// Collect basic statistics
+			StageTimings.Stage stage = timings.start(Util.RB.getString("stage.basic.statistics"));
 			if (packets.size() > 0) {
 				PacketInfo lastPacket = packets.get(packets.size() - 1);
-				Map<String, PacketCounter> appPackets = new HashMap<String, PacketCounter>();
-				Map<InetAddress, PacketCounter> ipPackets = new HashMap<InetAddress, PacketCounter>();
+				int count = 0;
 				for (PacketInfo packet : packets) {
+					if ((++count & 0xfff) == 0) {
+						checkCancelled();
+					}
 					totalBytes += packet.getLen();
 					
 					if (packet.getPacket() instanceof TCPPacket) {
@@ -898,14 +1085,7 @@ public class TraceData implements Serializable {
 						}
 					}
 
-					String appName = packet.getAppName();
-					appNames.add(appName);
-					PacketCounter pc = appPackets.get(appName);
-					if (pc == null) {
-						pc = new PacketCounter();
-						appPackets.put(appName, pc);
-					}
-					pc.add(packet);
+					appNames.add(packet.getAppName());
 
 					if (packet.getPacket() instanceof IPPacket) {
 
@@ -919,26 +1099,8 @@ public class TraceData implements Serializable {
 							iValue++;
 						}
 						packetSizeToCountMap.put(packetSize, iValue);
-
-						// Get IP address summary
-						InetAddress ip = packet.getRemoteIPAddress();
-						pc = ipPackets.get(ip);
-						if (pc == null) {
-							pc = new PacketCounter();
-							ipPackets.put(ip, pc);
-						}
-						pc.add(packet);
 					}
 				}
-				
-				for (Map.Entry<InetAddress, PacketCounter> m : ipPackets.entrySet()) {
-					ipPacketSummary.add(new IPPacketSummary(m.getKey(), m.getValue().packetCount, m
-							.getValue().totalBytes));
-				}
-				for (Map.Entry<String, PacketCounter> m : appPackets.entrySet()) {
-					applicationPacketSummary.add(new ApplicationPacketSummary(m.getKey(), m
-							.getValue().packetCount, m.getValue().totalBytes));
-				}
 
 				packetsDuration = lastPacket.getTimeStamp() - packets.get(0).getTimeStamp();
 				avgKbps = packetsDuration != 0 ? totalBytes * 8.0 / 1000.0 / packetsDuration : 0.0;
@@ -951,400 +1113,179 @@ public class TraceData implements Serializable {
 					logger.fine("");
 				}
 			}
+			stage.stop();
+			stageCompleted(AnalysisStage.BASIC_STATISTICS);
 
 			// Analyze packets for TCP sessions
 			logger.fine("Extracting TCP Sessions");
-			this.tcpSessions = TCPSession.extractTCPSessions(packets);
-			
-			// Do text file compression analysis
-			logger.fine("Performing text file compression analysis");
-			this.textFileCompressionAnalysis = new TextFileCompressionAnalysis(this.tcpSessions);
-			
-			// Do async check analysis 
-			logger.fine("Performing async loading of scripts analysis");
-			this.asyncCheckAnalysis = new AsyncCheckAnalysis(this.tcpSessions);
-		
-			//Do File Order Analysis
-			logger.fine("Performing file order analysis");
-			this.fileOrderAnalysis = new FileOrderAnalysis(this.tcpSessions);
+			stage = timings.start(Util.RB.getString("stage.session.extraction"));
+			SessionStorageFile.Spiller spiller = new SessionStorageFile.Spiller(TraceData.this);
+			try {
+				this.tcpSessions = TCPSession.extractTCPSessions(packets, token, symbols, spiller,
+						previousSessions);
+			} finally {
+				this.storageFile = spiller.getFile();
+			}
+			stage.stop();
+
+			// Aggregate the traffic of the sessions and summarize it by
+			// application and IP address
+			stage = timings.start(Util.RB.getString("stage.traffic.cube"));
+			this.trafficCube = new TrafficCube(packets, tcpSessions, symbols,
+					TrafficCube.DEFAULT_BUCKET_WIDTH);
+			for (TrafficCube.Row row : trafficCube.rollUp(TrafficCube.Dimension.APPLICATION)) {
+				applicationPacketSummary.add(new ApplicationPacketSummary(row.getAppName(), row
+						.getPacketCount(), row.getTotalBytes()));
+			}
+			for (TrafficCube.Row row : trafficCube.rollUp(TrafficCube.Dimension.IP_ADDRESS)) {
+				if (row.isIpPacket()) {
+					ipPacketSummary.add(new IPPacketSummary(row.getIpAddress(), row
+							.getPacketCount(), row.getTotalBytes()));
+				}
+			}
+			stage.stop();
+			stageCompleted(AnalysisStage.SESSIONS);
+
+			// Simulate RRC state machine
+			logger.fine("Initializing RRCStateMachine");
+			stage = timings.start(Util.RB.getString("stage.rrc.state.machine"));
+			this.rrcStateMachine = new RRCStateMachine(this);
+			stage.stop();
+			checkCancelled();
+
+			// Create energy model
+			logger.fine("Initializing EnergyModel");
+			stage = timings.start(Util.RB.getString("stage.energy.model"));
+			this.energyModel = new EnergyModel(this);
+			stage.stop();
+			checkCancelled();
+
+			// Burst Analysis
+			logger.fine("Initializing BurstCollectionAnalysis");
+			stage = timings.start(Util.RB.getString("stage.burst.analysis"));
+			this.bcAnalysis = new BurstCollectionAnalysis(this);
+			stage.stop();
+			stageCompleted(AnalysisStage.RADIO);
+
+			// The content analyses share the decoded contents and parsed
+			// documents of the responses
+			ContentCache contentCache = new ContentCache();
+
+			// The session analyses and the analyzer plugins visit the
+			// sessions in a single traversal
+			logger.fine("Performing session analyses");
+			stage = timings.start(Util.RB.getString("stage.session.analyses"));
+			SessionTraversal traversal = new SessionTraversal(contentCache);
+			this.textFileCompressionAnalysis = new TextFileCompressionAnalysis();
+			traversal.addVisitor(textFileCompressionAnalysis);
+			this.asyncCheckAnalysis = new AsyncCheckAnalysis(contentCache);
+			traversal.addVisitor(asyncCheckAnalysis);
+			this.fileOrderAnalysis = new FileOrderAnalysis();
+			traversal.addVisitor(fileOrderAnalysis);
+			this.emptyUrlAnalysis = new EmptyUrlAnalysis();
+			traversal.addVisitor(emptyUrlAnalysis);
+			this.scriptsAnalysis = new ScriptsAnalysis();
+			traversal.addVisitor(scriptsAnalysis);
+			this.flashAnalysis = new FlashAnalysis(contentCache);
+			traversal.addVisitor(flashAnalysis);
+			this.spriteImageAnalysis = new SpriteImageAnalysis();
+			traversal.addVisitor(spriteImageAnalysis);
+			this.displayNoneInCSSAnalysis = new DisplayNoneInCSSAnalysis(contentCache);
+			traversal.addVisitor(displayNoneInCSSAnalysis);
+			this.pluginVisitors = new LinkedHashMap<SessionAnalyzerPlugin, SessionVisitor>();
+			for (SessionAnalyzerPlugin plugin : getSessionAnalyzerPlugins()) {
+				try {
+					SessionVisitor visitor = plugin.createVisitor(this);
+					if (visitor != null) {
+						pluginVisitors.put(plugin, visitor);
+						traversal.addPluginVisitor(visitor);
+					}
+				} catch (RuntimeException e) {
+					logger.log(Level.SEVERE, "Analyzer plugin failed: "
+							+ plugin.getClass().getName(), e);
+				}
+			}
+			traversal.run(this.tcpSessions, Runtime.getRuntime().availableProcessors(), token);
+			pluginVisitors.values().removeAll(traversal.getFailedVisitors());
+			stage.stop();
+			checkCancelled();
 			
 			// Do image size analysis
 			logger.fine("Performing image size analysis");
-			this.imageSizeAnalysis = new ImageSizeAnalysis(this.tcpSessions, getDeviceScreenSizeX(), getDeviceScreenSizeY());
+			stage = timings.start(Util.RB.getString("stage.image.size"));
+			this.imageSizeAnalysis = new ImageSizeAnalysis(this.tcpSessions, getDeviceScreenSizeX(),
+					getDeviceScreenSizeY(), contentCache);
+			stage.stop();
+			checkCancelled();
 
 			// Do minification analysis
 			logger.fine("Performing minification analysis");
-			this.minificationAnalysis = new MinificationAnalysis(this.tcpSessions);
-			
-			// Do empty URL analysis
-			logger.fine("Performing empty URL analysis");
-			this.emptyUrlAnalysis = new EmptyUrlAnalysis(this.tcpSessions);
-
-			// Do 3rd party scripts analysis
-			logger.fine("Performing 3rd party scripts analysis");
-			this.scriptsAnalysis = new ScriptsAnalysis(this.tcpSessions);
-
-			// Do flash analysis
-			logger.fine("Performing flash analysis");
-			this.flashAnalysis = new FlashAnalysis(this.tcpSessions);
+			stage = timings.start(Util.RB.getString("stage.minification"));
+			this.minificationAnalysis = new MinificationAnalysis(this.tcpSessions, contentCache);
+			stage.stop();
+			contentCache.clear();
+			checkCancelled();
 			
 //			// Do Small request analysis
 //			logger.fine("Performing Small request analysis");
 //			this.smallRequestAnalysis = new SmallRequestAnalysis(this.tcpSessions);
 			
-			// Do Sprite image analysis
-			logger.fine("Performing Sprite image analysis");
-			this.spriteImageAnalysis = new SpriteImageAnalysis(this.tcpSessions);
-
 			// Do cache analysis
 			logger.fine("Performing cache analysis");
-			this.cacheAnalysis = new CacheAnalysis(this.tcpSessions);
-			
-			// Do DisplayNoneInCSS analysis
-			logger.fine("Performing Display:none in CSS analysis");
-			this.displayNoneInCSSAnalysis = new DisplayNoneInCSSAnalysis(this.tcpSessions);
-
-			// Simulate RRC state machine
-			logger.fine("Initializing RRCStateMachine");
-			this.rrcStateMachine = new RRCStateMachine(this);
-
-			// Create energy model
-			logger.fine("Initializing EnergyModel");
-			this.energyModel = new EnergyModel(this);
-
-			// Burst Analysis
-			logger.fine("Initializing BurstCollectionAnalysis");
-			this.bcAnalysis = new BurstCollectionAnalysis(this);
+			stage = timings.start(Util.RB.getString("stage.cache.analysis"));
+			this.cacheAnalysis = new CacheAnalysis(this.tcpSessions, token);
+			stage.stop();
+			checkCancelled();
 
 			// Creates BestPractices object
 			logger.fine("Initializing BestPractices");
+			stage = timings.start(Util.RB.getString("stage.best.practices"));
 			this.bestPractice = new BestPractices(this);
+			stage.stop();
 
 			// Calculate score
 			logger.fine("Initializing ApplicationScore");
+			stage = timings.start(Util.RB.getString("stage.application.score"));
 			this.applicationScore = new ApplicationScore(this);
+			stage.stop();
 			
 			// Do cache analysis
 			logger.fine("Initializing CacheInfoParser");
+			stage = timings.start(Util.RB.getString("stage.cache.info"));
 			this.cacheInfoParser = new CacheInfoParser(cacheAnalysis);
+			stage.stop();
+			recordPacketResults();
+			stageCompleted(AnalysisStage.BEST_PRACTICES);
 
 			logger.fine("runAnalysis is complted");
 			
 		}
 
 		/**
-		 * Returns the list of user events filtered based on the time range.
-		 */
-		private List<UserEvent> getUserEventsForTheTimeRange(List<UserEvent> userEvents,
-				double beginTime, double endTime) {
-			List<UserEvent> filteredUserEvents = new ArrayList<UserEvent>();
-			for (UserEvent userEvent : userEvents) {
-				if (userEvent.getPressTime() >= beginTime && userEvent.getReleaseTime() <= endTime) {
-
-					filteredUserEvents.add(userEvent);
-				}
-			}
-			return filteredUserEvents;
-		}
-
-		/**
-		 * Returns the list of screen events filtered based on the time range.
-		 */
-		private List<ScreenStateInfo> getScreenInfosForTheTimeRange(
-				List<ScreenStateInfo> screenStateInfos, double beginTime, double endTime) {
-
-			List<ScreenStateInfo> filteredScreenStateInfos = new ArrayList<ScreenStateInfo>();
-			for (ScreenStateInfo screenStateInfo : screenStateInfos) {
-
-				if (screenStateInfo.getBeginTimeStamp() >= beginTime
-						&& screenStateInfo.getEndTimeStamp() <= endTime) {
-					filteredScreenStateInfos.add(screenStateInfo);
-				} else if (screenStateInfo.getBeginTimeStamp() <= beginTime
-						&& screenStateInfo.getEndTimeStamp() <= endTime
-						&& screenStateInfo.getEndTimeStamp() > beginTime) {
-					filteredScreenStateInfos.add(new ScreenStateInfo(beginTime, screenStateInfo
-							.getEndTimeStamp(), screenStateInfo.getScreenState(), screenStateInfo
-							.getScreenBrightness(), screenStateInfo.getScreenTimeout()));
-				} else if (screenStateInfo.getBeginTimeStamp() <= beginTime
-						&& screenStateInfo.getEndTimeStamp() >= endTime) {
-					filteredScreenStateInfos.add(new ScreenStateInfo(beginTime, endTime,
-							screenStateInfo.getScreenState(),
-							screenStateInfo.getScreenBrightness(), screenStateInfo
-									.getScreenTimeout()));
-				} else if (screenStateInfo.getBeginTimeStamp() >= beginTime
-						&& screenStateInfo.getBeginTimeStamp() < endTime
-						&& screenStateInfo.getEndTimeStamp() >= endTime) {
-					filteredScreenStateInfos.add(new ScreenStateInfo(screenStateInfo
-							.getBeginTimeStamp(), endTime, screenStateInfo.getScreenState(),
-							screenStateInfo.getScreenBrightness(), screenStateInfo
-									.getScreenTimeout()));
-				}
-			}
-			return filteredScreenStateInfos;
-		}
-
-		/**
-		 * Returns the list of camera events filtered based on the time range.
-		 */
-		private List<CameraInfo> getCameraInfosForTheTimeRange(List<CameraInfo> cameraInfos,
-				double beginTime, double endTime) {
-
-			List<CameraInfo> filteredCameraInfos = new ArrayList<CameraInfo>();
-			CameraInfo filteredCameraInfo = null;
-			for (CameraInfo cameraInfo : cameraInfos) {
-
-				if (cameraInfo.getBeginTimeStamp() >= beginTime
-						&& cameraInfo.getEndTimeStamp() <= endTime) {
-					filteredCameraInfo = cameraInfo;
-					filteredCameraInfos.add(filteredCameraInfo);
-					if (filteredCameraInfo.getCameraState() == CameraState.CAMERA_ON) {
-						this.cameraActiveDuration += filteredCameraInfo.getEndTimeStamp()
-								- filteredCameraInfo.getBeginTimeStamp();
-					}
-				} else if (cameraInfo.getBeginTimeStamp() <= beginTime
-						&& cameraInfo.getEndTimeStamp() <= endTime
-						&& cameraInfo.getEndTimeStamp() > beginTime) {
-					filteredCameraInfo = new CameraInfo(beginTime, cameraInfo.getEndTimeStamp(),
-							cameraInfo.getCameraState());
-					filteredCameraInfos.add(filteredCameraInfo);
-					if (filteredCameraInfo.getCameraState() == CameraState.CAMERA_ON) {
-						this.cameraActiveDuration += filteredCameraInfo.getEndTimeStamp()
-								- filteredCameraInfo.getBeginTimeStamp();
-					}
-				} else if (cameraInfo.getBeginTimeStamp() <= beginTime
-						&& cameraInfo.getEndTimeStamp() >= endTime) {
-					filteredCameraInfo = new CameraInfo(beginTime, endTime,
-							cameraInfo.getCameraState());
-					filteredCameraInfos.add(filteredCameraInfo);
-					if (filteredCameraInfo.getCameraState() == CameraState.CAMERA_ON) {
-						this.cameraActiveDuration += filteredCameraInfo.getEndTimeStamp()
-								- filteredCameraInfo.getBeginTimeStamp();
-					}
-				} else if (cameraInfo.getBeginTimeStamp() >= beginTime
-						&& cameraInfo.getBeginTimeStamp() < endTime
-						&& cameraInfo.getEndTimeStamp() >= endTime) {
-					filteredCameraInfo = new CameraInfo(cameraInfo.getBeginTimeStamp(), endTime,
-							cameraInfo.getCameraState());
-					filteredCameraInfos.add(filteredCameraInfo);
-					if (filteredCameraInfo.getCameraState() == CameraState.CAMERA_ON) {
-						this.cameraActiveDuration += filteredCameraInfo.getEndTimeStamp()
-								- filteredCameraInfo.getBeginTimeStamp();
-					}
-				}
-			}
-			return filteredCameraInfos;
-		}
-
-		/**
-		 * Returns the list of radio events filtered based on the time range.
-		 */
-
-		private List<RadioInfo> getRadioInfosForTheTimeRange(List<RadioInfo> radioInfos,
-				double beginTime, double endTime) {
-
-			List<RadioInfo> filteredRadioInfos = new ArrayList<RadioInfo>();
-			for (RadioInfo radioInfo : radioInfos) {
-
-				if (radioInfo.getTimeStamp() >= beginTime && radioInfo.getTimeStamp() <= endTime) {
-					filteredRadioInfos.add(radioInfo);
-				}
-			}
-			return filteredRadioInfos;
-		}
-
-		/**
-		 * Returns the list of battery events filtered based on the time range.
-		 */
-		private List<BatteryInfo> getBatteryInfosForTheTimeRange(List<BatteryInfo> batteryInfos,
-				double beginTime, double endTime) {
-
-			List<BatteryInfo> filteredBatteryInfos = new ArrayList<BatteryInfo>();
-			for (BatteryInfo batteryInfo : batteryInfos) {
-
-				if (batteryInfo.getBatteryTimeStamp() >= beginTime
-						&& batteryInfo.getBatteryTimeStamp() <= endTime) {
-					filteredBatteryInfos.add(batteryInfo);
-				}
-			}
-			return filteredBatteryInfos;
-		}
-
-		/**
-		 * Returns the list of wifi events filtered based on the time range.
-		 */
-		private List<WifiInfo> getWifiInfosForTheTimeRange(List<WifiInfo> wifiInfos,
-				double beginTime, double endTime) {
-
-			List<WifiInfo> filteredWifiInfos = new ArrayList<WifiInfo>();
-			for (WifiInfo wifiInfo : wifiInfos) {
-
-				if (wifiInfo.getBeginTimeStamp() >= beginTime
-						&& wifiInfo.getEndTimeStamp() <= endTime) {
-					filteredWifiInfos.add(wifiInfo);
-				} else if (wifiInfo.getBeginTimeStamp() <= beginTime
-						&& wifiInfo.getEndTimeStamp() <= endTime
-						&& wifiInfo.getEndTimeStamp() > beginTime) {
-					filteredWifiInfos.add(new WifiInfo(beginTime, wifiInfo.getEndTimeStamp(),
-							wifiInfo.getWifiState(), wifiInfo.getWifiMacAddress(), wifiInfo
-									.getWifiRSSI(), wifiInfo.getWifiSSID()));
-				} else if (wifiInfo.getBeginTimeStamp() <= beginTime
-						&& wifiInfo.getEndTimeStamp() >= endTime) {
-					filteredWifiInfos.add(new WifiInfo(beginTime, endTime, wifiInfo.getWifiState(),
-							wifiInfo.getWifiMacAddress(), wifiInfo.getWifiRSSI(), wifiInfo
-									.getWifiSSID()));
-				} else if (wifiInfo.getBeginTimeStamp() >= beginTime
-						&& wifiInfo.getBeginTimeStamp() < endTime
-						&& wifiInfo.getEndTimeStamp() >= endTime) {
-					filteredWifiInfos.add(new WifiInfo(wifiInfo.getBeginTimeStamp(), endTime,
-							wifiInfo.getWifiState(), wifiInfo.getWifiMacAddress(), wifiInfo
-									.getWifiRSSI(), wifiInfo.getWifiSSID()));
-				}
-			}
-			return filteredWifiInfos;
-		}
-
-		/**
-		 * Returns the list of bluetooth events filtered based on the time
-		 * range.
+		 * Returns the token that cancels the analysis while it runs.
 		 */
-		private List<BluetoothInfo> getBluetoothInfosForTheTimeRange(
-				List<BluetoothInfo> bluetoothInfos, double beginTime, double endTime) {
-
-			List<BluetoothInfo> filteredBluetoothInfos = new ArrayList<BluetoothInfo>();
-
-			BluetoothInfo filteredBluetoothInfo = null;
-
-			for (BluetoothInfo bluetoothInfo : bluetoothInfos) {
-
-				if (bluetoothInfo.getBeginTimeStamp() >= beginTime
-						&& bluetoothInfo.getEndTimeStamp() <= endTime) {
-					filteredBluetoothInfo = bluetoothInfo;
-					filteredBluetoothInfos.add(filteredBluetoothInfo);
-					if (filteredBluetoothInfo.getBluetoothState() == BluetoothState.BLUETOOTH_CONNECTED) {
-						this.bluetoothActiveDuration += filteredBluetoothInfo.getEndTimeStamp()
-								- filteredBluetoothInfo.getBeginTimeStamp();
-					}
-				} else if (bluetoothInfo.getBeginTimeStamp() <= beginTime
-						&& bluetoothInfo.getEndTimeStamp() <= endTime
-						&& bluetoothInfo.getEndTimeStamp() > beginTime) {
-					filteredBluetoothInfo = new BluetoothInfo(beginTime,
-							bluetoothInfo.getEndTimeStamp(), bluetoothInfo.getBluetoothState());
-					filteredBluetoothInfos.add(filteredBluetoothInfo);
-					if (filteredBluetoothInfo.getBluetoothState() == BluetoothState.BLUETOOTH_CONNECTED) {
-						this.bluetoothActiveDuration += filteredBluetoothInfo.getEndTimeStamp()
-								- filteredBluetoothInfo.getBeginTimeStamp();
-					}
-				} else if (bluetoothInfo.getBeginTimeStamp() <= beginTime
-						&& bluetoothInfo.getEndTimeStamp() >= endTime) {
-					filteredBluetoothInfo = new BluetoothInfo(beginTime, endTime,
-							bluetoothInfo.getBluetoothState());
-					filteredBluetoothInfos.add(filteredBluetoothInfo);
-					if (filteredBluetoothInfo.getBluetoothState() == BluetoothState.BLUETOOTH_CONNECTED) {
-						this.bluetoothActiveDuration += filteredBluetoothInfo.getEndTimeStamp()
-								- filteredBluetoothInfo.getBeginTimeStamp();
-					}
-				} else if (bluetoothInfo.getBeginTimeStamp() >= beginTime
-						&& bluetoothInfo.getBeginTimeStamp() < endTime
-						&& bluetoothInfo.getEndTimeStamp() >= endTime) {
-					filteredBluetoothInfo = new BluetoothInfo(bluetoothInfo.getBeginTimeStamp(),
-							endTime, bluetoothInfo.getBluetoothState());
-					filteredBluetoothInfos.add(filteredBluetoothInfo);
-					if (filteredBluetoothInfo.getBluetoothState() == BluetoothState.BLUETOOTH_CONNECTED) {
-						this.bluetoothActiveDuration += filteredBluetoothInfo.getEndTimeStamp()
-								- filteredBluetoothInfo.getBeginTimeStamp();
-					}
-				}
-			}
-
-			return filteredBluetoothInfos;
+		CancellationToken getCancellationToken() {
+			return token;
 		}
 
 		/**
-		 * Returns the list of gps events filtered based on the time range.
+		 * Throws a CancellationException if the analysis was cancelled.
 		 */
-		private List<GpsInfo> getGpsInfosForTheTimeRange(List<GpsInfo> gpsInfos, double beginTime,
-				double endTime) {
-
-			List<GpsInfo> filteredGpsInfos = new ArrayList<GpsInfo>();
-
-			GpsInfo filteredGpsInfo = null;
-
-			for (GpsInfo gpsInfo : gpsInfos) {
-
-				if (gpsInfo.getBeginTimeStamp() >= beginTime
-						&& gpsInfo.getEndTimeStamp() <= endTime) {
-					filteredGpsInfo = gpsInfo;
-					filteredGpsInfos.add(filteredGpsInfo);
-					if (filteredGpsInfo.getGpsState() == GpsState.GPS_ACTIVE) {
-						this.gpsActiveDuration += filteredGpsInfo.getEndTimeStamp()
-								- filteredGpsInfo.getBeginTimeStamp();
-					}
-
-				} else if (gpsInfo.getBeginTimeStamp() <= beginTime
-						&& gpsInfo.getEndTimeStamp() <= endTime
-						&& gpsInfo.getEndTimeStamp() > beginTime) {
-					filteredGpsInfo = new GpsInfo(beginTime, gpsInfo.getEndTimeStamp(),
-							gpsInfo.getGpsState());
-					filteredGpsInfos.add(filteredGpsInfo);
-					if (filteredGpsInfo.getGpsState() == GpsState.GPS_ACTIVE) {
-						this.gpsActiveDuration += filteredGpsInfo.getEndTimeStamp()
-								- filteredGpsInfo.getBeginTimeStamp();
-					}
-				} else if (gpsInfo.getBeginTimeStamp() <= beginTime
-						&& gpsInfo.getEndTimeStamp() >= endTime) {
-					filteredGpsInfo = new GpsInfo(beginTime, endTime, gpsInfo.getGpsState());
-					filteredGpsInfos.add(filteredGpsInfo);
-					if (filteredGpsInfo.getGpsState() == GpsState.GPS_ACTIVE) {
-						this.gpsActiveDuration += filteredGpsInfo.getEndTimeStamp()
-								- filteredGpsInfo.getBeginTimeStamp();
-					}
-				} else if (gpsInfo.getBeginTimeStamp() >= beginTime
-						&& gpsInfo.getBeginTimeStamp() < endTime
-						&& gpsInfo.getEndTimeStamp() >= endTime) {
-					filteredGpsInfo = new GpsInfo(gpsInfo.getBeginTimeStamp(), endTime,
-							gpsInfo.getGpsState());
-					filteredGpsInfos.add(filteredGpsInfo);
-					if (filteredGpsInfo.getGpsState() == GpsState.GPS_ACTIVE) {
-						this.gpsActiveDuration += filteredGpsInfo.getEndTimeStamp()
-								- filteredGpsInfo.getBeginTimeStamp();
-					}
-
-				}
+		private void checkCancelled() {
+			if (token != null) {
+				token.checkCancelled();
 			}
-
-			return filteredGpsInfos;
 		}
 
 		/**
-		 * Returns the list of network bearers found in the trace filtered based
-		 * on the time range.
+		 * Checks for cancellation, then notifies the listener that the
+		 * specified stage of the analysis is complete.
 		 */
-		private List<NetworkBearerTypeInfo> getNetworkInfosForTheTimeRange(
-				List<NetworkBearerTypeInfo> bearerInfos, double beginTime, double endTime) {
-
-			List<NetworkBearerTypeInfo> filteredBearerInfos = new ArrayList<NetworkBearerTypeInfo>();
-			for (NetworkBearerTypeInfo bearerInfo : bearerInfos) {
-
-				if (bearerInfo.getBeginTimestamp() >= beginTime
-						&& bearerInfo.getEndTimestamp() <= endTime) {
-					filteredBearerInfos.add(bearerInfo);
-				} else if (bearerInfo.getBeginTimestamp() <= beginTime
-						&& bearerInfo.getEndTimestamp() <= endTime
-						&& bearerInfo.getEndTimestamp() > beginTime) {
-					filteredBearerInfos.add(new NetworkBearerTypeInfo(beginTime, bearerInfo
-							.getEndTimestamp(), bearerInfo.getNetworkType()));
-				} else if (bearerInfo.getBeginTimestamp() <= beginTime
-						&& bearerInfo.getEndTimestamp() >= endTime) {
-					filteredBearerInfos.add(new NetworkBearerTypeInfo(beginTime, endTime,
-							bearerInfo.getNetworkType()));
-				} else if (bearerInfo.getBeginTimestamp() >= beginTime
-						&& bearerInfo.getBeginTimestamp() < endTime
-						&& bearerInfo.getEndTimestamp() >= endTime) {
-					filteredBearerInfos.add(new NetworkBearerTypeInfo(bearerInfo
-							.getBeginTimestamp(), endTime, bearerInfo.getNetworkType()));
-				}
+		private void stageCompleted(AnalysisStage stage) {
+			checkCancelled();
+			if (listener != null) {
+				listener.stageCompleted(this, stage);
 			}
-			return filteredBearerInfos;
 		}
 
 		/**
@@ -1447,6 +1388,11 @@ public class TraceData implements Serializable {
 	 */
 	private static Logger logger = Logger.getLogger(TraceData.class.getName());
 
+	/**
+	 * The configured analyzer plugins, loaded on first use
+	 */
+	private static List<SessionAnalyzerPlugin> sessionAnalyzerPlugins;
+
 	/**
 	 * The name of the active_process file
 	 */
@@ -1695,6 +1641,13 @@ public class TraceData implements Serializable {
 
 	private File traceDir;
 
+	// Timings of reading the trace files
+	private StageTimings readTimings = new StageTimings();
+
+	// Temporary directory of the session storage files of the analyses
+	private transient File storageDir;
+	private transient List<SessionStorageFile> storageFiles;
+
 	private Set<InetAddress> localIPAddresses = new HashSet<InetAddress>(1);
 
 	// App Info
@@ -1733,6 +1686,17 @@ public class TraceData implements Serializable {
 	private List<NetworkBearerTypeInfo> networkTypeInfos = new ArrayList<NetworkBearerTypeInfo>();
 	private NetworkType networkType;
 
+	// The peripheral events indexed by time for the analyses
+	private transient TimeSeries<GpsInfo> gpsSeries;
+	private transient TimeSeries<BluetoothInfo> bluetoothSeries;
+	private transient TimeSeries<WifiInfo> wifiSeries;
+	private transient TimeSeries<BatteryInfo> batterySeries;
+	private transient TimeSeries<RadioInfo> radioSeries;
+	private transient TimeSeries<CameraInfo> cameraSeries;
+	private transient TimeSeries<ScreenStateInfo> screenStateSeries;
+	private transient TimeSeries<UserEvent> userEventSeries;
+	private transient TimeSeries<NetworkBearerTypeInfo> networkTypeSeries;
+
 	// time
 	private String collectorName;
 	private String deviceModel;
@@ -1761,9 +1725,18 @@ public class TraceData implements Serializable {
 	// All packets included in the trace (not filtered)
 	private File pcapFile;
 	private List<PacketInfo> allPackets = new ArrayList<PacketInfo>(1000);
+
+	// The packets of a capture that is still running, while the trace is read
+	private transient List<Packet> livePackets;
+
+	// The sessions of the previous snapshot of a capture that is still
+	// running, until they are reused by the first analysis of the trace
+	private transient List<TCPSession> reusableSessions;
+	private transient PacketPartitions packetPartitions;
 	private Map<InetAddress, Integer> ipCountMap = new HashMap<InetAddress, Integer>();
 	// private WhatIf whatIf = new WhatIf(WhatIf.WhatIfType.WHATIF_NO) ;
 	private Set<String> allAppNames = new HashSet<String>();
+	private TraceSymbols symbols = new TraceSymbols();
 	private Map<String, Set<InetAddress>> appIps = new HashMap<String, Set<InetAddress>>();
 	private List<NetworkType> networkTypesList = new ArrayList<NetworkType>();
 
@@ -1835,7 +1808,9 @@ public class TraceData implements Serializable {
 		} else {
 
 			// Read PCAP file only
+			StageTimings.Stage stage = readTimings.start(Util.RB.getString("stage.read.pcap"));
 			readPcapTrace(traceDir, null, null, null);
+			stage.stop();
 		}
 
 	}
@@ -1845,6 +1820,138 @@ public class TraceData implements Serializable {
 	 */
 	public TraceData() { }
 
+	/**
+	 * Initializes an instance of the TraceData class using several pcap files,
+	 * such as the rotated files of a long capture. The files are read as one
+	 * capture, merged in timestamp order.
+	 * 
+	 * @param pcapFiles
+	 *            - The pcap files.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the list is empty or a file does not exist
+	 * @throws IOException
+	 *             when error occurs reading the files
+	 */
+	public TraceData(List<File> pcapFiles) throws IOException, UnsatisfiedLinkError {
+		if (pcapFiles == null || pcapFiles.isEmpty()) {
+			throw new IllegalArgumentException("Argument must list at least one pcap file.");
+		}
+		for (File file : pcapFiles) {
+			if (!file.isFile()) {
+				throw new IllegalArgumentException("Argument must represent an existing directory or pcap file.");
+			}
+		}
+		this.traceDir = pcapFiles.get(0);
+
+		StageTimings.Stage stage = readTimings.start(Util.RB.getString("stage.read.pcap"));
+		readPcapTrace(pcapFiles, null, null, null);
+		stage.stop();
+	}
+
+	/**
+	 * Initializes an instance of the TraceData class using the directory of a
+	 * trace that is still being collected, and the packets read so far from
+	 * its capture files. The other trace files are read as they currently
+	 * are. The packets are not associated with applications, since the
+	 * application IDs of the last packets may not have been written yet.
+	 * <p>
+	 * The trace has its own packet information, which its analyses modify.
+	 * The first analysis of this trace without a filter copies the TCP
+	 * sessions of the previous analysis whose packets have not changed,
+	 * instead of reassembling and parsing them again.
+	 * 
+	 * @param traceDir
+	 *            - Directory where the trace files are being collected.
+	 * @param packets
+	 *            - The packets read so far, in capture order.
+	 * @param previous
+	 *            - The analysis of the previous snapshot, or null.
+	 * 
+	 * @throws IOException
+	 *             when error occurs reading trace information
+	 * @see LiveTrace
+	 */
+	TraceData(File traceDir, List<Packet> packets, Analysis previous) throws IOException {
+		this.traceDir = traceDir;
+		this.livePackets = packets;
+		try {
+			readData();
+		} finally {
+			this.livePackets = null;
+		}
+
+		// The sessions of a snapshot without a previous one are prepared to
+		// be copied by the next snapshot
+		this.reusableSessions = previous != null ? previous.getTcpSessions() : Collections
+				.<TCPSession> emptyList();
+	}
+
+	/**
+	 * Initializes an instance of the TraceData class using packets that have
+	 * already been read and classified, such as the synthetic traces used by
+	 * the benchmark suite. Each packet must already have its direction set and
+	 * its timestamp normalized to the start of the trace.
+	 *
+	 * @param packets
+	 *            The packets of the trace.
+	 * @param traceDuration
+	 *            The duration of the trace (in seconds).
+	 */
+	TraceData(List<PacketInfo> packets, double traceDuration) {
+		this.traceDuration = traceDuration;
+		if (!packets.isEmpty()) {
+			PacketInfo first = packets.get(0);
+			this.pcapTime0 = first.getPacket().getTimeStamp() - first.getTimeStamp();
+		}
+		this.traceDateTime = new Date((long) (this.pcapTime0 * 1000));
+
+		int packetIdx = 0;
+		for (PacketInfo packet : packets) {
+			String appName = packet.getAppName();
+			if (appName == null) {
+				appName = Util.RB.getString("aro.unknownApp");
+			}
+			appName = symbols.getAppNames().intern(appName);
+			packet.setAppName(appName);
+			this.allAppNames.add(appName);
+
+			// Group IPs by app
+			Set<InetAddress> ips = appIps.get(appName);
+			if (ips == null) {
+				ips = new HashSet<InetAddress>();
+				appIps.put(appName, ips);
+			}
+			ips.add(packet.getRemoteIPAddress());
+
+			packet.setId(++packetIdx);
+			allPackets.add(packet);
+		}
+		Collections.sort(allPackets);
+		this.packetPartitions = new PacketPartitions(allPackets);
+	}
+
+	/**
+	 * Returns the packets of the trace partitioned by application and remote
+	 * IP address. The partitions are built when the packets are read, or on
+	 * first use after the trace has been deserialized.
+	 */
+	private synchronized PacketPartitions getPacketPartitions() {
+		if (packetPartitions == null) {
+			packetPartitions = new PacketPartitions(allPackets);
+		}
+		return packetPartitions;
+	}
+
+	/**
+	 * Returns the timings of the stages of reading the trace files.
+	 * 
+	 * @return The read timings.
+	 */
+	public StageTimings getReadTimings() {
+		return readTimings;
+	}
+
 	/**
 	 * Returns the trace directory.
 	 * 
@@ -1854,6 +1961,55 @@ public class TraceData implements Serializable {
 		return traceDir;
 	}
 
+	/**
+	 * Releases the session storage that the analyses of this trace spilled
+	 * to files, and deletes the files. The content of the sessions of the
+	 * analyses is no longer available. Call this method when the trace is
+	 * closed.
+	 */
+	public synchronized void release() {
+		if (storageFiles != null) {
+			for (SessionStorageFile file : storageFiles) {
+				file.release();
+			}
+			storageFiles = null;
+		}
+		if (storageDir != null) {
+			SessionStorageFile.deleteDirectory(storageDir);
+			storageDir = null;
+		}
+	}
+
+	/**
+	 * Creates a session storage file in the temporary directory of this
+	 * trace, creating the directory when needed.
+	 * 
+	 * @return The file.
+	 * @throws IOException
+	 */
+	synchronized SessionStorageFile createStorageFile() throws IOException {
+		if (storageDir == null) {
+			storageDir = SessionStorageFile.createDirectory();
+			storageFiles = new ArrayList<SessionStorageFile>();
+		}
+		SessionStorageFile file = new SessionStorageFile(storageDir);
+		storageFiles.add(file);
+		return file;
+	}
+
+	/**
+	 * Releases a session storage file of this trace.
+	 * 
+	 * @param file
+	 *            The file.
+	 */
+	synchronized void releaseStorageFile(SessionStorageFile file) {
+		file.release();
+		if (storageFiles != null) {
+			storageFiles.remove(file);
+		}
+	}
+
 	/**
 	 * Returns the date and time of the trace data.
 	 * 
@@ -1967,6 +2123,16 @@ public class TraceData implements Serializable {
 		}
 	}
 
+	/**
+	 * Returns the symbol tables of the trace, which hold the application
+	 * names, host names and HTTP values shared by all of its analyses.
+	 * 
+	 * @return The trace symbols.
+	 */
+	public TraceSymbols getSymbols() {
+		return symbols;
+	}
+
 	/**
 	 * Returns the names of all the apps in the trace, including apps that were
 	 * filtered from the analysis.
@@ -2041,6 +2207,37 @@ public class TraceData implements Serializable {
 		return deviceScreenSizeY;
 	}
 
+	/**
+	 * Returns the analyzer plugins defined in the 'plugin.analyzers.class.list'
+	 * resource bundle property. The plugins are loaded on the first call and
+	 * shared by all of the analyses.
+	 * 
+	 * @return The analyzer plugins.
+	 */
+	public static synchronized List<SessionAnalyzerPlugin> getSessionAnalyzerPlugins() {
+		if (sessionAnalyzerPlugins == null) {
+			List<SessionAnalyzerPlugin> plugins = new ArrayList<SessionAnalyzerPlugin>();
+			StringTokenizer classList = new StringTokenizer(
+					Util.RB.getString("plugin.analyzers.class.list"), ",");
+			while (classList.hasMoreTokens()) {
+				String className = classList.nextToken().trim();
+				try {
+					plugins.add((SessionAnalyzerPlugin) Class.forName(className).newInstance());
+				} catch (InstantiationException e) {
+					logger.log(Level.SEVERE, "Cannot load analyzer plugin class: {0}", e.toString());
+				} catch (IllegalAccessException e) {
+					logger.log(Level.SEVERE, "Cannot load analyzer plugin class: {0}", e.toString());
+				} catch (ClassNotFoundException e) {
+					logger.log(Level.SEVERE, "Cannot load analyzer plugin class: {0}", e.toString());
+				} catch (ClassCastException e) {
+					logger.log(Level.SEVERE, "Cannot load analyzer plugin class: {0}", e.toString());
+				}
+			}
+			sessionAnalyzerPlugins = Collections.unmodifiableList(plugins);
+		}
+		return sessionAnalyzerPlugins;
+	}
+
 	/**
 	 * Runs analysis on the trace data for the specified collection filter,
 	 * using the specified device profile.
@@ -2056,7 +2253,32 @@ public class TraceData implements Serializable {
 	 */
 	public synchronized Analysis runAnalysis(Profile profile, AnalysisFilter filter)
 			throws IOException {
-		return new Analysis(profile, filter);
+		return new Analysis(profile, filter, null, null);
+	}
+
+	/**
+	 * Runs analysis on the trace data for the specified collection filter,
+	 * using the specified device profile. The listener is notified as each
+	 * stage of the analysis completes, so that partial results can be
+	 * displayed, and the analysis stops when the token is cancelled.
+	 * 
+	 * @param profile
+	 *            The device profile settings.
+	 * @param filter
+	 *            An optional analysis filter that filters out information from
+	 *            the trace during analysis.
+	 * @param listener
+	 *            An optional listener that receives the partial results.
+	 * @param token
+	 *            An optional token that cancels the analysis.
+	 * @return An Analysis object containing the trace analysis.
+	 * @throws IOException
+	 * @throws java.util.concurrent.CancellationException
+	 *             when the token is cancelled before the analysis completes.
+	 */
+	public synchronized Analysis runAnalysis(Profile profile, AnalysisFilter filter,
+			AnalysisListener listener, CancellationToken token) throws IOException {
+		return new Analysis(profile, filter, listener, token);
 	}
 
 	/**
@@ -2180,19 +2402,58 @@ public class TraceData implements Serializable {
 
 		// Read the pcap files to get default times
 		File pcap = new File(traceDir, PCAP_FILE);
+		if (livePackets != null) {
+
+			// The capture is still running, and its packets have already
+			// been read
+			this.pcapFile = pcap;
+			for (Packet packet : livePackets) {
+				packetListener.packetArrived(null, packet);
+			}
+			processPackets(pcap, Collections.<Integer> emptyList(), startTime, duration);
+			return;
+		}
 		List<Integer> appIds = readAppIDs();
 		
 		
 		totalNoPackets = appIds.size();
-		readPcapTrace(pcap, appIds, startTime, duration);
+
+		// Rotated captures continue in traffic1.cap, traffic2.cap...
+		List<File> pcaps = new ArrayList<File>();
+		pcaps.add(pcap);
 		for (int i = 1;; i++) {
 			File pcapFile = new File(traceDir, TRAFFIC + i + CAP_EXT);
 			if (pcapFile.exists()) {
-				readPcapTrace(pcapFile, appIds, startTime, duration);
+				pcaps.add(pcapFile);
 			} else {
 				break;
 			}
 		}
+		readPcapTrace(pcaps, appIds, startTime, duration);
+	}
+
+	/**
+	 * Reads the packets of one pcap file with the pcap libraries, or with
+	 * Network Monitor on Windows.
+	 */
+	private void loadPcapFile(File pcap) throws IOException, UnsatisfiedLinkError {
+		try {
+			new PCapAdapter(pcap, packetListener);
+		} catch (IOException e) {
+			String osname = System.getProperty("os.name");
+			if (osname != null && osname.contains("Windows")) {
+				try {
+					new NetmonAdapter(pcap, packetListener);
+				} catch (UnsatisfiedLinkError er) {
+					logger.severe("NetmonAdapter: UnsatisfiedLinkError, NetMon is not installed");
+					throw er;
+				} catch (IOException io) {
+					// Throw the original IOException
+					logger.severe("NetmonAdapter: IOException");
+					throw e;
+				}
+			}
+		}
 	}
 
 	/**
@@ -2369,7 +2630,25 @@ public class TraceData implements Serializable {
 	 */
 	private void readPcapTrace(File pcap, List<Integer> appIds, Double startTime, Double duration)
 			throws IOException, FileNotFoundException, UnsatisfiedLinkError {
+		readPcapTrace(Collections.singletonList(pcap), appIds, startTime, duration);
+	}
+
+	/**
+	 * Reads the specified pcap files as one trace. When there are application
+	 * IDs, they follow the packets of the files in the order of the files, so
+	 * the files are read one after the other. Otherwise the files are merged
+	 * in timestamp order while they are read. In both cases the packets are
+	 * processed once, after all files have been read.
+	 * 
+	 * @throws IOException
+	 *             when an unexpected I/O error occurs
+	 * @throws FileNotFoundException
+	 *             when the first file does not exist or is empty
+	 */
+	private void readPcapTrace(List<File> pcaps, List<Integer> appIds, Double startTime,
+			Double duration) throws IOException, FileNotFoundException, UnsatisfiedLinkError {
 
+		File pcap = pcaps.get(0);
 		if (!pcap.exists()) {
 			logger.severe("No TCP data found in trace");
 
@@ -2377,22 +2656,28 @@ public class TraceData implements Serializable {
 			new FileInputStream(pcap);
 		}
 		this.pcapFile = pcap;
-		try {
-			new PCapAdapter(pcap, packetListener);
-		} catch (IOException e) {
-			String osname = System.getProperty("os.name");
-			if (osname != null && osname.contains("Windows")) {
+		if (pcaps.size() > 1 && (appIds == null || appIds.isEmpty())) {
+			PcapMergeReader reader = null;
+			try {
+				reader = new PcapMergeReader(pcaps);
+			} catch (IOException e) {
+				logger.log(Level.INFO, "Unable to merge pcap files, reading them in order", e);
+			}
+			if (reader != null) {
 				try {
-					new NetmonAdapter(pcapFile, packetListener);
-				} catch (UnsatisfiedLinkError er) {
-					logger.severe("NetmonAdapter: UnsatisfiedLinkError, NetMon is not installed");
-					throw er;
-				} catch (IOException io) {
-					// Throw the original IOException
-					logger.severe("NetmonAdapter: IOException");
-					throw e;
+					reader.loop(packetListener);
+				} finally {
+					reader.close();
+				}
+			} else {
+				for (File file : pcaps) {
+					loadPcapFile(file);
 				}
 			}
+		} else {
+			for (File file : pcaps) {
+				loadPcapFile(file);
+			}
 		}
 
 		// Ignore the last packet (nexus one data collector's problem)
@@ -2400,6 +2685,16 @@ public class TraceData implements Serializable {
 		// Commented out so results match wireshark
 		// allPackets.remove(allPackets.size() - 1);
 
+		processPackets(pcap, appIds, startTime, duration);
+	}
+
+	/**
+	 * Sets the trace times from the packets that have been read, and the
+	 * direction, timestamp, application and ID of each packet.
+	 */
+	private void processPackets(File pcap, List<Integer> appIds, Double startTime,
+			Double duration) throws IOException {
+
 		// Determine application name associated with each packet
 		if (allPackets.size() > 0) {
 			this.pcapTime0 = startTime != null ? startTime.doubleValue() : allPackets.get(0)
@@ -2436,7 +2731,8 @@ public class TraceData implements Serializable {
 				packet.setTimestamp(ip.getTimeStamp() - this.pcapTime0 - tzDiff);
 
 				//Associate application ID with the packet 
-				String appName = getAppNameForPacket(packetIdx, appIds, this.appInfos);
+				String appName = symbols.getAppNames().intern(
+						getAppNameForPacket(packetIdx, appIds, this.appInfos));
 				packet.setAppName(appName);
 				this.allAppNames.add(appName);
 
@@ -2454,6 +2750,7 @@ public class TraceData implements Serializable {
 			}
 
 			Collections.sort(allPackets);
+			this.packetPartitions = new PacketPartitions(allPackets);
 		} else {
 			this.pcapTime0 = startTime != null ? startTime.doubleValue()
 					: pcap.lastModified() / 1000.0;
@@ -2462,7 +2759,7 @@ public class TraceData implements Serializable {
 		this.traceDateTime = new Date((long) (this.pcapTime0 * 1000));
 		
 		// Only if Pcap file is loaded, execute the video sync process below.
-		if((appIds.isEmpty()) && (startTime == null) && (duration == null)){
+		if((livePackets == null) && (appIds.isEmpty()) && (startTime == null) && (duration == null)){
 			String exVideoDisplayFileName = Util.RB.getString("video.exVideoDisplayFile");
 			File exVideoDisplayFile = new File(traceDir.getParentFile(), exVideoDisplayFileName);
 			String nativeVideoFileOnDevice = "video.mp4";
@@ -2708,6 +3005,233 @@ public class TraceData implements Serializable {
 
 	}
 
+	private static final TimeSeries.Accessor<GpsInfo> GPS_EVENTS = new TimeSeries.Accessor<GpsInfo>() {
+		@Override
+		public double getBeginTime(GpsInfo event) {
+			return event.getBeginTimeStamp();
+		}
+
+		@Override
+		public double getEndTime(GpsInfo event) {
+			return event.getEndTimeStamp();
+		}
+
+		@Override
+		public Object getState(GpsInfo event) {
+			return event.getGpsState();
+		}
+
+		@Override
+		public GpsInfo clip(GpsInfo event, double beginTime, double endTime) {
+			return new GpsInfo(beginTime, endTime, event.getGpsState());
+		}
+	};
+
+	private static final TimeSeries.Accessor<BluetoothInfo> BLUETOOTH_EVENTS = new TimeSeries.Accessor<BluetoothInfo>() {
+		@Override
+		public double getBeginTime(BluetoothInfo event) {
+			return event.getBeginTimeStamp();
+		}
+
+		@Override
+		public double getEndTime(BluetoothInfo event) {
+			return event.getEndTimeStamp();
+		}
+
+		@Override
+		public Object getState(BluetoothInfo event) {
+			return event.getBluetoothState();
+		}
+
+		@Override
+		public BluetoothInfo clip(BluetoothInfo event, double beginTime, double endTime) {
+			return new BluetoothInfo(beginTime, endTime, event.getBluetoothState());
+		}
+	};
+
+	private static final TimeSeries.Accessor<WifiInfo> WIFI_EVENTS = new TimeSeries.Accessor<WifiInfo>() {
+		@Override
+		public double getBeginTime(WifiInfo event) {
+			return event.getBeginTimeStamp();
+		}
+
+		@Override
+		public double getEndTime(WifiInfo event) {
+			return event.getEndTimeStamp();
+		}
+
+		@Override
+		public Object getState(WifiInfo event) {
+			return event.getWifiState();
+		}
+
+		@Override
+		public WifiInfo clip(WifiInfo event, double beginTime, double endTime) {
+			return new WifiInfo(beginTime, endTime, event.getWifiState(),
+					event.getWifiMacAddress(), event.getWifiRSSI(), event.getWifiSSID());
+		}
+	};
+
+	private static final TimeSeries.Accessor<CameraInfo> CAMERA_EVENTS = new TimeSeries.Accessor<CameraInfo>() {
+		@Override
+		public double getBeginTime(CameraInfo event) {
+			return event.getBeginTimeStamp();
+		}
+
+		@Override
+		public double getEndTime(CameraInfo event) {
+			return event.getEndTimeStamp();
+		}
+
+		@Override
+		public Object getState(CameraInfo event) {
+			return event.getCameraState();
+		}
+
+		@Override
+		public CameraInfo clip(CameraInfo event, double beginTime, double endTime) {
+			return new CameraInfo(beginTime, endTime, event.getCameraState());
+		}
+	};
+
+	private static final TimeSeries.Accessor<ScreenStateInfo> SCREEN_STATE_EVENTS = new TimeSeries.Accessor<ScreenStateInfo>() {
+		@Override
+		public double getBeginTime(ScreenStateInfo event) {
+			return event.getBeginTimeStamp();
+		}
+
+		@Override
+		public double getEndTime(ScreenStateInfo event) {
+			return event.getEndTimeStamp();
+		}
+
+		@Override
+		public Object getState(ScreenStateInfo event) {
+			return event.getScreenState();
+		}
+
+		@Override
+		public ScreenStateInfo clip(ScreenStateInfo event, double beginTime, double endTime) {
+			return new ScreenStateInfo(beginTime, endTime, event.getScreenState(),
+					event.getScreenBrightness(), event.getScreenTimeout());
+		}
+	};
+
+	private static final TimeSeries.Accessor<NetworkBearerTypeInfo> NETWORK_TYPE_EVENTS = new TimeSeries.Accessor<NetworkBearerTypeInfo>() {
+		@Override
+		public double getBeginTime(NetworkBearerTypeInfo event) {
+			return event.getBeginTimestamp();
+		}
+
+		@Override
+		public double getEndTime(NetworkBearerTypeInfo event) {
+			return event.getEndTimestamp();
+		}
+
+		@Override
+		public Object getState(NetworkBearerTypeInfo event) {
+			return event.getNetworkType();
+		}
+
+		@Override
+		public NetworkBearerTypeInfo clip(NetworkBearerTypeInfo event, double beginTime,
+				double endTime) {
+			return new NetworkBearerTypeInfo(beginTime, endTime, event.getNetworkType());
+		}
+	};
+
+	// Battery and radio events are points in time, and user events are only
+	// in a time range if they lie within it, so none of them are clipped.
+
+	private static final TimeSeries.Accessor<BatteryInfo> BATTERY_EVENTS = new TimeSeries.Accessor<BatteryInfo>() {
+		@Override
+		public double getBeginTime(BatteryInfo event) {
+			return event.getBatteryTimeStamp();
+		}
+
+		@Override
+		public double getEndTime(BatteryInfo event) {
+			return event.getBatteryTimeStamp();
+		}
+
+		@Override
+		public Object getState(BatteryInfo event) {
+			return null;
+		}
+
+		@Override
+		public BatteryInfo clip(BatteryInfo event, double beginTime, double endTime) {
+			return null;
+		}
+	};
+
+	private static final TimeSeries.Accessor<RadioInfo> RADIO_EVENTS = new TimeSeries.Accessor<RadioInfo>() {
+		@Override
+		public double getBeginTime(RadioInfo event) {
+			return event.getTimeStamp();
+		}
+
+		@Override
+		public double getEndTime(RadioInfo event) {
+			return event.getTimeStamp();
+		}
+
+		@Override
+		public Object getState(RadioInfo event) {
+			return null;
+		}
+
+		@Override
+		public RadioInfo clip(RadioInfo event, double beginTime, double endTime) {
+			return null;
+		}
+	};
+
+	private static final TimeSeries.Accessor<UserEvent> USER_EVENTS = new TimeSeries.Accessor<UserEvent>() {
+		@Override
+		public double getBeginTime(UserEvent event) {
+			return event.getPressTime();
+		}
+
+		@Override
+		public double getEndTime(UserEvent event) {
+			return event.getReleaseTime();
+		}
+
+		@Override
+		public Object getState(UserEvent event) {
+			return null;
+		}
+
+		@Override
+		public UserEvent clip(UserEvent event, double beginTime, double endTime) {
+			return null;
+		}
+	};
+
+	/**
+	 * Indexes the peripheral events of the trace by time for the analyses.
+	 * The events are indexed when the first analysis is run, since they are
+	 * not changed once the trace is read.
+	 */
+	private synchronized void indexPeripheralEvents() {
+		if (gpsSeries != null) {
+			return;
+		}
+		StageTimings.Stage stage = readTimings.start(Util.RB.getString("stage.index.peripheral.events"));
+		gpsSeries = new TimeSeries<GpsInfo>(gpsInfos, GPS_EVENTS);
+		bluetoothSeries = new TimeSeries<BluetoothInfo>(bluetoothInfos, BLUETOOTH_EVENTS);
+		wifiSeries = new TimeSeries<WifiInfo>(wifiInfos, WIFI_EVENTS);
+		batterySeries = new TimeSeries<BatteryInfo>(batteryInfos, BATTERY_EVENTS);
+		radioSeries = new TimeSeries<RadioInfo>(radioInfos, RADIO_EVENTS);
+		cameraSeries = new TimeSeries<CameraInfo>(cameraInfos, CAMERA_EVENTS);
+		screenStateSeries = new TimeSeries<ScreenStateInfo>(screenStateInfos, SCREEN_STATE_EVENTS);
+		userEventSeries = new TimeSeries<UserEvent>(userEvents, USER_EVENTS);
+		networkTypeSeries = new TimeSeries<NetworkBearerTypeInfo>(networkTypeInfos,
+				NETWORK_TYPE_EVENTS);
+		stage.stop();
+	}
+
 	private class UserEventSorting implements Comparator<UserEvent> {
 		@Override
 		public int compare(UserEvent o1, UserEvent o2) {
@@ -2720,98 +3244,130 @@ public class TraceData implements Serializable {
 	 */
 	private synchronized void readData() throws IOException {
 
+		StageTimings.Stage stage = readTimings.start(Util.RB.getString("stage.read.app.info"));
 		try {
 			readAppInfo();
 		} catch (IOException e) {
 			logger.info("*** Warning: no app information found ***");
 		}
+		stage.stop();
 
 		// Read the time file and PCAP trace
+		stage = readTimings.start(Util.RB.getString("stage.read.pcap"));
 		readTimeAndPcap();
+		stage.stop();
 
+		stage = readTimings.start(Util.RB.getString("stage.read.device.info"));
 		try {
 			readDeviceInfo();
 		} catch (IOException e) {
 			logger.info("*** Warning: no device information found ***");
 		}
+		stage.stop();
 
+		stage = readTimings.start(Util.RB.getString("stage.read.device.details"));
 		try {
 			readDeviceDetails();
 		} catch (IOException e) {
 			logger.info("*** Warning: no device detail information found ***");
 		}
+		stage.stop();
 
+		stage = readTimings.start(Util.RB.getString("stage.read.network.details"));
 		try {
 			readNetworkDetails();
 		} catch (IOException e) {
 			logger.info("*** Warning: no network detail information found ***");
 		}
+		stage.stop();
 
+		stage = readTimings.start(Util.RB.getString("stage.read.cpu"));
 		try {
 			readCpuTraceFile();
 		} catch (IOException e) {
 			logger.info("*** Warning: no CPU information found ***");
 		}
+		stage.stop();
 
+		stage = readTimings.start(Util.RB.getString("stage.read.gps"));
 		try {
 			readGps();
 		} catch (IOException e) {
 			logger.info("*** Warning: no GPS information found ***");
 		}
+		stage.stop();
 
+		stage = readTimings.start(Util.RB.getString("stage.read.bluetooth"));
 		try {
 			readBluetooth();
 		} catch (IOException e) {
 			logger.info("*** Warning: no Bluetooth information found ***");
 		}
+		stage.stop();
 
+		stage = readTimings.start(Util.RB.getString("stage.read.wifi"));
 		try {
 			readWifi();
 		} catch (IOException e) {
 			logger.info("*** Warning: no Wifi information found ***");
 		}
+		stage.stop();
 
+		stage = readTimings.start(Util.RB.getString("stage.read.camera"));
 		try {
 			readCamera();
 		} catch (IOException e) {
 			logger.info("*** Warning: no Camera information found ***");
 		}
+		stage.stop();
 
+		stage = readTimings.start(Util.RB.getString("stage.read.screen.state"));
 		try {
 			readScreenState();
 		} catch (IOException e) {
 			logger.info("*** Warning: no Screen State information found ***");
 		}
+		stage.stop();
 
+		stage = readTimings.start(Util.RB.getString("stage.read.user.events"));
 		try {
 			readUserEvents();
 		} catch (IOException e) {
 			logger.info("*** Warning: no user event information found ***");
 		}
+		stage.stop();
+		stage = readTimings.start(Util.RB.getString("stage.read.screen.rotations"));
 		try {
 			readScreenRotations();
 		} catch (IOException e) {
 			logger.info("*** Warning: no screen rotations information found ***");
 		}
+		stage.stop();
 
+		stage = readTimings.start(Util.RB.getString("stage.read.battery"));
 		try {
 			// Reads the battery information
 			readBattery();
 		} catch (IOException e) {
 			logger.info("*** Warning: no battery information found ***");
 		}
+		stage.stop();
 
+		stage = readTimings.start(Util.RB.getString("stage.read.radio.events"));
 		try {
 			readRadioEvents();
 		} catch (IOException e) {
 			logger.info("*** Warning: no Radio Events information found ***");
 		}
+		stage.stop();
 
+		stage = readTimings.start(Util.RB.getString("stage.read.video.time"));
 		try {
 			readVideoTime();
 		} catch (IOException e) {
 			logger.info("*** Warning: no Video time information found ***");
 		}
+		stage.stop();
 
 	}
 	
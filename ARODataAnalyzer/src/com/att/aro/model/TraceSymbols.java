@@ -0,0 +1,81 @@
+/*
+ *  Copyright 2012 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.model;
+
+import java.io.Serializable;
+
+/**
+ * The symbol tables of a trace. Application names, host names, content types,
+ * URL prefixes and other repeated HTTP header values are stored once per
+ * trace, so that the packets, sessions and requests of every analysis of the
+ * trace share the same string instances.
+ */
+public class TraceSymbols implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private final SymbolTable appNames = new SymbolTable();
+	private final SymbolTable hostNames = new SymbolTable();
+	private final SymbolTable contentTypes = new SymbolTable();
+	private final SymbolTable urlPrefixes = new SymbolTable();
+	private final SymbolTable headerValues = new SymbolTable();
+
+	/**
+	 * Returns the table of application names.
+	 * 
+	 * @return The application name symbols.
+	 */
+	public SymbolTable getAppNames() {
+		return appNames;
+	}
+
+	/**
+	 * Returns the table of remote host and domain names.
+	 * 
+	 * @return The host name symbols.
+	 */
+	public SymbolTable getHostNames() {
+		return hostNames;
+	}
+
+	/**
+	 * Returns the table of HTTP content types.
+	 * 
+	 * @return The content type symbols.
+	 */
+	public SymbolTable getContentTypes() {
+		return contentTypes;
+	}
+
+	/**
+	 * Returns the table of HTTP object names without their parameters.
+	 * 
+	 * @return The URL prefix symbols.
+	 */
+	public SymbolTable getUrlPrefixes() {
+		return urlPrefixes;
+	}
+
+	/**
+	 * Returns the table of other repeated HTTP values, such as request types,
+	 * versions, status texts, content encodings and character sets.
+	 * 
+	 * @return The header value symbols.
+	 */
+	public SymbolTable getHeaderValues() {
+		return headerValues;
+	}
+}
@@ -0,0 +1,465 @@
+/*
+ *  Copyright 2012 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.model;
+
+import java.io.Serializable;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.att.aro.pcap.IPPacket;
+
+/**
+ * Pre-aggregated traffic statistics of an analysis. The packets, bytes,
+ * sessions, requests, session durations and file downloads of the analysis
+ * are totaled once, by application, domain, remote IP address and time
+ * bucket, and the summaries of the analysis are rolled up from these cells
+ * instead of from the packets. A time range is rolled up from whole buckets.
+ */
+public class TrafficCube implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The default width of a time bucket in seconds.
+	 */
+	public static final double DEFAULT_BUCKET_WIDTH = 1.0;
+
+	/**
+	 * The dimensions that cells are grouped by.
+	 */
+	public enum Dimension {
+		/**
+		 * The application name of the packets.
+		 */
+		APPLICATION,
+		/**
+		 * The domain of the session of the packets.
+		 */
+		DOMAIN,
+		/**
+		 * The remote IP address of the packets.
+		 */
+		IP_ADDRESS,
+		/**
+		 * The time bucket of the packets.
+		 */
+		TIME
+	}
+
+	/**
+	 * The totals of one combination of dimension values. The measures of a
+	 * session (the session count, duration and file downloads) are counted in
+	 * the cell of the first packet of the session, and a request in the cell
+	 * of its session at the time of the request.
+	 */
+	public static class Row {
+		private final Cell key;
+		private final TrafficCube cube;
+		private int packets;
+		private long bytes;
+		private int sessions;
+		private int requests;
+		private double sessionDuration;
+		private int fileDownloads;
+
+		private Row(TrafficCube cube, Cell key) {
+			this.cube = cube;
+			this.key = key;
+		}
+
+		private void add(Cell cell) {
+			packets += cell.packets;
+			bytes += cell.bytes;
+			sessions += cell.sessions;
+			requests += cell.requests;
+			sessionDuration += cell.sessionDuration;
+			fileDownloads += cell.fileDownloads;
+		}
+
+		/**
+		 * Returns the application name of the row, when the row is grouped by
+		 * application.
+		 *
+		 * @return The application name, or null.
+		 */
+		public String getAppName() {
+			return key.app >= 0 ? cube.symbols.getAppNames().getSymbol(key.app) : null;
+		}
+
+		/**
+		 * Returns the domain of the row, when the row is grouped by domain.
+		 *
+		 * @return The domain name, or null if the row is not grouped by domain
+		 *         or holds the packets that are not part of a session.
+		 */
+		public String getDomainName() {
+			return key.domain >= 0 ? cube.symbols.getHostNames().getSymbol(key.domain) : null;
+		}
+
+		/**
+		 * Returns the remote IP address of the row, when the row is grouped by
+		 * IP address.
+		 *
+		 * @return The IP address, or null.
+		 */
+		public InetAddress getIpAddress() {
+			return key.ip >= 0 ? cube.ipAddresses.get(key.ip) : null;
+		}
+
+		/**
+		 * Returns whether the row holds IP packets, when the row is grouped by
+		 * IP address.
+		 *
+		 * @return false if the row holds packets that are not IP packets.
+		 */
+		public boolean isIpPacket() {
+			return key.ip != NON_IP;
+		}
+
+		/**
+		 * Returns the start of the time bucket of the row, when the row is
+		 * grouped by time.
+		 *
+		 * @return The bucket start time in seconds, or NaN.
+		 */
+		public double getBucketTime() {
+			return key.bucket != Integer.MIN_VALUE ? key.bucket * cube.bucketWidth : Double.NaN;
+		}
+
+		/**
+		 * Returns the number of packets.
+		 *
+		 * @return The packet count.
+		 */
+		public int getPacketCount() {
+			return packets;
+		}
+
+		/**
+		 * Returns the number of bytes of the packets.
+		 *
+		 * @return The byte count.
+		 */
+		public long getTotalBytes() {
+			return bytes;
+		}
+
+		/**
+		 * Returns the number of TCP sessions that started.
+		 *
+		 * @return The session count.
+		 */
+		public int getSessionCount() {
+			return sessions;
+		}
+
+		/**
+		 * Returns the number of HTTP requests.
+		 *
+		 * @return The request count.
+		 */
+		public int getRequestCount() {
+			return requests;
+		}
+
+		/**
+		 * Returns the total length of the TCP sessions that started.
+		 *
+		 * @return The session duration in seconds.
+		 */
+		public double getSessionDuration() {
+			return sessionDuration;
+		}
+
+		/**
+		 * Returns the number of files downloaded by the TCP sessions that
+		 * started.
+		 *
+		 * @return The file download count.
+		 */
+		public int getFileDownloadCount() {
+			return fileDownloads;
+		}
+	}
+
+	/**
+	 * The id of the IP address dimension for packets that are not IP packets.
+	 */
+	private static final int NON_IP = -2;
+
+	/**
+	 * The id of a dimension that is not grouped.
+	 */
+	private static final int ALL = -1;
+
+	/**
+	 * The key and totals of one cell.
+	 */
+	private static class Cell implements Serializable {
+		private static final long serialVersionUID = 1L;
+
+		private int app;
+		private int domain;
+		private int ip;
+		private int bucket;
+		private int packets;
+		private long bytes;
+		private int sessions;
+		private int requests;
+		private double sessionDuration;
+		private int fileDownloads;
+
+		private Cell(int app, int domain, int ip, int bucket) {
+			this.app = app;
+			this.domain = domain;
+			this.ip = ip;
+			this.bucket = bucket;
+		}
+
+		private Cell(Cell key) {
+			this(key.app, key.domain, key.ip, key.bucket);
+		}
+
+		@Override
+		public int hashCode() {
+			return ((app * 31 + domain) * 31 + ip) * 31 + bucket;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Cell)) {
+				return false;
+			}
+			Cell o = (Cell) obj;
+			return app == o.app && domain == o.domain && ip == o.ip && bucket == o.bucket;
+		}
+	}
+
+	private final TraceSymbols symbols;
+	private final double bucketWidth;
+	private final List<InetAddress> ipAddresses = new ArrayList<InetAddress>();
+	private final Map<InetAddress, Integer> ipIds = new HashMap<InetAddress, Integer>();
+	private final Map<Cell, Cell> cells = new HashMap<Cell, Cell>();
+	private final Map<Integer, List<TCPSession>> domainSessions = new LinkedHashMap<Integer, List<TCPSession>>();
+
+	/**
+	 * Builds the cube of the specified packets and sessions in a single pass.
+	 *
+	 * @param packets
+	 *            The packets of the analysis.
+	 * @param sessions
+	 *            The TCP and UDP sessions extracted from the packets.
+	 * @param symbols
+	 *            The symbol tables of the trace, which hold the application
+	 *            names and domains.
+	 * @param bucketWidth
+	 *            The width of a time bucket in seconds.
+	 */
+	public TrafficCube(List<PacketInfo> packets, Collection<TCPSession> sessions,
+			TraceSymbols symbols, double bucketWidth) {
+		if (bucketWidth <= 0.0) {
+			throw new IllegalArgumentException("Invalid bucket width: " + bucketWidth);
+		}
+		this.symbols = symbols;
+		this.bucketWidth = bucketWidth;
+		SymbolTable appNames = symbols.getAppNames();
+		SymbolTable hostNames = symbols.getHostNames();
+		Cell probe = new Cell(0, 0, 0, 0);
+
+		// Packets are counted once, in their first session
+		BitSet counted = new BitSet();
+		for (TCPSession session : sessions) {
+			List<PacketInfo> sessionPackets = session.isUDP() ? session.getUDPPackets() : session
+					.getPackets();
+			if (sessionPackets.isEmpty()) {
+				continue;
+			}
+			int domain = hostNames.getId(session.getDomainName());
+			int ip = getIpId(session.getRemoteIP());
+			for (PacketInfo packet : sessionPackets) {
+				if (!counted.get(packet.getId())) {
+					counted.set(packet.getId());
+					addPacket(probe, appNames.getId(packet.getAppName()), domain, packet);
+				}
+			}
+			if (session.isUDP()) {
+				continue;
+			}
+
+			PacketInfo first = sessionPackets.get(0);
+			int app = appNames.getId(first.getAppName());
+			Cell cell = getCell(probe, app, domain, ip, getBucket(first.getTimeStamp()));
+			++cell.sessions;
+			cell.sessionDuration += session.getSessionEndTime() - session.getSessionStartTime();
+			cell.fileDownloads += session.getFileDownloadCount();
+			for (HttpRequestResponseInfo rr : session.getRequestResponseInfo()) {
+				if (rr.getDirection() == HttpRequestResponseInfo.Direction.REQUEST) {
+					++getCell(probe, app, domain, ip, getBucket(rr.getTimeStamp())).requests;
+				}
+			}
+
+			List<TCPSession> list = domainSessions.get(domain);
+			if (list == null) {
+				list = new ArrayList<TCPSession>();
+				domainSessions.put(domain, list);
+			}
+			list.add(session);
+		}
+
+		// Packets that are not part of a session
+		for (PacketInfo packet : packets) {
+			if (!counted.get(packet.getId())) {
+				addPacket(probe, appNames.getId(packet.getAppName()), ALL, packet);
+			}
+		}
+		for (List<TCPSession> list : domainSessions.values()) {
+			((ArrayList<TCPSession>) list).trimToSize();
+		}
+	}
+
+	/**
+	 * Returns the width of a time bucket.
+	 *
+	 * @return The bucket width in seconds.
+	 */
+	public double getBucketWidth() {
+		return bucketWidth;
+	}
+
+	/**
+	 * Returns the number of non-empty cells of the cube.
+	 *
+	 * @return The cell count.
+	 */
+	public int getCellCount() {
+		return cells.size();
+	}
+
+	/**
+	 * Rolls up all cells of the cube by the specified dimensions.
+	 *
+	 * @param dimensions
+	 *            The dimensions to group by. The other dimensions are totaled.
+	 * @return The rows, one for each combination of values of the dimensions.
+	 */
+	public List<Row> rollUp(Dimension... dimensions) {
+		Set<Dimension> set = EnumSet.noneOf(Dimension.class);
+		Collections.addAll(set, dimensions);
+		return rollUp(set, null);
+	}
+
+	/**
+	 * Rolls up the cells of the cube in the specified time range by the
+	 * specified dimensions. The time range is rounded outward to whole
+	 * buckets.
+	 *
+	 * @param dimensions
+	 *            The dimensions to group by. The other dimensions are totaled.
+	 * @param timeRange
+	 *            The time range, or null to roll up all cells.
+	 * @return The rows, one for each combination of values of the dimensions.
+	 */
+	public List<Row> rollUp(Set<Dimension> dimensions, TimeRange timeRange) {
+		int firstBucket = Integer.MIN_VALUE;
+		int lastBucket = Integer.MAX_VALUE;
+		if (timeRange != null) {
+			firstBucket = getBucket(timeRange.getBeginTime());
+			lastBucket = getBucket(timeRange.getEndTime());
+		}
+		boolean byApp = dimensions.contains(Dimension.APPLICATION);
+		boolean byDomain = dimensions.contains(Dimension.DOMAIN);
+		boolean byIp = dimensions.contains(Dimension.IP_ADDRESS);
+		boolean byTime = dimensions.contains(Dimension.TIME);
+
+		Map<Cell, Row> rows = new LinkedHashMap<Cell, Row>();
+		Cell probe = new Cell(0, 0, 0, 0);
+		for (Cell cell : cells.values()) {
+			if (cell.bucket < firstBucket || cell.bucket > lastBucket) {
+				continue;
+			}
+			probe.app = byApp ? cell.app : ALL;
+			probe.domain = byDomain ? cell.domain : ALL;
+			probe.ip = byIp ? cell.ip : ALL;
+			probe.bucket = byTime ? cell.bucket : Integer.MIN_VALUE;
+			Row row = rows.get(probe);
+			if (row == null) {
+				Cell key = new Cell(probe);
+				row = new Row(this, key);
+				rows.put(key, row);
+			}
+			row.add(cell);
+		}
+		return new ArrayList<Row>(rows.values());
+	}
+
+	/**
+	 * Returns the TCP sessions of the specified domain.
+	 *
+	 * @param domainName
+	 *            The domain name.
+	 * @return An unmodifiable list of the sessions, in the order they were
+	 *         extracted.
+	 */
+	public List<TCPSession> getSessions(String domainName) {
+		int domain = symbols.getHostNames().findId(domainName);
+		List<TCPSession> result = domain >= 0 ? domainSessions.get(domain) : null;
+		return result != null ? Collections.unmodifiableList(result) : Collections
+				.<TCPSession> emptyList();
+	}
+
+	private void addPacket(Cell probe, int app, int domain, PacketInfo packet) {
+		int ip = packet.getPacket() instanceof IPPacket ? getIpId(packet.getRemoteIPAddress())
+				: NON_IP;
+		Cell cell = getCell(probe, app, domain, ip, getBucket(packet.getTimeStamp()));
+		++cell.packets;
+		cell.bytes += packet.getLen();
+	}
+
+	private Cell getCell(Cell probe, int app, int domain, int ip, int bucket) {
+		probe.app = app;
+		probe.domain = domain;
+		probe.ip = ip;
+		probe.bucket = bucket;
+		Cell cell = cells.get(probe);
+		if (cell == null) {
+			cell = new Cell(probe);
+			cells.put(cell, cell);
+		}
+		return cell;
+	}
+
+	private int getIpId(InetAddress ip) {
+		Integer id = ipIds.get(ip);
+		if (id == null) {
+			id = ipAddresses.size();
+			ipAddresses.add(ip);
+			ipIds.put(ip, id);
+		}
+		return id;
+	}
+
+	private int getBucket(double time) {
+		return (int) Math.floor(time / bucketWidth);
+	}
+}
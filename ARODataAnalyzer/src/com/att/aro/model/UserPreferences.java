@@ -38,6 +38,7 @@ public class UserPreferences {
 	private static final String PROFILE_WIFI = "PROFILE_WIFI";
 	private static final String CHART_PLOT_OPTIONS = "CHART_PLOT_OPTIONS";
 	private static final String EXPORT_PATH = "EXPORT_PATH";
+	private static final String LIVE_ANALYSIS = "LIVE_ANALYSIS";
 
 	private Preferences prefs;
 
@@ -227,4 +228,23 @@ public class UserPreferences {
 			prefs.remove(EXPORT_PATH);
 		}
 	}
+
+	/**
+	 * Returns whether traces are analyzed while they are being collected.
+	 * 
+	 * @return true if live analysis was last selected.
+	 */
+	public boolean isLiveAnalysis() {
+		return prefs.getBoolean(LIVE_ANALYSIS, false);
+	}
+
+	/**
+	 * Sets whether traces are analyzed while they are being collected.
+	 * 
+	 * @param liveAnalysis
+	 *            true to analyze traces while they are being collected.
+	 */
+	public void setLiveAnalysis(boolean liveAnalysis) {
+		prefs.putBoolean(LIVE_ANALYSIS, liveAnalysis);
+	}
 }
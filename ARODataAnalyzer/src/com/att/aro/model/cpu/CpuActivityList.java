@@ -46,6 +46,16 @@ public class CpuActivityList {
 		this.cpuActivityList = new ArrayList<CpuActivity>();
 	}
 
+	/**
+	 * Initializes a new instance of class that shares the processes and CPU
+	 * activities of another list.
+	 */
+	private CpuActivityList(CpuActivityList list) {
+		this.allProcesses = list.allProcesses;
+		this.cpuActivityList = list.cpuActivityList;
+		this.processSelection = list.processSelection;
+	}
+
 	/**
 	 * Adds a process to the list of all processes.
 	 * 
@@ -174,4 +184,19 @@ public class CpuActivityList {
 		this.filterByTime = true;
 	}
 
+	/**
+	 * Returns a list of the CPU activities of this list for the trace
+	 * beginning and end time specified by end-user. The processes and CPU
+	 * activities are shared with this list, whose time range is not changed.
+	 * 
+	 * @param beginTime
+	 * @param endTime
+	 * @return The CPU activity list for the time range.
+	 */
+	public CpuActivityList forTimeRange(double beginTime, double endTime) {
+		CpuActivityList list = new CpuActivityList(this);
+		list.updateTimeRange(beginTime, endTime);
+		return list;
+	}
+
 }
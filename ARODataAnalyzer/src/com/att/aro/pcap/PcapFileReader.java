@@ -0,0 +1,348 @@
+/*
+ Copyright [2012] [AT&T]
+ 
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+ 
+       http://www.apache.org/licenses/LICENSE-2.0
+ 
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.att.aro.pcap;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.logging.Logger;
+
+/**
+ * Reads the packets of a libpcap capture file one at a time, without the
+ * native pcap libraries. Only one packet record is held in memory, so that
+ * captures of any size can be streamed. Both microsecond and nanosecond
+ * timestamp formats are supported, in either byte order.
+ */
+public class PcapFileReader {
+
+	private static final Logger logger = Logger.getLogger(PcapFileReader.class.getName());
+
+	/**
+	 * The magic number of a capture file with microsecond timestamps.
+	 */
+	static final int MAGIC = 0xa1b2c3d4;
+
+	/**
+	 * The magic number of a capture file with nanosecond timestamps.
+	 */
+	static final int NANO_MAGIC = 0xa1b23c4d;
+
+	/**
+	 * The length of the file header.
+	 */
+	public static final int FILE_HEADER_LENGTH = 24;
+
+	/**
+	 * The length of the header of each packet record.
+	 */
+	static final int RECORD_HEADER_LENGTH = 16;
+
+	/**
+	 * The size of the read buffer of each file.
+	 */
+	static final int BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * The largest packet record accepted. Larger records indicate a corrupt
+	 * file.
+	 */
+	private static final int MAX_RECORD_LENGTH = 256 * 1024;
+
+	private static final int LINKTYPE_RAW = 101;
+	private static final int LINKTYPE_IPV4 = 228;
+	private static final int DLT_RAW = 12;
+
+	private File file;
+	private InputStream input;
+	private ByteOrder byteOrder;
+	private boolean nanoseconds;
+	private int snapLength;
+	private int linkType;
+	private byte[] recordHeader = new byte[RECORD_HEADER_LENGTH];
+	private long recordCount;
+	private long position;
+	private boolean resumed;
+
+	// The current packet record
+	private long seconds;
+	private long microSeconds;
+	private int originalLength;
+	private byte[] data;
+
+	/**
+	 * Opens the specified capture file and reads its header.
+	 * 
+	 * @param file
+	 *            The capture file.
+	 * @throws IOException
+	 *             when the file cannot be read or is not a libpcap capture
+	 *             file.
+	 */
+	public PcapFileReader(File file) throws IOException {
+		this(file, FILE_HEADER_LENGTH, false);
+	}
+
+	/**
+	 * Opens the specified capture file, reads its header, and resumes reading
+	 * at the specified position, such as the position of a capture file that
+	 * is still being written after the last packet read from it. A record
+	 * that is cut off at the end of the file is then expected, and is read
+	 * again when the file is next resumed.
+	 * 
+	 * @param file
+	 *            The capture file.
+	 * @param position
+	 *            The position of the next packet record in the file, as
+	 *            returned by {@link #getPosition()}.
+	 * @throws IOException
+	 *             when the file cannot be read or is not a libpcap capture
+	 *             file.
+	 */
+	public PcapFileReader(File file, long position) throws IOException {
+		this(file, position, true);
+	}
+
+	private PcapFileReader(File file, long position, boolean resumed) throws IOException {
+		this.file = file;
+		this.position = FILE_HEADER_LENGTH;
+		this.resumed = resumed;
+		this.input = new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE);
+		try {
+			byte[] header = new byte[FILE_HEADER_LENGTH];
+			if (readFully(header) < FILE_HEADER_LENGTH) {
+				throw new IOException("Not a pcap file: " + file);
+			}
+			ByteBuffer bytes = ByteBuffer.wrap(header);
+			int magic = bytes.getInt(0);
+			if (magic == MAGIC || magic == NANO_MAGIC) {
+				this.byteOrder = ByteOrder.BIG_ENDIAN;
+			} else if (Integer.reverseBytes(magic) == MAGIC
+					|| Integer.reverseBytes(magic) == NANO_MAGIC) {
+				this.byteOrder = ByteOrder.LITTLE_ENDIAN;
+				magic = Integer.reverseBytes(magic);
+			} else {
+				throw new IOException("Not a pcap file: " + file);
+			}
+			bytes.order(byteOrder);
+			this.nanoseconds = magic == NANO_MAGIC;
+			this.snapLength = bytes.getInt(16);
+			this.linkType = bytes.getInt(20);
+
+			while (this.position < position) {
+				long count = input.skip(position - this.position);
+				if (count <= 0) {
+					throw new IOException("Position " + position + " is past the end of " + file);
+				}
+				this.position += count;
+			}
+		} catch (IOException e) {
+			input.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Reads the next packet record of the file. A record that is cut off at
+	 * the end of the file, as happens when a capture is interrupted, is
+	 * ignored.
+	 * 
+	 * @return true if a packet was read, or false at the end of the file.
+	 * @throws IOException
+	 *             when the file cannot be read or is corrupt.
+	 */
+	public boolean next() throws IOException {
+		int headerLength = readFully(recordHeader);
+		if (headerLength < RECORD_HEADER_LENGTH) {
+			if (headerLength > 0) {
+				truncated();
+			}
+			return false;
+		}
+		ByteBuffer bytes = ByteBuffer.wrap(recordHeader).order(byteOrder);
+		long sec = bytes.getInt(0) & 0xffffffffL;
+		long fraction = bytes.getInt(4) & 0xffffffffL;
+		int capturedLength = bytes.getInt(8);
+		int length = bytes.getInt(12);
+		if (capturedLength < 0 || capturedLength > MAX_RECORD_LENGTH) {
+			throw new IOException("Invalid packet length " + capturedLength + " in record "
+					+ (recordCount + 1) + " of " + file);
+		}
+		byte[] recordData = new byte[capturedLength];
+		if (readFully(recordData) < capturedLength) {
+			truncated();
+			return false;
+		}
+		this.position += RECORD_HEADER_LENGTH + capturedLength;
+		this.seconds = sec;
+		this.microSeconds = nanoseconds ? fraction / 1000 : fraction;
+		this.originalLength = length;
+		this.data = recordData;
+		++recordCount;
+		return true;
+	}
+
+	/**
+	 * Logs a packet record cut off at the end of the file.
+	 */
+	private void truncated() {
+		if (resumed) {
+			logger.fine("Packet not yet complete at the end of " + file);
+		} else {
+			logger.warning("Ignoring truncated packet at the end of " + file);
+		}
+	}
+
+	/**
+	 * Returns the position in the file after the last packet record read,
+	 * from which a later reader may resume.
+	 * 
+	 * @return The position in bytes.
+	 */
+	public long getPosition() {
+		return position;
+	}
+
+	/**
+	 * Closes the file.
+	 * 
+	 * @throws IOException
+	 */
+	public void close() throws IOException {
+		input.close();
+	}
+
+	/**
+	 * Returns the capture file.
+	 * 
+	 * @return The file.
+	 */
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * Returns the link type of the file, as stored in the file header.
+	 * 
+	 * @return The link type.
+	 */
+	public int getLinkType() {
+		return linkType;
+	}
+
+	/**
+	 * Returns the datalink type of the packets, as reported by the pcap
+	 * libraries.
+	 * 
+	 * @return The datalink type.
+	 */
+	public int getDatalink() {
+		return linkType == LINKTYPE_RAW || linkType == LINKTYPE_IPV4 ? DLT_RAW : linkType;
+	}
+
+	/**
+	 * Returns the maximum length of the captured packet data.
+	 * 
+	 * @return The snapshot length.
+	 */
+	public int getSnapLength() {
+		return snapLength;
+	}
+
+	/**
+	 * Returns the number of packet records read so far.
+	 * 
+	 * @return The record count.
+	 */
+	public long getRecordCount() {
+		return recordCount;
+	}
+
+	/**
+	 * Returns the seconds part of the timestamp of the current packet.
+	 * 
+	 * @return The seconds since the epoch.
+	 */
+	public long getSeconds() {
+		return seconds;
+	}
+
+	/**
+	 * Returns the microseconds part of the timestamp of the current packet.
+	 * 
+	 * @return The microseconds.
+	 */
+	public long getMicroSeconds() {
+		return microSeconds;
+	}
+
+	/**
+	 * Returns the timestamp of the current packet.
+	 * 
+	 * @return The timestamp in seconds since the epoch.
+	 */
+	public double getTimeStamp() {
+		return seconds + microSeconds / 1000000.0;
+	}
+
+	/**
+	 * Returns the length of the current packet on the wire.
+	 * 
+	 * @return The length in bytes.
+	 */
+	public int getOriginalLength() {
+		return originalLength;
+	}
+
+	/**
+	 * Returns the captured data of the current packet.
+	 * 
+	 * @return The data, which is not copied.
+	 */
+	public byte[] getData() {
+		return data;
+	}
+
+	/**
+	 * Returns the current packet.
+	 * 
+	 * @return A new Packet object for the current packet record.
+	 */
+	public Packet getPacket() {
+		return Packet.createPacketFromPcap(getDatalink(), seconds, microSeconds, originalLength,
+				data);
+	}
+
+	/**
+	 * Reads bytes until the buffer is full or the end of the file is reached.
+	 * 
+	 * @return The number of bytes read.
+	 */
+	private int readFully(byte[] buffer) throws IOException {
+		int offset = 0;
+		while (offset < buffer.length) {
+			int count = input.read(buffer, offset, buffer.length - offset);
+			if (count < 0) {
+				break;
+			}
+			offset += count;
+		}
+		return offset;
+	}
+}
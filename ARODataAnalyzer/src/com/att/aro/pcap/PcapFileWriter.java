@@ -0,0 +1,130 @@
+/*
+ Copyright [2012] [AT&T]
+ 
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+ 
+       http://www.apache.org/licenses/LICENSE-2.0
+ 
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.att.aro.pcap;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Writes packet records to a libpcap capture file with microsecond
+ * timestamps.
+ */
+public class PcapFileWriter {
+
+	private File file;
+	private OutputStream output;
+	private ByteBuffer recordHeader = ByteBuffer.allocate(PcapFileReader.RECORD_HEADER_LENGTH);
+	private long recordCount;
+
+	/**
+	 * Creates the specified capture file and writes its header.
+	 * 
+	 * @param file
+	 *            The capture file, which is replaced if it exists.
+	 * @param linkType
+	 *            The link type of the packets, as stored in a file header.
+	 * @param snapLength
+	 *            The maximum length of the captured packet data.
+	 * @throws IOException
+	 */
+	public PcapFileWriter(File file, int linkType, int snapLength) throws IOException {
+		this.file = file;
+		this.output = new BufferedOutputStream(new FileOutputStream(file),
+				PcapFileReader.BUFFER_SIZE);
+		ByteBuffer header = ByteBuffer.allocate(PcapFileReader.FILE_HEADER_LENGTH);
+		header.putInt(PcapFileReader.MAGIC);
+		header.putShort((short) 2);
+		header.putShort((short) 4);
+		header.putInt(0);
+		header.putInt(0);
+		header.putInt(snapLength);
+		header.putInt(linkType);
+		try {
+			output.write(header.array());
+		} catch (IOException e) {
+			output.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Writes the current packet record of the specified reader.
+	 * 
+	 * @param reader
+	 *            The reader.
+	 * @throws IOException
+	 */
+	public void write(PcapFileReader reader) throws IOException {
+		write(reader.getSeconds(), reader.getMicroSeconds(), reader.getOriginalLength(),
+				reader.getData());
+	}
+
+	/**
+	 * Writes a packet record.
+	 * 
+	 * @param seconds
+	 *            The seconds part of the timestamp.
+	 * @param microSeconds
+	 *            The microseconds part of the timestamp.
+	 * @param originalLength
+	 *            The length of the packet on the wire.
+	 * @param data
+	 *            The captured packet data.
+	 * @throws IOException
+	 */
+	public void write(long seconds, long microSeconds, int originalLength, byte[] data)
+			throws IOException {
+		recordHeader.clear();
+		recordHeader.putInt((int) seconds);
+		recordHeader.putInt((int) microSeconds);
+		recordHeader.putInt(data.length);
+		recordHeader.putInt(originalLength);
+		output.write(recordHeader.array());
+		output.write(data);
+		++recordCount;
+	}
+
+	/**
+	 * Returns the capture file.
+	 * 
+	 * @return The file.
+	 */
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * Returns the number of packet records written.
+	 * 
+	 * @return The record count.
+	 */
+	public long getRecordCount() {
+		return recordCount;
+	}
+
+	/**
+	 * Flushes and closes the file.
+	 * 
+	 * @throws IOException
+	 */
+	public void close() throws IOException {
+		output.close();
+	}
+}
@@ -0,0 +1,239 @@
+/*
+ Copyright [2012] [AT&T]
+ 
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+ 
+       http://www.apache.org/licenses/LICENSE-2.0
+ 
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.att.aro.pcap;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Reads the packets of several capture files, such as the rotated files of a
+ * long capture, as one capture in timestamp order. The files are merged while
+ * they are read, holding only the read buffer and the next packet record of
+ * each file in memory. Packets with the same timestamp are returned in the
+ * order of the files.
+ */
+public class PcapMergeReader {
+
+	private static final Logger logger = Logger.getLogger(PcapMergeReader.class.getName());
+
+	private PcapFileReader[] readers;
+
+	// Binary heap of the indexes of the files that have a pending packet,
+	// ordered by the timestamp of the pending packet
+	private int[] heap;
+	private int size;
+	private int current = -1;
+
+	/**
+	 * Opens the specified capture files.
+	 * 
+	 * @param files
+	 *            The capture files.
+	 * @throws IOException
+	 *             when a file cannot be read or is not a libpcap capture file.
+	 */
+	public PcapMergeReader(List<File> files) throws IOException {
+		this.readers = new PcapFileReader[files.size()];
+		this.heap = new int[files.size()];
+		try {
+			for (int i = 0; i < readers.length; ++i) {
+				readers[i] = new PcapFileReader(files.get(i));
+			}
+			for (int i = 0; i < readers.length; ++i) {
+				if (readers[i].next()) {
+					heap[size++] = i;
+				}
+			}
+		} catch (IOException e) {
+			close();
+			throw e;
+		}
+		for (int i = size / 2 - 1; i >= 0; --i) {
+			siftDown(i);
+		}
+	}
+
+	/**
+	 * Merges the specified capture files into one capture file in timestamp
+	 * order.
+	 * 
+	 * @param files
+	 *            The capture files, which must have the same link type.
+	 * @param output
+	 *            The merged capture file.
+	 * @return The number of packets written.
+	 * @throws IOException
+	 */
+	public static long merge(List<File> files, File output) throws IOException {
+		PcapMergeReader reader = new PcapMergeReader(files);
+		try {
+			PcapFileWriter writer = new PcapFileWriter(output, reader.getLinkType(),
+					reader.getSnapLength());
+			try {
+				while (reader.next()) {
+					writer.write(reader.getCurrentFile());
+				}
+			} finally {
+				writer.close();
+			}
+			return writer.getRecordCount();
+		} finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * Moves to the next packet in timestamp order.
+	 * 
+	 * @return true if there is a packet, or false when all files have been
+	 *         read.
+	 * @throws IOException
+	 */
+	public boolean next() throws IOException {
+		if (current >= 0) {
+			if (!readers[current].next()) {
+				heap[0] = heap[--size];
+			}
+			siftDown(0);
+		}
+		current = size > 0 ? heap[0] : -1;
+		return current >= 0;
+	}
+
+	/**
+	 * Delivers all remaining packets to the specified listener in timestamp
+	 * order.
+	 * 
+	 * @param listener
+	 *            The packet listener.
+	 * @throws IOException
+	 */
+	public void loop(PacketListener listener) throws IOException {
+		while (next()) {
+			listener.packetArrived(null, readers[current].getPacket());
+		}
+	}
+
+	/**
+	 * Returns the current packet.
+	 * 
+	 * @return A new Packet object for the current packet record.
+	 */
+	public Packet getPacket() {
+		return readers[current].getPacket();
+	}
+
+	/**
+	 * Returns the index of the file of the current packet.
+	 * 
+	 * @return The index in the list of files.
+	 */
+	public int getFileIndex() {
+		return current;
+	}
+
+	/**
+	 * Returns the reader of the file of the current packet, which is
+	 * positioned on the current packet record.
+	 * 
+	 * @return The file reader.
+	 */
+	public PcapFileReader getCurrentFile() {
+		return readers[current];
+	}
+
+	/**
+	 * Returns the link type of the files.
+	 * 
+	 * @return The link type, as stored in a file header.
+	 * @throws IOException
+	 *             when the files have different link types.
+	 */
+	public int getLinkType() throws IOException {
+		for (PcapFileReader reader : readers) {
+			if (reader.getLinkType() != readers[0].getLinkType()) {
+				throw new IOException("Capture files have different link types: "
+						+ readers[0].getFile() + ", " + reader.getFile());
+			}
+		}
+		return readers.length > 0 ? readers[0].getLinkType() : 0;
+	}
+
+	/**
+	 * Returns the largest snapshot length of the files.
+	 * 
+	 * @return The snapshot length.
+	 */
+	public int getSnapLength() {
+		int result = 0;
+		for (PcapFileReader reader : readers) {
+			result = Math.max(result, reader.getSnapLength());
+		}
+		return result;
+	}
+
+	/**
+	 * Closes all files.
+	 */
+	public void close() {
+		for (PcapFileReader reader : readers) {
+			if (reader != null) {
+				try {
+					reader.close();
+				} catch (IOException e) {
+					logger.log(Level.WARNING, "Unable to close " + reader.getFile(), e);
+				}
+			}
+		}
+	}
+
+	private void siftDown(int i) {
+		int file = heap[i];
+		while (true) {
+			int child = 2 * i + 1;
+			if (child >= size) {
+				break;
+			}
+			if (child + 1 < size && before(heap[child + 1], heap[child])) {
+				++child;
+			}
+			if (!before(heap[child], file)) {
+				break;
+			}
+			heap[i] = heap[child];
+			i = child;
+		}
+		heap[i] = file;
+	}
+
+	/**
+	 * Returns whether the pending packet of the first file comes before the
+	 * pending packet of the second.
+	 */
+	private boolean before(int file1, int file2) {
+		PcapFileReader r1 = readers[file1];
+		PcapFileReader r2 = readers[file2];
+		if (r1.getSeconds() != r2.getSeconds()) {
+			return r1.getSeconds() < r2.getSeconds();
+		} else if (r1.getMicroSeconds() != r2.getMicroSeconds()) {
+			return r1.getMicroSeconds() < r2.getMicroSeconds();
+		}
+		return file1 < file2;
+	}
+}
@@ -0,0 +1,100 @@
+/*
+ Copyright [2012] [AT&T]
+ 
+   Licensed under the Apache License, Version 2.0 (the "License");
+   you may not use this file except in compliance with the License.
+   You may obtain a copy of the License at
+ 
+       http://www.apache.org/licenses/LICENSE-2.0
+ 
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+ */
+package com.att.aro.pcap;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Cuts a capture into time slices of a fixed duration, each written to its
+ * own capture file, so that the slices of a long capture can be analyzed
+ * independently. The capture may be made of several rotated files, which are
+ * merged in timestamp order while they are read.
+ */
+public class PcapSplitter {
+
+	private static final Logger logger = Logger.getLogger(PcapSplitter.class.getName());
+
+	/**
+	 * The file extension of the slices.
+	 */
+	public static final String EXTENSION = ".pcap";
+
+	private PcapSplitter() {
+	}
+
+	/**
+	 * Splits the specified capture files into slices. The slices start at the
+	 * timestamp of the first packet, and slices without packets are not
+	 * written. A packet with an earlier timestamp than the packets before it
+	 * stays in the current slice. The slices are named with the prefix and
+	 * the number of the slice, such as prefix_0001.pcap.
+	 * 
+	 * @param files
+	 *            The capture files, which must have the same link type.
+	 * @param sliceDuration
+	 *            The duration of each slice in seconds.
+	 * @param outputDir
+	 *            The directory the slices are written to.
+	 * @param prefix
+	 *            The prefix of the slice file names.
+	 * @return The slice files, in time order.
+	 * @throws IOException
+	 */
+	public static List<File> split(List<File> files, double sliceDuration, File outputDir,
+			String prefix) throws IOException {
+		if (sliceDuration <= 0.0) {
+			throw new IllegalArgumentException("Slice duration must be positive");
+		}
+		List<File> result = new ArrayList<File>();
+		PcapMergeReader reader = new PcapMergeReader(files);
+		PcapFileWriter writer = null;
+		try {
+			int linkType = reader.getLinkType();
+			int snapLength = reader.getSnapLength();
+			double firstTimeStamp = 0.0;
+			long slice = -1;
+			while (reader.next()) {
+				PcapFileReader file = reader.getCurrentFile();
+				if (slice < 0) {
+					firstTimeStamp = file.getTimeStamp();
+				}
+				long packetSlice = (long) ((file.getTimeStamp() - firstTimeStamp) / sliceDuration);
+				if (packetSlice > slice) {
+					if (writer != null) {
+						writer.close();
+					}
+					slice = packetSlice;
+					File sliceFile = new File(outputDir, prefix + "_"
+							+ String.format("%04d", slice + 1) + EXTENSION);
+					writer = new PcapFileWriter(sliceFile, linkType, snapLength);
+					result.add(sliceFile);
+				}
+				writer.write(file);
+			}
+		} finally {
+			if (writer != null) {
+				writer.close();
+			}
+			reader.close();
+		}
+		logger.fine("Split capture into " + result.size() + " slices");
+		return result;
+	}
+}
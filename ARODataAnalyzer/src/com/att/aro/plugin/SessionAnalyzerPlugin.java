@@ -0,0 +1,42 @@
+/*
+ *  Copyright 2012 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.plugin;
+
+import com.att.aro.model.SessionVisitor;
+import com.att.aro.model.TraceData;
+
+/**
+ * Interface to be implemented by configured analyzer plugins that add their
+ * own analysis of the TCP sessions, such as a third party best practice. The
+ * classes are listed in the 'plugin.analyzers.class.list' resource bundle
+ * property, and a visitor is created for each analysis and called by the
+ * same session traversal as the built-in analyses. A plugin that also
+ * implements {@link AnalyzerPlugin} can display the results of its visitors
+ * in its tab.
+ */
+public interface SessionAnalyzerPlugin {
+
+	/**
+	 * Creates the visitor that analyzes the sessions of the specified
+	 * analysis.
+	 * 
+	 * @param analysis
+	 *            The analysis being run. Only the results of the stages that
+	 *            come before the session analyses are available.
+	 * @return The visitor, or null to skip the analysis.
+	 */
+	SessionVisitor createVisitor(TraceData.Analysis analysis);
+}
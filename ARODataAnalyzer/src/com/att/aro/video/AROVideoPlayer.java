@@ -33,8 +33,8 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
-import java.lang.reflect.InvocationTargetException;
 import java.util.ResourceBundle;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -111,10 +111,93 @@ public class AROVideoPlayer extends JFrame implements ActionListener {
 	 */
 	private Runnable syncThread = new Runnable() {
 
-		private double seconds;
+		private volatile double seconds;
 		private double userPausedPos;
 		private double prevSeconds;
 		private double timeAdjustment;
+		private final AtomicBoolean updatePending = new AtomicBoolean();
+
+		/**
+		 * Moves the diagnostic chart to the latest video time. Runs on the
+		 * AWT thread.
+		 */
+		private final Runnable updateDiagnostics = new Runnable() {
+
+			@Override
+			public void run() {
+				updatePending.set(false);
+				if (aroAdvancedTab == null) {
+					return;
+				}
+				// Sync external video and traces, in case of native video normal behavior is retained.
+				if (syncVideoClicked || traceData.getExVideoStatus()){
+					if(!aroAdvancedTab.IsGraphPanelClicked()){
+						userPausedPos = videoOffset;
+						if ( (seconds >= userPausedPos)){
+							timeAdjustment = (seconds-userPausedPos);
+							aroAdvancedTab.setTimeLineLinkedComponents(timeAdjustment);
+							if(syncVideoClicked){
+								syncVideoClicked = false;
+							}else if(traceData.getExVideoStatus()){
+								traceData.setExVideoStatus(false);
+							}
+							prevSeconds = seconds;
+						}
+					}else{
+						aroAdvancedTab.setTimeLineLinkedComponents(seconds+videoOffset);
+						if(syncVideoClicked){
+							syncVideoClicked = false;
+						}else if(traceData.getExVideoStatus()){
+							traceData.setExVideoStatus(false);
+						}
+							
+					}
+				}else{
+					 //In case of native video , fall back on the native track.
+					if(!syncVideoClicked && !(traceData.getExVideoStatus())){
+						if(traceData.isNativeVideo()){ 
+							prevSeconds = 0.0;
+						}
+					//	if(reSync){
+						//	prevSeconds = 0.0;
+					//		reSync = false;
+					//	}
+					}
+					if(prevSeconds > 0.0){
+						
+						if(aroAdvancedTab.IsGraphPanelClicked()){
+							if(seconds <= 0.0)
+							{
+								/*if user starts the video slider from the begining reset the blue line*/
+								aroAdvancedTab.setTimeLineLinkedComponents(-1.0);
+								aroAdvancedTab.setGraphPanelClicked(false);
+								
+							}else{
+								if(userClickPosition < videoOffset){
+									aroAdvancedTab.setTimeLineLinkedComponents(seconds - videoOffset);
+									
+								}else{
+									aroAdvancedTab.setTimeLineLinkedComponents(seconds - videoOffset);
+								}
+							}
+						}else{
+							aroAdvancedTab.setTimeLineLinkedComponents((seconds - prevSeconds)- timeAdjustment );
+						}
+					}
+					else{
+							if(seconds <=0.0){
+								/*if user starts the video slider from the begining reset the blue line*/
+								aroAdvancedTab.setTimeLineLinkedComponents(-1.0);
+								aroAdvancedTab.setGraphPanelClicked(false);
+							}else{
+								aroAdvancedTab.setTimeLineLinkedComponents(seconds+videoOffset);
+							}
+					}
+					
+				}
+
+			}
+		};
 		
 		@Override
 		public void run() {
@@ -141,88 +224,11 @@ public class AROVideoPlayer extends JFrame implements ActionListener {
 					if (aroAdvancedTab != null) {
 						seconds = currentVideoTime.getSeconds();
 
-						try {
-
-							// Update diagnostics on AWT thread
-							SwingUtilities.invokeAndWait(new Runnable() {
-
-								@Override
-								public void run() {
-									// Sync external video and traces, in case of native video normal behavior is retained.
-									if (syncVideoClicked || traceData.getExVideoStatus()){
-										if(!aroAdvancedTab.IsGraphPanelClicked()){
-											userPausedPos = videoOffset;
-											if ( (seconds >= userPausedPos)){
-												timeAdjustment = (seconds-userPausedPos);
-												aroAdvancedTab.setTimeLineLinkedComponents(timeAdjustment);
-												if(syncVideoClicked){
-													syncVideoClicked = false;
-												}else if(traceData.getExVideoStatus()){
-													traceData.setExVideoStatus(false);
-												}
-												prevSeconds = seconds;
-											}
-										}else{
-											aroAdvancedTab.setTimeLineLinkedComponents(seconds+videoOffset);
-											if(syncVideoClicked){
-												syncVideoClicked = false;
-											}else if(traceData.getExVideoStatus()){
-												traceData.setExVideoStatus(false);
-											}
-												
-										}
-									}else{
-										 //In case of native video , fall back on the native track.
-										if(!syncVideoClicked && !(traceData.getExVideoStatus())){
-											if(traceData.isNativeVideo()){ 
-												prevSeconds = 0.0;
-											}
-										//	if(reSync){
-											//	prevSeconds = 0.0;
-										//		reSync = false;
-										//	}
-										}
-										if(prevSeconds > 0.0){
-											
-											if(aroAdvancedTab.IsGraphPanelClicked()){
-												if(seconds <= 0.0)
-												{
-													/*if user starts the video slider from the begining reset the blue line*/
-													aroAdvancedTab.setTimeLineLinkedComponents(-1.0);
-													aroAdvancedTab.setGraphPanelClicked(false);
-													
-												}else{
-													if(userClickPosition < videoOffset){
-														aroAdvancedTab.setTimeLineLinkedComponents(seconds - videoOffset);
-														
-													}else{
-														aroAdvancedTab.setTimeLineLinkedComponents(seconds - videoOffset);
-													}
-												}
-											}else{
-												aroAdvancedTab.setTimeLineLinkedComponents((seconds - prevSeconds)- timeAdjustment );
-											}
-										}
-										else{
-												if(seconds <=0.0){
-													/*if user starts the video slider from the begining reset the blue line*/
-													aroAdvancedTab.setTimeLineLinkedComponents(-1.0);
-													aroAdvancedTab.setGraphPanelClicked(false);
-												}else{
-													aroAdvancedTab.setTimeLineLinkedComponents(seconds+videoOffset);
-												}
-										}
-										
-									}
-
-								}
-
-							});
-						} catch (InterruptedException e) {
-							logger.log(Level.SEVERE, "InterruptedException", e);
-						} catch (InvocationTargetException e) {
-							logger.log(Level.SEVERE,
-									"InvocationTargetException", e);
+						// Update diagnostics on AWT thread. Updates are coalesced,
+						// so that the chart only follows the latest video time
+						// and a slow update does not hold up this loop.
+						if (updatePending.compareAndSet(false, true)) {
+							SwingUtilities.invokeLater(updateDiagnostics);
 						}
 					}
 				}
@@ -0,0 +1,214 @@
+/*
+ *  Copyright 2012 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.commonui;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.awt.EventQueue;
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import javax.swing.RowSorter.SortKey;
+import javax.swing.SortOrder;
+
+import org.junit.Test;
+
+/**
+ * Tests that the row sorter orders rows like a stable sort of the model with
+ * a comparator of the column values, whether the keys are kept as primitive
+ * numbers or compared as objects, and whether they are read on the AWT thread
+ * or in the background.
+ */
+public class DataTableRowSorterTest {
+
+	private static final int ROWS = 5000;
+	private static final int NUMBER = 0;
+	private static final int DECIMAL = 1;
+	private static final int TEXT = 2;
+	private static final int MIXED = 3;
+
+	/**
+	 * A table of random rows, whose columns have many equal values.
+	 */
+	private static class Model extends DataTableModel<Object[]> {
+		private static final long serialVersionUID = 1L;
+		private final boolean threadSafe;
+
+		Model(List<Object[]> rows, boolean threadSafe) {
+			super(new String[] { "number", "decimal", "text", "mixed" }, rows);
+			this.threadSafe = threadSafe;
+		}
+
+		@Override
+		protected Object getColumnValue(Object[] item, int columnIndex) {
+			return item[columnIndex];
+		}
+
+		@Override
+		protected boolean isSortKeyThreadSafe() {
+			return threadSafe;
+		}
+	}
+
+	@Test
+	public void sortsNumbersStably() throws Exception {
+		assertSorted(keys(NUMBER, SortOrder.ASCENDING));
+		assertSorted(keys(DECIMAL, SortOrder.DESCENDING));
+	}
+
+	@Test
+	public void sortsObjectsStably() throws Exception {
+		assertSorted(keys(TEXT, SortOrder.ASCENDING));
+		assertSorted(keys(MIXED, SortOrder.DESCENDING));
+	}
+
+	@Test
+	public void sortsByMultipleKeys() throws Exception {
+		assertSorted(keys(TEXT, SortOrder.DESCENDING, NUMBER, SortOrder.ASCENDING));
+		assertSorted(keys(NUMBER, SortOrder.ASCENDING, MIXED, SortOrder.ASCENDING, DECIMAL,
+				SortOrder.DESCENDING));
+	}
+
+	@Test
+	public void showsModelOrderWithoutKeys() throws Exception {
+		List<Object[]> rows = randomRows(new Random(4));
+		final DataTableRowSorter<Object[]> sorter = new DataTableRowSorter<Object[]>(new Model(
+				rows, true));
+		sort(sorter, keys(NUMBER, SortOrder.ASCENDING));
+		sort(sorter, Collections.<SortKey> emptyList());
+		for (int i = 0; i < rows.size(); ++i) {
+			assertEquals(i, sorter.convertRowIndexToModel(i));
+		}
+	}
+
+	/**
+	 * Sorts random rows by the specified keys, reading the keys both on the
+	 * AWT thread and in the background, and compares the order with a stable
+	 * sort of the rows.
+	 */
+	private static void assertSorted(final List<SortKey> keys) throws Exception {
+		Random random = new Random(keys.hashCode());
+		List<Object[]> rows = randomRows(random);
+		int[] expected = expectedOrder(rows, keys);
+		for (boolean threadSafe : new boolean[] { false, true }) {
+			DataTableRowSorter<Object[]> sorter = new DataTableRowSorter<Object[]>(new Model(
+					rows, threadSafe));
+			sort(sorter, keys);
+			int[] actual = new int[rows.size()];
+			for (int i = 0; i < actual.length; ++i) {
+				actual[i] = sorter.convertRowIndexToModel(i);
+				assertEquals(i, sorter.convertRowIndexToView(actual[i]));
+			}
+			assertArrayEquals(expected, actual);
+		}
+	}
+
+	/**
+	 * Sets the sort keys on the AWT thread, and waits until the rows are
+	 * sorted.
+	 */
+	private static void sort(final DataTableRowSorter<Object[]> sorter, final List<SortKey> keys)
+			throws Exception {
+		EventQueue.invokeAndWait(new Runnable() {
+			@Override
+			public void run() {
+				sorter.setSortKeys(keys);
+			}
+		});
+		final boolean[] sorting = { true };
+		while (sorting[0]) {
+			Thread.sleep(10);
+			EventQueue.invokeAndWait(new Runnable() {
+				@Override
+				public void run() {
+					sorting[0] = sorter.isSorting();
+				}
+			});
+		}
+	}
+
+	/**
+	 * Returns the model indexes of the rows in the order of a stable sort by
+	 * a comparator of the row values.
+	 */
+	private static int[] expectedOrder(final List<Object[]> rows, final List<SortKey> keys) {
+		final Collator collator = Collator.getInstance();
+		List<Integer> order = new ArrayList<Integer>(rows.size());
+		for (int i = 0; i < rows.size(); ++i) {
+			order.add(Integer.valueOf(i));
+		}
+		Collections.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer o1, Integer o2) {
+				for (SortKey key : keys) {
+					Object v1 = rows.get(o1.intValue())[key.getColumn()];
+					Object v2 = rows.get(o2.intValue())[key.getColumn()];
+					int result;
+					if (v1 == null || v2 == null) {
+						result = v1 == null ? (v2 == null ? 0 : -1) : 1;
+					} else if (v1 instanceof Number && v2 instanceof Number) {
+						result = Double.compare(((Number) v1).doubleValue(), ((Number) v2)
+								.doubleValue());
+					} else {
+						result = collator.compare(v1.toString(), v2.toString());
+					}
+					if (result != 0) {
+						return key.getSortOrder() == SortOrder.DESCENDING ? -result : result;
+					}
+				}
+				return 0;
+			}
+		});
+		int[] result = new int[order.size()];
+		for (int i = 0; i < result.length; ++i) {
+			result[i] = order.get(i).intValue();
+		}
+		return result;
+	}
+
+	/**
+	 * Returns rows with a whole number, a decimal number that may be null, a
+	 * text that may be null, and a column of both numbers and text.
+	 */
+	private static List<Object[]> randomRows(Random random) {
+		String[] words = { "alpha", "Beta", "gamma", "delta", "Epsilon", "zeta" };
+		List<Object[]> rows = new ArrayList<Object[]>(ROWS);
+		for (int i = 0; i < ROWS; ++i) {
+			Object[] row = new Object[4];
+			row[NUMBER] = Integer.valueOf(random.nextInt(20) - 10);
+			row[DECIMAL] = random.nextInt(10) == 0 ? null : Double.valueOf(random.nextInt(50) / 4.0);
+			row[TEXT] = random.nextInt(10) == 0 ? null : words[random.nextInt(words.length)];
+			row[MIXED] = random.nextBoolean() ? Long.valueOf(random.nextInt(5)) : words[random
+					.nextInt(words.length)];
+			rows.add(row);
+		}
+		return rows;
+	}
+
+	private static List<SortKey> keys(Object... columnsAndOrders) {
+		List<SortKey> keys = new ArrayList<SortKey>();
+		for (int i = 0; i < columnsAndOrders.length; i += 2) {
+			keys.add(new SortKey(((Integer) columnsAndOrders[i]).intValue(),
+					(SortOrder) columnsAndOrders[i + 1]));
+		}
+		return keys;
+	}
+}
@@ -0,0 +1,296 @@
+/*
+ * Copyright 2013 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.datadump;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests that the columnar export reads back as the rows that were written.
+ */
+public class ColumnarExportWriterTest {
+
+	private static final ExportTable VALUES = new ExportTable("values", new String[] { "count",
+			"rate", "name" }, new ExportTable.Type[] { ExportTable.Type.LONG,
+			ExportTable.Type.DOUBLE, ExportTable.Type.STRING });
+	private static final ExportTable NAMES = new ExportTable("names",
+			new String[] { "name" }, new ExportTable.Type[] { ExportTable.Type.STRING });
+
+	private File file;
+
+	@Before
+	public void setUp() throws IOException {
+		file = File.createTempFile("aro", ".columnartest");
+	}
+
+	@After
+	public void tearDown() {
+		file.delete();
+	}
+
+	@Test
+	public void roundTripsNullsAndDeltas() throws IOException {
+		List<Object[]> rows = new ArrayList<Object[]>();
+		rows.add(new Object[] { Long.valueOf(5), Double.valueOf(0.5), "a" });
+		rows.add(new Object[] { null, null, null });
+		rows.add(new Object[] { Long.valueOf(-3), Double.valueOf(-1.25), "b" });
+		rows.add(new Object[] { Long.valueOf(Long.MAX_VALUE), Double.valueOf(Double.NaN), "a" });
+		rows.add(new Object[] { Long.valueOf(Long.MIN_VALUE), null, "é " });
+		rows.add(new Object[] { Long.valueOf(0), Double.valueOf(1e300), "" });
+		rows.add(new Object[] { Integer.valueOf(7), Float.valueOf(2.5f), Long.valueOf(9) });
+
+		ColumnarExportWriter writer = new ColumnarExportWriter(file);
+		for (Object[] row : rows) {
+			writer.writeRow(VALUES, row);
+		}
+		writer.close();
+
+		Decoded decoded = read(file);
+		assertEquals(1, decoded.groups.size());
+		List<Object[]> read = decoded.rows.get("values");
+		assertEquals(rows.size(), read.size());
+		assertArrayEquals(new Object[] { Long.valueOf(5), Double.valueOf(0.5), "a" }, read.get(0));
+		assertArrayEquals(new Object[] { null, null, null }, read.get(1));
+		assertArrayEquals(new Object[] { Long.valueOf(-3), Double.valueOf(-1.25), "b" },
+				read.get(2));
+		assertArrayEquals(new Object[] { Long.valueOf(Long.MAX_VALUE),
+				Double.valueOf(Double.NaN), "a" }, read.get(3));
+		assertArrayEquals(new Object[] { Long.valueOf(Long.MIN_VALUE), null, "é " },
+				read.get(4));
+		assertArrayEquals(new Object[] { Long.valueOf(0), Double.valueOf(1e300), "" },
+				read.get(5));
+		assertArrayEquals(new Object[] { Long.valueOf(7), Double.valueOf(2.5), "9" },
+				read.get(6));
+	}
+
+	@Test
+	public void writesPartialFinalGroups() throws IOException {
+		int count = ColumnarExportWriter.ROW_GROUP_SIZE + 5;
+		ColumnarExportWriter writer = new ColumnarExportWriter(file);
+		for (int i = 0; i < count; ++i) {
+			writer.writeRow(VALUES, new Object[] { Long.valueOf(i * 3 - 100),
+					i % 7 == 0 ? null : Double.valueOf(i / 4.0), "n" + (i % 10) });
+			if (i < 3) {
+				writer.writeRow(NAMES, new Object[] { "x" + i });
+			}
+		}
+		writer.close();
+
+		Decoded decoded = read(file);
+		List<Integer> expectedGroups = new ArrayList<Integer>();
+		expectedGroups.add(Integer.valueOf(ColumnarExportWriter.ROW_GROUP_SIZE));
+		expectedGroups.add(Integer.valueOf(5));
+		expectedGroups.add(Integer.valueOf(3));
+		assertEquals(expectedGroups, decoded.groups);
+
+		List<Object[]> read = decoded.rows.get("values");
+		assertEquals(count, read.size());
+		for (int i = 0; i < count; ++i) {
+			assertArrayEquals(new Object[] { Long.valueOf(i * 3 - 100),
+					i % 7 == 0 ? null : Double.valueOf(i / 4.0), "n" + (i % 10) }, read.get(i));
+		}
+		read = decoded.rows.get("names");
+		assertEquals(3, read.size());
+		for (int i = 0; i < 3; ++i) {
+			assertArrayEquals(new Object[] { "x" + i }, read.get(i));
+		}
+	}
+
+	@Test
+	public void clearsDictionaryAtMaxSize() throws IOException {
+		int groupSize = ColumnarExportWriter.ROW_GROUP_SIZE;
+		int groups = ColumnarExportWriter.MAX_DICTIONARY_SIZE / groupSize + 2;
+		ColumnarExportWriter writer = new ColumnarExportWriter(file);
+		for (int i = 0; i < groups * groupSize; ++i) {
+			writer.writeRow(NAMES, new Object[] { name(i) });
+		}
+		writer.close();
+
+		Decoded decoded = read(file);
+		assertEquals(groups, decoded.groups.size());
+		for (int group = 0; group < groups; ++group) {
+
+			// The group after the one that fills the dictionary starts again
+			boolean cleared = group * groupSize == ColumnarExportWriter.MAX_DICTIONARY_SIZE;
+			assertEquals("group " + group, Boolean.valueOf(cleared), decoded.cleared.get(group));
+		}
+		List<Object[]> read = decoded.rows.get("names");
+		assertEquals(groups * groupSize, read.size());
+		for (int i = 0; i < read.size(); ++i) {
+			assertEquals(name(i), read.get(i)[0]);
+		}
+	}
+
+	/**
+	 * Returns a distinct name for each row until the dictionary is full, and
+	 * then the names of the first rows again.
+	 */
+	private static String name(int row) {
+		return "name" + row % ColumnarExportWriter.MAX_DICTIONARY_SIZE;
+	}
+
+	/**
+	 * The rows of each table of a columnar export, and the row count and
+	 * whether the dictionaries were cleared for each group.
+	 */
+	private static class Decoded {
+		private final Map<String, List<Object[]>> rows = new LinkedHashMap<String, List<Object[]>>();
+		private final List<Integer> groups = new ArrayList<Integer>();
+		private final List<Boolean> cleared = new ArrayList<Boolean>();
+	}
+
+	/**
+	 * Reads a columnar export as described by {@link ColumnarExportWriter}.
+	 */
+	private static Decoded read(File file) throws IOException {
+		Decoded decoded = new Decoded();
+		Map<Integer, String> names = new HashMap<Integer, String>();
+		Map<Integer, int[]> types = new HashMap<Integer, int[]>();
+		Map<Integer, List<List<String>>> dictionaries = new HashMap<Integer, List<List<String>>>();
+		DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(
+				file)));
+		try {
+			byte[] magic = new byte[4];
+			input.readFully(magic);
+			assertEquals("AROC", new String(magic, "US-ASCII"));
+			assertEquals(1, input.readUnsignedByte());
+			while (true) {
+				int record = input.readUnsignedByte();
+				if (record == 0) {
+					break;
+				} else if (record == 1) {
+					Integer id = Integer.valueOf((int) readVarint(input));
+					names.put(id, readString(input));
+					int[] columnTypes = new int[(int) readVarint(input)];
+					List<List<String>> columnDictionaries = new ArrayList<List<String>>();
+					for (int i = 0; i < columnTypes.length; ++i) {
+						readString(input);
+						columnTypes[i] = input.readUnsignedByte();
+						columnDictionaries.add(new ArrayList<String>());
+					}
+					types.put(id, columnTypes);
+					dictionaries.put(id, columnDictionaries);
+					decoded.rows.put(names.get(id), new ArrayList<Object[]>());
+				} else {
+					assertEquals(2, record);
+					Integer id = Integer.valueOf((int) readVarint(input));
+					int rowCount = (int) readVarint(input);
+					int[] columnTypes = types.get(id);
+					Object[][] rows = new Object[rowCount][columnTypes.length];
+					boolean groupCleared = false;
+					for (int column = 0; column < columnTypes.length; ++column) {
+						if (columnTypes[column] == 2) {
+							groupCleared |= readText(input, rows, column,
+									dictionaries.get(id).get(column));
+						} else {
+							readNumbers(input, rows, column, columnTypes[column] == 0);
+						}
+					}
+					decoded.groups.add(Integer.valueOf(rowCount));
+					decoded.cleared.add(Boolean.valueOf(groupCleared));
+					List<Object[]> tableRows = decoded.rows.get(names.get(id));
+					for (Object[] row : rows) {
+						tableRows.add(row);
+					}
+				}
+			}
+			assertEquals(-1, input.read());
+		} finally {
+			input.close();
+		}
+		return decoded;
+	}
+
+	private static void readNumbers(DataInputStream input, Object[][] rows, int column,
+			boolean whole) throws IOException {
+		int nullCount = (int) readVarint(input);
+		byte[] nulls = new byte[(rows.length + 7) / 8];
+		if (nullCount > 0) {
+			input.readFully(nulls);
+		}
+		long previous = 0;
+		int nullsRead = 0;
+		for (int row = 0; row < rows.length; ++row) {
+			if ((nulls[row >> 3] & (1 << (row & 7))) != 0) {
+				++nullsRead;
+			} else if (whole) {
+				long zigzag = readVarint(input);
+				previous += (zigzag >>> 1) ^ -(zigzag & 1);
+				rows[row][column] = Long.valueOf(previous);
+			} else {
+				rows[row][column] = Double.valueOf(input.readDouble());
+			}
+		}
+		assertEquals(nullCount, nullsRead);
+	}
+
+	/**
+	 * Reads a column of text, and returns true if its dictionary was cleared
+	 * before the group.
+	 */
+	private static boolean readText(DataInputStream input, Object[][] rows, int column,
+			List<String> dictionary) throws IOException {
+		int cleared = input.readUnsignedByte();
+		assertTrue(cleared == 0 || cleared == 1);
+		if (cleared == 1) {
+			dictionary.clear();
+		}
+		int added = (int) readVarint(input);
+		for (int i = 0; i < added; ++i) {
+			dictionary.add(readString(input));
+		}
+		for (int row = 0; row < rows.length; ++row) {
+			int entry = (int) readVarint(input);
+			assertFalse(entry > dictionary.size());
+			rows[row][column] = entry == 0 ? null : dictionary.get(entry - 1);
+		}
+		return cleared == 1;
+	}
+
+	private static String readString(DataInputStream input) throws IOException {
+		byte[] bytes = new byte[(int) readVarint(input)];
+		input.readFully(bytes);
+		return new String(bytes, "UTF-8");
+	}
+
+	private static long readVarint(DataInputStream input) throws IOException {
+		long value = 0;
+		for (int shift = 0;; shift += 7) {
+			int b = input.readUnsignedByte();
+			value |= (long) (b & 0x7f) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+	}
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2013 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.datadump;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the rows written by the JSON Lines export.
+ */
+public class JsonLinesExportWriterTest {
+
+	private static final ExportTable TABLE = new ExportTable("t\"1", new String[] { "count",
+			"rate", "name" }, new ExportTable.Type[] { ExportTable.Type.LONG,
+			ExportTable.Type.DOUBLE, ExportTable.Type.STRING });
+
+	private File file;
+
+	@Before
+	public void setUp() throws IOException {
+		file = File.createTempFile("aro", ".jsonlinestest");
+	}
+
+	@After
+	public void tearDown() {
+		file.delete();
+	}
+
+	@Test
+	public void writesOneObjectPerRow() throws IOException {
+		JsonLinesExportWriter writer = new JsonLinesExportWriter(file);
+		writer.writeRow(TABLE, new Object[] { Long.valueOf(-4), Double.valueOf(0.5), "a" });
+		writer.writeRow(TABLE, new Object[] { null, Double.valueOf(Double.NaN), null });
+		writer.writeRow(TABLE, new Object[] { Integer.valueOf(3),
+				Double.valueOf(Double.POSITIVE_INFINITY), Long.valueOf(12) });
+		writer.close();
+
+		assertEquals("{\"table\":\"t\\\"1\",\"count\":-4,\"rate\":0.5,\"name\":\"a\"}\n"
+				+ "{\"table\":\"t\\\"1\",\"count\":null,\"rate\":null,\"name\":null}\n"
+				+ "{\"table\":\"t\\\"1\",\"count\":3,\"rate\":null,\"name\":\"12\"}\n", read());
+	}
+
+	@Test
+	public void escapesControlCharactersAndLineSeparators() throws IOException {
+		JsonLinesExportWriter writer = new JsonLinesExportWriter(file);
+		writer.writeRow(TABLE, new Object[] { null, null,
+				"a\"b\\c\nd\re\tf\u0000g\u0001h\u001fi j k\u007fé😀" });
+		writer.close();
+
+		// DEL, accented and supplementary characters are written as UTF-8
+		assertEquals("{\"table\":\"t\\\"1\",\"count\":null,\"rate\":null,\"name\":"
+				+ "\"a\\\"b\\\\c\\nd\\re\\tf\\u0000g\\u0001h\\u001fi\\u2028j\\u2029k"
+				+ "\u007fé😀\"}\n", read());
+	}
+
+	/**
+	 * Returns the text of the file, checking that it is valid UTF-8.
+	 */
+	private String read() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		InputStream input = new FileInputStream(file);
+		try {
+			byte[] buffer = new byte[4096];
+			int n;
+			while ((n = input.read(buffer)) >= 0) {
+				bytes.write(buffer, 0, n);
+			}
+		} finally {
+			input.close();
+		}
+		return new String(bytes.toByteArray(), "UTF-8");
+	}
+}
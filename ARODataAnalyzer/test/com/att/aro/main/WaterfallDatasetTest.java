@@ -0,0 +1,106 @@
+/*
+ *  Copyright 2012 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.main;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.jfree.data.category.DefaultCategoryDataset;
+import org.junit.Test;
+
+/**
+ * Tests that each window of the waterfall dataset reads the same as a
+ * category dataset of the categories in the window.
+ */
+public class WaterfallDatasetTest {
+
+	private static final int WINDOWS = 200;
+
+	@Test
+	public void matchesCategoryDatasetOfWindow() {
+		List<String> rowKeys = new ArrayList<String>();
+		rowKeys.add("before");
+		rowKeys.add("blocked");
+		rowKeys.add("download");
+		Random random = new Random(1);
+		for (int i = 0; i < WINDOWS; ++i) {
+			int count = random.nextInt(60);
+			List<String> categories = new ArrayList<String>(count);
+			double[] values = new double[count * rowKeys.size()];
+			for (int c = 0; c < count; ++c) {
+				categories.add("category " + c);
+				for (int r = 0; r < rowKeys.size(); ++r) {
+					values[c * rowKeys.size() + r] = random.nextInt(4) == 0 ? Double.NaN
+							: random.nextDouble();
+				}
+			}
+			WaterfallDataset dataset = new WaterfallDataset(rowKeys, 1 + random.nextInt(20));
+			dataset.setData(categories, values);
+			int first = count > 0 ? random.nextInt(count) : 0;
+			dataset.setFirstCategoryIndex(first);
+
+			DefaultCategoryDataset expected = new DefaultCategoryDataset();
+			int last = Math.min(count, first + dataset.getMaximumCategoryCount());
+			for (int c = first; c < last; ++c) {
+				for (int r = 0; r < rowKeys.size(); ++r) {
+					double value = values[c * rowKeys.size() + r];
+					expected.addValue(Double.isNaN(value) ? null : Double.valueOf(value),
+							rowKeys.get(r), categories.get(c));
+				}
+			}
+			assertSameDataset(expected, dataset, categories);
+		}
+	}
+
+	@Test
+	public void hasNoColumnsWithoutCategories() {
+		List<String> rowKeys = new ArrayList<String>();
+		rowKeys.add("download");
+		WaterfallDataset dataset = new WaterfallDataset(rowKeys, 10);
+		assertEquals(0, dataset.getColumnCount());
+		assertEquals(0, dataset.getColumnKeys().size());
+		assertEquals(-1, dataset.getColumnIndex("category 0"));
+	}
+
+	private static void assertSameDataset(DefaultCategoryDataset expected,
+			WaterfallDataset dataset, List<String> categories) {
+		assertEquals(expected.getColumnCount(), dataset.getColumnCount());
+		assertEquals(expected.getColumnKeys(), dataset.getColumnKeys());
+		assertEquals(expected.getRowCount() > 0 ? expected.getRowKeys() : dataset.getRowKeys(),
+				dataset.getRowKeys());
+		for (int c = 0; c < expected.getColumnCount(); ++c) {
+			assertEquals(expected.getColumnKey(c), dataset.getColumnKey(c));
+		}
+
+		// Categories before and after the window are not in the dataset
+		for (String category : categories) {
+			assertEquals(category, expected.getColumnIndex(category), dataset
+					.getColumnIndex(category));
+		}
+		assertEquals(-1, dataset.getColumnIndex("unknown"));
+		for (int r = 0; r < expected.getRowCount(); ++r) {
+			assertEquals(r, dataset.getRowIndex(expected.getRowKey(r)));
+			for (int c = 0; c < expected.getColumnCount(); ++c) {
+				assertEquals(expected.getValue(r, c), dataset.getValue(r, c));
+				assertEquals(expected.getValue(r, c), dataset.getValue(expected.getRowKey(r),
+						expected.getColumnKey(c)));
+			}
+		}
+	}
+}
@@ -0,0 +1,126 @@
+/*
+ *  Copyright 2012 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.model;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests that an analysis can be displayed again after a later analysis of the
+ * trace, and the cancellation of an analysis while it runs.
+ */
+public class AnalysisRestoreTest {
+
+	private TraceData trace;
+
+	@Before
+	public void setUp() {
+		TestPackets builder = new TestPackets();
+		for (int i = 0; i < 4; ++i) {
+			double ts = i * 20.0;
+			builder.flow("com.example", new byte[] { 10, 1, 0, (byte) i }, 80).connect(ts)
+					.transfer(ts + 0.1, true, TestPackets.ascii("GET /" + i
+							+ " HTTP/1.1\r\nHost: example.com\r\n\r\n"))
+					.transfer(ts + 0.3, false, TestPackets.ascii("HTTP/1.1 200 OK\r\n"
+							+ "Content-Length: 5\r\n\r\nhello")).close(ts + 1.0);
+		}
+		trace = builder.createTraceData(100.0);
+	}
+
+	@After
+	public void tearDown() {
+		trace.release();
+	}
+
+	@Test
+	public void restoresResultsOnPackets() throws Exception {
+		TraceData.Analysis lte = trace.runAnalysis(new ProfileLTE(), null);
+		Object[] expected = results(lte);
+
+		// The later analysis replaces the results on the packets
+		trace.runAnalysis(new Profile3G(), null);
+		assertFalse(Arrays.equals(expected, results(lte)));
+
+		lte.restore();
+		assertArrayEquals(expected, results(lte));
+		for (PacketInfo packet : lte.getPackets()) {
+			assertSame(packet.getBurst(), findBurst(lte, packet));
+		}
+	}
+
+	@Test
+	public void cancelsAfterStage() throws Exception {
+		final CancellationToken token = new CancellationToken();
+		final List<AnalysisStage> stages = new ArrayList<AnalysisStage>();
+		try {
+			trace.runAnalysis(new ProfileLTE(), null, new AnalysisListener() {
+				@Override
+				public void stageCompleted(TraceData.Analysis analysis, AnalysisStage stage) {
+					stages.add(stage);
+					if (stage == AnalysisStage.SESSIONS) {
+						token.cancel();
+					}
+				}
+			}, token);
+			fail("Analysis was not cancelled");
+		} catch (CancellationException e) {
+			// expected
+		}
+		assertEquals(2, stages.size());
+		assertEquals(AnalysisStage.SESSIONS, stages.get(1));
+
+		// The trace can still be analyzed
+		assertEquals(4, trace.runAnalysis(new ProfileLTE(), null).getTcpSessions().size());
+	}
+
+	/**
+	 * Returns the session, TCP information and RRC state of each packet of
+	 * the analysis.
+	 */
+	private static Object[] results(TraceData.Analysis analysis) {
+		List<Object> results = new ArrayList<Object>();
+		for (PacketInfo packet : analysis.getPackets()) {
+			results.add(packet.getSession());
+			results.add(packet.getTcpInfo());
+			results.add(packet.getStateMachine());
+		}
+		return results.toArray();
+	}
+
+	/**
+	 * Returns the burst of the analysis that contains the packet.
+	 */
+	private static Burst findBurst(TraceData.Analysis analysis, PacketInfo packet) {
+		for (Burst burst : analysis.getBcAnalysis().getBurstCollection()) {
+			if (burst.getPackets().contains(packet)) {
+				return burst;
+			}
+		}
+		return null;
+	}
+}
@@ -0,0 +1,244 @@
+/*
+ *  Copyright 2012 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the admission of analyses by their estimated memory need.
+ */
+public class AnalysisServiceTest {
+
+	private AnalysisService service;
+	private File dir;
+
+	@Before
+	public void setUp() throws IOException {
+		service = new AnalysisService(2, 1000);
+		dir = File.createTempFile("aro", ".servicetest");
+		if (!dir.delete() || !dir.mkdir()) {
+			throw new IOException("Unable to create " + dir);
+		}
+	}
+
+	@After
+	public void tearDown() {
+		service.shutdownNow();
+		File[] files = dir.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				file.delete();
+			}
+		}
+		dir.delete();
+	}
+
+	@Test
+	public void grantsNeedsWithinBudget() throws Exception {
+		service.acquire(400);
+		service.acquire(600);
+		assertEquals(1000, service.getMemoryUsed());
+		service.release(400);
+		service.release(600);
+		assertEquals(0, service.getMemoryUsed());
+	}
+
+	@Test
+	public void grantsNeedOverBudgetWhenNoMemoryIsUsed() throws Exception {
+		service.acquire(5000);
+		assertEquals(5000, service.getMemoryUsed());
+		service.release(5000);
+		assertEquals(0, service.getMemoryUsed());
+	}
+
+	@Test
+	public void waitsUntilNeedFits() throws Exception {
+		service.acquire(700);
+		Acquirer acquirer = new Acquirer(500);
+		acquirer.start();
+		assertTrue(acquirer.started.await(10, TimeUnit.SECONDS));
+		acquirer.join(200);
+		assertFalse(acquirer.granted);
+		assertEquals(700, service.getMemoryUsed());
+
+		service.release(700);
+		acquirer.join(10000);
+		assertTrue(acquirer.granted);
+		assertEquals(500, service.getMemoryUsed());
+		service.release(500);
+	}
+
+	@Test
+	public void keepsLaterNeedsWaitingBehindNeedOverBudget() throws Exception {
+		service.acquire(400);
+		Acquirer large = new Acquirer(1000);
+		large.start();
+		awaitWaiting(large);
+
+		// The small need fits, but must not overtake the large need
+		Acquirer small = new Acquirer(100);
+		small.start();
+		awaitWaiting(small);
+		assertFalse(small.granted);
+		assertEquals(400, service.getMemoryUsed());
+
+		service.release(400);
+		large.join(10000);
+		assertTrue(large.granted);
+		small.join(200);
+		assertFalse(small.granted);
+		assertEquals(1000, service.getMemoryUsed());
+
+		service.release(1000);
+		small.join(10000);
+		assertTrue(small.granted);
+		assertEquals(100, service.getMemoryUsed());
+		service.release(100);
+	}
+
+	@Test
+	public void grantsLaterNeedWhenEarlierNeedIsInterrupted() throws Exception {
+		service.acquire(400);
+		Acquirer large = new Acquirer(1000);
+		large.start();
+		awaitWaiting(large);
+		Acquirer small = new Acquirer(100);
+		small.start();
+		awaitWaiting(small);
+
+		large.interrupt();
+		large.join(10000);
+		assertTrue(large.interrupted);
+		small.join(10000);
+		assertTrue(small.granted);
+		assertEquals(500, service.getMemoryUsed());
+		service.release(500);
+	}
+
+	@Test
+	public void stopsWaitingWhenInterrupted() throws Exception {
+		service.acquire(1000);
+		Acquirer acquirer = new Acquirer(1);
+		acquirer.start();
+		assertTrue(acquirer.started.await(10, TimeUnit.SECONDS));
+		acquirer.interrupt();
+		acquirer.join(10000);
+		assertTrue(acquirer.interrupted);
+		assertFalse(acquirer.granted);
+		assertEquals(1000, service.getMemoryUsed());
+		service.release(1000);
+	}
+
+	@Test
+	public void releasesMemoryWhenTraceCannotBeRead() throws Exception {
+		Future<Object> future = service.submit(new File(dir, "missing"), null,
+				new AnalysisService.Task<Object>() {
+					@Override
+					public Object run(TraceData.Analysis analysis) {
+						fail("Missing trace analyzed");
+						return null;
+					}
+				});
+		try {
+			future.get(10, TimeUnit.SECONDS);
+			fail("Missing trace read");
+		} catch (ExecutionException e) {
+			// Expected
+		}
+		assertEquals(0, service.getMemoryUsed());
+	}
+
+	@Test
+	public void estimatesMemoryFromCaptureFilesAndPacketCount() throws Exception {
+		assertEquals(0, AnalysisService.estimateMemory(dir));
+
+		write(TraceData.PCAP_FILE, new byte[1000]);
+		write(TraceData.TRAFFIC + 1 + TraceData.CAP_EXT, new byte[500]);
+		write(TraceData.CPU_FILE, new byte[10000]);
+
+		// Without an application ID file, packets are assumed to be 500 bytes
+		assertEquals(1500 * 3 + 3 * 400, AnalysisService.estimateMemory(dir));
+
+		// Each line of the application ID file is a packet
+		write(TraceData.APPID_FILE, TestPackets.ascii("1\n2\n3\n4\n5"));
+		assertEquals(1500 * 3 + 5 * 400, AnalysisService.estimateMemory(dir));
+		write(TraceData.APPID_FILE, TestPackets.ascii("1\n2\n"));
+		assertEquals(1500 * 3 + 2 * 400, AnalysisService.estimateMemory(dir));
+	}
+
+	/**
+	 * Waits until the thread is waiting for memory.
+	 */
+	private static void awaitWaiting(Acquirer acquirer) throws InterruptedException {
+		assertTrue(acquirer.started.await(10, TimeUnit.SECONDS));
+		long end = System.currentTimeMillis() + 10000;
+		while (acquirer.getState() != Thread.State.WAITING) {
+			if (System.currentTimeMillis() > end) {
+				fail("Memory was not waited for");
+			}
+			Thread.sleep(1);
+		}
+	}
+
+	private void write(String name, byte[] data) throws IOException {
+		FileOutputStream output = new FileOutputStream(new File(dir, name));
+		try {
+			output.write(data);
+		} finally {
+			output.close();
+		}
+	}
+
+	/**
+	 * Acquires memory on its own thread.
+	 */
+	private final class Acquirer extends Thread {
+		private final long need;
+		private final CountDownLatch started = new CountDownLatch(1);
+		private volatile boolean granted;
+		private volatile boolean interrupted;
+
+		private Acquirer(long need) {
+			this.need = need;
+		}
+
+		@Override
+		public void run() {
+			started.countDown();
+			try {
+				service.acquire(need);
+				granted = true;
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+	}
+}
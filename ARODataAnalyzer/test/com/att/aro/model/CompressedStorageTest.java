@@ -0,0 +1,264 @@
+/*
+ *  Copyright 2012 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.model;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.Test;
+
+/**
+ * Tests the session storage compressed in blocks, and the bodies of the
+ * requests/responses of sessions whose storage is compressed.
+ */
+public class CompressedStorageTest {
+
+	@Test
+	public void readsRanges() {
+		byte[] storage = storage(3 * CompressedStorage.BLOCK_SIZE + 123);
+		CompressedStorage compressed = new CompressedStorage(storage);
+		assertEquals(storage.length, compressed.size());
+		assertTrue(compressed.getCompressedSize() < storage.length);
+
+		Random random = new Random(47);
+		for (int i = 0; i < 100; ++i) {
+			int offset = random.nextInt(storage.length);
+			int length = random.nextInt(2 * CompressedStorage.BLOCK_SIZE);
+			int end = Math.min(storage.length, offset + length);
+			assertArrayEquals(Arrays.copyOfRange(storage, offset, end), compressed.read(offset,
+					length));
+		}
+		assertEquals(0, compressed.read(storage.length, 10).length);
+	}
+
+	@Test
+	public void decompressesWholeStorageOnce() {
+		byte[] storage = storage(2 * CompressedStorage.BLOCK_SIZE + 5);
+		CompressedStorage compressed = new CompressedStorage(storage);
+		byte[] all = compressed.toByteArray();
+		assertArrayEquals(storage, all);
+		assertSame(all, compressed.toByteArray());
+
+		// Ranges are read from the decompressed storage while it is kept
+		assertArrayEquals(Arrays.copyOfRange(storage, 100, 70000), compressed.read(100, 69900));
+	}
+
+	@Test
+	public void serializesCompressedStorage() throws Exception {
+		byte[] storage = storage(CompressedStorage.BLOCK_SIZE + 77);
+		CompressedStorage compressed = copy(new CompressedStorage(storage));
+		assertArrayEquals(storage, compressed.toByteArray());
+		assertArrayEquals(Arrays.copyOfRange(storage, 10, 20), compressed.read(10, 10));
+	}
+
+	@Test
+	public void readsRangesOfSpilledBlocks() throws Exception {
+		byte[] storage = storage(3 * CompressedStorage.BLOCK_SIZE + 123);
+		File dir = SessionStorageFile.createDirectory();
+		SessionStorageFile file = new SessionStorageFile(dir);
+		try {
+			file.write(TestPackets.ascii("previous storage"));
+			CompressedStorage compressed = new CompressedStorage(storage);
+			compressed.spill(file);
+			assertTrue(compressed.isSpilled());
+			assertEquals(0, compressed.getHeapSize());
+
+			Random random = new Random(11);
+			for (int i = 0; i < 100; ++i) {
+				int offset = random.nextInt(storage.length);
+				int length = random.nextInt(2 * CompressedStorage.BLOCK_SIZE);
+				int end = Math.min(storage.length, offset + length);
+				assertArrayEquals(Arrays.copyOfRange(storage, offset, end), compressed.read(
+						offset, length));
+			}
+
+			// The spilled blocks are written inline
+			CompressedStorage copy = copy(compressed);
+			file.release();
+			assertEquals(null, compressed.read(0, 10));
+			assertArrayEquals(storage, copy.toByteArray());
+		} finally {
+			file.release();
+			SessionStorageFile.deleteDirectory(dir);
+		}
+	}
+
+	@Test
+	public void spillsCompressedSession() throws Exception {
+		byte[] text = text(100000);
+		byte[] response = TestPackets.ascii("HTTP/1.1 200 OK\r\nContent-Length: " + text.length
+				+ "\r\n\r\n" + new String(text, "US-ASCII"));
+		TCPSession session = extract(response);
+		int compressedSize = session.compressStorage();
+		assertEquals(compressedSize, session.getHeapStorageSize());
+
+		File dir = SessionStorageFile.createDirectory();
+		SessionStorageFile file = new SessionStorageFile(dir);
+		try {
+			session.spillStorage(file);
+			assertTrue(session.isStorageSpilled());
+			assertTrue(session.isStorageCompressed());
+			assertEquals(0, session.getHeapStorageSize());
+			assertArrayEquals(response, session.getStorageDl());
+			assertArrayEquals(text, getResponses(session).get(0).getContent());
+		} finally {
+			file.release();
+			SessionStorageFile.deleteDirectory(dir);
+		}
+	}
+
+	@Test
+	public void readsBodiesOfCompressedSession() throws Exception {
+		byte[] text = text(100000);
+		byte[] encoded = gzip(text);
+		ByteArrayOutputStream response = new ByteArrayOutputStream();
+		response.write(TestPackets.ascii("HTTP/1.1 200 OK\r\nContent-Encoding: gzip\r\n"
+				+ "Content-Type: text/html\r\nContent-Length: " + encoded.length + "\r\n\r\n"));
+		response.write(encoded);
+		response.write(TestPackets.ascii("HTTP/1.1 200 OK\r\nContent-Length: " + text.length
+				+ "\r\n\r\n"));
+		response.write(text);
+
+		TCPSession session = extract(response.toByteArray());
+		assertTrue(session.compressStorage() > 0);
+		assertTrue(session.isStorageCompressed());
+		assertArrayEquals(response.toByteArray(), session.getStorageDl());
+
+		List<HttpRequestResponseInfo> responses = getResponses(session);
+		assertEquals(2, responses.size());
+		assertArrayEquals(text, responses.get(0).getContent());
+		assertArrayEquals(text, responses.get(1).getContent());
+		assertEquals(encoded.length, responses.get(0).getActualByteCount());
+		assertEquals(text.length, responses.get(1).getActualByteCount());
+		assertTrue(responses.get(1).getRequestResponseText().startsWith("HTTP/1.1 200 OK"));
+
+		// The compressed storage is kept when the session is serialized
+		TCPSession copy = copy(session);
+		assertTrue(copy.isStorageCompressed());
+		assertArrayEquals(response.toByteArray(), copy.getStorageDl());
+		assertArrayEquals(text, getResponses(copy).get(0).getContent());
+	}
+
+	@Test
+	public void readsEmptyChunkedBodies() throws Exception {
+		byte[] response = TestPackets.ascii("HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\n"
+				+ "Content-Encoding: gzip\r\n\r\n0\r\n\r\n"
+				+ "HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\n\r\n0\r\n\r\n");
+		for (boolean compressed : new boolean[] { false, true }) {
+			TCPSession session = extract(response);
+			if (compressed) {
+				session.compressStorage();
+			}
+			List<HttpRequestResponseInfo> responses = getResponses(session);
+			assertEquals(2, responses.size());
+			for (HttpRequestResponseInfo rr : responses) {
+				assertEquals(0, rr.getContent().length);
+				assertEquals(0, rr.getActualByteCount());
+				assertTrue(rr.isSameContent(responses.get(0)));
+
+				File file = File.createTempFile("aro", ".content");
+				try {
+					rr.saveContentToFile(file);
+					assertEquals(0, file.length());
+				} finally {
+					file.delete();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Extracts a session that sends a request and receives the specified
+	 * response data.
+	 */
+	private static TCPSession extract(byte[] response) throws IOException {
+		TestPackets builder = new TestPackets();
+		builder.flow("com.example", new byte[] { 10, 1, 0, 1 }, 80).connect(0.0).transfer(0.1,
+				true, TestPackets.ascii("GET / HTTP/1.1\r\nHost: example.com\r\n\r\n")).transfer(
+				0.2, false, response).close(0.5);
+		List<TCPSession> sessions = TCPSession.extractTCPSessions(builder.getPackets());
+		assertEquals(1, sessions.size());
+		return sessions.get(0);
+	}
+
+	private static List<HttpRequestResponseInfo> getResponses(TCPSession session) {
+		List<HttpRequestResponseInfo> result = new ArrayList<HttpRequestResponseInfo>();
+		for (HttpRequestResponseInfo rr : session.getRequestResponseInfo()) {
+			if (rr.getDirection() == HttpRequestResponseInfo.Direction.RESPONSE) {
+				result.add(rr);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns storage that is partly text, which compresses, and partly
+	 * random, which does not.
+	 */
+	private static byte[] storage(int size) {
+		byte[] storage = text(size);
+		Random random = new Random(size);
+		byte[] noise = new byte[size / 3];
+		random.nextBytes(noise);
+		System.arraycopy(noise, 0, storage, size / 3, noise.length);
+		return storage;
+	}
+
+	private static byte[] text(int size) {
+		byte[] text = new byte[size];
+		for (int i = 0; i < size; ++i) {
+			text[i] = (byte) ('a' + (i * 7 + i / 100) % 26);
+		}
+		return text;
+	}
+
+	private static byte[] gzip(byte[] data) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		GZIPOutputStream output = new GZIPOutputStream(bytes);
+		output.write(data);
+		output.close();
+		return bytes.toByteArray();
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> T copy(T object) throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream output = new ObjectOutputStream(bytes);
+		output.writeObject(object);
+		output.close();
+		ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(bytes
+				.toByteArray()));
+		try {
+			return (T) input.readObject();
+		} finally {
+			input.close();
+		}
+	}
+}
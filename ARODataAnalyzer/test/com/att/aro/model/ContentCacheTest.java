@@ -0,0 +1,131 @@
+/*
+ *  Copyright 2012 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jsoup.nodes.Document;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests that the content cache keeps decoded content and parsed documents
+ * within its size, least recently used first.
+ */
+public class ContentCacheTest {
+
+	private static final int BODY_LENGTH = 1000;
+
+	private List<HttpRequestResponseInfo> responses = new ArrayList<HttpRequestResponseInfo>();
+	private HttpRequestResponseInfo emptyResponse;
+
+	@Before
+	public void setUp() throws Exception {
+		TestPackets builder = new TestPackets();
+		for (int i = 0; i < 3; ++i) {
+			StringBuilder body = new StringBuilder("<html><body>");
+			while (body.length() < BODY_LENGTH - 14) {
+				body.append((char) ('a' + i));
+			}
+			body.append("</body></html>");
+			send(builder, i, body.toString());
+		}
+		send(builder, 3, "");
+		for (TCPSession session : TCPSession.extractTCPSessions(builder.getPackets())) {
+			responses.add(session.getRequestResponseInfo().get(1));
+		}
+		emptyResponse = responses.remove(3);
+	}
+
+	@Test
+	public void decodesContentOnce() throws Exception {
+		ContentCache cache = new ContentCache();
+		String content = cache.getContentString(responses.get(0));
+		assertEquals(BODY_LENGTH, content.length());
+		assertSame(content, cache.getContentString(responses.get(0)));
+		assertNull(cache.getContentString(emptyResponse));
+		assertNull(cache.getContentString(emptyResponse));
+		assertEquals(2, cache.getContentCount());
+	}
+
+	@Test
+	public void removesLeastRecentlyUsedContent() throws Exception {
+
+		// Room for the content of two responses
+		ContentCache cache = new ContentCache(5 * BODY_LENGTH);
+		String first = cache.getContentString(responses.get(0));
+		String second = cache.getContentString(responses.get(1));
+		assertSame(first, cache.getContentString(responses.get(0)));
+		cache.getContentString(responses.get(2));
+		assertEquals(2, cache.getContentCount());
+
+		// The second response was used least recently
+		assertSame(first, cache.getContentString(responses.get(0)));
+		String again = cache.getContentString(responses.get(1));
+		assertEquals(second, again);
+		assertNotSame(second, again);
+	}
+
+	@Test
+	public void doesNotKeepContentLargerThanCache() throws Exception {
+		ContentCache cache = new ContentCache(BODY_LENGTH);
+		assertEquals(BODY_LENGTH, cache.getContentString(responses.get(0)).length());
+		assertEquals(0, cache.getContentCount());
+	}
+
+	@Test
+	public void parsesDocumentsWithinSize() {
+
+		// Room for the content of all responses, but for one document only
+		ContentCache cache = new ContentCache(10 * BODY_LENGTH);
+		Document first = cache.getDocument(responses.get(0));
+		assertNotNull(first);
+		assertSame(first, cache.getDocument(responses.get(0)));
+		Document second = cache.getDocument(responses.get(1));
+		assertNotNull(second);
+		assertEquals(1, cache.getDocumentCount());
+		assertNotSame(first, cache.getDocument(responses.get(0)));
+		assertNull(cache.getDocument(emptyResponse));
+	}
+
+	@Test
+	public void clearReleasesEverything() throws Exception {
+		ContentCache cache = new ContentCache();
+		for (HttpRequestResponseInfo rr : responses) {
+			cache.getDocument(rr);
+		}
+		assertEquals(3, cache.getContentCount());
+		assertEquals(3, cache.getDocumentCount());
+		cache.clear();
+		assertEquals(0, cache.getContentCount());
+		assertEquals(0, cache.getDocumentCount());
+	}
+
+	private static void send(TestPackets builder, int i, String body) {
+		builder.flow("com.example", new byte[] { 10, 1, 0, (byte) (i + 1) }, 80).connect(i)
+				.transfer(i + 0.1, true, TestPackets.ascii("GET / HTTP/1.1\r\nHost: example.com\r\n\r\n"))
+				.transfer(i + 0.2, false, TestPackets.ascii("HTTP/1.1 200 OK\r\n"
+						+ "Content-Type: text/html\r\nContent-Length: " + body.length()
+						+ "\r\n\r\n" + body)).close(i + 0.5);
+	}
+}
@@ -0,0 +1,156 @@
+/*
+ *  Copyright 2012 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.model;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipException;
+
+import org.junit.Test;
+
+/**
+ * Tests the decoding of gzip and deflate bodies split into segments of the
+ * session storage.
+ */
+public class ContentDecoderTest {
+
+	@Test
+	public void decodesIdentityBody() throws Exception {
+		byte[] body = text(5000);
+		assertArrayEquals(body, decode(body, 700, null));
+	}
+
+	@Test
+	public void decodesGzipBody() throws Exception {
+		byte[] body = text(50000);
+		assertArrayEquals(body, decode(gzip(body), 1400, "gzip"));
+		assertArrayEquals(body, decode(gzip(body), 1, "gzip"));
+	}
+
+	@Test
+	public void decodesGzipBodyOfSeveralMembers() throws Exception {
+		byte[] first = text(3000);
+		byte[] second = random(2000);
+		ByteArrayOutputStream members = new ByteArrayOutputStream();
+		members.write(gzip(first));
+		members.write(gzip(second));
+		ByteArrayOutputStream expected = new ByteArrayOutputStream();
+		expected.write(first);
+		expected.write(second);
+		assertArrayEquals(expected.toByteArray(), decode(members.toByteArray(), 1000, "gzip"));
+	}
+
+	@Test
+	public void growsOutputPastCompressionRatioLimit() throws Exception {
+
+		// Zeros compress far better than the ratio the output is sized for
+		byte[] body = new byte[4 * 1024 * 1024];
+		assertArrayEquals(body, decode(gzip(body), 1400, "gzip"));
+		assertArrayEquals(body, decode(deflate(body, false), 1400, "deflate"));
+	}
+
+	@Test
+	public void rejectsGzipTrailerWithWrongSize() throws Exception {
+		byte[] compressed = gzip(text(1000));
+
+		// Claim a size of 2 GB in the trailer
+		compressed[compressed.length - 1] = (byte) 0x7f;
+		try {
+			decode(compressed, 1400, "gzip");
+			fail("Expected the corrupt trailer to be rejected");
+		} catch (ZipException e) {
+			// Expected
+		}
+	}
+
+	@Test
+	public void decodesDeflateWithAndWithoutZlibHeader() throws Exception {
+		byte[] body = text(20000);
+		assertArrayEquals(body, decode(deflate(body, false), 1400, "deflate"));
+		assertArrayEquals(body, decode(deflate(body, true), 1400, "deflate"));
+	}
+
+	@Test(expected = ContentException.class)
+	public void rejectsBodyLargerThanLimit() throws Exception {
+		byte[] body = new byte[ContentDecoder.getMaxDecodedSize() + 1];
+		decode(gzip(body), 64 * 1024, "gzip");
+	}
+
+	@Test(expected = ContentException.class)
+	public void rejectsSegmentsOutsideStorage() throws Exception {
+		SortedMap<Integer, Integer> segments = new TreeMap<Integer, Integer>();
+		segments.put(10, 100);
+		ContentDecoder.decode(new byte[50], segments, null);
+	}
+
+	/**
+	 * Decodes the body from storage in which its segments are separated by
+	 * other bytes, as chunked content is.
+	 */
+	private static byte[] decode(byte[] body, int segmentSize, String contentEncoding)
+			throws ContentException, IOException {
+		ByteArrayOutputStream storage = new ByteArrayOutputStream();
+		SortedMap<Integer, Integer> segments = new TreeMap<Integer, Integer>();
+		for (int offset = 0; offset < body.length; offset += segmentSize) {
+			storage.write(new byte[] { '\r', '\n' });
+			int size = Math.min(segmentSize, body.length - offset);
+			segments.put(storage.size(), size);
+			storage.write(body, offset, size);
+		}
+		return ContentDecoder.decode(storage.toByteArray(), segments, contentEncoding);
+	}
+
+	private static byte[] text(int length) {
+		byte[] result = new byte[length];
+		byte[] words = TestPackets.ascii("the quick brown fox jumps over the lazy dog ");
+		for (int i = 0; i < length; ++i) {
+			result[i] = words[i % words.length];
+		}
+		return result;
+	}
+
+	private static byte[] random(int length) {
+		byte[] result = new byte[length];
+		new Random(44).nextBytes(result);
+		return result;
+	}
+
+	private static byte[] gzip(byte[] data) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		GZIPOutputStream out = new GZIPOutputStream(bytes);
+		out.write(data);
+		out.close();
+		return bytes.toByteArray();
+	}
+
+	private static byte[] deflate(byte[] data, boolean raw) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DeflaterOutputStream out = new DeflaterOutputStream(bytes, new Deflater(
+				Deflater.DEFAULT_COMPRESSION, raw));
+		out.write(data);
+		out.close();
+		return bytes.toByteArray();
+	}
+}
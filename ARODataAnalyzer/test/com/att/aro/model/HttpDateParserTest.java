@@ -0,0 +1,161 @@
+/*
+ *  Copyright 2012 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+/**
+ * Tests the parsing of HTTP dates against the examples of RFC 2616 and
+ * against SimpleDateFormat.
+ */
+public class HttpDateParserTest {
+
+	// Sun, 06 Nov 1994 08:49:37 GMT
+	private static final long EXAMPLE = 784111777000L;
+
+	@Test
+	public void parsesHttpFormats() {
+		assertTime(EXAMPLE, "Sun, 06 Nov 1994 08:49:37 GMT");
+		assertTime(EXAMPLE, "Sunday, 06-Nov-94 08:49:37 GMT");
+		assertTime(EXAMPLE, "Sun Nov  6 08:49:37 1994");
+	}
+
+	@Test
+	public void acceptsVariations() {
+		assertTime(EXAMPLE, "  Sun, 06 Nov 1994 08:49:37 GMT \r");
+		assertTime(EXAMPLE, "sun, 6 nov 1994 08:49:37 gmt");
+		assertTime(EXAMPLE, "Sun, 06 Nov 1994 08:49:37 UTC");
+		assertTime(EXAMPLE, "Sun, 06 Nov 1994 09:49:37 +0100");
+		assertTime(EXAMPLE, "Sun, 06 Nov 1994 03:19:37 -0530");
+	}
+
+	@Test
+	public void parsesOtherZonesWithFallback() {
+		assertTime(EXAMPLE, "Sun, 06 Nov 1994 00:49:37 PST");
+	}
+
+	@Test
+	public void returnsNullForValuesThatAreNotDates() {
+		assertNull(HttpDateParser.parse(null));
+		assertNull(HttpDateParser.parse(""));
+		assertNull(HttpDateParser.parse("-1"));
+		assertNull(HttpDateParser.parse("0"));
+		assertNull(HttpDateParser.parse("never"));
+		assertNull(HttpDateParser.parse("Sun, 06 Nov"));
+
+		// A value that is not a date is cached as such
+		assertNull(HttpDateParser.parse("-1"));
+	}
+
+	@Test
+	public void placesTwoDigitYearsLikeSimpleDateFormat() throws Exception {
+		SimpleDateFormat format = createFormat("EEEE, dd-MMM-yy HH:mm:ss zzz");
+		for (int year = 0; year < 100; ++year) {
+			String value = String.format("Thursday, 01-Jan-%02d 00:00:00 GMT", year);
+			assertTime(format.parse(value).getTime(), value);
+		}
+	}
+
+	@Test
+	public void matchesSimpleDateFormat() {
+		SimpleDateFormat rfc1123 = createFormat("EEE, dd MMM yyyy HH:mm:ss 'GMT'");
+		SimpleDateFormat asctime = createFormat("EEE MMM d HH:mm:ss yyyy");
+		Random random = new Random(43);
+		long first = -11000000000000L;
+		long last = 4100000000000L;
+		for (int i = 0; i < 10000; ++i) {
+			long time = (first + (long) (random.nextDouble() * (last - first))) / 1000 * 1000;
+			Date date = new Date(time);
+			assertTime(time, rfc1123.format(date));
+			assertTime(time, asctime.format(date));
+		}
+	}
+
+	@Test
+	public void returnsNewDateForCachedValue() {
+		String value = "Sun, 06 Nov 1994 08:49:37 GMT";
+		Date first = HttpDateParser.parse(value);
+		Date second = HttpDateParser.parse(value);
+		assertEquals(first, second);
+		assertNotSame(first, second);
+	}
+
+	@Test
+	public void parsesFromSeveralThreads() throws Exception {
+		final List<String> values = new ArrayList<String>();
+		final List<Long> times = new ArrayList<Long>();
+		SimpleDateFormat format = createFormat("EEE, dd MMM yyyy HH:mm:ss 'GMT'");
+		for (int i = 0; i < 200; ++i) {
+			long time = EXAMPLE + i * 3600000L;
+			values.add(format.format(new Date(time)));
+			times.add(time);
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+			for (int t = 0; t < 4; ++t) {
+				results.add(executor.submit(new Callable<Boolean>() {
+					@Override
+					public Boolean call() {
+						for (int n = 0; n < 50; ++n) {
+							for (int i = 0; i < values.size(); ++i) {
+								Date date = HttpDateParser.parse(values.get(i));
+								if (date == null || date.getTime() != times.get(i)) {
+									return false;
+								}
+							}
+						}
+						return true;
+					}
+				}));
+			}
+			for (Future<Boolean> result : results) {
+				assertEquals(Boolean.TRUE, result.get());
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	private static void assertTime(long expected, String value) {
+		Date date = HttpDateParser.parse(value);
+		assertEquals(value, Long.valueOf(expected), date != null ? Long.valueOf(date.getTime())
+				: null);
+	}
+
+	private static SimpleDateFormat createFormat(String pattern) {
+		SimpleDateFormat format = new SimpleDateFormat(pattern, Locale.US);
+		format.setTimeZone(TimeZone.getTimeZone("GMT"));
+		return format;
+	}
+}
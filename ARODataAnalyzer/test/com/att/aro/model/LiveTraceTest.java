@@ -0,0 +1,224 @@
+/*
+ *  Copyright 2012 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.model;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.att.aro.model.PacketInfo.TcpInfo;
+import com.att.aro.pcap.PcapFileWriter;
+
+/**
+ * Tests the polling of the capture files of a trace being collected, and the
+ * copy of the sessions of a previous snapshot.
+ */
+public class LiveTraceTest {
+
+	private static final int LINKTYPE_RAW = 101;
+
+	private File dir;
+	private LiveTrace liveTrace;
+
+	@Before
+	public void setUp() throws IOException {
+		dir = File.createTempFile("aro", ".livetest");
+		if (!dir.delete() || !dir.mkdir()) {
+			throw new IOException("Unable to create " + dir);
+		}
+		liveTrace = new LiveTrace(dir);
+	}
+
+	@After
+	public void tearDown() {
+		File[] files = dir.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				file.delete();
+			}
+		}
+		dir.delete();
+	}
+
+	@Test
+	public void readsAppendedPackets() throws IOException {
+		assertEquals(0, liveTrace.poll());
+		write(TraceData.PCAP_FILE, 3);
+		assertEquals(3, liveTrace.poll());
+		assertEquals(0, liveTrace.poll());
+		write(TraceData.PCAP_FILE, 5);
+		assertEquals(2, liveTrace.poll());
+		assertEquals(5, liveTrace.getPacketCount());
+	}
+
+	@Test
+	public void readsPartialPacketByNextPoll() throws IOException {
+		File file = write(TraceData.PCAP_FILE, 3);
+		truncate(file, file.length() - 1);
+		assertEquals(2, liveTrace.poll());
+		write(TraceData.PCAP_FILE, 3);
+		assertEquals(1, liveTrace.poll());
+		assertEquals(3, liveTrace.getPacketCount());
+	}
+
+	@Test
+	public void addsNoPacketsOfFailedPoll() throws IOException {
+		File file = write(TraceData.PCAP_FILE, 2);
+		assertEquals(2, liveTrace.poll());
+
+		// A corrupt record follows the packets appended
+		write(TraceData.PCAP_FILE, 4);
+		RandomAccessFile output = new RandomAccessFile(file, "rw");
+		try {
+			output.seek(output.length());
+			output.write(new byte[] { 0, 0, 0, 0, 0, 0, 0, 0, -1, -1, -1, -1, 0, 0, 0, 0 });
+		} finally {
+			output.close();
+		}
+		try {
+			liveTrace.poll();
+			fail("Corrupt record read");
+		} catch (IOException e) {
+			// Expected
+		}
+		assertEquals(2, liveTrace.getPacketCount());
+
+		// The packets are read once the file is fixed
+		write(TraceData.PCAP_FILE, 5);
+		assertEquals(3, liveTrace.poll());
+		assertEquals(5, liveTrace.getPacketCount());
+	}
+
+	@Test
+	public void followsRotatedFiles() throws IOException {
+		write(TraceData.PCAP_FILE, 2);
+		assertEquals(2, liveTrace.poll());
+		write(TraceData.PCAP_FILE, 3);
+		write(TraceData.TRAFFIC + 1 + TraceData.CAP_EXT, 2);
+		assertEquals(3, liveTrace.poll());
+		write(TraceData.TRAFFIC + 1 + TraceData.CAP_EXT, 4);
+		assertEquals(2, liveTrace.poll());
+		assertEquals(7, liveTrace.getPacketCount());
+	}
+
+	@Test
+	public void copiesSessionsWithoutNewPackets() throws IOException {
+		TestPackets builder = new TestPackets();
+		byte[] request = TestPackets.ascii("GET / HTTP/1.1\r\nHost: example.com\r\n\r\n");
+		byte[] response = TestPackets.ascii("HTTP/1.1 200 OK\r\nContent-Length: 4\r\n\r\nbody");
+		builder.flow("com.example", new byte[] { 10, 1, 0, 1 }, 80).connect(0.0)
+				.transfer(0.1, true, request).transfer(0.2, false, response).close(0.5);
+		TestPackets.Flow open = builder.flow("com.example", new byte[] { 10, 1, 0, 2 }, 80)
+				.connect(1.0).transfer(1.1, true, request);
+
+		// The storage of the previous sessions is spilled to the file of the
+		// previous trace
+		TraceData previousTrace = builder.createTraceData(2.0);
+		List<TCPSession> previous = TCPSession.extractTCPSessions(builder.snapshot(), null,
+				null, new SessionStorageFile.Spiller(previousTrace, 0), Collections
+						.<TCPSession> emptyList());
+		assertEquals(2, previous.size());
+		assertTrue(previous.get(0).isStorageSpilled());
+		List<PacketInfo> previousPackets = previous.get(0).getPackets();
+		List<TcpInfo> previousTcpInfos = new ArrayList<TcpInfo>();
+		for (PacketInfo packet : previousPackets) {
+			previousTcpInfos.add(packet.getTcpInfo());
+		}
+
+		open.transfer(1.2, false, response);
+		TraceData trace = builder.createTraceData(2.0);
+		try {
+			List<PacketInfo> packets = builder.snapshot();
+			List<TCPSession> sessions = TCPSession.extractTCPSessions(packets, null, null,
+					new SessionStorageFile.Spiller(trace, 0), previous);
+			assertEquals(2, sessions.size());
+			TCPSession copy = sessions.get(0);
+			assertNotSame(previous.get(0), copy);
+			assertNotSame(previous.get(1), sessions.get(1));
+			assertSame(sessions.get(1), packets.get(packets.size() - 1).getSession());
+
+			// The copy refers to the packets of its own snapshot only, and the
+			// previous session and its packets are not modified
+			assertEquals(previousPackets.size(), copy.getPackets().size());
+			for (int i = 0; i < previousPackets.size(); ++i) {
+				PacketInfo packet = copy.getPackets().get(i);
+				assertSame(packets.get(i), packet);
+				assertSame(copy, packet.getSession());
+				assertEquals(previousTcpInfos.get(i), packet.getTcpInfo());
+				assertSame(previous.get(0), previousPackets.get(i).getSession());
+				assertEquals(previousTcpInfos.get(i), previousPackets.get(i).getTcpInfo());
+			}
+			assertEquals(2, copy.getRequestResponseInfo().size());
+			for (HttpRequestResponseInfo rr : copy.getRequestResponseInfo()) {
+				assertSame(copy, rr.getSession());
+				assertSame(copy, rr.getFirstDataPacket().getSession());
+				assertSame(rr, rr.getAssocReqResp().getAssocReqResp());
+				assertTrue(copy.getRequestResponseInfo().contains(rr.getAssocReqResp()));
+			}
+			assertSame(previous.get(0), previous.get(0).getRequestResponseInfo().get(0)
+					.getSession());
+
+			// The copy no longer depends on the previous trace
+			assertTrue(copy.isStorageSpilled());
+			previousTrace.release();
+			assertArrayEquals(request, copy.getStorageUl());
+			assertArrayEquals(response, copy.getStorageDl());
+			assertArrayEquals(response, sessions.get(1).getStorageDl());
+			assertEquals(2, sessions.get(1).getRequestResponseInfo().size());
+		} finally {
+			trace.release();
+		}
+	}
+
+	/**
+	 * Writes a capture file with the specified number of packet records.
+	 */
+	private File write(String name, int count) throws IOException {
+		File file = new File(dir, name);
+		PcapFileWriter writer = new PcapFileWriter(file, LINKTYPE_RAW, 65535);
+		try {
+			for (int i = 0; i < count; ++i) {
+				writer.write(1000 + i, 0, 2, new byte[] { 0x45, (byte) i });
+			}
+		} finally {
+			writer.close();
+		}
+		return file;
+	}
+
+	private static void truncate(File file, long length) throws IOException {
+		RandomAccessFile output = new RandomAccessFile(file, "rw");
+		try {
+			output.setLength(length);
+		} finally {
+			output.close();
+		}
+	}
+}
@@ -0,0 +1,123 @@
+/*
+ *  Copyright 2012 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests the selection of packets through the PacketPartitions class against
+ * testing every packet with the filter. The partition index arrays start with
+ * 16 entries and double, so partitions of exactly 16, 32 and 64 packets fill
+ * their arrays.
+ */
+public class PacketPartitionsTest {
+
+	private static final String[] APPS = { "com.example.a", "com.example.b" };
+
+	@Test
+	public void selectsPartitionsOfFullArraySizes() {
+		assertSelection(new int[] { 16, 32 }, null);
+		assertSelection(new int[] { 16, 16, 16 }, null);
+		assertSelection(new int[] { 64, 32, 1 }, null);
+	}
+
+	@Test
+	public void selectsPartitionsAroundFullArraySizes() {
+		assertSelection(new int[] { 15, 16, 17 }, null);
+		assertSelection(new int[] { 31, 33 }, null);
+	}
+
+	@Test
+	public void selectsSinglePartition() {
+		assertSelection(new int[] { 16 }, null);
+	}
+
+	@Test
+	public void selectsTimeRange() {
+		assertSelection(new int[] { 16, 32 }, new TimeRange(0.1, 0.35));
+		assertSelection(new int[] { 16, 32, 64 }, new TimeRange(0.0, 10.0));
+		assertSelection(new int[] { 16, 32 }, new TimeRange(5.0, 6.0));
+	}
+
+	@Test
+	public void selectsUnselectedApplication() {
+		TestPackets builder = createPackets(new int[] { 16, 32, 16 });
+		TraceData trace = builder.createTraceData(10.0);
+		AnalysisFilter filter = new AnalysisFilter(trace);
+		filter.getApplicationSelection(APPS[1]).setSelected(false);
+		assertSelected(builder.getPackets(), filter);
+	}
+
+	/**
+	 * Sends the packets of one partition per size, interleaved in time so
+	 * that the selection has to merge the partitions, and checks the packets
+	 * selected with all of the partitions selected.
+	 */
+	private static void assertSelection(int[] sizes, TimeRange timeRange) {
+		TestPackets builder = createPackets(sizes);
+		TraceData trace = builder.createTraceData(10.0);
+		AnalysisFilter filter = new AnalysisFilter(trace);
+		filter.setTimeRange(timeRange);
+		assertSelected(builder.getPackets(), filter);
+	}
+
+	private static TestPackets createPackets(int[] sizes) {
+		TestPackets builder = new TestPackets();
+		TestPackets.Flow[] flows = new TestPackets.Flow[sizes.length];
+		int[] remaining = sizes.clone();
+		for (int i = 0; i < sizes.length; ++i) {
+			flows[i] = builder.flow(APPS[i % APPS.length], new byte[] { 93, (byte) 184, 0,
+					(byte) (1 + i) }, 80);
+		}
+		double ts = 0;
+		boolean sent = true;
+		while (sent) {
+			sent = false;
+			for (int i = 0; i < sizes.length; ++i) {
+				if (remaining[i] > 0) {
+					flows[i].send(ts, true, TestPackets.ACK, null, 0, 0);
+					ts += 0.01;
+					--remaining[i];
+					sent = true;
+				}
+			}
+		}
+		return builder;
+	}
+
+	private static void assertSelected(List<PacketInfo> packets, AnalysisFilter filter) {
+		List<PacketInfo> expected = new ArrayList<PacketInfo>();
+		TimeRange timeRange = filter.getTimeRange();
+		for (PacketInfo packet : packets) {
+			if (filter.getPacketColor(packet) != null
+					&& (timeRange == null || (packet.getTimeStamp() >= timeRange.getBeginTime() && packet
+							.getTimeStamp() <= timeRange.getEndTime()))) {
+				expected.add(packet);
+			}
+		}
+		List<PacketInfo> selected = new PacketPartitions(packets).select(filter);
+		assertEquals(expected.size(), selected.size());
+		for (int i = 0; i < expected.size(); ++i) {
+			assertSame(expected.get(i), selected.get(i));
+		}
+	}
+}
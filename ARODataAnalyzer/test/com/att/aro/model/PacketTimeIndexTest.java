@@ -0,0 +1,60 @@
+/*
+ *  Copyright 2012 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.model;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests the stable sort of the PacketTimeIndex class.
+ */
+public class PacketTimeIndexTest {
+
+	@Test
+	public void sortsByKey() {
+		Random random = new Random(1);
+		for (int length = 0; length < 70; ++length) {
+			double[] keys = new double[length];
+			int[] order = new int[length];
+			for (int i = 0; i < length; ++i) {
+				keys[i] = random.nextInt(8);
+				order[i] = i;
+			}
+			PacketTimeIndex.sort(order, keys);
+			for (int i = 1; i < length; ++i) {
+				double previous = keys[order[i - 1]];
+				double current = keys[order[i]];
+				assertEquals(true, previous <= current);
+
+				// Positions with the same key keep their order
+				if (previous == current) {
+					assertEquals(true, order[i - 1] < order[i]);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void keepsSortedOrder() {
+		int[] order = { 0, 1, 2, 3, 4 };
+		PacketTimeIndex.sort(order, new double[] { 1.0, 1.0, 2.0, 3.0, 3.0 });
+		assertArrayEquals(new int[] { 0, 1, 2, 3, 4 }, order);
+	}
+}
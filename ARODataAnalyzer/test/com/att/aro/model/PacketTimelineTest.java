@@ -0,0 +1,246 @@
+/*
+ *  Copyright 2012 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.att.aro.pcap.Packet;
+
+/**
+ * Tests that the packets of a timeline are decoded as they were encoded, in
+ * full and over time ranges, including after the timeline is written and read
+ * back, and the time range analysis that sums the bytes of a range from it.
+ */
+public class PacketTimelineTest {
+
+	private static final int DLT_RAW = 12;
+	private static final int IP_HEADER_LEN = 20;
+	private static final PacketInfo.Direction[] DIRECTIONS = PacketInfo.Direction.values();
+
+	private List<PacketInfo> packets;
+	private Random random;
+
+	/**
+	 * Creates packets that arrive at steady rates, in bursts with equal
+	 * timestamps, and after long gaps.
+	 */
+	@Before
+	public void setUp() {
+		random = new Random(50);
+		packets = new ArrayList<PacketInfo>();
+		long micros = 1000;
+		while (packets.size() < 5000) {
+			long step = random.nextInt(4) == 0 ? 0 : 1 + random.nextInt(2000);
+			for (int count = 1 + random.nextInt(50); count > 0; --count) {
+				packets.add(packet(micros, 40 + random.nextInt(1460),
+						DIRECTIONS[random.nextInt(DIRECTIONS.length)]));
+				micros += step;
+			}
+			micros += random.nextInt(10) == 0 ? random.nextInt(60000000) : random.nextInt(5000);
+		}
+	}
+
+	@Test
+	public void decodesPackets() {
+		PacketTimeline timeline = new PacketTimeline(packets);
+		assertEquals(packets.size(), timeline.size());
+		assertEquals(PacketTimeline.DEFAULT_BLOCK_SIZE, timeline.getBlockSize());
+		assertEquals((packets.size() + PacketTimeline.DEFAULT_BLOCK_SIZE - 1)
+				/ PacketTimeline.DEFAULT_BLOCK_SIZE, timeline.getBlockCount());
+		assertTimeline(packets, timeline);
+	}
+
+	@Test
+	public void decodesPacketsInSmallBlocks() {
+		assertTimeline(packets, new PacketTimeline(packets, 1));
+		assertTimeline(packets, new PacketTimeline(packets, 7));
+	}
+
+	@Test
+	public void decodesUnsortedPackets() {
+		List<PacketInfo> shuffled = new ArrayList<PacketInfo>(packets);
+		Collections.shuffle(shuffled, random);
+		assertTimeline(shuffled, new PacketTimeline(shuffled, 64));
+	}
+
+	@Test
+	public void readsWrittenTimeline() throws IOException {
+		PacketTimeline timeline = new PacketTimeline(packets, 7);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		timeline.write(bytes);
+		PacketTimeline copy = PacketTimeline.read(new ByteArrayInputStream(bytes.toByteArray()));
+		assertEquals(timeline.getBlockSize(), copy.getBlockSize());
+		assertEquals(timeline.getEncodedSize(), copy.getEncodedSize());
+		assertTimeline(packets, copy);
+	}
+
+	@Test
+	public void deserializesTimeline() throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream output = new ObjectOutputStream(bytes);
+		output.writeObject(new PacketTimeline(packets));
+		output.close();
+		ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(bytes
+				.toByteArray()));
+		try {
+			assertTimeline(packets, (PacketTimeline) input.readObject());
+		} finally {
+			input.close();
+		}
+	}
+
+	@Test
+	public void sumsBytesOfTimeRange() throws IOException {
+		TestPackets builder = new TestPackets();
+		for (int i = 0; i < 5; ++i) {
+			double ts = i * 7.0;
+			builder.flow("com.example", new byte[] { 10, 1, 0, (byte) i }, 80).connect(ts)
+					.transfer(ts + 0.1, true, new byte[300 + i])
+					.transfer(ts + 0.4, false, new byte[5000 * (i + 1)]).close(ts + 2.0);
+		}
+		TraceData trace = builder.createTraceData(40.0);
+		try {
+			TraceData.Analysis analysis = trace.runAnalysis(new ProfileLTE(), null);
+			// The ranges do not end on a packet, whose timestamp the timeline
+			// rounds to the microsecond
+			double[][] ranges = { { -1.0, 40.0 }, { 0.07, 0.45 }, { 6.5, 15.0 }, { 30.5, 31.0 } };
+			for (double[] range : ranges) {
+				long payloadLength = 0;
+				long totalBytes = 0;
+				for (PacketInfo p : analysis.getPackets()) {
+					if (p.getTimeStamp() >= range[0] && p.getTimeStamp() <= range[1]) {
+						payloadLength += p.getPayloadLen();
+						totalBytes += p.getLen();
+					}
+				}
+				TimeRangeAnalysis result = analysis.performTimeRangeAnalysis(range[0], range[1]);
+				assertEquals(payloadLength, result.getPayloadLen());
+				assertEquals(totalBytes, result.getTotalBytes());
+			}
+		} finally {
+			trace.release();
+		}
+	}
+
+	@Test
+	public void decodesEmptyTimeline() throws IOException {
+		PacketTimeline timeline = new PacketTimeline(new ArrayList<PacketInfo>());
+		assertEquals(0, timeline.size());
+		assertEquals(0, timeline.getBlockCount());
+		assertFalse(timeline.cursor().next());
+		assertFalse(timeline.cursor(0.0, 10.0).next());
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		timeline.write(bytes);
+		assertFalse(PacketTimeline.read(new ByteArrayInputStream(bytes.toByteArray())).cursor()
+				.next());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsBlockSizeBelowOne() {
+		new PacketTimeline(packets, 0);
+	}
+
+	@Test
+	public void rejectsUnknownVersion() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		new PacketTimeline(packets).write(bytes);
+		byte[] data = bytes.toByteArray();
+		data[3] = 99;
+		try {
+			PacketTimeline.read(new ByteArrayInputStream(data));
+			fail("Unknown version read");
+		} catch (IOException e) {
+			// Expected
+		}
+	}
+
+	/**
+	 * Checks a full scan of the timeline, and cursors over random time ranges
+	 * against the packets in the range.
+	 */
+	private void assertTimeline(List<PacketInfo> expected, PacketTimeline timeline) {
+		PacketTimeline.Cursor cursor = timeline.cursor();
+		int n = 0;
+		while (cursor.next()) {
+			PacketInfo packet = expected.get(n);
+			assertEquals(n, cursor.getIndex());
+			assertEquals(micros(packet.getTimeStamp()), micros(cursor.getTimeStamp()));
+			assertEquals(packet.getLen(), cursor.getLen());
+			assertEquals(packet.getPayloadLen(), cursor.getPayloadLen());
+			assertEquals(packet.getDir(), cursor.getDir());
+			++n;
+		}
+		assertEquals(expected.size(), n);
+
+		double last = Collections.max(expected).getTimeStamp();
+		for (int k = 0; k < 300; ++k) {
+			double begin = random.nextDouble() * last * 1.1 - 1.0;
+			double end = begin + random.nextDouble() * last * 0.05 * (k % 3);
+			List<Integer> inRange = new ArrayList<Integer>();
+			for (int i = 0; i < expected.size(); ++i) {
+				long time = micros(expected.get(i).getTimeStamp());
+				if (time >= micros(begin) && time <= micros(end)) {
+					inRange.add(i);
+				}
+			}
+			List<Integer> decoded = new ArrayList<Integer>();
+			cursor = timeline.cursor(begin, end);
+			while (cursor.next()) {
+				decoded.add(cursor.getIndex());
+			}
+			assertEquals(inRange, decoded);
+		}
+	}
+
+	private static long micros(double time) {
+		return Math.round(time * 1000000.0);
+	}
+
+	/**
+	 * Creates an IP packet with the specified timestamp, in microseconds,
+	 * length and direction.
+	 */
+	private static PacketInfo packet(long micros, int len, PacketInfo.Direction dir) {
+		ByteBuffer bytes = ByteBuffer.allocate(IP_HEADER_LEN);
+		bytes.put((byte) 0x45).put((byte) 0).putShort((short) len);
+		bytes.putShort((short) 0).putShort((short) 0x4000);
+		bytes.put((byte) 64).put((byte) 1).putShort((short) 0);
+		bytes.put(new byte[] { 10, 0, 0, 2 }).put(new byte[] { 10, 1, 0, 1 });
+		Packet packet = Packet.createPacketFromPcap(DLT_RAW, micros / 1000000,
+				micros % 1000000, len, bytes.array());
+		PacketInfo packetInfo = new PacketInfo(packet);
+		packetInfo.setTimestamp(micros / 1000000.0);
+		packetInfo.setDir(dir);
+		return packetInfo;
+	}
+}
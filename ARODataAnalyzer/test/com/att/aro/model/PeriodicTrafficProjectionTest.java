@@ -0,0 +1,153 @@
+/*
+ *  Copyright 2012 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests the projection of periodic transfers against an RRC simulation of
+ * every packet of the projected period.
+ */
+public class PeriodicTrafficProjectionTest {
+
+	/**
+	 * Two sources that drift into and out of each other's tails over the
+	 * projection, with the radio idle between most repetitions. The trace is
+	 * too short for their repetitions to come close, which would keep their
+	 * bursts from being classified as periodical.
+	 */
+	@Test
+	public void matchesSimulationWithIdleGaps() throws Exception {
+		double[][] sources = { { 5.0, 60.0 }, { 35.0, 61.0 } };
+		Profile profile = new ProfileLTE();
+		PeriodicTrafficProjection.Result result = project(sources, 900.0, profile, 21600.0);
+		assertEquals(2, result.getSources().size());
+		assertTrue(result.getSimulationCount() > 2);
+
+		double[] expected = simulate(sources, profile, 21600.0, 21600.0);
+		assertEquals(expected[0], result.getRadioEnergy(), expected[0] * 0.01);
+		assertEquals(expected[1], result.getRadioTime(), expected[1] * 0.01);
+		assertEquals(expected[2], result.getIdleEnergy(), expected[2] * 0.01);
+	}
+
+	/**
+	 * A source that repeats before the radio returns to idle, whose long run
+	 * of repetitions is extrapolated from its first cycles.
+	 */
+	@Test
+	public void matchesSimulationOfExtrapolatedRun() throws Exception {
+		double[][] sources = { { 3.0, 15.0 } };
+		Profile profile = new Profile3G();
+		PeriodicTrafficProjection.Result result = project(sources, 300.0, profile, 7200.0);
+		assertEquals(1, result.getSources().size());
+		assertEquals(480, result.getSources().get(0).getCycles());
+
+		// A repetition that arrives in the FACH tail does not promote the
+		// radio, so the cost of the run repeats every two cycles and is
+		// extrapolated rather than simulated in full
+		assertTrue(result.getSimulationCount() < 10);
+
+		// The tail of the last repetition ends after the projection
+		double[] expected = simulate(sources, profile, 7200.0, 7300.0);
+		assertEquals(expected[0], result.getRadioEnergy(), expected[0] * 0.01);
+		assertEquals(expected[1], result.getRadioTime(), expected[1] * 0.01);
+	}
+
+	/**
+	 * Observes the sources in a trace, and projects them over the specified
+	 * duration.
+	 */
+	private static PeriodicTrafficProjection.Result project(double[][] sources,
+			double traceDuration, Profile profile, double duration) throws IOException {
+		TestPackets builder = new TestPackets();
+		addRepetitions(builder, sources, traceDuration);
+		TraceData trace = builder.createTraceData(traceDuration);
+		try {
+			TraceData.Analysis analysis = trace.runAnalysis(profile, null);
+			return new PeriodicTrafficProjection(analysis).run(profile, duration);
+		} finally {
+			trace.release();
+		}
+	}
+
+	/**
+	 * Simulates the radio for every repetition of the sources over the
+	 * specified duration, and returns the energy and time of the radio while
+	 * it is not idle, and the energy while it is idle.
+	 */
+	private static double[] simulate(double[][] sources, Profile profile, double duration,
+			double traceDuration) {
+		TestPackets builder = new TestPackets();
+		addRepetitions(builder, sources, duration);
+		List<PacketInfo> packets = new ArrayList<PacketInfo>(builder.getPackets());
+		Collections.sort(packets);
+		RrcSimulation.RangeBuffer ranges = new RrcSimulation(packets).run(profile,
+				traceDuration).getRanges();
+		RRCState idleState = profile.getProfileType() == ProfileType.LTE ? RRCState.LTE_IDLE
+				: RRCState.STATE_IDLE;
+		double[] result = new double[3];
+		for (int i = 0; i < ranges.size(); ++i) {
+			double begin = ranges.getBegin(i);
+			double end = ranges.getEnd(i);
+			double energy = profile.energy(begin, end, ranges.getState(i), packets);
+			if (ranges.getState(i) == idleState) {
+				result[2] += energy;
+			} else {
+				result[0] += energy;
+				result[1] += end - begin;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Adds the same transfer for each repetition of the sources, which are
+	 * given by their phase and period, in time order.
+	 */
+	private static void addRepetitions(TestPackets builder, double[][] sources, double duration) {
+		int[] next = new int[sources.length];
+		while (true) {
+			int source = -1;
+			double time = duration;
+			for (int s = 0; s < sources.length; ++s) {
+				double t = sources[s][0] + next[s] * sources[s][1];
+				if (t < time) {
+					source = s;
+					time = t;
+				}
+			}
+			if (source < 0) {
+				break;
+			}
+			++next[source];
+			String host = "source" + source + ".example.com";
+			builder.flow("com.example", new byte[] { 10, 1, 0, (byte) (source + 1) }, 80)
+					.connect(time)
+					.transfer(time + 0.1, true, TestPackets.ascii("GET /poll HTTP/1.1\r\nHost: "
+							+ host + "\r\n\r\n"))
+					.transfer(time + 0.2, false, TestPackets.ascii("HTTP/1.1 200 OK\r\n"
+							+ "Content-Length: 2\r\n\r\nok")).close(time + 0.3);
+		}
+	}
+}
@@ -0,0 +1,123 @@
+/*
+ *  Copyright 2012 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.model;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests that the RRC simulation produces the same state ranges and packet
+ * states as the state machine it replaced.
+ */
+public class RrcSimulationTest {
+
+	private static final int TRACES = 200;
+
+	@Test
+	public void matchesLegacy3G() {
+		matchesLegacy(new Profile3G(), 1);
+	}
+
+	@Test
+	public void matchesLegacyLTE() {
+		matchesLegacy(new ProfileLTE(), 2);
+	}
+
+	@Test
+	public void matchesLegacyWiFi() {
+		matchesLegacy(new ProfileWiFi(), 3);
+	}
+
+	@Test
+	public void matchesLegacyWithoutPackets() {
+		for (Profile profile : new Profile[] { new Profile3G(), new ProfileLTE(),
+				new ProfileWiFi() }) {
+			assertSameRanges(LegacyRrcStateMachine.run(new TestPackets().getPackets(), profile,
+					30.0), new RrcSimulation(new TestPackets().getPackets()).run(profile, 30.0)
+					.toStateRanges());
+		}
+	}
+
+	private static void matchesLegacy(Profile profile, long seed) {
+		Random random = new Random(seed);
+		for (int trace = 0; trace < TRACES; ++trace) {
+			TestPackets builder = randomTrace(random);
+			List<PacketInfo> expectedPackets = builder.snapshot();
+			List<PacketInfo> packets = builder.snapshot();
+			double last = packets.get(packets.size() - 1).getTimeStamp();
+
+			// Some traces end before the tail of the last packet
+			double traceDuration = last + random.nextDouble() * 30.0;
+
+			List<RrcStateRange> expected = LegacyRrcStateMachine.run(expectedPackets, profile,
+					traceDuration);
+			RrcSimulation.Result result = new RrcSimulation(packets).run(profile,
+					traceDuration);
+			result.applyPacketStates(packets);
+			assertSameRanges(expected, result.toStateRanges());
+			for (int i = 0; i < packets.size(); ++i) {
+				assertEquals("trace " + trace + " packet " + i, expectedPackets.get(i)
+						.getStateMachine(), packets.get(i).getStateMachine());
+			}
+		}
+	}
+
+	/**
+	 * Returns a trace of packets of random sizes and directions, separated by
+	 * gaps that are short, about as long as the timers of the profiles, or
+	 * long enough for the radio to become idle.
+	 */
+	private static TestPackets randomTrace(Random random) {
+		TestPackets builder = new TestPackets();
+		TestPackets.Flow flow = builder.flow("com.example", new byte[] { 10, 1, 0, 1 }, 80);
+		int count = 1 + random.nextInt(200);
+		double ts = random.nextDouble() * 5.0;
+		for (int i = 0; i < count; ++i) {
+			int len = random.nextBoolean() ? 0 : random.nextInt(TestPackets.MSS + 1);
+			flow.send(ts, random.nextBoolean(), TestPackets.ACK, new byte[len], 0, len);
+			switch (random.nextInt(4)) {
+			case 0:
+				ts += random.nextInt(3) * 0.001;
+				break;
+			case 1:
+				ts += random.nextDouble() * 0.5;
+				break;
+			case 2:
+				ts += random.nextDouble() * 15.0;
+				break;
+			default:
+				ts += random.nextDouble() * 40.0;
+				break;
+			}
+		}
+		return builder;
+	}
+
+	private static void assertSameRanges(List<RrcStateRange> expected, List<RrcStateRange> actual) {
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); ++i) {
+			RrcStateRange e = expected.get(i);
+			RrcStateRange a = actual.get(i);
+			assertEquals(e.getState(), a.getState());
+			assertEquals(e.getBeginTime(), a.getBeginTime(), 0.0);
+			assertEquals(e.getEndTime(), a.getEndTime(), 0.0);
+		}
+	}
+}
@@ -0,0 +1,224 @@
+/*
+ *  Copyright 2012 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.model;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the spilling of the session storage to the files of a trace, and the
+ * release of the files.
+ */
+public class SessionStorageFileTest {
+
+	private static final int SESSION_COUNT = 3;
+
+	private TestPackets builder;
+	private TraceData trace;
+	private byte[][] requests = new byte[SESSION_COUNT][];
+	private byte[][] responses = new byte[SESSION_COUNT][];
+
+	/**
+	 * Sends one request/response per session, with storage of a different
+	 * size in each session.
+	 */
+	@Before
+	public void setUp() {
+		builder = new TestPackets();
+		for (int i = 0; i < SESSION_COUNT; ++i) {
+			requests[i] = TestPackets.ascii("GET /file" + i + " HTTP/1.1\r\nHost: example.com\r\n\r\n");
+			StringBuilder body = new StringBuilder();
+			for (int j = 0; j < 500 * (i + 1); ++j) {
+				body.append((char) ('a' + (i + j) % 26));
+			}
+			responses[i] = TestPackets.ascii("HTTP/1.1 200 OK\r\nContent-Length: " + body.length()
+					+ "\r\n\r\n" + body);
+
+			double ts = i;
+			builder.flow("com.example", new byte[] { 10, 1, 0, (byte) i }, 80).connect(ts)
+					.transfer(ts + 0.1, true, requests[i]).transfer(ts + 0.2, false, responses[i])
+					.close(ts + 0.5);
+		}
+		trace = builder.createTraceData(SESSION_COUNT);
+	}
+
+	@After
+	public void tearDown() {
+		trace.release();
+	}
+
+	@Test
+	public void keepsStorageBelowThresholdOnHeap() throws Exception {
+		SessionStorageFile.Spiller spiller = new SessionStorageFile.Spiller(trace, Long.MAX_VALUE);
+		List<TCPSession> sessions = extract(spiller);
+		assertNull(spiller.getFile());
+		for (TCPSession session : sessions) {
+			assertFalse(session.isStorageSpilled());
+		}
+		assertStorage(sessions);
+	}
+
+	@Test
+	public void spillsEachSessionOnceThresholdIsReached() throws Exception {
+
+		// The first session stays on the heap until the second one reaches
+		// the threshold
+		long threshold = requests[0].length + responses[0].length + 1;
+		SessionStorageFile.Spiller spiller = new SessionStorageFile.Spiller(trace, threshold);
+		List<TCPSession> sessions = extract(spiller);
+		assertNotNull(spiller.getFile());
+		for (TCPSession session : sessions) {
+			assertTrue(session.isStorageSpilled());
+		}
+		assertStorage(sessions);
+	}
+
+	@Test
+	public void releaseOfTraceReleasesStorage() throws Exception {
+		SessionStorageFile.Spiller spiller = new SessionStorageFile.Spiller(trace, 1);
+		List<TCPSession> sessions = extract(spiller);
+		trace.release();
+		assertTrue(spiller.getFile().isReleased());
+		for (TCPSession session : sessions) {
+			assertNull(session.getStorageUl());
+			assertNull(session.getStorageDl());
+		}
+	}
+
+	@Test
+	public void serializedSessionsKeepSpilledStorage() throws Exception {
+		SessionStorageFile.Spiller spiller = new SessionStorageFile.Spiller(trace, 1);
+		List<TCPSession> sessions = extract(spiller);
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(new ArrayList<TCPSession>(sessions));
+		out.close();
+		trace.release();
+
+		ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+		@SuppressWarnings("unchecked")
+		List<TCPSession> read = (List<TCPSession>) in.readObject();
+		in.close();
+		for (TCPSession session : read) {
+			assertFalse(session.isStorageSpilled());
+		}
+		assertStorage(read);
+
+		// The sessions that were written still refer to the released file
+		for (TCPSession session : sessions) {
+			assertTrue(session.isStorageSpilled());
+		}
+	}
+
+	@Test
+	public void deletesDirectoryWithFiles() throws Exception {
+		File dir = SessionStorageFile.createDirectory();
+		SessionStorageFile file = new SessionStorageFile(dir);
+		byte[] data = TestPackets.ascii("session storage");
+		long offset = file.write(data);
+		assertArrayEquals(data, file.read(offset, data.length));
+		assertEquals(1, dir.listFiles().length);
+
+		file.release();
+		assertNull(file.read(offset, data.length));
+		SessionStorageFile.deleteDirectory(dir);
+		assertFalse(dir.exists());
+	}
+
+	@Test
+	public void readsContentRangesOfSpilledStorage() throws Exception {
+		SessionStorageFile.Spiller spiller = new SessionStorageFile.Spiller(trace, 1);
+		List<TCPSession> sessions = extract(spiller);
+		for (int i = 0; i < SESSION_COUNT; ++i) {
+			TCPSession session = sessions.get(i);
+			assertTrue(session.isStorageSpilled());
+			assertArrayEquals(Arrays.copyOfRange(responses[i], 10, 110), session.getStorage(
+					PacketInfo.Direction.DOWNLINK, 10, 100));
+
+			// The range is shortened at the end of the storage
+			assertArrayEquals(Arrays.copyOfRange(responses[i], responses[i].length - 5,
+					responses[i].length), session.getStorage(PacketInfo.Direction.DOWNLINK,
+					responses[i].length - 5, 100));
+
+			byte[] body = session.getRequestResponseInfo().get(1).getContent();
+			assertArrayEquals(Arrays.copyOfRange(responses[i], responses[i].length - body.length,
+					responses[i].length), body);
+		}
+	}
+
+	@Test
+	public void readsRangeOfStorageLargerThanCache() throws Exception {
+		File dir = SessionStorageFile.createDirectory();
+		SessionStorageFile file = new SessionStorageFile(dir);
+		try {
+			byte[] data = new byte[(int) SessionStorageFile.CACHE_SIZE + 4096];
+			for (int i = 0; i < data.length; ++i) {
+				data[i] = (byte) (i * 31);
+			}
+			file.write(TestPackets.ascii("previous storage"));
+			long offset = file.write(data);
+			int start = data.length - 5000;
+			assertArrayEquals(Arrays.copyOfRange(data, start, start + 1000), file.read(offset,
+					data.length, start, 1000));
+			assertArrayEquals(Arrays.copyOfRange(data, start, data.length), file.read(offset,
+					data.length, start, 10000));
+		} finally {
+			file.release();
+			SessionStorageFile.deleteDirectory(dir);
+		}
+		assertNull(file.read(0, (int) SessionStorageFile.CACHE_SIZE + 4096, 0, 10));
+	}
+
+	private List<TCPSession> extract(SessionStorageFile.Spiller spiller) throws Exception {
+		List<TCPSession> sessions = TCPSession.extractTCPSessions(builder.getPackets(), null,
+				null, spiller);
+		assertEquals(SESSION_COUNT, sessions.size());
+		return sessions;
+	}
+
+	/**
+	 * Checks the storage and the parsed response of each session, which are
+	 * sorted by start time.
+	 */
+	private void assertStorage(List<TCPSession> sessions) {
+		for (int i = 0; i < SESSION_COUNT; ++i) {
+			TCPSession session = sessions.get(i);
+			assertArrayEquals(requests[i], session.getStorageUl());
+			assertArrayEquals(responses[i], session.getStorageDl());
+			assertEquals(2, session.getRequestResponseInfo().size());
+			assertEquals(500 * (i + 1), session.getRequestResponseInfo().get(1)
+					.getContentLength());
+		}
+	}
+}
@@ -0,0 +1,170 @@
+/*
+ *  Copyright 2012 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.jsoup.nodes.Document;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the order in which the session traversal calls its visitors, with one
+ * thread and with sessions parsed ahead by a thread pool.
+ */
+public class SessionTraversalTest {
+
+	private static final int SESSIONS = 12;
+
+	private List<TCPSession> sessions;
+
+	/**
+	 * Records each call of a visitor in a log that is shared by the visitors.
+	 */
+	private static class RecordingVisitor implements SessionVisitor {
+		private final String name;
+		private final List<String> log;
+
+		RecordingVisitor(String name, List<String> log) {
+			this.name = name;
+			this.log = log;
+		}
+
+		@Override
+		public void onSession(TCPSession session) {
+			log.add(name + " session " + session.getRemotePort() + " "
+					+ session.getRemoteIP().getHostAddress());
+		}
+
+		@Override
+		public void onRequest(HttpRequestResponseInfo request) {
+			log.add(name + " request " + request.getObjName());
+		}
+
+		@Override
+		public void onResponse(HttpRequestResponseInfo response) {
+			log.add(name + " response " + response.getContentType());
+		}
+
+		@Override
+		public void onHtmlDocument(HttpRequestResponseInfo response, Document document) {
+			log.add(name + " document " + document.title());
+		}
+
+		@Override
+		public void finish() {
+			log.add(name + " finish");
+		}
+	}
+
+	@Before
+	public void setUp() throws Exception {
+		TestPackets builder = new TestPackets();
+		for (int i = 0; i < SESSIONS; ++i) {
+			double ts = i * 2.0;
+			String html = "<html><head><title>page " + i + "</title></head><body></body></html>";
+			builder.flow("com.example", new byte[] { 10, 1, 0, (byte) (i + 1) }, 80).connect(ts)
+					.transfer(ts + 0.1, true, TestPackets.ascii("GET /page/" + i
+							+ " HTTP/1.1\r\nHost: example.com\r\n\r\n"))
+					.transfer(ts + 0.2, false, TestPackets.ascii("HTTP/1.1 200 OK\r\n"
+							+ "Content-Type: text/html\r\nContent-Length: " + html.length()
+							+ "\r\n\r\n" + html))
+					.transfer(ts + 0.3, true, TestPackets.ascii("GET /data/" + i
+							+ " HTTP/1.1\r\nHost: example.com\r\n\r\n"))
+					.transfer(ts + 0.4, false, TestPackets.ascii("HTTP/1.1 200 OK\r\n"
+							+ "Content-Type: application/json\r\nContent-Length: 2\r\n\r\n{}"))
+					.close(ts + 1.0);
+		}
+		sessions = TCPSession.extractTCPSessions(builder.getPackets());
+		assertEquals(SESSIONS, sessions.size());
+	}
+
+	@Test
+	public void callsVisitorsInSessionOrder() {
+		List<String> expected = new ArrayList<String>();
+		for (int i = 0; i < SESSIONS; ++i) {
+			String ip = "10.1.0." + (i + 1);
+			expected.add("a session 80 " + ip);
+			expected.add("b session 80 " + ip);
+			expected.add("a request /page/" + i);
+			expected.add("b request /page/" + i);
+			expected.add("a response text/html");
+			expected.add("b response text/html");
+			expected.add("a document page " + i);
+			expected.add("b document page " + i);
+			expected.add("a request /data/" + i);
+			expected.add("b request /data/" + i);
+			expected.add("a response application/json");
+			expected.add("b response application/json");
+		}
+		expected.add("a finish");
+		expected.add("b finish");
+
+		for (int threadCount : new int[] { 1, 2, 4, SESSIONS + 3 }) {
+			List<String> log = Collections.synchronizedList(new ArrayList<String>());
+			SessionTraversal traversal = new SessionTraversal(new ContentCache());
+			traversal.addVisitor(new RecordingVisitor("a", log));
+			traversal.addVisitor(new RecordingVisitor("b", log));
+			traversal.run(sessions, threadCount);
+			assertEquals("threads " + threadCount, expected, log);
+		}
+	}
+
+	@Test
+	public void stopsCallingFailedPluginVisitor() {
+		for (int threadCount : new int[] { 1, 4 }) {
+			List<String> log = Collections.synchronizedList(new ArrayList<String>());
+			SessionTraversal traversal = new SessionTraversal(new ContentCache());
+			SessionVisitor failing = new RecordingVisitor("plugin", log) {
+				@Override
+				public void onRequest(HttpRequestResponseInfo request) {
+					super.onRequest(request);
+					if (request.getObjName().equals("/data/2")) {
+						throw new IllegalStateException("Plugin failure");
+					}
+				}
+			};
+			traversal.addPluginVisitor(failing);
+			traversal.addVisitor(new RecordingVisitor("a", log));
+			traversal.run(sessions, threadCount);
+
+			assertEquals(1, traversal.getFailedVisitors().size());
+			assertSame(failing, traversal.getFailedVisitors().get(0));
+			assertSame(failing, traversal.getVisitors().get(0));
+
+			// The plugin is not called after the failure, not even to finish
+			int calls = 0;
+			int last = -1;
+			for (int i = 0; i < log.size(); ++i) {
+				if (log.get(i).startsWith("plugin ")) {
+					++calls;
+					last = i;
+				}
+			}
+			assertEquals("plugin request /data/2", log.get(last));
+			// Six calls for each session before the failing one, and five
+			// for the failing one
+			assertEquals(2 * 6 + 5, calls);
+			assertEquals(SESSIONS * 6 + 1, log.size() - calls);
+			assertEquals("a finish", log.get(log.size() - 1));
+		}
+	}
+}
@@ -0,0 +1,180 @@
+/*
+ *  Copyright 2012 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.att.aro.util.Util;
+
+/**
+ * Tests the accounting of the stages of reading and analyzing a trace.
+ */
+public class StageTimingsTest {
+
+	@Test
+	public void recordsStagesInCompletionOrder() throws InterruptedException {
+		StageTimings timings = new StageTimings();
+		StageTimings.Stage outer = timings.start("outer");
+		StageTimings.Stage inner = timings.start("inner");
+		Thread.sleep(20);
+		StageTimings.StageTiming innerTiming = inner.stop();
+		StageTimings.StageTiming outerTiming = outer.stop();
+		StageTimings.StageTiming repeated = timings.start("inner").stop();
+
+		List<StageTimings.StageTiming> recorded = timings.getTimings();
+		assertEquals(3, recorded.size());
+		assertSame(innerTiming, recorded.get(0));
+		assertSame(outerTiming, recorded.get(1));
+		assertSame(repeated, recorded.get(2));
+		assertTrue(innerTiming.getWallNanos() >= 20000000L);
+		assertTrue(outerTiming.getWallNanos() >= innerTiming.getWallNanos());
+
+		// The last timing of a stage is returned
+		assertSame(repeated, timings.getTiming("inner"));
+		assertNull(timings.getTiming("missing"));
+		assertEquals(innerTiming.getWallNanos() + outerTiming.getWallNanos()
+				+ repeated.getWallNanos(), timings.getTotalWallNanos());
+
+		timings.clear();
+		assertEquals(0, timings.getTimings().size());
+		assertEquals(0, timings.getTotalWallNanos());
+	}
+
+	@Test
+	public void measuresCpuAndAllocation() throws InterruptedException {
+		StageTimings timings = new StageTimings();
+		StageTimings.Stage stage = timings.start("allocate");
+		byte[][] blocks = new byte[64][];
+		for (int i = 0; i < blocks.length; ++i) {
+			blocks[i] = new byte[65536];
+		}
+		StageTimings.StageTiming allocate = stage.stop();
+		assertEquals(65536, blocks[blocks.length - 1].length);
+		assertTrue(allocate.getAllocatedBytes() == -1
+				|| allocate.getAllocatedBytes() >= blocks.length * 65536L);
+
+		// A sleeping thread uses less CPU time than wall time
+		stage = timings.start("sleep");
+		Thread.sleep(50);
+		StageTimings.StageTiming sleep = stage.stop();
+		assertTrue(sleep.getCpuNanos() == -1
+				|| (sleep.getCpuNanos() >= 0 && sleep.getCpuNanos() < sleep.getWallNanos()));
+	}
+
+	@Test
+	public void recordsEachAnalysisStage() throws IOException {
+		TestPackets builder = new TestPackets();
+		builder.flow("com.example", new byte[] { 10, 1, 0, 1 }, 80).connect(1.0)
+				.transfer(1.1, true, TestPackets.ascii("GET / HTTP/1.1\r\nHost: example.com\r\n\r\n"))
+				.transfer(1.3, false, TestPackets.ascii("HTTP/1.1 200 OK\r\n"
+						+ "Content-Length: 5\r\n\r\nhello")).close(2.0);
+		TraceData trace = builder.createTraceData(30.0);
+		try {
+			TraceData.Analysis first = trace.runAnalysis(new ProfileLTE(), null);
+			TraceData.Analysis second = trace.runAnalysis(new Profile3G(), null);
+
+			String[] keys = { "stage.filtering", "stage.basic.statistics",
+					"stage.session.extraction", "stage.traffic.cube", "stage.rrc.state.machine",
+					"stage.energy.model", "stage.burst.analysis", "stage.session.analyses",
+					"stage.image.size", "stage.minification", "stage.cache.analysis",
+					"stage.best.practices", "stage.application.score", "stage.cache.info" };
+			List<String> expected = new ArrayList<String>();
+			for (String key : keys) {
+				expected.add(Util.RB.getString(key));
+			}
+
+			// Each analysis accounts for its own stages once
+			for (TraceData.Analysis analysis : new TraceData.Analysis[] { first, second }) {
+				List<String> names = new ArrayList<String>();
+				long total = 0;
+				for (StageTimings.StageTiming timing : analysis.getTimings().getTimings()) {
+					names.add(timing.getName());
+					assertTrue(timing.getWallNanos() >= 0);
+					total += timing.getWallNanos();
+				}
+				assertEquals(expected, names);
+				assertEquals(total, analysis.getTimings().getTotalWallNanos());
+				assertEquals(0, analysis.getChartTimings().getTimings().size());
+			}
+		} finally {
+			trace.release();
+		}
+	}
+
+	@Test
+	public void exportsEachGroupOfTimings() throws IOException {
+		StageTimings read = new StageTimings();
+		read.start("Read \"pcap\"\t\\").stop();
+		StageTimings analysis = new StageTimings();
+		analysis.start("a").stop();
+		analysis.start("b").stop();
+
+		File dir = File.createTempFile("aro", ".timingstest");
+		if (!dir.delete() || !dir.mkdir()) {
+			throw new IOException("Unable to create " + dir);
+		}
+		File file = StageTimings.export(dir, read, analysis, null);
+		try {
+			assertEquals(new File(dir, StageTimings.EXPORT_FILE), file);
+			String text = read(file);
+			List<StageTimings.StageTiming> all = new ArrayList<StageTimings.StageTiming>(read
+					.getTimings());
+			all.addAll(analysis.getTimings());
+			String expected = "{\n  \"read\": [\n    "
+					+ json("Read \\\"pcap\\\"\\u0009\\\\", all.get(0))
+					+ "\n  ],\n  \"analysis\": [\n    " + json("a", all.get(1)) + ",\n    "
+					+ json("b", all.get(2)) + "\n  ],\n  \"chart\": []\n}\n";
+			assertEquals(expected, text);
+		} finally {
+			file.delete();
+			dir.delete();
+		}
+	}
+
+	private static String json(String name, StageTimings.StageTiming timing) {
+		return "{\"stage\": \"" + name + "\", \"wallNanos\": " + timing.getWallNanos()
+				+ ", \"cpuNanos\": " + timing.getCpuNanos() + ", \"allocatedBytes\": "
+				+ timing.getAllocatedBytes() + "}";
+	}
+
+	private static String read(File file) throws IOException {
+		StringBuilder result = new StringBuilder();
+		Reader reader = new InputStreamReader(new FileInputStream(file), "UTF-8");
+		try {
+			char[] buffer = new char[4096];
+			int n;
+			while ((n = reader.read(buffer)) >= 0) {
+				result.append(buffer, 0, n);
+			}
+		} finally {
+			reader.close();
+		}
+		return result.toString();
+	}
+}
@@ -0,0 +1,144 @@
+/*
+ *  Copyright 2012 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests the ids and the shared instances of the strings of a symbol table,
+ * and the sharing of the strings of the sessions of a trace.
+ */
+public class SymbolTableTest {
+
+	@Test
+	public void assignsIdsInOrderOfFirstAddition() {
+		SymbolTable table = new SymbolTable();
+		assertEquals(0, table.getId("text/html"));
+		assertEquals(1, table.getId("image/png"));
+		assertEquals(0, table.getId(new String("text/html")));
+		assertEquals(2, table.size());
+		assertEquals("image/png", table.getSymbol(1));
+	}
+
+	@Test
+	public void internReturnsStoredInstance() {
+		SymbolTable table = new SymbolTable();
+		String stored = new String("example.com");
+		assertSame(stored, table.intern(stored));
+
+		String copy = new String("example.com");
+		assertNotSame(stored, copy);
+		assertSame(stored, table.intern(copy));
+		assertNull(table.intern(null));
+		assertEquals(1, table.size());
+	}
+
+	@Test
+	public void findIdDoesNotAdd() {
+		SymbolTable table = new SymbolTable();
+		table.getId("a");
+		assertEquals(-1, table.findId("b"));
+		assertEquals(1, table.size());
+		assertEquals(0, table.findId("a"));
+	}
+
+	@Test
+	public void growsPastInitialCapacity() {
+		SymbolTable table = new SymbolTable();
+		for (int i = 0; i < 100; ++i) {
+			assertEquals(i, table.getId("symbol" + i));
+		}
+		assertEquals(100, table.size());
+		for (int i = 0; i < 100; ++i) {
+			assertEquals("symbol" + i, table.getSymbol(i));
+			assertEquals(i, table.findId("symbol" + i));
+		}
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void rejectsUnknownId() {
+		SymbolTable table = new SymbolTable();
+		table.getId("a");
+		table.getSymbol(1);
+	}
+
+	@Test
+	public void keepsIdsWhenSerialized() throws Exception {
+		SymbolTable table = new SymbolTable();
+		table.getId("GET");
+		table.getId("HTTP/1.1");
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(table);
+		out.close();
+		ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+		SymbolTable read = (SymbolTable) in.readObject();
+		in.close();
+
+		assertEquals(2, read.size());
+		assertEquals(1, read.findId("HTTP/1.1"));
+		assertEquals(2, read.getId("gzip"));
+	}
+
+	@Test
+	public void sessionsShareStringsOfTrace() throws Exception {
+		TestPackets builder = new TestPackets();
+		for (int i = 0; i < 2; ++i) {
+			builder.flow("com.example", new byte[] { 10, 1, 0, (byte) (i + 1) }, 80).connect(i)
+					.transfer(i + 0.1, true, TestPackets.ascii("GET /index.html?id=" + i
+							+ " HTTP/1.1\r\nHost: www.example.com\r\n\r\n"))
+					.transfer(i + 0.2, false, TestPackets.ascii("HTTP/1.1 200 OK\r\n"
+							+ "Content-Type: text/html\r\nContent-Length: 2\r\n\r\nok"))
+					.close(i + 0.5);
+		}
+		TraceSymbols symbols = new TraceSymbols();
+		List<TCPSession> sessions = TCPSession.extractTCPSessions(builder.getPackets(), null,
+				symbols);
+		assertEquals(2, sessions.size());
+
+		TCPSession first = sessions.get(0);
+		TCPSession second = sessions.get(1);
+		assertEquals("www.example.com", first.getDomainName());
+		assertSame(first.getDomainName(), second.getDomainName());
+		assertSame(first.getRemoteHostName(), second.getRemoteHostName());
+
+		HttpRequestResponseInfo request1 = first.getRequestResponseInfo().get(0);
+		HttpRequestResponseInfo request2 = second.getRequestResponseInfo().get(0);
+		assertSame(request1.getHostName(), request2.getHostName());
+		assertSame(request1.getRequestType(), request2.getRequestType());
+		assertSame(request1.getObjNameWithoutParams(), request2.getObjNameWithoutParams());
+
+		HttpRequestResponseInfo response1 = first.getRequestResponseInfo().get(1);
+		HttpRequestResponseInfo response2 = second.getRequestResponseInfo().get(1);
+		assertEquals("text/html", response1.getContentType());
+		assertSame(response1.getContentType(), response2.getContentType());
+		assertEquals(1, symbols.getContentTypes().size());
+		assertEquals(1, symbols.getUrlPrefixes().size());
+		assertEquals(0, symbols.getHostNames().findId("www.example.com"));
+	}
+}
@@ -0,0 +1,223 @@
+/*
+ *  Copyright 2012 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests the range views and state durations of time series against filtering
+ * and clipping every event.
+ */
+public class TimeSeriesTest {
+
+	private static final String[] STATES = { "on", "off", "idle" };
+
+	/**
+	 * An event with a state, which is clipped unless it is a point event.
+	 */
+	private static final class Event {
+		private final double begin;
+		private final double end;
+		private final String state;
+
+		private Event(double begin, double end, String state) {
+			this.begin = begin;
+			this.end = end;
+			this.state = state;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Event)) {
+				return false;
+			}
+			Event o = (Event) obj;
+			return begin == o.begin && end == o.end && state.equals(o.state);
+		}
+
+		@Override
+		public int hashCode() {
+			return state.hashCode();
+		}
+
+		@Override
+		public String toString() {
+			return state + "[" + begin + ", " + end + "]";
+		}
+	}
+
+	private static final TimeSeries.Accessor<Event> EVENTS = new TimeSeries.Accessor<Event>() {
+		@Override
+		public double getBeginTime(Event event) {
+			return event.begin;
+		}
+
+		@Override
+		public double getEndTime(Event event) {
+			return event.end;
+		}
+
+		@Override
+		public Object getState(Event event) {
+			return event.state;
+		}
+
+		@Override
+		public Event clip(Event event, double beginTime, double endTime) {
+			return event.begin == event.end ? null : new Event(beginTime, endTime, event.state);
+		}
+	};
+
+	@Test
+	public void returnsAllEventsOfSeries() {
+		List<Event> events = Arrays.asList(new Event(0.0, 1.0, "on"), new Event(1.0, 3.0, "off"));
+		TimeSeries<Event> series = new TimeSeries<Event>(events, EVENTS);
+		assertEquals(events, series);
+		assertEquals(1.0, series.getDuration("on"), 0.0);
+		assertEquals(2.0, series.getDuration("off"), 0.0);
+		assertEquals(0.0, series.getDuration("idle"), 0.0);
+	}
+
+	@Test
+	public void sharesEventsWithinRange() {
+		List<Event> events = Arrays.asList(new Event(0.0, 1.0, "on"), new Event(1.0, 2.0, "off"),
+				new Event(2.0, 3.0, "on"), new Event(3.0, 4.0, "off"));
+		TimeSeries<Event> range = new TimeSeries<Event>(events, EVENTS).range(0.5, 3.5);
+		assertEquals(Arrays.asList(new Event(0.5, 1.0, "on"), events.get(1), events.get(2),
+				new Event(3.0, 3.5, "off")), range);
+		assertSame(events.get(1), range.get(1));
+		assertSame(events.get(2), range.get(2));
+		assertEquals(1.5, range.getDuration("on"), 1e-12);
+		assertEquals(1.5, range.getDuration("off"), 1e-12);
+	}
+
+	@Test
+	public void leavesOutPointEventsOutsideRange() {
+		List<Event> events = Arrays.asList(new Event(1.0, 1.0, "on"), new Event(2.0, 2.0, "on"),
+				new Event(3.0, 3.0, "on"));
+		TimeSeries<Event> series = new TimeSeries<Event>(events, EVENTS);
+		assertEquals(Collections.singletonList(events.get(1)), series.range(1.5, 2.5));
+		assertEquals(events, series.range(1.0, 3.0));
+		assertTrue(series.range(3.5, 4.0).isEmpty());
+	}
+
+	@Test
+	public void filtersRangeWhenBeginIsAfterEnd() {
+		List<Event> events = Arrays.asList(new Event(0.0, 1.0, "off"), new Event(1.0, 5.0, "on"),
+				new Event(5.0, 6.0, "off"));
+		TimeSeries<Event> series = new TimeSeries<Event>(events, EVENTS);
+		assertRange(filter(events, 3.0, 2.0), series.range(3.0, 2.0));
+		assertRange(filter(events, 5.5, 0.5), series.range(5.5, 0.5));
+	}
+
+	@Test
+	public void matchesFilterOnRandomSeries() {
+		Random random = new Random(45);
+		for (int n = 0; n < 200; ++n) {
+			List<Event> events = createSeries(random, random.nextInt(40));
+			TimeSeries<Event> series = new TimeSeries<Event>(events, EVENTS);
+			for (int r = 0; r < 20; ++r) {
+				double begin = random.nextDouble() * 50.0 - 5.0;
+				double end = begin + random.nextDouble() * 20.0;
+				TimeSeries<Event> range = series.range(begin, end);
+				assertRange(filter(events, begin, end), range);
+
+				// A range of a range is limited to both ranges
+				double innerBegin = begin + random.nextDouble() * 10.0 - 2.0;
+				double innerEnd = innerBegin + random.nextDouble() * 10.0;
+				assertRange(filter(events, Math.max(begin, innerBegin), Math.min(end, innerEnd)),
+						range.range(innerBegin, innerEnd));
+			}
+		}
+	}
+
+	@Test
+	public void filtersUnsortedSeries() {
+		List<Event> events = Arrays.asList(new Event(2.0, 4.0, "on"), new Event(0.0, 1.0, "off"),
+				new Event(3.0, 3.0, "idle"), new Event(1.0, 2.5, "on"));
+		TimeSeries<Event> series = new TimeSeries<Event>(events, EVENTS);
+		assertEquals(events, series);
+		assertRange(filter(events, 0.5, 3.5), series.range(0.5, 3.5));
+		assertRange(filter(events, 2.2, 10.0), series.range(2.2, 10.0));
+	}
+
+	/**
+	 * Creates a sorted series of back to back state events, with point events
+	 * between some of them.
+	 */
+	private static List<Event> createSeries(Random random, int size) {
+		List<Event> events = new ArrayList<Event>(size);
+		double time = random.nextDouble() * 5.0;
+		for (int i = 0; i < size; ++i) {
+			String state = STATES[random.nextInt(STATES.length)];
+			if (random.nextInt(5) == 0) {
+				events.add(new Event(time, time, state));
+			} else {
+				double end = time + random.nextDouble() * 3.0;
+				events.add(new Event(time, end, state));
+				time = end;
+			}
+		}
+		return events;
+	}
+
+	/**
+	 * Filters and clips every event, as the copy-and-filter methods of the
+	 * analysis did.
+	 */
+	private static List<Event> filter(List<Event> events, double beginTime, double endTime) {
+		List<Event> result = new ArrayList<Event>();
+		for (Event event : events) {
+			Event clipped = null;
+			if (event.begin >= beginTime && event.end <= endTime) {
+				clipped = event;
+			} else if (event.begin <= beginTime && event.end <= endTime && event.end > beginTime) {
+				clipped = EVENTS.clip(event, beginTime, event.end);
+			} else if (event.begin <= beginTime && event.end >= endTime) {
+				clipped = EVENTS.clip(event, beginTime, endTime);
+			} else if (event.begin >= beginTime && event.begin < endTime && event.end >= endTime) {
+				clipped = EVENTS.clip(event, event.begin, endTime);
+			}
+			if (clipped != null) {
+				result.add(clipped);
+			}
+		}
+		return result;
+	}
+
+	private static void assertRange(List<Event> expected, TimeSeries<Event> range) {
+		assertEquals(expected, new ArrayList<Event>(range));
+		for (String state : STATES) {
+			double duration = 0.0;
+			for (Event event : expected) {
+				if (state.equals(event.state)) {
+					duration += event.end - event.begin;
+				}
+			}
+			assertEquals(state, duration, range.getDuration(state), 1e-9);
+		}
+	}
+}
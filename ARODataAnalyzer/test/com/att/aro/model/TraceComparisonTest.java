@@ -0,0 +1,184 @@
+/*
+ *  Copyright 2012 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests the alignment of the transactions and bursts of two traces.
+ */
+public class TraceComparisonTest {
+
+	private List<TraceData> traces = new ArrayList<TraceData>();
+
+	@After
+	public void tearDown() {
+		for (TraceData trace : traces) {
+			trace.release();
+		}
+	}
+
+	@Test
+	public void normalizesUrls() throws IOException {
+		TraceData.Analysis analysis = analyze(new double[] { 0.0, 20.0, 40.0, 60.0, 80.0 },
+				new String[] { "GET /api/v2/items/12345?session=1 HTTP/1.1\r\nHost: Example.COM",
+						"GET /a/0123456789abcdef-0123/b HTTP/1.1\r\nHost: example.com",
+						"GET /cafe/2013/ HTTP/1.1\r\nHost: example.com:8080",
+						"POST http://Proxy.Example.com/upload/77 HTTP/1.1\r\nHost: other.com",
+						"GET http://Proxy.Example.com HTTP/1.1" });
+		List<String> urls = new ArrayList<String>();
+		for (TCPSession session : analysis.getTcpSessions()) {
+			for (HttpRequestResponseInfo rr : session.getRequestResponseInfo()) {
+				if (rr.getDirection() == HttpRequestResponseInfo.Direction.REQUEST) {
+					urls.add(TraceComparison.normalizeUrl(rr));
+				}
+			}
+		}
+		List<String> expected = new ArrayList<String>();
+		expected.add("GET example.com/api/v2/items/*");
+		expected.add("GET example.com/a/*/b");
+		expected.add("GET example.com/cafe/*/");
+		expected.add("POST other.com/upload/*");
+		expected.add("GET proxy.example.com/");
+		assertEquals(expected, urls);
+	}
+
+	@Test
+	public void pairsOccurrencesInOrder() throws IOException {
+		TraceData.Analysis base = analyze(new double[] { 0.0, 20.0, 40.0, 60.0 }, new String[] {
+				get("/a/1"), get("/b"), get("/a/2"), get("/a/3") });
+		TraceData.Analysis candidate = analyze(new double[] { 0.0, 20.0, 40.0, 60.0 },
+				new String[] { get("/b"), get("/a/7"), get("/c"), get("/a/8") });
+		List<TraceComparison.TransactionMatch> matches = new TraceComparison(base, candidate)
+				.getTransactions();
+
+		// Candidate transactions in time order, then the unpaired base ones
+		assertEquals(5, matches.size());
+		assertMatch(matches.get(0), "/b", "/b");
+		assertMatch(matches.get(1), "/a/1", "/a/7");
+		assertMatch(matches.get(2), null, "/c");
+		assertMatch(matches.get(3), "/a/2", "/a/8");
+		assertMatch(matches.get(4), "/a/3", null);
+	}
+
+	@Test
+	public void alignsBurstsWithinTolerance() throws IOException {
+		double[] baseTimes = { 0.0, 25.0, 70.0 };
+		double[] candidateTimes = { 1.5, 28.0, 70.5, 100.0 };
+		TraceData.Analysis base = analyze(baseTimes, gets(baseTimes.length));
+		TraceData.Analysis candidate = analyze(candidateTimes, gets(candidateTimes.length));
+
+		// Each transfer is a burst of the same category in both traces
+		BurstCategory category = base.getBurstInfos().get(0).getBurstCategory();
+		for (Burst burst : base.getBurstInfos()) {
+			assertEquals(category, burst.getBurstCategory());
+		}
+		for (Burst burst : candidate.getBurstInfos()) {
+			assertEquals(category, burst.getBurstCategory());
+		}
+
+		List<TraceComparison.BurstMatch> matches = new TraceComparison(base, candidate, null,
+				2.0).getBursts();
+		assertEquals(5, matches.size());
+		assertBursts(matches.get(0), 0.0, 1.5);
+		assertBursts(matches.get(1), 25.0, -1.0);
+		assertBursts(matches.get(2), -1.0, 28.0);
+		assertBursts(matches.get(3), 70.0, 70.5);
+		assertBursts(matches.get(4), -1.0, 100.0);
+
+		matches = new TraceComparison(base, candidate, null, 4.0).getBursts();
+		assertEquals(4, matches.size());
+		assertBursts(matches.get(0), 0.0, 1.5);
+		assertBursts(matches.get(1), 25.0, 28.0);
+		assertBursts(matches.get(2), 70.0, 70.5);
+		assertBursts(matches.get(3), -1.0, 100.0);
+	}
+
+	/**
+	 * Analyzes a trace with one connection for each request, sent at the
+	 * specified times.
+	 */
+	private TraceData.Analysis analyze(double[] times, String[] requests) throws IOException {
+		TestPackets builder = new TestPackets();
+		for (int i = 0; i < times.length; ++i) {
+			double ts = times[i];
+			builder.flow("com.example", new byte[] { 10, 1, 0, (byte) (i + 1) }, 80).connect(ts)
+					.transfer(ts + 0.1, true, TestPackets.ascii(requests[i] + "\r\n\r\n"))
+					.transfer(ts + 0.3, false, TestPackets.ascii("HTTP/1.1 200 OK\r\n"
+							+ "Content-Length: 5\r\n\r\nhello")).close(ts + 1.0);
+		}
+		TraceData trace = builder.createTraceData(times[times.length - 1] + 30.0);
+		traces.add(trace);
+		return trace.runAnalysis(new ProfileLTE(), null);
+	}
+
+	private static String get(String path) {
+		return "GET " + path + " HTTP/1.1\r\nHost: example.com";
+	}
+
+	private static String[] gets(int count) {
+		String[] result = new String[count];
+		for (int i = 0; i < count; ++i) {
+			result[i] = get("/" + i);
+		}
+		return result;
+	}
+
+	/**
+	 * Asserts the object names of the paired requests, where null stands for
+	 * a transaction that is not paired.
+	 */
+	private static void assertMatch(TraceComparison.TransactionMatch match, String base,
+			String candidate) {
+		if (base == null) {
+			assertNull(match.getBase());
+		} else {
+			assertEquals(base, match.getBase().getRequest().getObjName());
+		}
+		if (candidate == null) {
+			assertNull(match.getCandidate());
+		} else {
+			assertEquals(candidate, match.getCandidate().getRequest().getObjName());
+		}
+	}
+
+	/**
+	 * Asserts the transfer times of the paired bursts, where a negative time
+	 * stands for a burst that is not paired.
+	 */
+	private static void assertBursts(TraceComparison.BurstMatch match, double base,
+			double candidate) {
+		if (base < 0.0) {
+			assertNull(match.getBase());
+		} else {
+			assertTrue(Math.abs(match.getBase().getBeginTime() - base) < 0.5);
+		}
+		if (candidate < 0.0) {
+			assertNull(match.getCandidate());
+		} else {
+			assertTrue(Math.abs(match.getCandidate().getBeginTime() - candidate) < 0.5);
+		}
+	}
+}
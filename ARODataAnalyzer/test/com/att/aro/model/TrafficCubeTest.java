@@ -0,0 +1,215 @@
+/*
+ *  Copyright 2012 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the roll ups of the traffic cube against totals computed from the
+ * packets and sessions.
+ */
+public class TrafficCubeTest {
+
+	private static final String APP_A = "com.example.a";
+	private static final String APP_B = "com.example.b";
+	private static final byte[] IP_A = { 10, 1, 0, 1 };
+	private static final byte[] IP_B = { 10, 1, 0, 2 };
+
+	private List<PacketInfo> packets;
+	private List<TCPSession> sessions;
+	private TrafficCube cube;
+
+	/**
+	 * Sends two sessions of one application to one host, and one session of
+	 * another application to another host in between.
+	 */
+	@Before
+	public void setUp() throws Exception {
+		TestPackets builder = new TestPackets();
+		send(builder, APP_A, IP_A, "a.example.com", 0.0, 3000);
+		send(builder, APP_B, IP_B, "b.example.com", 1.2, 500);
+		send(builder, APP_A, IP_A, "a.example.com", 2.5, 0);
+		TraceData trace = builder.createTraceData(5.0);
+		packets = builder.getPackets();
+		sessions = TCPSession.extractTCPSessions(packets, null, trace.getSymbols());
+		cube = new TrafficCube(packets, sessions, trace.getSymbols(), 1.0);
+	}
+
+	@Test
+	public void rollsUpByApplication() {
+		List<TrafficCube.Row> rows = cube.rollUp(TrafficCube.Dimension.APPLICATION);
+		assertEquals(2, rows.size());
+		for (TrafficCube.Row row : rows) {
+			int packetCount = 0;
+			long bytes = 0;
+			for (PacketInfo packet : packets) {
+				if (row.getAppName().equals(packet.getAppName())) {
+					++packetCount;
+					bytes += packet.getLen();
+				}
+			}
+			assertEquals(packetCount, row.getPacketCount());
+			assertEquals(bytes, row.getTotalBytes());
+			assertNull(row.getDomainName());
+			assertTrue(Double.isNaN(row.getBucketTime()));
+			assertEquals(APP_A.equals(row.getAppName()) ? 2 : 1, row.getSessionCount());
+		}
+	}
+
+	@Test
+	public void rollsUpByIpAddress() {
+		Map<InetAddress, Integer> counts = new HashMap<InetAddress, Integer>();
+		for (PacketInfo packet : packets) {
+			Integer count = counts.get(packet.getRemoteIPAddress());
+			counts.put(packet.getRemoteIPAddress(), count != null ? count + 1 : 1);
+		}
+
+		List<TrafficCube.Row> rows = cube.rollUp(TrafficCube.Dimension.IP_ADDRESS);
+		assertEquals(counts.size(), rows.size());
+		for (TrafficCube.Row row : rows) {
+			assertTrue(row.isIpPacket());
+			assertEquals(counts.get(row.getIpAddress()).intValue(), row.getPacketCount());
+		}
+	}
+
+	@Test
+	public void rollsUpByDomain() {
+		List<TrafficCube.Row> rows = cube.rollUp(TrafficCube.Dimension.DOMAIN);
+		assertEquals(2, rows.size());
+		for (TrafficCube.Row row : rows) {
+			int sessionCount = 0;
+			int requestCount = 0;
+			int fileDownloads = 0;
+			double duration = 0.0;
+			for (TCPSession session : sessions) {
+				if (row.getDomainName().equals(session.getDomainName())) {
+					++sessionCount;
+					duration += session.getSessionEndTime() - session.getSessionStartTime();
+					fileDownloads += session.getFileDownloadCount();
+					for (HttpRequestResponseInfo rr : session.getRequestResponseInfo()) {
+						if (rr.getDirection() == HttpRequestResponseInfo.Direction.REQUEST) {
+							++requestCount;
+						}
+					}
+				}
+			}
+			assertEquals(sessionCount, row.getSessionCount());
+			assertEquals(requestCount, row.getRequestCount());
+			assertEquals(fileDownloads, row.getFileDownloadCount());
+			assertEquals(duration, row.getSessionDuration(), 1e-9);
+		}
+	}
+
+	@Test
+	public void rollsUpEverythingIntoOneRow() {
+		List<TrafficCube.Row> rows = cube.rollUp();
+		assertEquals(1, rows.size());
+		TrafficCube.Row total = rows.get(0);
+		assertEquals(packets.size(), total.getPacketCount());
+		assertEquals(3, total.getSessionCount());
+		assertEquals(3, total.getRequestCount());
+		assertEquals(2, total.getFileDownloadCount());
+		assertNull(total.getAppName());
+		assertNull(total.getIpAddress());
+	}
+
+	@Test
+	public void rollsUpTimeBuckets() {
+		List<TrafficCube.Row> rows = cube.rollUp(TrafficCube.Dimension.TIME);
+		int[] counts = new int[5];
+		for (PacketInfo packet : packets) {
+			++counts[(int) Math.floor(packet.getTimeStamp())];
+		}
+		int total = 0;
+		for (TrafficCube.Row row : rows) {
+			int bucket = (int) row.getBucketTime();
+			assertEquals(bucket, row.getBucketTime(), 0.0);
+			assertEquals(counts[bucket], row.getPacketCount());
+			total += row.getPacketCount();
+		}
+		assertEquals(packets.size(), total);
+	}
+
+	@Test
+	public void rollsUpTimeRangeOfWholeBuckets() {
+
+		// The range is rounded out to the buckets from 1 to 2 seconds
+		List<TrafficCube.Row> rows = cube.rollUp(EnumSet.of(TrafficCube.Dimension.APPLICATION),
+				new TimeRange(1.5, 2.1));
+		int count = 0;
+		for (PacketInfo packet : packets) {
+			if (packet.getTimeStamp() >= 1.0 && packet.getTimeStamp() < 3.0) {
+				++count;
+			}
+		}
+		int total = 0;
+		for (TrafficCube.Row row : rows) {
+			total += row.getPacketCount();
+		}
+		assertEquals(count, total);
+	}
+
+	@Test
+	public void returnsSessionsOfDomain() {
+		List<TCPSession> expected = new ArrayList<TCPSession>();
+		for (TCPSession session : sessions) {
+			if ("a.example.com".equals(session.getDomainName())) {
+				expected.add(session);
+			}
+		}
+		List<TCPSession> result = cube.getSessions("a.example.com");
+		assertEquals(2, result.size());
+		assertSame(expected.get(0), result.get(0));
+		assertSame(expected.get(1), result.get(1));
+		assertEquals(Collections.<TCPSession> emptyList(), cube.getSessions("c.example.com"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsBucketWidthThatIsNotPositive() {
+		new TrafficCube(packets, sessions, new TraceSymbols(), 0.0);
+	}
+
+	/**
+	 * Sends one request to the host, and a response with a body of the
+	 * specified length.
+	 */
+	private static void send(TestPackets builder, String appName, byte[] ip, String host,
+			double ts, int bodyLength) {
+		StringBuilder body = new StringBuilder();
+		for (int i = 0; i < bodyLength; ++i) {
+			body.append('x');
+		}
+		builder.flow(appName, ip, 80).connect(ts).transfer(ts + 0.1, true,
+				TestPackets.ascii("GET / HTTP/1.1\r\nHost: " + host + "\r\n\r\n")).transfer(
+				ts + 0.2, false,
+				TestPackets.ascii("HTTP/1.1 200 OK\r\nContent-Length: " + bodyLength
+						+ "\r\n\r\n" + body)).close(ts + 0.9);
+	}
+}
@@ -0,0 +1,250 @@
+/*
+ *  Copyright 2012 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.pcap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the reading of several capture files as one capture in timestamp
+ * order, and the merge of the files into one.
+ */
+public class PcapMergeReaderTest {
+
+	static final int LINKTYPE_RAW = 101;
+	private static final int SNAP_LENGTH = 65535;
+
+	private File dir;
+
+	@Before
+	public void setUp() throws IOException {
+		dir = createDirectory();
+	}
+
+	@After
+	public void tearDown() {
+		deleteDirectory(dir);
+	}
+
+	@Test
+	public void readsFilesInTimestampOrder() throws IOException {
+		File a = write("a.pcap", LINKTYPE_RAW, 1, 1.0, 3.0, 5.0);
+		File b = write("b.pcap", LINKTYPE_RAW, 2, 2.0, 3.0, 6.0);
+		File empty = write("c.pcap", LINKTYPE_RAW, 3);
+
+		// The packet of the first file comes first when the timestamps are
+		// the same
+		PcapMergeReader reader = new PcapMergeReader(Arrays.asList(a, b, empty));
+		try {
+			assertRecords(reader, new int[] { 1, 2, 1, 2, 1, 2 }, new int[] { 0, 0, 1, 1, 2, 2 },
+					new int[] { 0, 1, 0, 1, 0, 1 });
+			assertFalse(reader.next());
+		} finally {
+			reader.close();
+		}
+	}
+
+	@Test
+	public void mergesFilesIntoOne() throws IOException {
+		File a = write("a.pcap", LINKTYPE_RAW, 1, 0.5, 0.75, 4.0, 4.0);
+		File b = write("b.pcap", LINKTYPE_RAW, 2, 0.25, 4.0);
+		File merged = new File(dir, "merged.pcap");
+		assertEquals(6, PcapMergeReader.merge(Arrays.asList(a, b), merged));
+
+		PcapFileReader reader = new PcapFileReader(merged);
+		try {
+			assertEquals(LINKTYPE_RAW, reader.getLinkType());
+			assertEquals(SNAP_LENGTH, reader.getSnapLength());
+			double[] timeStamps = { 1000.25, 1000.5, 1000.75, 1004.0, 1004.0, 1004.0 };
+			int[] files = { 2, 1, 1, 1, 1, 2 };
+			int[] records = { 0, 0, 1, 2, 3, 1 };
+			for (int i = 0; i < timeStamps.length; ++i) {
+				assertTrue(reader.next());
+				assertEquals(timeStamps[i], reader.getTimeStamp(), 0.0);
+				assertEquals(files[i], reader.getData()[0]);
+				assertEquals(records[i], reader.getData()[1]);
+			}
+			assertFalse(reader.next());
+		} finally {
+			reader.close();
+		}
+	}
+
+	@Test
+	public void readsLittleEndianNanosecondFiles() throws IOException {
+		File big = write("big.pcap", LINKTYPE_RAW, 1, 1.5);
+
+		// Header and records of a little endian file with nanosecond
+		// timestamps
+		ByteBuffer bytes = ByteBuffer.allocate(PcapFileReader.FILE_HEADER_LENGTH + 2
+				* (PcapFileReader.RECORD_HEADER_LENGTH + 2));
+		bytes.order(ByteOrder.LITTLE_ENDIAN);
+		bytes.putInt(PcapFileReader.NANO_MAGIC).putShort((short) 2).putShort((short) 4);
+		bytes.putInt(0).putInt(0).putInt(SNAP_LENGTH).putInt(LINKTYPE_RAW);
+		bytes.putInt(1001).putInt(250000000).putInt(2).putInt(2).put((byte) 2).put((byte) 0);
+		bytes.putInt(1001).putInt(750000000).putInt(2).putInt(2).put((byte) 2).put((byte) 1);
+		File little = new File(dir, "little.pcap");
+		writeBytes(little, bytes.array(), bytes.capacity());
+
+		PcapMergeReader reader = new PcapMergeReader(Arrays.asList(big, little));
+		try {
+			assertEquals(LINKTYPE_RAW, reader.getLinkType());
+			assertRecords(reader, new int[] { 2, 1, 2 }, new int[] { 0, 0, 1 }, new int[] { 1,
+					0, 1 });
+			assertEquals(1001.75, reader.getCurrentFile().getTimeStamp(), 1e-9);
+			assertEquals(750000, reader.getCurrentFile().getMicroSeconds());
+		} finally {
+			reader.close();
+		}
+	}
+
+	@Test
+	public void ignoresTruncatedRecord() throws IOException {
+		File file = write("a.pcap", LINKTYPE_RAW, 1, 1.0, 2.0, 3.0);
+
+		// Cut the last record off in the middle of its data
+		byte[] bytes = new byte[(int) file.length()];
+		DataInputStream input = new DataInputStream(new FileInputStream(file));
+		try {
+			input.readFully(bytes);
+		} finally {
+			input.close();
+		}
+		writeBytes(file, bytes, bytes.length - 1);
+
+		PcapFileReader reader = new PcapFileReader(file);
+		try {
+			assertTrue(reader.next());
+			assertTrue(reader.next());
+			long position = reader.getPosition();
+			assertFalse(reader.next());
+			assertEquals(2, reader.getRecordCount());
+			assertEquals(position, reader.getPosition());
+		} finally {
+			reader.close();
+		}
+	}
+
+	@Test
+	public void rejectsDifferentLinkTypes() throws IOException {
+		File a = write("a.pcap", LINKTYPE_RAW, 1, 1.0);
+		File b = write("b.pcap", 1, 2, 2.0);
+		PcapMergeReader reader = new PcapMergeReader(Arrays.asList(a, b));
+		try {
+			reader.getLinkType();
+			fail("Expected different link types to be rejected");
+		} catch (IOException e) {
+			// Expected
+		} finally {
+			reader.close();
+		}
+	}
+
+	@Test
+	public void rejectsFileThatIsNotPcap() throws IOException {
+		File a = write("a.pcap", LINKTYPE_RAW, 1, 1.0);
+		File text = new File(dir, "text.pcap");
+		byte[] bytes = "This is not a capture file at all".getBytes("US-ASCII");
+		writeBytes(text, bytes, bytes.length);
+		try {
+			new PcapMergeReader(Arrays.asList(a, text)).close();
+			fail("Expected a file that is not a pcap file to be rejected");
+		} catch (IOException e) {
+			// Expected
+		}
+	}
+
+	/**
+	 * Checks the file index and the data of the next packets of the reader.
+	 */
+	private static void assertRecords(PcapMergeReader reader, int[] files, int[] records,
+			int[] fileIndexes) throws IOException {
+		for (int i = 0; i < files.length; ++i) {
+			assertTrue(reader.next());
+			assertEquals(fileIndexes[i], reader.getFileIndex());
+			byte[] data = reader.getCurrentFile().getData();
+			assertEquals(files[i], data[0]);
+			assertEquals(records[i], data[1]);
+		}
+	}
+
+	/**
+	 * Writes a capture file with a packet record at each of the specified
+	 * seconds after 1000 seconds. The data of each record is the file number
+	 * followed by the record number.
+	 */
+	private File write(String name, int linkType, int fileNumber, double... seconds)
+			throws IOException {
+		return write(new File(dir, name), linkType, fileNumber, seconds);
+	}
+
+	static File write(File file, int linkType, int fileNumber, double... seconds)
+			throws IOException {
+		PcapFileWriter writer = new PcapFileWriter(file, linkType, SNAP_LENGTH);
+		try {
+			for (int i = 0; i < seconds.length; ++i) {
+				long micros = Math.round(seconds[i] * 1000000.0);
+				writer.write(1000 + micros / 1000000, micros % 1000000, 2, new byte[] {
+						(byte) fileNumber, (byte) i });
+			}
+		} finally {
+			writer.close();
+		}
+		return file;
+	}
+
+	private static void writeBytes(File file, byte[] bytes, int length) throws IOException {
+		FileOutputStream output = new FileOutputStream(file);
+		try {
+			output.write(bytes, 0, length);
+		} finally {
+			output.close();
+		}
+	}
+
+	static File createDirectory() throws IOException {
+		File dir = File.createTempFile("aro", ".pcaptest");
+		if (!dir.delete() || !dir.mkdir()) {
+			throw new IOException("Unable to create " + dir);
+		}
+		return dir;
+	}
+
+	static void deleteDirectory(File dir) {
+		File[] files = dir.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				file.delete();
+			}
+		}
+		dir.delete();
+	}
+}
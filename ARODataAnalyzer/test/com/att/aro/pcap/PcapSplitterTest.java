@@ -0,0 +1,117 @@
+/*
+ *  Copyright 2012 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.pcap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the split of captures into capture files of a fixed duration.
+ */
+public class PcapSplitterTest {
+
+	private File dir;
+
+	@Before
+	public void setUp() throws IOException {
+		dir = PcapMergeReaderTest.createDirectory();
+	}
+
+	@After
+	public void tearDown() {
+		PcapMergeReaderTest.deleteDirectory(dir);
+	}
+
+	@Test
+	public void skipsSlicesWithoutPackets() throws IOException {
+		File capture = PcapMergeReaderTest.write(new File(dir, "in.cap"),
+				PcapMergeReaderTest.LINKTYPE_RAW, 1, 0.5, 1.0, 1.7, 4.2);
+
+		// Slices start at the first packet, so the last packet is in the
+		// fourth slice and the third slice is empty
+		List<File> slices = PcapSplitter.split(Collections.singletonList(capture), 1.0, dir,
+				"slice");
+		assertEquals(3, slices.size());
+		assertEquals("slice_0001.pcap", slices.get(0).getName());
+		assertEquals("slice_0002.pcap", slices.get(1).getName());
+		assertEquals("slice_0004.pcap", slices.get(2).getName());
+		assertFalse(new File(dir, "slice_0003.pcap").exists());
+
+		assertSlice(slices.get(0), new double[] { 1000.5, 1001.0 }, new int[] { 1, 1 });
+		assertSlice(slices.get(1), new double[] { 1001.7 }, new int[] { 1 });
+		assertSlice(slices.get(2), new double[] { 1004.2 }, new int[] { 1 });
+	}
+
+	@Test
+	public void splitsRotatedFilesAsOneCapture() throws IOException {
+		File first = PcapMergeReaderTest.write(new File(dir, "traffic.cap"),
+				PcapMergeReaderTest.LINKTYPE_RAW, 1, 0.0, 0.4, 2.1);
+		File second = PcapMergeReaderTest.write(new File(dir, "traffic1.cap"),
+				PcapMergeReaderTest.LINKTYPE_RAW, 2, 0.2, 1.9, 2.4);
+
+		List<File> slices = PcapSplitter.split(Arrays.asList(first, second), 2.0, dir, "part");
+		assertEquals(2, slices.size());
+		assertSlice(slices.get(0), new double[] { 1000.0, 1000.2, 1000.4, 1001.9 }, new int[] {
+				1, 2, 1, 2 });
+		assertSlice(slices.get(1), new double[] { 1002.1, 1002.4 }, new int[] { 1, 2 });
+	}
+
+	@Test
+	public void writesNoSlicesForEmptyCapture() throws IOException {
+		File capture = PcapMergeReaderTest.write(new File(dir, "in.cap"),
+				PcapMergeReaderTest.LINKTYPE_RAW, 1);
+		assertTrue(PcapSplitter.split(Collections.singletonList(capture), 1.0, dir, "slice")
+				.isEmpty());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsSliceDurationThatIsNotPositive() throws IOException {
+		File capture = PcapMergeReaderTest.write(new File(dir, "in.cap"),
+				PcapMergeReaderTest.LINKTYPE_RAW, 1, 1.0);
+		PcapSplitter.split(Collections.singletonList(capture), 0.0, dir, "slice");
+	}
+
+	/**
+	 * Checks the timestamps of the packets of a slice and the numbers of the
+	 * files they come from.
+	 */
+	private static void assertSlice(File slice, double[] timeStamps, int[] files)
+			throws IOException {
+		PcapFileReader reader = new PcapFileReader(slice);
+		try {
+			assertEquals(PcapMergeReaderTest.LINKTYPE_RAW, reader.getLinkType());
+			for (int i = 0; i < timeStamps.length; ++i) {
+				assertTrue(reader.next());
+				assertEquals(timeStamps[i], reader.getTimeStamp(), 1e-6);
+				assertEquals(files[i], reader.getData()[0]);
+			}
+			assertFalse(reader.next());
+		} finally {
+			reader.close();
+		}
+	}
+}